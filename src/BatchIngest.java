@@ -0,0 +1,454 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class streams records from CSV or TSV files into an IModel without a GUI, for servers and
+ * nightly jobs. Each line of a file is one record, whose first field gives its kind:
+ *
+ * <pre>
+ * sample,JANE DOE,3456        a sample and its ID
+ * test,HCV,4                  a test and its duration
+ * equipment,CENTRIFUGE,20     equipment and the days until its service is due
+ * assign,JANE DOE,HCV         a test assigned to a sample
+ * delete,JANE DOE,3456        the sample with that name and ID deleted
+ * </pre>
+ *
+ * Files ending in .tsv are split on tabs, other files on commas, and a field may be quoted with
+ * double quotes, doubling any quote inside it. Blank lines and lines starting with # are skipped.
+ * Names are upper-cased, as they are when entered in the GUI.
+ *
+ * Lines are read in chunks, the chunks are parsed in parallel on a pool of workers, and the
+ * parsed records are applied to the model by the reading thread in file order, with runs of
+ * assignments to the same sample applied together, as are runs of deletions. Only a few chunks
+ * are in flight at once, so memory stays bounded however long the file is. A malformed record, a
+ * sample whose ID is already in the model, an assignment of a test or to a sample that is not in
+ * it, or a deletion of a sample that is not in it, is reported and skipped without stopping the
+ * run.
+ */
+public class BatchIngest implements AutoCloseable {
+  private static final int CHUNK_LINES = 4096;
+  private static final int MAX_REPORTED_ERRORS = 100;
+
+  private final IModel model;
+  private final PrintStream log;
+  private final ExecutorService workers;
+  private final int maxInFlight;
+  private int reportedErrors;
+
+  /**
+   * Constructs an ingester that adds records to the given model
+   * @param model the model to add records to
+   * @param threads the number of threads to parse on
+   * @param log where to report rejected records and progress
+   * @throws IllegalArgumentException if threads is less than one
+   */
+  public BatchIngest(IModel model, int threads, PrintStream log) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid number of threads");
+    }
+    this.model = model;
+    this.log = log;
+    this.workers = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "labflow-ingest");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.maxInFlight = threads * 2;
+  }
+
+  /**
+   * Streams every record in the given file into the model
+   * @param file the CSV or TSV file to read
+   * @return a report of the rows read, applied and rejected
+   * @throws IOException if the file cannot be read
+   */
+  public Report ingest(Path file) throws IOException {
+    char delimiter = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".tsv")
+        ? '\t' : ',';
+    String source = file.getFileName().toString();
+    Report report = new Report(source);
+    Deque<Future<Row[]>> inFlight = new ArrayDeque<>();
+    Applier applier = new Applier(report);
+    long start = System.nanoTime();
+
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      int lineNumber = 0;
+      while (true) {
+        List<String> lines = new ArrayList<>(CHUNK_LINES);
+        String line;
+        while (lines.size() < CHUNK_LINES && (line = reader.readLine()) != null) {
+          lines.add(line);
+        }
+        if (lines.isEmpty()) {
+          break;
+        }
+        int firstLine = lineNumber + 1;
+        lineNumber += lines.size();
+        inFlight.add(this.workers.submit(() -> parse(lines, firstLine, delimiter)));
+        if (inFlight.size() >= this.maxInFlight) {
+          applier.apply(next(inFlight));
+        }
+      }
+      while (!inFlight.isEmpty()) {
+        applier.apply(next(inFlight));
+      }
+      applier.flush();
+    } finally {
+      for (Future<Row[]> chunk : inFlight) {
+        chunk.cancel(true);
+      }
+    }
+
+    report.nanos = System.nanoTime() - start;
+    this.log.println(report);
+    return report;
+  }
+
+  /**
+   * Stops the worker threads
+   */
+  @Override
+  public void close() {
+    this.workers.shutdownNow();
+  }
+
+  /**
+   * Waits for the oldest chunk in flight to be parsed
+   * @param inFlight the chunks being parsed, oldest first
+   * @return the parsed records of the oldest chunk
+   */
+  private static Row[] next(Deque<Future<Row[]>> inFlight) {
+    try {
+      return inFlight.remove().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while ingesting", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Could not parse records", e.getCause());
+    }
+  }
+
+  /**
+   * Parses a chunk of lines into records. Runs on a worker thread, so it touches nothing shared
+   * @param lines the lines of the chunk
+   * @param firstLine the line number of the first line
+   * @param delimiter the field delimiter
+   * @return array with one record per line that is not blank or a comment
+   */
+  private static Row[] parse(List<String> lines, int firstLine, char delimiter) {
+    List<Row> rows = new ArrayList<>(lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i);
+      if (line.isBlank() || line.startsWith("#")) {
+        continue;
+      }
+      rows.add(parse(line, firstLine + i, delimiter));
+    }
+    return rows.toArray(new Row[0]);
+  }
+
+  /**
+   * Parses one line into a record
+   * @param line the line
+   * @param lineNumber the line number
+   * @param delimiter the field delimiter
+   * @return the record, or a rejected record saying what is wrong with the line
+   */
+  private static Row parse(String line, int lineNumber, char delimiter) {
+    List<String> fields = split(line, delimiter);
+    if (fields == null) {
+      return Row.rejected(lineNumber, "unbalanced quotes");
+    }
+    if (fields.size() != 3) {
+      return Row.rejected(lineNumber, "expected 3 fields, found " + fields.size());
+    }
+    Kind kind;
+    try {
+      kind = Kind.valueOf(fields.get(0).trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return Row.rejected(lineNumber, "unknown record kind '" + fields.get(0) + "'");
+    }
+    String name = fields.get(1).trim().toUpperCase(Locale.ROOT);
+    if (name.isEmpty()) {
+      return Row.rejected(lineNumber, "empty name");
+    }
+    if (kind == Kind.ASSIGN) {
+      String test = fields.get(2).trim().toUpperCase(Locale.ROOT);
+      return test.isEmpty() ? Row.rejected(lineNumber, "empty test name")
+          : new Row(kind, lineNumber, name, test, 0);
+    }
+    try {
+      return new Row(kind, lineNumber, name, null, Integer.parseInt(fields.get(2).trim()));
+    } catch (NumberFormatException e) {
+      return Row.rejected(lineNumber, "not a number: '" + fields.get(2) + "'");
+    }
+  }
+
+  /**
+   * Splits a line into fields, honouring double quotes
+   * @param line the line
+   * @param delimiter the field delimiter
+   * @return list of fields, or null if a quote is not closed
+   */
+  private static List<String> split(String line, char delimiter) {
+    List<String> fields = new ArrayList<>(3);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == delimiter) {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      return null;
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /**
+   * Reports a rejected record, up to a limit so that a bad file cannot flood the log
+   */
+  private void reject(Report report, int lineNumber, String reason) {
+    report.rejected++;
+    if (this.reportedErrors < MAX_REPORTED_ERRORS) {
+      this.log.println(report.source + ":" + lineNumber + ": rejected, " + reason);
+    } else if (this.reportedErrors == MAX_REPORTED_ERRORS) {
+      this.log.println("further rejected records are counted but not reported");
+    }
+    this.reportedErrors++;
+  }
+
+  /**
+   * This class applies parsed records to the model in order, on the reading thread
+   */
+  private class Applier {
+    private final Report report;
+    private final List<Row> pendingAssignments = new ArrayList<>();
+    private final List<Row> pendingDeletes = new ArrayList<>();
+    private String pendingSample;
+
+    Applier(Report report) {
+      this.report = report;
+    }
+
+    void apply(Row[] rows) {
+      for (Row row : rows) {
+        this.report.rows++;
+        if (row.error != null) {
+          reject(this.report, row.lineNumber, row.error);
+          continue;
+        }
+        if (row.kind == Kind.ASSIGN) {
+          if (!row.name.equals(this.pendingSample)) {
+            flush();
+            this.pendingSample = row.name;
+          }
+          this.pendingAssignments.add(row);
+          continue;
+        }
+        if (row.kind == Kind.DELETE) {
+          flushAssignments();
+          this.pendingDeletes.add(row);
+          continue;
+        }
+
+        flush();
+        switch (row.kind) {
+          case SAMPLE -> {
+            try {
+              model.addSample(new SampleImpl(row.name, row.number));
+            } catch (IllegalArgumentException e) {
+              reject(this.report, row.lineNumber, e.getMessage());
+              continue;
+            }
+          }
+          case TEST -> model.addTest(new LabTestImpl(row.name, row.number));
+          default -> model.addEquipment(new EquipmentImpl(row.name, row.number));
+        }
+        this.report.applied++;
+      }
+    }
+
+    /**
+     * Applies the assignments and deletions collected so far
+     */
+    void flush() {
+      flushAssignments();
+      flushDeletes();
+    }
+
+    /**
+     * Assigns the tests collected for the current sample in one call, rejecting them all if the
+     * sample is not in the model, and each test that is not. The names are looked up in the
+     * model's own indexes
+     */
+    private void flushAssignments() {
+      if (this.pendingSample == null) {
+        return;
+      }
+      boolean sampleKnown = model.containsSample(this.pendingSample);
+      List<String> tests = new ArrayList<>(this.pendingAssignments.size());
+      for (Row row : this.pendingAssignments) {
+        if (!sampleKnown) {
+          reject(this.report, row.lineNumber, "No sample " + row.name);
+        } else if (!model.containsTest(row.other)) {
+          reject(this.report, row.lineNumber, "No test " + row.other);
+        } else {
+          tests.add(row.other);
+        }
+      }
+      if (!tests.isEmpty()) {
+        model.assignTests(tests, List.of(this.pendingSample));
+        this.report.applied += tests.size();
+      }
+      this.pendingAssignments.clear();
+      this.pendingSample = null;
+    }
+
+    /**
+     * Deletes the samples collected for deletion, looking each one up by its ID
+     */
+    private void flushDeletes() {
+      if (this.pendingDeletes.isEmpty()) {
+        return;
+      }
+      IntHashMap<Row> claimed = new IntHashMap<>();
+      int[] sampleIDs = new int[this.pendingDeletes.size()];
+      int found = 0;
+      for (Row row : this.pendingDeletes) {
+        Sample sample = claimed.containsKey(row.number) ? null : model.findSampleById(row.number);
+        if (sample != null && row.name.equals(sample.getSampleName())) {
+          claimed.put(row.number, row);
+          sampleIDs[found++] = row.number;
+        } else {
+          reject(this.report, row.lineNumber, "No sample " + row.name + " with ID " + row.number);
+        }
+      }
+      this.report.applied += model.deleteSamplesById(Arrays.copyOf(sampleIDs, found));
+      this.pendingDeletes.clear();
+    }
+  }
+
+  /**
+   * This enumerated type sets the kinds of record a file may hold
+   */
+  private enum Kind {SAMPLE, TEST, EQUIPMENT, ASSIGN, DELETE}
+
+  /**
+   * This class represents one parsed record, or the reason a line was rejected
+   */
+  private static class Row {
+    final Kind kind;
+    final int lineNumber;
+    final String name;
+    final String other;
+    final int number;
+    final String error;
+
+    Row(Kind kind, int lineNumber, String name, String other, int number) {
+      this(kind, lineNumber, name, other, number, null);
+    }
+
+    private Row(Kind kind, int lineNumber, String name, String other, int number,
+                String error) {
+      this.kind = kind;
+      this.lineNumber = lineNumber;
+      this.name = name;
+      this.other = other;
+      this.number = number;
+      this.error = error;
+    }
+
+    static Row rejected(int lineNumber, String error) {
+      return new Row(null, lineNumber, null, null, 0, error);
+    }
+  }
+
+  /**
+   * This class represents the outcome of ingesting one file
+   */
+  public static class Report {
+    private final String source;
+    private long rows;
+    private long applied;
+    private long rejected;
+    private long nanos;
+
+    Report(String source) {
+      this.source = source;
+    }
+
+    /**
+     * Returns the number of records read, not counting blank lines and comments
+     * @return the number of records read
+     */
+    public long getRows() {
+      return this.rows;
+    }
+
+    /**
+     * Returns the number of records applied to the model
+     * @return the number of records applied
+     */
+    public long getApplied() {
+      return this.applied;
+    }
+
+    /**
+     * Returns the number of records rejected
+     * @return the number of records rejected
+     */
+    public long getRejected() {
+      return this.rejected;
+    }
+
+    /**
+     * Returns the number of records read per second
+     * @return the rate of the run in rows per second
+     */
+    public double getRowsPerSecond() {
+      return this.nanos == 0 ? 0 : this.rows * 1e9 / this.nanos;
+    }
+
+    /**
+     * Returns a one-line summary of the run
+     * @return String summarizing the run
+     */
+    @Override
+    public String toString() {
+      return String.format("%s: %d rows, %d applied, %d rejected in %.2f s (%.0f rows/s)",
+          this.source, this.rows, this.applied, this.rejected, this.nanos / 1e9,
+          getRowsPerSecond());
+    }
+  }
+}
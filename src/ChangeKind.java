@@ -0,0 +1,5 @@
+/**
+ * This enumerated type sets the predefined constants INSERTED, REMOVED, MOVED, LINKED
+ * and UNLINKED, the kinds of change an ObservableModel reports to its listeners
+ */
+public enum ChangeKind {INSERTED, REMOVED, MOVED, LINKED, UNLINKED}
\ No newline at end of file
@@ -0,0 +1,81 @@
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.JCheckBox;
+import javax.swing.JList;
+import javax.swing.ListCellRenderer;
+import javax.swing.ListSelectionModel;
+
+/**
+ * This class represents a list of names with a checkbox on each, backed by a CheckListModel. It
+ * is a JList, so only the rows in view are painted, all with one checkbox used as a rubber
+ * stamp, and every row has the same height so scrolling costs the same for any number of rows.
+ * Clicking a row, or pressing space on it, checks or unchecks it
+ */
+public class CheckList extends JList<String> {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Constructs a list showing the names in the given model in the given font
+   * @param model the names and which of them are checked
+   * @param font the font to show the names in
+   */
+  public CheckList(CheckListModel model, Font font) {
+    super(model);
+    setFont(font);
+    setBackground(Color.WHITE);
+    setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    setCellRenderer(new Renderer());
+    setPrototypeCellValue("PROTOTYPE NAME OF A SAMPLE");
+
+    addMouseListener(new MouseAdapter() {
+      @Override
+      public void mousePressed(MouseEvent e) {
+        int row = locationToIndex(e.getPoint());
+        if (row >= 0 && getCellBounds(row, row).contains(e.getPoint())) {
+          model.toggle(row);
+        }
+      }
+    });
+    addKeyListener(new KeyAdapter() {
+      @Override
+      public void keyPressed(KeyEvent e) {
+        int row = getSelectedIndex();
+        if (e.getKeyCode() == KeyEvent.VK_SPACE && row >= 0) {
+          model.toggle(row);
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the names and which of them are checked
+   * @return the model of the list
+   */
+  @Override
+  public CheckListModel getModel() {
+    return (CheckListModel) super.getModel();
+  }
+
+  /**
+   * This class paints each row as a checkbox
+   */
+  private class Renderer implements ListCellRenderer<String> {
+    private final JCheckBox stamp = new JCheckBox();
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends String> list, String name,
+                                                  int row, boolean selected, boolean focused) {
+      this.stamp.setText(name);
+      this.stamp.setSelected(getModel().isChecked(row));
+      this.stamp.setFont(list.getFont());
+      this.stamp.setBackground(selected ? list.getSelectionBackground() : list.getBackground());
+      this.stamp.setForeground(selected ? list.getSelectionForeground() : list.getForeground());
+      return this.stamp;
+    }
+  }
+}
@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.AbstractListModel;
+
+/**
+ * This class represents the items of a CheckList: a list of names, each of which may be checked.
+ * Which rows are checked is kept in a bit set rather than in components, so the list can hold
+ * millions of names. Every change fires a single event for the rows it touches
+ */
+public class CheckListModel extends AbstractListModel<String> {
+  private static final long serialVersionUID = 1L;
+
+  private final List<String> names;
+  private final BitSet checked;
+
+  /**
+   * Constructs an empty list
+   */
+  public CheckListModel() {
+    this.names = new ArrayList<>();
+    this.checked = new BitSet();
+  }
+
+  /**
+   * Returns the number of names in the list
+   * @return the number of names
+   */
+  @Override
+  public int getSize() {
+    return this.names.size();
+  }
+
+  /**
+   * Returns the name at the given row
+   * @param row the row
+   * @return the name at the row
+   */
+  @Override
+  public String getElementAt(int row) {
+    return this.names.get(row);
+  }
+
+  /**
+   * Returns the names in the list, in order
+   * @return unmodifiable view of the names
+   */
+  public List<String> getNames() {
+    return Collections.unmodifiableList(this.names);
+  }
+
+  /**
+   * Adds a name, unchecked, at the end of the list
+   * @param name the name to add
+   */
+  public void add(String name) {
+    this.names.add(name);
+    fireIntervalAdded(this, this.names.size() - 1, this.names.size() - 1);
+  }
+
+  /**
+   * Adds names, unchecked, at the end of the list
+   * @param names the names to add
+   */
+  public void addAll(List<String> names) {
+    if (names.isEmpty()) {
+      return;
+    }
+    int first = this.names.size();
+    this.names.addAll(names);
+    fireIntervalAdded(this, first, this.names.size() - 1);
+  }
+
+  /**
+   * Moves every row to a new place in one pass, keeping it checked or unchecked, and fires one
+   * event for the whole list
+   * @param order the row to show at each place, each row exactly once
+   * @throws IllegalArgumentException if the order is not a permutation of the rows
+   */
+  public void permute(int[] order) {
+    int size = this.names.size();
+    if (order.length != size) {
+      throw new IllegalArgumentException("Invalid permutation");
+    }
+    BitSet seen = new BitSet(size);
+    for (int row : order) {
+      if (row < 0 || row >= size || seen.get(row)) {
+        throw new IllegalArgumentException("Invalid permutation");
+      }
+      seen.set(row);
+    }
+    String[] before = this.names.toArray(new String[0]);
+    BitSet wasChecked = (BitSet) this.checked.clone();
+    this.checked.clear();
+    for (int place = 0; place < size; place++) {
+      this.names.set(place, before[order[place]]);
+      if (wasChecked.get(order[place])) {
+        this.checked.set(place);
+      }
+    }
+    if (size > 0) {
+      fireContentsChanged(this, 0, size - 1);
+    }
+  }
+
+  /**
+   * Removes every checked row
+   * @return array of the rows that were removed, in increasing order
+   */
+  public int[] removeChecked() {
+    int[] removed = this.checked.stream().toArray();
+    if (removed.length == 0) {
+      return removed;
+    }
+    int kept = removed[0];
+    for (int row = removed[0]; row < this.names.size(); row++) {
+      if (!this.checked.get(row)) {
+        this.names.set(kept++, this.names.get(row));
+      }
+    }
+    int size = this.names.size();
+    this.names.subList(kept, size).clear();
+    this.checked.clear();
+    if (removed[0] < kept) {
+      fireContentsChanged(this, removed[0], kept - 1);
+    }
+    fireIntervalRemoved(this, kept, size - 1);
+    return removed;
+  }
+
+  /**
+   * Removes every name
+   */
+  public void clear() {
+    int size = this.names.size();
+    this.names.clear();
+    this.checked.clear();
+    if (size > 0) {
+      fireIntervalRemoved(this, 0, size - 1);
+    }
+  }
+
+  /**
+   * Returns whether the given row is checked
+   * @param row the row
+   * @return true if the row is checked
+   */
+  public boolean isChecked(int row) {
+    return this.checked.get(row);
+  }
+
+  /**
+   * Checks the given row if it is unchecked, and unchecks it if it is checked
+   * @param row the row
+   */
+  public void toggle(int row) {
+    this.checked.flip(row);
+    fireContentsChanged(this, row, row);
+  }
+
+  /**
+   * Unchecks every row
+   */
+  public void uncheckAll() {
+    if (this.checked.isEmpty()) {
+      return;
+    }
+    int first = this.checked.nextSetBit(0);
+    int last = this.checked.length() - 1;
+    this.checked.clear();
+    fireContentsChanged(this, first, last);
+  }
+
+  /**
+   * Returns the checked rows, in increasing order, in time proportional to their number
+   * @return array of checked rows
+   */
+  public int[] getCheckedRows() {
+    return this.checked.stream().toArray();
+  }
+
+  /**
+   * Returns the names in the checked rows, in order
+   * @return list of checked names
+   */
+  public List<String> getCheckedNames() {
+    List<String> names = new ArrayList<>(this.checked.cardinality());
+    for (int row = this.checked.nextSetBit(0); row >= 0; row = this.checked.nextSetBit(row + 1)) {
+      names.add(this.names.get(row));
+    }
+    return names;
+  }
+}
@@ -0,0 +1,577 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * This class implements the IModel interface over a {@link SampleTable}, which stores the samples
+ * column by column, so that scanning and sorting the samples are loops over primitive arrays
+ * rather than walks over a list of objects. A Sample read from this model is a small value object
+ * holding the sample's name, ID and handle; it stays valid until the sample is deleted. Adding a
+ * sample copies its name, ID and links; the Sample passed to addSample is not itself kept. Tests
+ * and equipment are held as in {@link ModelImpl}.
+ */
+public class ColumnarModelImpl implements IModel {
+  private final LinkStore links;
+  private final SampleTable table;
+  private final ModelImpl others;   // the tests and equipment
+  private final List<Sample> samples;
+
+  /**
+   * Constructs the model with an empty sample table
+   */
+  public ColumnarModelImpl() {
+    this.links = new LinkStore();
+    this.table = new SampleTable(this.links);
+    this.others = new ModelImpl(this.links);
+    this.samples = new RowList();
+  }
+
+  /**
+   * Adds a sample to the IModel dashboard by copying its name and ID into a new row, and moving
+   * its links to the row
+   *
+   * @param sample the sample to be added to the IModel dashboard
+   * @throws IllegalArgumentException if a sample with the same ID is already in the dashboard,
+   *                                  or the sample is in another dashboard
+   */
+  @Override
+  public void addSample(Sample sample) {
+    int row = this.table.add(sample.getSampleID(), sample.getSampleName());
+    if (LinkStore.of(sample) == null) {
+      return;
+    }
+    try {
+      this.links.addSample(sample);
+    } catch (IllegalArgumentException e) {
+      this.table.delete(row);
+      throw e;
+    }
+    int[] tests = this.links.testHandlesOf(sample.getHandle());
+    if (tests.length > 0) {
+      this.links.linkAll(new int[]{this.table.handle(row)}, tests);
+    }
+    if (!(sample instanceof RowSample)) {
+      this.links.removeSample(sample);
+    }
+  }
+
+  /**
+   * Deletes a sample from the IModel dashboard at the given index, and
+   * deletes the sample from the tests that contain the sample
+   *
+   * @param index the index of the sample to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteSample(int index) {
+    if (index < 0 || index >= this.table.size()) {
+      throw new IllegalArgumentException("Invalid index");
+    }
+    this.table.delete(index);
+  }
+
+  /**
+   * Deletes the samples at the given indices from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. The indices refer to the list of samples before
+   * any of them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the samples to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteSamples(int[] indices) {
+    boolean[] marked = new boolean[this.table.size()];
+    for (int index : indices) {
+      if (index < 0 || index >= marked.length) {
+        throw new IllegalArgumentException("Invalid index");
+      }
+      marked[index] = true;
+    }
+    this.table.delete(marked);
+  }
+
+  /**
+   * Deletes the samples with the given IDs from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. IDs that no sample has are skipped
+   *
+   * @param sampleIDs the IDs of the samples to be deleted
+   * @return the number of samples deleted
+   */
+  @Override
+  public int deleteSamplesById(int[] sampleIDs) {
+    boolean[] marked = new boolean[this.table.size()];
+    int deleted = 0;
+    for (int sampleID : sampleIDs) {
+      int row = this.table.rowOf(sampleID);
+      if (row >= 0 && !marked[row]) {
+        marked[row] = true;
+        deleted++;
+      }
+    }
+    if (deleted > 0) {
+      this.table.delete(marked);
+    }
+    return deleted;
+  }
+
+  /**
+   * Takes the ID of a sample and returns the sample with that ID
+   *
+   * @param sampleID the ID (a six digit integer) of the sample of interest
+   * @return the sample with the given ID, or null if there is no such sample
+   */
+  @Override
+  public Sample findSampleById(int sampleID) {
+    int row = this.table.rowOf(sampleID);
+    return row < 0 ? null : new RowSample(row);
+  }
+
+  /**
+   * Adds equipment to the IModel dashboard
+   *
+   * @param equipment the equipment to be added to the IModel dashboard
+   */
+  @Override
+  public void addEquipment(Equipment equipment) {
+    this.others.addEquipment(equipment);
+  }
+
+  /**
+   * Deletes equipment from the IModel dashboard at the given index
+   *
+   * @param index the index of the equipment to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteEquipment(int index) {
+    this.others.deleteEquipment(index);
+  }
+
+  /**
+   * Deletes the equipment at the given indices from the IModel dashboard in one pass
+   *
+   * @param indices the indices of the equipment to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteEquipment(int[] indices) {
+    this.others.deleteEquipment(indices);
+  }
+
+  /**
+   * Adds a test to the IModel dashboard
+   *
+   * @param test the test to be added to the IModel dashboard
+   */
+  @Override
+  public void addTest(LabTest test) {
+    this.others.addTest(test);
+  }
+
+  /**
+   * Deletes a test from the IModel dashboard at the given index, and
+   * deletes the test from the samples that require the test
+   *
+   * @param index the index of the test to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteTest(int index) {
+    this.others.deleteTest(index);
+  }
+
+  /**
+   * Deletes the tests at the given indices from the IModel dashboard in one pass, and deletes the
+   * tests from the samples that require them
+   *
+   * @param indices the indices of the tests to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteTests(int[] indices) {
+    this.others.deleteTests(indices);
+  }
+
+  /**
+   * Returns a read-only view of the samples in the IModel dashboard
+   *
+   * @return list of samples in the IModel dashboard
+   */
+  @Override
+  public List<Sample> getListOfSamples() {
+    return this.samples;
+  }
+
+  /**
+   * Returns the current list of equipment in the IModel dashboard
+   *
+   * @return list of equipment in the IModel dashboard
+   */
+  @Override
+  public List<Equipment> getListOfEquipment() {
+    return this.others.getListOfEquipment();
+  }
+
+  /**
+   * Returns the current list of tests in the IModel dashboard
+   *
+   * @return list of tests in the IModel dashboard
+   */
+  @Override
+  public List<LabTest> getListOfTests() {
+    return this.others.getListOfTests();
+  }
+
+  /**
+   * Sorts the list of samples in the IModel dashboard by ID, by sorting the ID column and
+   * permuting the other columns to match
+   */
+  @Override
+  public void sortSamplesByID() {
+    this.table.sortByID();
+  }
+
+  /**
+   * Sorts the list of equipment in the IModel dashboard by remaining number of days
+   * until service is due
+   */
+  @Override
+  public void sortEquipmentByServiceUrgency() {
+    this.others.sortEquipmentByServiceUrgency();
+  }
+
+  /**
+   * Sorts the list of tests in the IModel dashboard by one of two enumerated types; DURATION or
+   * NUMBER_OF_SAMPLES
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   */
+  @Override
+  public void sortTestsByPriority(TestPriority priority) {
+    this.others.sortTestsByPriority(priority);
+  }
+
+  /**
+   * Returns a read-only view of the samples in the IModel dashboard in ascending order of ID.
+   * The order is sorted from the ID column on the first read after the samples change
+   *
+   * @return the samples in ascending order of ID
+   */
+  @Override
+  public Iterable<Sample> getSamplesOrderedByID() {
+    int[] rows = this.table.rowsOrderedByID();
+    return new AbstractList<Sample>() {
+      @Override
+      public Sample get(int index) {
+        return new RowSample(rows[index]);
+      }
+
+      @Override
+      public int size() {
+        return rows.length;
+      }
+    };
+  }
+
+  /**
+   * Returns a read-only view of the equipment in the IModel dashboard in ascending order of the
+   * number of days until service is due
+   *
+   * @return the equipment, most urgent first
+   */
+  @Override
+  public Iterable<Equipment> getEquipmentOrderedByServiceUrgency() {
+    return this.others.getEquipmentOrderedByServiceUrgency();
+  }
+
+  /**
+   * Returns the k pieces of equipment whose service is most urgent, most urgent first
+   *
+   * @param k the number of pieces of equipment to return
+   * @return list of at most k pieces of equipment with the fewest days until service is due
+   * @throws IllegalArgumentException if k is negative
+   */
+  @Override
+  public List<Equipment> mostUrgentEquipment(int k) {
+    return this.others.mostUrgentEquipment(k);
+  }
+
+  /**
+   * Returns the equipment whose service is due within the given range of days, most urgent first
+   *
+   * @param fromDays the lowest number of days until service is due to include
+   * @param toDays   the highest number of days until service is due to include
+   * @return list of equipment due from fromDays to toDays days from now, inclusive
+   * @throws IllegalArgumentException if fromDays is greater than toDays
+   */
+  @Override
+  public List<Equipment> equipmentDueWithin(int fromDays, int toDays) {
+    return this.others.equipmentDueWithin(fromDays, toDays);
+  }
+
+  /**
+   * Returns a read-only view of the tests in the IModel dashboard in ascending order of one of
+   * two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   * @return the tests in ascending order of the given priority
+   */
+  @Override
+  public Iterable<LabTest> getTestsOrderedByPriority(TestPriority priority) {
+    return this.others.getTestsOrderedByPriority(priority);
+  }
+
+  /**
+   * Takes the name of a sample and the name of a test and adds the test to the sample
+   *
+   * @param sampleName name of the sample to add a test to
+   * @param testName   name of test to be added to the sample
+   */
+  @Override
+  public void addTestToSample(String sampleName, String testName) {
+    assignTests(Collections.singletonList(testName), Collections.singletonList(sampleName));
+  }
+
+  /**
+   * Takes a collection of names of tests and a collection of names of samples and adds every test
+   * to every sample. Each name is looked up once, and pairs that are already linked are skipped
+   *
+   * @param testNames   names of the tests to be added to the samples
+   * @param sampleNames names of the samples to add the tests to
+   * @return the number of tests newly added to samples
+   */
+  @Override
+  public int assignTests(Collection<String> testNames, Collection<String> sampleNames) {
+    int[] testHandles = this.others.testHandles(testNames);
+
+    int[] sampleHandles = new int[sampleNames.size()];
+    int samples = 0;
+    for (String name : new LinkedHashSet<>(sampleNames)) {
+      for (int row : this.table.rowsNamed(name)) {
+        if (samples == sampleHandles.length) {
+          sampleHandles = Arrays.copyOf(sampleHandles, samples * 2);
+        }
+        sampleHandles[samples++] = this.table.handle(row);
+      }
+    }
+    return this.others.assignTests(Arrays.copyOf(sampleHandles, samples), testHandles);
+  }
+
+  /**
+   * Takes the name of a sample and returns a copy of list of the names of test for the sample
+   *
+   * @param sampleName the name of the sample of interest
+   * @return List of names of tests requested for the sample
+   */
+  @Override
+  public List<String> getTestsForSample(String sampleName) {
+    List<String> tests = new ArrayList<>();
+    for (int row : this.table.rowsNamed(sampleName)) {
+      tests.addAll(new RowSample(row).getListOfTests());
+    }
+    return tests;
+  }
+
+  /**
+   * Takes the name of a test and returns a copy of list of the names of samples for the test
+   *
+   * @param testName the name of the sample of interest
+   * @return List of names of samples that require this test
+   */
+  @Override
+  public List<String> getSamplesForTest(String testName) {
+    return this.others.getSamplesForTest(testName);
+  }
+
+  /**
+   * Takes the name of an equipment and returns its service urgency
+   *
+   * @param equipmentName names of equipment
+   * @return number of days until next service is due
+   */
+  @Override
+  public int getEquipmentInfo(String equipmentName) {
+    return this.others.getEquipmentInfo(equipmentName);
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a sample with the given name
+   *
+   * @param sampleName the name of the sample of interest
+   * @return true if there is at least one sample with that name, false otherwise
+   */
+  @Override
+  public boolean containsSample(String sampleName) {
+    return this.table.rowsNamed(sampleName).length > 0;
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a test with the given name
+   *
+   * @param testName the name of the test of interest
+   * @return true if there is at least one test with that name, false otherwise
+   */
+  @Override
+  public boolean containsTest(String testName) {
+    return this.others.containsTest(testName);
+  }
+
+  /**
+   * Returns a list of names of the samples in the exact order of the list of samples, read from
+   * the name column in one pass
+   *
+   * @return List of names of samples
+   */
+  @Override
+  public List<String> getListOfNamesOfSamples() {
+    return new ArrayList<>(Arrays.asList(this.table.names()));
+  }
+
+  /**
+   * Returns a list of names of the tests in the exact order of the list of tests
+   *
+   * @return List of names of tests
+   */
+  @Override
+  public List<String> getListOfNamesOfTests() {
+    return this.others.getListOfNamesOfTests();
+  }
+
+  /**
+   * Returns a list of names of the equipment in the exact order of the list of equipment
+   *
+   * @return List of names of equipment
+   */
+  @Override
+  public List<String> getListOfNamesOfEquipment() {
+    return this.others.getListOfNamesOfEquipment();
+  }
+
+  /**
+   * Deletes all samples from the list of samples
+   */
+  @Override
+  public void clearSamples() {
+    this.table.clear();
+  }
+
+  /**
+   * Deletes all tests from the list of tests, and from the samples that require them
+   */
+  @Override
+  public void clearTests() {
+    this.others.clearTests();
+  }
+
+  /**
+   * Deletes all equipment from the list of equipment
+   */
+  @Override
+  public void clearEquipment() {
+    this.others.clearEquipment();
+  }
+
+  /**
+   * This class represents a read-only list view of the rows of the sample table
+   */
+  private class RowList extends AbstractList<Sample> implements RandomAccess {
+    @Override
+    public Sample get(int index) {
+      return new RowSample(index);
+    }
+
+    @Override
+    public int size() {
+      return ColumnarModelImpl.this.table.size();
+    }
+  }
+
+  /**
+   * This class implements the Sample interface as a value object copied from one row of the
+   * table. Two samples with the same handle are equal
+   */
+  private class RowSample implements Sample, LinkStore.Member {
+    private final String name;
+    private final Integer ID;
+    private final int handle;
+
+    RowSample(int row) {
+      this.name = ColumnarModelImpl.this.table.name(row);
+      this.ID = ColumnarModelImpl.this.table.id(row);
+      this.handle = ColumnarModelImpl.this.table.handle(row);
+    }
+
+    @Override
+    public String getSampleName() {
+      return this.name;
+    }
+
+    @Override
+    public Integer getSampleID() {
+      return this.ID;
+    }
+
+    @Override
+    public int getHandle() {
+      return this.handle;
+    }
+
+    @Override
+    public LinkStore getLinkStore() {
+      return ColumnarModelImpl.this.links;
+    }
+
+    @Override
+    public void bind(LinkStore store, int handle) {
+      // a row keeps its handle for as long as it is in the table
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> getListOfTests() {
+      return LinkStore.testsOf(this);
+    }
+
+    @Override
+    public void addTestToSample(LabTest test) {
+      Objects.requireNonNull(test);
+      LinkStore.link(this, test);
+    }
+
+    @Override
+    public void deleteTestFromSample(LabTest test) {
+      Objects.requireNonNull(test);
+      LinkStore.unlink(this, test);
+    }
+
+    @Override
+    public int compareByID(Sample s) {
+      Objects.requireNonNull(s);
+      return this.getSampleID().compareTo(s.getSampleID());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof RowSample other && other.handle == this.handle;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.handle;
+    }
+
+    @Override
+    public String toString() {
+      return this.getSampleName();
+    }
+  }
+}
@@ -0,0 +1,227 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class records how long each command dispatched by the controller takes, as a count and a
+ * latency histogram per command, split into the time spent in the model and the time spent in
+ * the view (everything else the command does). The model is timed by wrapping it in a
+ * TimedModel, which the controller must use in place of the model it was given.
+ *
+ * Commands are timed with begin and end on the thread that runs them. Each thread keeps the
+ * command it is timing to itself, so commands run on different threads are timed apart and only
+ * the histograms are shared; once a thread has timed a command and the command has been seen,
+ * timing it again allocates nothing. The timings may be read, reported and logged from any
+ * thread
+ */
+public class CommandMetrics {
+  private final TimedModel model;
+  private final Map<String, Timings> commands;
+  private final ThreadLocal<Command> running;
+  private ScheduledExecutorService logger;
+
+  /**
+   * Constructs empty metrics for commands run against the given model
+   * @param model the model the commands use
+   */
+  public CommandMetrics(IModel model) {
+    this.model = new TimedModel(model);
+    this.commands = new ConcurrentHashMap<>();
+    this.running = ThreadLocal.withInitial(Command::new);
+  }
+
+  /**
+   * Returns the model the commands must use for their time in the model to be measured
+   * @return the timed model
+   */
+  public IModel getModel() {
+    return this.model;
+  }
+
+  /**
+   * Starts timing a command on the calling thread. A command begun while another is being timed
+   * on the same thread is counted as part of the other
+   * @param command the name of the command
+   */
+  public void begin(String command) {
+    Command running = this.running.get();
+    if (running.depth++ > 0) {
+      return;
+    }
+    Timings timings = this.commands.get(command);
+    if (timings == null) {
+      timings = this.commands.computeIfAbsent(command, Timings::new);
+    }
+    running.timings = timings;
+    running.modelStart = this.model.getNanos();
+    running.start = System.nanoTime();
+  }
+
+  /**
+   * Stops timing the command last begun on the calling thread and records its times
+   * @throws IllegalStateException if no command is being timed on the calling thread
+   */
+  public void end() {
+    Command running = this.running.get();
+    if (running.depth == 0) {
+      throw new IllegalStateException("No command is being timed");
+    }
+    if (--running.depth > 0) {
+      return;
+    }
+    long total = System.nanoTime() - running.start;
+    long inModel = this.model.getNanos() - running.modelStart;
+    running.timings.total.record(total);
+    running.timings.model.record(inModel);
+    running.timings.view.record(total - inModel);
+    running.timings = null;
+  }
+
+  /**
+   * Returns the timings of the given command
+   * @param command the name of the command
+   * @return the timings of the command, or null if it has not been run
+   */
+  public Timings getTimings(String command) {
+    return this.commands.get(command);
+  }
+
+  /**
+   * Returns the timings of every command that has been run, ordered by name
+   * @return list of timings
+   */
+  public List<Timings> getTimings() {
+    List<Timings> timings = new ArrayList<>(this.commands.values());
+    timings.sort(Comparator.comparing(Timings::getCommand));
+    return timings;
+  }
+
+  /**
+   * Forgets the times recorded for every command
+   */
+  public void reset() {
+    for (Timings timings : this.commands.values()) {
+      timings.total.reset();
+      timings.model.reset();
+      timings.view.reset();
+    }
+  }
+
+  /**
+   * Returns a table of the count and the latency percentiles, in milliseconds, of every
+   * command that has been run, overall and in the model and the view
+   * @return String holding the table, one line per command after a header
+   */
+  public String report() {
+    StringBuilder report = new StringBuilder(String.format(
+        "%-18s %7s %9s %9s %9s %9s %9s %9s %9s %9s%n", "command", "count", "p50 ms", "p90 ms",
+        "p99 ms", "max ms", "model p50", "model p99", "view p50", "view p99"));
+    for (Timings timings : getTimings()) {
+      if (timings.total.getCount() == 0) {
+        continue;
+      }
+      report.append(String.format("%-18s %7d %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+          timings.command, timings.total.getCount(), millis(timings.total, 50),
+          millis(timings.total, 90), millis(timings.total, 99),
+          timings.total.getMax() / 1e6, millis(timings.model, 50), millis(timings.model, 99),
+          millis(timings.view, 50), millis(timings.view, 99)));
+    }
+    return report.toString();
+  }
+
+  /**
+   * Starts printing the report periodically on a background thread, replacing any logging
+   * started before
+   * @param out where to print the report
+   * @param period the time between reports
+   * @param unit the unit of the period
+   */
+  public synchronized void startLogging(PrintStream out, long period, TimeUnit unit) {
+    stopLogging();
+    this.logger = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "labflow-metrics");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.logger.scheduleAtFixedRate(() -> out.print(report()), period, period, unit);
+  }
+
+  /**
+   * Stops printing the report periodically, if it was started
+   */
+  public synchronized void stopLogging() {
+    if (this.logger != null) {
+      this.logger.shutdownNow();
+      this.logger = null;
+    }
+  }
+
+  private static double millis(LatencyHistogram histogram, double percentile) {
+    return histogram.getPercentile(percentile) / 1e6;
+  }
+
+  /**
+   * This class holds the command a thread is timing, which only that thread touches
+   */
+  private static class Command {
+    private int depth;
+    private Timings timings;
+    private long start;
+    private long modelStart;
+  }
+
+  /**
+   * This class holds the latency histograms of one command
+   */
+  public static class Timings {
+    private final String command;
+    private final LatencyHistogram total;
+    private final LatencyHistogram model;
+    private final LatencyHistogram view;
+
+    Timings(String command) {
+      this.command = command;
+      this.total = new LatencyHistogram();
+      this.model = new LatencyHistogram();
+      this.view = new LatencyHistogram();
+    }
+
+    /**
+     * Returns the name of the command
+     * @return the name of the command
+     */
+    public String getCommand() {
+      return this.command;
+    }
+
+    /**
+     * Returns the histogram of the time the command took from start to finish
+     * @return the histogram of the whole time of the command
+     */
+    public LatencyHistogram getTotal() {
+      return this.total;
+    }
+
+    /**
+     * Returns the histogram of the time the command spent in the model
+     * @return the histogram of the model time of the command
+     */
+    public LatencyHistogram getModel() {
+      return this.model;
+    }
+
+    /**
+     * Returns the histogram of the time the command spent outside the model, updating the view
+     * @return the histogram of the view time of the command
+     */
+    public LatencyHistogram getView() {
+      return this.view;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * This class runs the commands of a controller one at a time, in the order they were submitted,
+ * on a background thread, so that the event dispatch thread stays free to paint and take input
+ * however long a command spends in the model. Commands must reach the view through an EdtView.
+ *
+ * While a command has been running for a while, the view is asked to show what is running and
+ * how many commands are waiting behind it, and commands that have not started can be cancelled.
+ * A command that has started always runs to the end, so the model and the view are never left
+ * half changed. A command that fails is logged and reported to the view, and the commands behind
+ * it still run
+ */
+public class CommandQueue implements AutoCloseable {
+  private static final int POLL_MILLIS = 100;
+  private static final long PROGRESS_AFTER_NANOS = 250_000_000L;
+  private static final Logger LOG = Logger.getLogger(CommandQueue.class.getName());
+
+  private final IView view;
+  private final ExecutorService worker;
+  private final Queue<AtomicBoolean> pending;   // set once the command starts or is cancelled
+  private final AtomicInteger waiting;
+  private final Timer progress;
+  private volatile String running;
+  private volatile long runningSince;
+  private boolean showingProgress;
+
+  /**
+   * Constructs a queue that reports its progress to the given view
+   * @param view the view to show progress in, called only on the event dispatch thread
+   */
+  public CommandQueue(IView view) {
+    this.view = view;
+    this.worker = Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "labflow-commands");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.pending = new ConcurrentLinkedQueue<>();
+    this.waiting = new AtomicInteger();
+    this.progress = new Timer(POLL_MILLIS, e -> showProgress());
+    this.progress.start();
+  }
+
+  /**
+   * Queues a command to run after every command submitted before it
+   * @param name the name of the command, shown while it runs
+   * @param command the command
+   */
+  public void submit(String name, Runnable command) {
+    AtomicBoolean claimed = new AtomicBoolean();
+    this.waiting.incrementAndGet();
+    this.pending.add(claimed);
+    this.worker.execute(() -> {
+      if (!claimed.compareAndSet(false, true)) {
+        return;   // cancelled
+      }
+      this.pending.remove(claimed);
+      this.runningSince = System.nanoTime();
+      this.running = name;
+      this.waiting.decrementAndGet();
+      try {
+        command.run();
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Command " + name + " failed", e);
+        String message = name + " failed: " + (e.getMessage() == null ? e : e.getMessage());
+        SwingUtilities.invokeLater(() -> this.view.viewShowError(message));
+      } finally {
+        this.running = null;
+      }
+    });
+  }
+
+  /**
+   * Cancels every command that has not started yet
+   * @return the number of commands cancelled
+   */
+  public int cancelWaiting() {
+    int cancelled = 0;
+    for (AtomicBoolean claimed; (claimed = this.pending.poll()) != null; ) {
+      if (claimed.compareAndSet(false, true)) {
+        this.waiting.decrementAndGet();
+        cancelled++;
+      }
+    }
+    return cancelled;
+  }
+
+  /**
+   * Returns whether a command is running or waiting
+   * @return true if the queue is busy
+   */
+  public boolean isBusy() {
+    return this.running != null || this.waiting.get() > 0;
+  }
+
+  /**
+   * Cancels the commands waiting and stops the background thread once the running command
+   * finishes
+   */
+  @Override
+  public void close() {
+    cancelWaiting();
+    this.progress.stop();
+    this.worker.shutdown();
+  }
+
+  /**
+   * Shows the progress of a command that has run for a while, or hides it once the queue is
+   * idle. Runs on the event dispatch thread
+   */
+  private void showProgress() {
+    String name = this.running;
+    int queued = this.waiting.get();
+    if (name != null && System.nanoTime() - this.runningSince > PROGRESS_AFTER_NANOS) {
+      double seconds = (System.nanoTime() - this.runningSince) / 1e9;
+      this.view.viewShowProgress(String.format("%s: %.1f s", name, seconds)
+          + (queued == 0 ? "" : ", " + queued + (queued == 1 ? " command" : " commands")
+          + " waiting"));
+      this.showingProgress = true;
+    } else if (this.showingProgress && name == null && queued == 0) {
+      this.view.viewHideProgress();
+      this.showingProgress = false;
+    }
+  }
+}
@@ -0,0 +1,261 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * This class represents a compressed set of non-negative integers. The integers are split into
+ * chunks of 65536 by their upper 16 bits; a chunk with few members is stored as a sorted array
+ * of its lower 16 bits, and a dense chunk is stored as a plain 65536-bit bitset. Membership,
+ * add and remove cost a binary search over the chunks plus a binary search (sparse) or a single
+ * bit operation (dense) within the chunk
+ */
+public class CompressedBitmap {
+  private static final int ARRAY_MAX = 4096;     // above this, a chunk is stored as a bitset
+  private static final int BITSET_WORDS = 1024;  // 65536 bits
+
+  private char[] keys;           // upper 16 bits of each chunk, sorted
+  private Object[] chunks;       // char[] (sorted lower 16 bits) or long[] (bitset) per chunk
+  private int[] chunkSizes;
+  private int chunkCount;
+  private int cardinality;
+
+  /**
+   * Constructs an empty bitmap
+   */
+  public CompressedBitmap() {
+    this.keys = new char[1];
+    this.chunks = new Object[1];
+    this.chunkSizes = new int[1];
+    this.chunkCount = 0;
+    this.cardinality = 0;
+  }
+
+  /**
+   * Returns whether the bitmap contains the given integer
+   * @param x the integer to look up
+   * @return true if the bitmap contains the integer, false otherwise
+   */
+  public boolean contains(int x) {
+    int i = Arrays.binarySearch(keys, 0, chunkCount, (char) (x >>> 16));
+    if (i < 0) {
+      return false;
+    }
+    char low = (char) x;
+    if (chunks[i] instanceof long[]) {
+      return (((long[]) chunks[i])[low >>> 6] & (1L << low)) != 0;
+    }
+    return Arrays.binarySearch((char[]) chunks[i], 0, chunkSizes[i], low) >= 0;
+  }
+
+  /**
+   * Adds the given integer to the bitmap
+   * @param x the integer to add, which must not be negative
+   * @return true if the integer was added, false if it was already in the bitmap
+   */
+  public boolean add(int x) {
+    char high = (char) (x >>> 16);
+    char low = (char) x;
+    int i = Arrays.binarySearch(keys, 0, chunkCount, high);
+    if (i < 0) {
+      i = -i - 1;
+      insertChunk(i, high);
+    }
+
+    if (chunks[i] instanceof long[]) {
+      long[] bits = (long[]) chunks[i];
+      long mask = 1L << low;
+      if ((bits[low >>> 6] & mask) != 0) {
+        return false;
+      }
+      bits[low >>> 6] |= mask;
+    } else {
+      char[] array = (char[]) chunks[i];
+      int size = chunkSizes[i];
+      int j = Arrays.binarySearch(array, 0, size, low);
+      if (j >= 0) {
+        return false;
+      }
+      j = -j - 1;
+      if (size == ARRAY_MAX) {
+        long[] bits = toBitset(array, size);
+        bits[low >>> 6] |= 1L << low;
+        chunks[i] = bits;
+      } else {
+        if (size == array.length) {
+          array = Arrays.copyOf(array, Math.min(ARRAY_MAX, Math.max(4, size * 2)));
+          chunks[i] = array;
+        }
+        System.arraycopy(array, j, array, j + 1, size - j);
+        array[j] = low;
+      }
+    }
+    chunkSizes[i]++;
+    cardinality++;
+    return true;
+  }
+
+  /**
+   * Removes the given integer from the bitmap
+   * @param x the integer to remove
+   * @return true if the integer was removed, false if it was not in the bitmap
+   */
+  public boolean remove(int x) {
+    int i = Arrays.binarySearch(keys, 0, chunkCount, (char) (x >>> 16));
+    if (i < 0) {
+      return false;
+    }
+    char low = (char) x;
+    if (chunks[i] instanceof long[]) {
+      long[] bits = (long[]) chunks[i];
+      long mask = 1L << low;
+      if ((bits[low >>> 6] & mask) == 0) {
+        return false;
+      }
+      bits[low >>> 6] &= ~mask;
+
+      // go back to an array once the chunk is well below the threshold, to avoid flapping
+      if (chunkSizes[i] - 1 <= ARRAY_MAX / 2) {
+        chunks[i] = toArray(bits, chunkSizes[i] - 1);
+      }
+    } else {
+      char[] array = (char[]) chunks[i];
+      int size = chunkSizes[i];
+      int j = Arrays.binarySearch(array, 0, size, low);
+      if (j < 0) {
+        return false;
+      }
+      System.arraycopy(array, j + 1, array, j, size - j - 1);
+    }
+    cardinality--;
+    if (--chunkSizes[i] == 0) {
+      removeChunk(i);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of integers in the bitmap
+   * @return the number of integers in the bitmap
+   */
+  public int cardinality() {
+    return cardinality;
+  }
+
+  /**
+   * Returns whether the bitmap is empty
+   * @return true if the bitmap contains no integers, false otherwise
+   */
+  public boolean isEmpty() {
+    return cardinality == 0;
+  }
+
+  /**
+   * Passes every integer in the bitmap, in ascending order, to the given action
+   * @param action the action to perform on each integer
+   */
+  public void forEach(IntConsumer action) {
+    for (int i = 0; i < chunkCount; i++) {
+      int base = keys[i] << 16;
+      if (chunks[i] instanceof long[]) {
+        long[] bits = (long[]) chunks[i];
+        for (int w = 0; w < BITSET_WORDS; w++) {
+          long word = bits[w];
+          while (word != 0) {
+            action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+            word &= word - 1;
+          }
+        }
+      } else {
+        char[] array = (char[]) chunks[i];
+        for (int j = 0; j < chunkSizes[i]; j++) {
+          action.accept(base | array[j]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the integers in the bitmap in ascending order
+   * @return array of the integers in the bitmap
+   */
+  public int[] toArray() {
+    int[] result = new int[cardinality];
+    int[] n = {0};
+    forEach(x -> result[n[0]++] = x);
+    return result;
+  }
+
+  /**
+   * Removes all integers from the bitmap
+   */
+  public void clear() {
+    Arrays.fill(chunks, 0, chunkCount, null);
+    chunkCount = 0;
+    cardinality = 0;
+  }
+
+  /**
+   * Inserts an empty sparse chunk with the given upper bits at the given position
+   * @param i position of the new chunk
+   * @param high upper 16 bits of the new chunk
+   */
+  private void insertChunk(int i, char high) {
+    if (chunkCount == keys.length) {
+      int capacity = chunkCount * 2;
+      keys = Arrays.copyOf(keys, capacity);
+      chunks = Arrays.copyOf(chunks, capacity);
+      chunkSizes = Arrays.copyOf(chunkSizes, capacity);
+    }
+    System.arraycopy(keys, i, keys, i + 1, chunkCount - i);
+    System.arraycopy(chunks, i, chunks, i + 1, chunkCount - i);
+    System.arraycopy(chunkSizes, i, chunkSizes, i + 1, chunkCount - i);
+    keys[i] = high;
+    chunks[i] = new char[1];
+    chunkSizes[i] = 0;
+    chunkCount++;
+  }
+
+  /**
+   * Removes the chunk at the given position
+   * @param i position of the chunk
+   */
+  private void removeChunk(int i) {
+    System.arraycopy(keys, i + 1, keys, i, chunkCount - i - 1);
+    System.arraycopy(chunks, i + 1, chunks, i, chunkCount - i - 1);
+    System.arraycopy(chunkSizes, i + 1, chunkSizes, i, chunkCount - i - 1);
+    chunkCount--;
+    chunks[chunkCount] = null;
+  }
+
+  /**
+   * Converts a sparse chunk to a bitset
+   * @param array sorted lower 16 bits
+   * @param size number of members in the array
+   * @return bitset with the same members
+   */
+  private static long[] toBitset(char[] array, int size) {
+    long[] bits = new long[BITSET_WORDS];
+    for (int j = 0; j < size; j++) {
+      bits[array[j] >>> 6] |= 1L << array[j];
+    }
+    return bits;
+  }
+
+  /**
+   * Converts a bitset chunk to a sparse chunk
+   * @param bits the bitset
+   * @param size number of members in the bitset
+   * @return sorted lower 16 bits of the members
+   */
+  private static char[] toArray(long[] bits, int size) {
+    char[] array = new char[Math.max(4, size)];
+    int j = 0;
+    for (int w = 0; w < BITSET_WORDS; w++) {
+      long word = bits[w];
+      while (word != 0) {
+        array[j++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+        word &= word - 1;
+      }
+    }
+    return array;
+  }
+}
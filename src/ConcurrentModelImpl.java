@@ -0,0 +1,585 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * This class implements the IModel interface so that it can be shared by many threads, such as
+ * intake scanners, instrument feeds and the GUI. Every method is delegated to a ModelImpl behind
+ * a StampedLock: writes take the write lock, and the lookup of a sample by ID runs as an
+ * optimistic read that never blocks (and is retried under the read lock if a write got in the
+ * way).
+ *
+ * Every other read returns an immutable result, which is kept in a cache published through a
+ * volatile field and shared by every reader until the model or its links change. A reader that
+ * finds its result in the cache takes no lock at all, neither the model's nor the link store's
+ * nor the name dictionary's; only the first reader after a change computes it, under the read
+ * lock. Lists and ordered views are returned as snapshots that callers may keep and iterate
+ * while the model changes
+ */
+public class ConcurrentModelImpl implements IModel {
+  private final ModelImpl model;
+  private final LinkStore links;
+  private final StampedLock lock;
+  private volatile Results results;    // replaced on every write and every change of the links
+
+  /**
+   * Constructs an empty thread-safe model
+   */
+  public ConcurrentModelImpl() {
+    this.links = new LinkStore();
+    this.model = new ModelImpl(this.links);
+    this.lock = new StampedLock();
+    this.results = new Results(this.links.version());
+  }
+
+  /**
+   * Adds a sample to the IModel dashboard
+   *
+   * @param sample the sample to be added to the IModel dashboard
+   * @throws IllegalArgumentException if a sample with the same ID is already in the dashboard
+   */
+  @Override
+  public void addSample(Sample sample) {
+    write(() -> model.addSample(sample));
+  }
+
+  /**
+   * Takes the ID of a sample and returns the sample with that ID, without blocking
+   *
+   * @param sampleID the ID (a six digit integer) of the sample of interest
+   * @return the sample with the given ID, or null if there is no such sample
+   */
+  @Override
+  public Sample findSampleById(int sampleID) {
+    return optimisticRead(() -> model.findSampleById(sampleID));
+  }
+
+  /**
+   * Deletes a sample from the IModel dashboard at the given index, and deletes the sample from
+   * the tests that contain the sample
+   *
+   * @param index the index of the sample to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteSample(int index) {
+    write(() -> model.deleteSample(index));
+  }
+
+  /**
+   * Deletes the samples at the given indices from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them
+   *
+   * @param indices the indices of the samples to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteSamples(int[] indices) {
+    write(() -> model.deleteSamples(indices));
+  }
+
+  /**
+   * Deletes the samples with the given IDs from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. IDs that no sample has are skipped
+   *
+   * @param sampleIDs the IDs of the samples to be deleted
+   * @return the number of samples deleted
+   */
+  @Override
+  public int deleteSamplesById(int[] sampleIDs) {
+    long stamp = lock.writeLock();
+    try {
+      return model.deleteSamplesById(sampleIDs);
+    } finally {
+      this.results = new Results(this.links.version());
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Adds equipment to the IModel dashboard
+   *
+   * @param equipment the equipment to be added to the IModel dashboard
+   */
+  @Override
+  public void addEquipment(Equipment equipment) {
+    write(() -> model.addEquipment(equipment));
+  }
+
+  /**
+   * Deletes equipment from the IModel dashboard at the given index
+   *
+   * @param index the index of the equipment to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteEquipment(int index) {
+    write(() -> model.deleteEquipment(index));
+  }
+
+  /**
+   * Deletes the equipment at the given indices from the IModel dashboard in one pass
+   *
+   * @param indices the indices of the equipment to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteEquipment(int[] indices) {
+    write(() -> model.deleteEquipment(indices));
+  }
+
+  /**
+   * Adds a test to the IModel dashboard
+   *
+   * @param test the test to be added to the IModel dashboard
+   */
+  @Override
+  public void addTest(LabTest test) {
+    write(() -> model.addTest(test));
+  }
+
+  /**
+   * Deletes a test from the IModel dashboard at the given index, and deletes the test from the
+   * samples that require the test
+   *
+   * @param index the index of the test to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteTest(int index) throws IllegalArgumentException {
+    write(() -> model.deleteTest(index));
+  }
+
+  /**
+   * Deletes the tests at the given indices from the IModel dashboard in one pass, and deletes the
+   * tests from the samples that require them
+   *
+   * @param indices the indices of the tests to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteTests(int[] indices) {
+    write(() -> model.deleteTests(indices));
+  }
+
+  /**
+   * Returns a snapshot of the list of samples in the IModel dashboard
+   *
+   * @return unmodifiable copy of the list of samples in the IModel dashboard
+   */
+  @Override
+  public List<Sample> getListOfSamples() {
+    return cached(Read.SAMPLES, () -> List.copyOf(model.getListOfSamples()));
+  }
+
+  /**
+   * Returns a snapshot of the list of equipment in the IModel dashboard
+   *
+   * @return unmodifiable copy of the list of equipment in the IModel dashboard
+   */
+  @Override
+  public List<Equipment> getListOfEquipment() {
+    return cached(Read.EQUIPMENT, () -> List.copyOf(model.getListOfEquipment()));
+  }
+
+  /**
+   * Returns a snapshot of the list of tests in the IModel dashboard
+   *
+   * @return unmodifiable copy of the list of tests in the IModel dashboard
+   */
+  @Override
+  public List<LabTest> getListOfTests() {
+    return cached(Read.TESTS, () -> List.copyOf(model.getListOfTests()));
+  }
+
+  /**
+   * Sorts the list of samples in the IModel dashboard by ID
+   */
+  @Override
+  public void sortSamplesByID() {
+    write(model::sortSamplesByID);
+  }
+
+  /**
+   * Sorts the list of equipment in the IModel dashboard by remaining number of days until service
+   * is due
+   */
+  @Override
+  public void sortEquipmentByServiceUrgency() {
+    write(model::sortEquipmentByServiceUrgency);
+  }
+
+  /**
+   * Sorts the list of tests in the IModel dashboard by one of two enumerated types; DURATION or
+   * NUMBER_OF_SAMPLES
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   */
+  @Override
+  public void sortTestsByPriority(TestPriority priority) {
+    write(() -> model.sortTestsByPriority(priority));
+  }
+
+  /**
+   * Returns a snapshot of the samples in the IModel dashboard in ascending order of ID
+   *
+   * @return unmodifiable list of the samples in ascending order of ID
+   */
+  @Override
+  public Iterable<Sample> getSamplesOrderedByID() {
+    return cached(Read.SAMPLES_BY_ID, () -> snapshot(model.getSamplesOrderedByID()));
+  }
+
+  /**
+   * Returns a snapshot of the equipment in the IModel dashboard in ascending order of the number
+   * of days until service is due
+   *
+   * @return unmodifiable list of the equipment, most urgent first
+   */
+  @Override
+  public Iterable<Equipment> getEquipmentOrderedByServiceUrgency() {
+    return cached(Read.EQUIPMENT_BY_URGENCY,
+        () -> snapshot(model.getEquipmentOrderedByServiceUrgency()));
+  }
+
+  /**
+   * Returns the k pieces of equipment whose service is most urgent, most urgent first
+   *
+   * @param k the number of pieces of equipment to return
+   * @return list of at most k pieces of equipment with the fewest days until service is due
+   * @throws IllegalArgumentException if k is negative
+   */
+  @Override
+  public List<Equipment> mostUrgentEquipment(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("Invalid number of equipment");
+    }
+    List<Equipment> ordered = cached(Read.EQUIPMENT_BY_URGENCY,
+        () -> snapshot(model.getEquipmentOrderedByServiceUrgency()));
+    return ordered.subList(0, Math.min(k, ordered.size()));
+  }
+
+  /**
+   * Returns the equipment whose service is due within the given range of days, most urgent first
+   *
+   * @param fromDays the lowest number of days until service is due to include
+   * @param toDays   the highest number of days until service is due to include
+   * @return list of equipment due from fromDays to toDays days from now, inclusive
+   * @throws IllegalArgumentException if fromDays is greater than toDays
+   */
+  @Override
+  public List<Equipment> equipmentDueWithin(int fromDays, int toDays) {
+    return read(() -> model.equipmentDueWithin(fromDays, toDays));
+  }
+
+  /**
+   * Returns a snapshot of the tests in the IModel dashboard in ascending order of one of two
+   * enumerated types; DURATION or NUMBER_OF_SAMPLES. Ordering by NUMBER_OF_SAMPLES takes the
+   * write lock only when links changed outside the model, since the tests must then be re-keyed
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   * @return unmodifiable list of the tests in ascending order of the given priority
+   */
+  @Override
+  public Iterable<LabTest> getTestsOrderedByPriority(TestPriority priority) {
+    if (priority == TestPriority.DURATION) {
+      return cached(Read.TESTS_BY_DURATION,
+          () -> snapshot(model.getTestsOrderedByPriority(priority)));
+    }
+    List<LabTest> ordered = cached(Read.TESTS_BY_SAMPLES, () -> model.countsUpToDate()
+        ? snapshot(model.getTestsOrderedByPriority(priority)) : null);
+    if (ordered == null) {
+      long stamp = lock.writeLock();
+      try {
+        ordered = snapshot(model.getTestsOrderedByPriority(priority));
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+    return ordered;
+  }
+
+  /**
+   * Takes the name of a sample and the name of a test and adds the test to the sample
+   *
+   * @param sampleName name of the sample to add a test to
+   * @param testName   name of test to be added to the sample
+   */
+  @Override
+  public void addTestToSample(String sampleName, String testName) {
+    write(() -> model.addTestToSample(sampleName, testName));
+  }
+
+  /**
+   * Takes a collection of names of tests and a collection of names of samples and adds every test
+   * to every sample
+   *
+   * @param testNames   names of the tests to be added to the samples
+   * @param sampleNames names of the samples to add the tests to
+   * @return the number of tests newly added to samples
+   */
+  @Override
+  public int assignTests(Collection<String> testNames, Collection<String> sampleNames) {
+    long stamp = lock.writeLock();
+    try {
+      return model.assignTests(testNames, sampleNames);
+    } finally {
+      this.results = new Results(this.links.version());
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Takes the name of a sample and returns a copy of list of the names of test for the sample
+   *
+   * @param sampleName the name of the sample of interest
+   * @return List of names of tests requested for the sample
+   */
+  @Override
+  public List<String> getTestsForSample(String sampleName) {
+    return cached(lookup(Read.TESTS_FOR_SAMPLE, sampleName),
+        () -> List.copyOf(model.getTestsForSample(sampleName)));
+  }
+
+  /**
+   * Takes the name of a test and returns a copy of list of the names of samples for the test
+   *
+   * @param testName the name of the sample of interest
+   * @return List of names of samples that require this test
+   */
+  @Override
+  public List<String> getSamplesForTest(String testName) {
+    return cached(lookup(Read.SAMPLES_FOR_TEST, testName),
+        () -> List.copyOf(model.getSamplesForTest(testName)));
+  }
+
+  /**
+   * Takes the name of an equipment and returns its service urgency
+   *
+   * @param equipmentName names of equipment
+   * @return number of days until next service is due
+   */
+  @Override
+  public int getEquipmentInfo(String equipmentName) {
+    return cached(lookup(Read.EQUIPMENT_INFO, equipmentName),
+        () -> model.getEquipmentInfo(equipmentName));
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a sample with the given name
+   *
+   * @param sampleName the name of the sample of interest
+   * @return true if there is at least one sample with that name, false otherwise
+   */
+  @Override
+  public boolean containsSample(String sampleName) {
+    return cached(lookup(Read.CONTAINS_SAMPLE, sampleName),
+        () -> model.containsSample(sampleName));
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a test with the given name
+   *
+   * @param testName the name of the test of interest
+   * @return true if there is at least one test with that name, false otherwise
+   */
+  @Override
+  public boolean containsTest(String testName) {
+    return cached(lookup(Read.CONTAINS_TEST, testName), () -> model.containsTest(testName));
+  }
+
+  /**
+   * Returns a list of names of the samples in the exact order of the list of samples
+   *
+   * @return List of names of samples
+   */
+  @Override
+  public List<String> getListOfNamesOfSamples() {
+    return cached(Read.NAMES_OF_SAMPLES, () -> List.copyOf(model.getListOfNamesOfSamples()));
+  }
+
+  /**
+   * Returns a list of names of the tests in the exact order of the list of tests
+   *
+   * @return List of names of tests
+   */
+  @Override
+  public List<String> getListOfNamesOfTests() {
+    return cached(Read.NAMES_OF_TESTS, () -> List.copyOf(model.getListOfNamesOfTests()));
+  }
+
+  /**
+   * Returns a list of names of the equipment in the exact order of the list of equipment
+   *
+   * @return List of names of equipment
+   */
+  @Override
+  public List<String> getListOfNamesOfEquipment() {
+    return cached(Read.NAMES_OF_EQUIPMENT,
+        () -> List.copyOf(model.getListOfNamesOfEquipment()));
+  }
+
+  /**
+   * Deletes all samples from the list of samples
+   */
+  @Override
+  public void clearSamples() {
+    write(model::clearSamples);
+  }
+
+  /**
+   * Deletes all tests from the list of samples
+   */
+  @Override
+  public void clearTests() {
+    write(model::clearTests);
+  }
+
+  /**
+   * Deletes all equipment from the list of samples
+   */
+  @Override
+  public void clearEquipment() {
+    write(model::clearEquipment);
+  }
+
+  /**
+   * Runs a change to the model under the write lock
+   * @param change the change to run
+   */
+  private void write(Runnable change) {
+    long stamp = lock.writeLock();
+    try {
+      change.run();
+    } finally {
+      this.results = new Results(this.links.version());
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Returns the result of a read from the cache, computing it under the read lock if it is not
+   * there. The result is cached only if nothing changed while it was computed
+   * @param key what is read
+   * @param reader computes the result, which must be immutable; null is returned but not cached
+   * @return the result of the read
+   */
+  @SuppressWarnings("unchecked")
+  private <R> R cached(Object key, Supplier<R> reader) {
+    Results results = current();
+    Object result = results.values.get(key);
+    if (result == null) {
+      result = read(reader);
+      if (result != null && this.results == results
+          && results.linkVersion == this.links.version()) {
+        results.values.putIfAbsent(key, result);
+      }
+    }
+    return (R) result;
+  }
+
+  /**
+   * Returns the cache key of a read by name, such as the tests of the samples with a given name
+   * @param read what is read
+   * @param name the name it is read for, which may be null
+   * @return the key
+   */
+  private static Object lookup(Read read, String name) {
+    return Arrays.asList(read, name);
+  }
+
+  /**
+   * Returns the cache of results, replacing it first if links changed outside the model, through
+   * samples or tests themselves
+   * @return the current cache
+   */
+  private Results current() {
+    Results results = this.results;
+    int linkVersion = this.links.version();
+    if (results.linkVersion != linkVersion) {
+      results = new Results(linkVersion);
+      this.results = results;
+    }
+    return results;
+  }
+
+  /**
+   * Runs a read of the model under the read lock
+   * @param reader the read to run
+   * @return the result of the read
+   */
+  private <R> R read(Supplier<R> reader) {
+    long stamp = lock.readLock();
+    try {
+      return reader.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Runs a read of the model without taking a lock, and runs it again under the read lock only
+   * if a write happened in the meantime. Only a single hash lookup is read this way; a read that
+   * races a write may see the model half-changed and fail, which is treated like any other
+   * invalidated read. Reads that walk several structures, and could loop or read far past what a
+   * write left behind before being validated, take the read lock instead
+   * @param reader the read to run
+   * @return the result of the read
+   */
+  private <R> R optimisticRead(Supplier<R> reader) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        R result = reader.get();
+        if (lock.validate(stamp)) {
+          return result;
+        }
+      } catch (RuntimeException e) {
+        // the read raced a write; fall through and read again under the lock
+      }
+    }
+    return read(reader);
+  }
+
+  /**
+   * This class holds the results read since the model or its links last changed, each stored
+   * once and shared by every reader
+   */
+  private static class Results {
+    final int linkVersion;
+    final Map<Object, Object> values;
+
+    Results(int linkVersion) {
+      this.linkVersion = linkVersion;
+      this.values = new ConcurrentHashMap<>();
+    }
+  }
+
+  /**
+   * This enumerated type sets the reads whose results are cached
+   */
+  private enum Read {
+    SAMPLES, TESTS, EQUIPMENT, NAMES_OF_SAMPLES, NAMES_OF_TESTS, NAMES_OF_EQUIPMENT,
+    SAMPLES_BY_ID, EQUIPMENT_BY_URGENCY, TESTS_BY_DURATION, TESTS_BY_SAMPLES, TESTS_FOR_SAMPLE,
+    SAMPLES_FOR_TEST, EQUIPMENT_INFO, CONTAINS_SAMPLE, CONTAINS_TEST
+  }
+
+  /**
+   * Copies an ordered view into an unmodifiable list
+   * @param items the ordered view
+   * @return unmodifiable list of the items in the same order
+   */
+  private static <T> List<T> snapshot(Iterable<T> items) {
+    List<T> copy = new ArrayList<>();
+    items.forEach(copy::add);
+    return List.copyOf(copy);
+  }
+}
@@ -1,44 +1,95 @@
 import java.awt.event.ActionEvent;
 import java.awt.event.ItemEvent;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 
 /**
- * This class implements the IController interface with all its mandated methods
+ * This class implements the IController interface with all its mandated methods. Every command
+ * it dispatches is timed, in the model and in the view (see {@link CommandMetrics}).
+ *
+ * A controller is synchronous or asynchronous. A synchronous controller runs each command on
+ * the event dispatch thread, so the window freezes while the model works. An asynchronous
+ * controller queues each command to run on a background thread in the order the buttons were
+ * pressed (see {@link CommandQueue}), and its calls to the view are run on the event dispatch
+ * thread, so the window stays responsive and can cancel the commands that are waiting
  */
 public class ControllerImpl implements IController {
-  private final IModel model;
-  private final ViewImpl view;
+  private static final String[] SOME_TESTS = {"HBV", "HCV", "HTLV I", "HTLV II", "HBCORE",
+                                              "HIV I", "HIV II", "DCA", "COVID I"};
+  private static final String[] SOME_SAMPLES = {"JANE DOE", "LUKE SKYWALKER", "TOM CRUISE",
+                                                "CHRIS ROCK", "MARK MILLER", "MEL GIBSON",
+                                                "LEO MESSI", "ALVARO MONGE"};
+  private static final String[] SOME_EQUIPMENT = {"CENTRIFUGE", "INCUBATOR", "FREEZER",
+                                                  "FUME HOOD", "PRINTER", "SCALE", "PIPETTE",
+                                                  "MICROSCOPE", "WATER PURIFIER", "HOTPLATE",
+                                                  "SHAKER", "FURNACE", "OVEN", "AUTOCLAVE"};
+
+  private final ObservableModel model;
+  private final IView view;
+  private final CommandMetrics metrics;
+  private final CommandQueue queue;   // null if synchronous
 
   /**
-   * Constructs a controller and instantiates the model
+   * Constructs a synchronous controller and instantiates the model
    * @param model the model of the Lab Info Management System
    */
   public ControllerImpl(IModel model) {
-    this.model = model;
-    this.view = new ViewImpl(this);
+    this(model, false);
+  }
+
+  /**
+   * Constructs a controller and instantiates the model
+   * @param model the model of the Lab Info Management System
+   * @param async true to run commands on a background thread, false to run them on the event
+   *              dispatch thread
+   */
+  public ControllerImpl(IModel model, boolean async) {
+    this.metrics = new CommandMetrics(model);
+    this.model = new ObservableModel(this.metrics.getModel());
+    IView gui = new ViewImpl(this);
+    this.view = async ? new EdtView(gui) : gui;
+    this.queue = async ? new CommandQueue(gui) : null;
   }
 
   /**
-   * Calls on view to create the GUI
+   * Calls on view to create the GUI, then either shows the items already in the model or,
+   * if the model is empty, autogenerates some, as a command like any other
    */
   @Override
   public void go() {
     view.viewCreateGUI();
+    if (model.getListOfSamples().isEmpty() && model.getListOfTests().isEmpty()
+        && model.getListOfEquipment().isEmpty()) {
+      if (queue == null) {
+        run("autogenerate");
+      } else {
+        queue.submit("autogenerate", () -> run("autogenerate"));
+      }
+    } else {
+      view.viewShowItems(model.getListOfNamesOfSamples(), model.getListOfNamesOfTests(),
+          model.getListOfNamesOfEquipment());
+    }
   }
 
   /**
    * Gets sample info from the view and passes to the model to add the sample,
-   * then asks the view to add the sample to the GUI
+   * then asks the view to add the sample to the GUI. Samples whose ID is already
+   * in the dashboard are not added
    */
   @Override
   public void controllerAddSample() {
-    if (Objects.equals(view.getSampleInfo()[0].toUpperCase(), "") ||
+    if (Objects.equals(view.getSampleInfo()[0].toUpperCase(Locale.ROOT), "") ||
         Objects.equals(view.getSampleInfo()[1], "")) {
       return;
     }
-    model.addSample(new SampleImpl(view.getSampleInfo()[0].toUpperCase(),
-        Integer.valueOf(view.getSampleInfo()[1])));
+    Sample sample = new SampleImpl(view.getSampleInfo()[0].toUpperCase(Locale.ROOT),
+        Integer.valueOf(view.getSampleInfo()[1]));
+    try {
+      model.addSample(sample);
+    } catch (IllegalArgumentException e) {
+      return;   // a sample with this ID is already in the dashboard
+    }
     view.viewAddSample();
   }
 
@@ -46,17 +97,12 @@ public class ControllerImpl implements IController {
    * Gets an array of names of samples from the model and sends it to view, then
    * asks the view to delete selected samples and return an array of indices of the
    * deleted samples in the original list of tests, then finally asks the model to
-   * delete samples from given indices (adjusted for previous deletions)
+   * delete all samples at the given indices in one pass
    */
   @Override
   public void controllerDeleteSample() {
-
-    int count = 0;    // to account for shifting elements after each deletion
     List<Integer> toDelete = view.viewDeleteSample(model.getListOfNamesOfSamples());
-    for (Integer index : toDelete) {
-      model.deleteSample(index-count);
-      count++;
-    }
+    model.deleteSamples(toArray(toDelete));
   }
 
   /**
@@ -68,11 +114,7 @@ public class ControllerImpl implements IController {
     List<String> tests = view.getTestToAddToSample();
     List<String> samples = view.getSelectedSamples();
 
-    for (String test : tests) {
-      for (String sample : samples) {
-        model.addTestToSample(sample, test);
-      }
-    }
+    model.assignTests(tests, samples);
   }
 
   /**
@@ -94,11 +136,11 @@ public class ControllerImpl implements IController {
    */
   @Override
   public void controllerAddTest() {
-    if (Objects.equals(view.getTestInfo()[0].toUpperCase(), "") ||
+    if (Objects.equals(view.getTestInfo()[0].toUpperCase(Locale.ROOT), "") ||
         Objects.equals(view.getTestInfo()[1], "")) {
       return;
     }
-    model.addTest(new LabTestImpl(view.getTestInfo()[0].toUpperCase(),
+    model.addTest(new LabTestImpl(view.getTestInfo()[0].toUpperCase(Locale.ROOT),
         Integer.valueOf(view.getTestInfo()[1])));
     view.viewAddTest();
   }
@@ -107,16 +149,12 @@ public class ControllerImpl implements IController {
    * Gets an array of names of tests from the model and sends it to view, then
    * asks the view to delete selected tests and return an array of indices of the
    * deleted tests in the original list of tests, then finally asks the model to
-   * delete tests from given indices (adjusted for previous deletions)
+   * delete all tests at the given indices in one pass
    */
   @Override
   public void controllerDeleteTest() {
-    int count = 0;    // to account for shifting elements after each deletion
     List<Integer> toDelete = view.viewDeleteTest(model.getListOfNamesOfTests());
-    for (Integer index : toDelete) {
-      model.deleteTest(index-count);
-      count++;
-    }
+    model.deleteTests(toArray(toDelete));
   }
 
   /**
@@ -138,11 +176,11 @@ public class ControllerImpl implements IController {
    */
   @Override
   public void controllerAddEquipment() {
-    if (Objects.equals(view.getEquipmentInfo()[0].toUpperCase(), "") ||
+    if (Objects.equals(view.getEquipmentInfo()[0].toUpperCase(Locale.ROOT), "") ||
         Objects.equals(view.getEquipmentInfo()[1], "")) {
       return;
     }
-    model.addEquipment(new EquipmentImpl(view.getEquipmentInfo()[0].toUpperCase(),
+    model.addEquipment(new EquipmentImpl(view.getEquipmentInfo()[0].toUpperCase(Locale.ROOT),
         Integer.valueOf(view.getEquipmentInfo()[1])));
     view.viewAddEquipment();
   }
@@ -151,16 +189,12 @@ public class ControllerImpl implements IController {
    * Gets an array of names of equipment from the model and sends it to view, then
    * asks the view to delete selected equipment and return an array of indices of the
    * deleted equipment in the original list of equipment, then finally asks the model to
-   * delete equipment from given indices (adjusted for previous deletions)
+   * delete all equipment at the given indices in one pass
    */
   @Override
   public void controllerDeleteEquipment() {
-    int count = 0;    // to account for shifting elements after each deletion
     List<Integer> toDelete = view.viewDeleteEquipment(model.getListOfNamesOfEquipment());
-    for (Integer index : toDelete) {
-      model.deleteEquipment(index-count);
-      count++;
-    }
+    model.deleteEquipment(toArray(toDelete));
   }
 
   /**
@@ -177,33 +211,66 @@ public class ControllerImpl implements IController {
   }
 
   /**
-   * Asks the model to sort samples by ID, then gets a list of names of samples from model
-   * and sends to the view to reorder the samples
+   * Asks the model to sort samples by ID, then sends the order the model moved the samples in
+   * to the view to reorder the samples
    */
   @Override
   public void controllerSortSamplesByID() {
-    model.sortSamplesByID();
-    view.sortSampleByID(model.getListOfNamesOfSamples());
+    int[] order = sort(ModelEntity.SAMPLE, model::sortSamplesByID);
+    if (order != null) {
+      view.sortSampleByID(order);
+    }
   }
 
   /**
-   * Asks the model to sort tests by duration, then gets a list of names of tests from model
-   * and sends to the view to reorder the tests
+   * Asks the model to sort tests by duration, then sends the order the model moved the tests
+   * in to the view to reorder the tests
    */
   @Override
   public void controllerSortTestsByDuration() {
-    model.sortTestsByPriority(TestPriority.DURATION);
-    view.sortTestByDuration(model.getListOfNamesOfTests());
+    int[] order = sort(ModelEntity.TEST, () -> model.sortTestsByPriority(TestPriority.DURATION));
+    if (order != null) {
+      view.sortTestByDuration(order);
+    }
   }
 
   /**
-   * Asks the model to sort equipment by next service due, then gets a list of names of
-   * equipment from model and sends to the view to reorder the equipment
+   * Asks the model to sort equipment by next service due, then sends the order the model moved
+   * the equipment in to the view to reorder the equipment
    */
   @Override
   public void controllerSortEquipmentByServiceUrgency() {
-    model.sortEquipmentByServiceUrgency();
-    view.sortEquipmentByService(model.getListOfNamesOfEquipment());
+    int[] order = sort(ModelEntity.EQUIPMENT, model::sortEquipmentByServiceUrgency);
+    if (order != null) {
+      view.sortEquipmentByService(order);
+    }
+  }
+
+  /**
+   * Runs a sort of the model and returns the order it moved the items of a list in, as the
+   * model reports it, so the view moves each row with the item it shows even when items have
+   * the same name
+   * @param entity the list sorted
+   * @param sort sorts the list
+   * @return the index each item had before the sort, for each index after, or null if the sort
+   *         moved nothing
+   */
+  private int[] sort(ModelEntity entity, Runnable sort) {
+    int[][] order = new int[1][];
+    ModelListener listener = changes -> {
+      for (ModelChange change : changes) {
+        if (change.getKind() == ChangeKind.MOVED && change.getEntity() == entity) {
+          order[0] = change.getIndices();
+        }
+      }
+    };
+    model.addModelListener(listener);
+    try {
+      sort.run();
+    } finally {
+      model.removeModelListener(listener);
+    }
+    return order[0];
   }
 
   /**
@@ -237,23 +304,100 @@ public class ControllerImpl implements IController {
   }
 
   /**
-   * Helper method to auto generate samples, tests and equipment.
-   * Tells view to autogenerate items (which ideally, it should not). This is
-   * for the sake of experimentation.
+   * Helper method to auto generate samples, tests and equipment, for the sake of
+   * experimentation. The items are generated and added to the model here, on the thread the
+   * command runs on, and the view is only asked to clear its display areas and show the result
    */
   @Override
   public void controllerAutogenerate() {
-    view.viewAutogenerate();
+    model.clearSamples();
+    model.clearTests();
+    model.clearEquipment();
+
+    for (String sample : SOME_SAMPLES) {
+      int ID = (int) (Math.random() * 100000);
+      try {
+        model.addSample(new SampleImpl(sample, ID));
+      } catch (IllegalArgumentException e) {
+        // a sample with this ID was generated already
+      }
+    }
+    for (String test : SOME_TESTS) {
+      int duration = (int) (((Math.random() * 100) % 10) + 1);
+      model.addTest(new LabTestImpl(test, duration));
+    }
+    for (String equipment : SOME_EQUIPMENT) {
+      int service = (int) (((Math.random() * 100000) % 365));
+      model.addEquipment(new EquipmentImpl(equipment, service));
+    }
+
+    view.viewClearSamples();
+    view.viewClearTests();
+    view.viewClearEquipment();
+    view.viewShowItems(model.getListOfNamesOfSamples(), model.getListOfNamesOfTests(),
+        model.getListOfNamesOfEquipment());
   }
 
   /**
-   * Invoked when an action occurs.
+   * Returns the latencies of the commands this controller has dispatched
+   * @return the metrics of the commands
+   */
+  @Override
+  public CommandMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * Converts a list of indices from the view to an array for the model
+   * @param indices list of indices
+   * @return array of the same indices
+   */
+  private static int[] toArray(List<Integer> indices) {
+    int[] array = new int[indices.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = indices.get(i);
+    }
+    return array;
+  }
+
+  /**
+   * Invoked when an action occurs. Runs the command now, or queues it if the controller is
+   * asynchronous, and records how long it took. The cancel command is never queued; it cancels
+   * the commands waiting in the queue
    *
    * @param e the event to be processed
    */
   @Override
   public void actionPerformed(ActionEvent e) {
-    switch (e.getActionCommand()) {
+    String command = e.getActionCommand();
+    if (queue == null) {
+      run(command);
+    } else if (command.equals("cancel")) {
+      queue.cancelWaiting();
+    } else {
+      queue.submit(command, () -> run(command));
+    }
+  }
+
+  /**
+   * Runs the command with the given name and records how long it took
+   * @param command the action command of the button that was pressed
+   */
+  private void run(String command) {
+    metrics.begin(command);
+    try {
+      dispatch(command);
+    } finally {
+      metrics.end();
+    }
+  }
+
+  /**
+   * Runs the command with the given name
+   * @param command the action command of the button that was pressed
+   */
+  private void dispatch(String command) {
+    switch (command) {
       case "add sample" -> controllerAddSample();
       case "deleteSample" -> controllerDeleteSample();
       case "addTestsToSample" -> controllerAddTestsToSample();
@@ -0,0 +1,338 @@
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+
+/**
+ * This class implements the IView interface by decorating another IView so that it can be used
+ * from any thread: every call is run on the event dispatch thread, and the calling thread waits
+ * for it to finish and gets its result. Calls made on the event dispatch thread run directly
+ */
+public class EdtView implements IView {
+  private final IView view;
+
+  /**
+   * Constructs a view that runs every call to the given view on the event dispatch thread
+   * @param view the view to call
+   */
+  public EdtView(IView view) {
+    this.view = view;
+  }
+
+  /**
+   * Creates the GUI
+   */
+  @Override
+  public void viewCreateGUI() {
+    run(() -> view.viewCreateGUI());
+  }
+
+  /**
+   * Returns an array with the sample name and sample ID
+   *
+   * @return array with sample name and sample ID
+   */
+  @Override
+  public String[] getSampleInfo() {
+    return call(() -> view.getSampleInfo());
+  }
+
+  /**
+   * Returns an array with the test name and test duration
+   *
+   * @return array with test name and test duration
+   */
+  @Override
+  public String[] getTestInfo() {
+    return call(() -> view.getTestInfo());
+  }
+
+  /**
+   * Returns an array with the equipment name and equipment service urgency
+   *
+   * @return array with equipment name and equipment service urgency
+   */
+  @Override
+  public String[] getEquipmentInfo() {
+    return call(() -> view.getEquipmentInfo());
+  }
+
+  /**
+   * Creates a checkbox with the sample's name and adds it to the GUI
+   */
+  @Override
+  public void viewAddSample() {
+    run(() -> view.viewAddSample());
+  }
+
+  /**
+   * Takes a list of names of samples and returns an array of indices of samples from the original
+   * list that have been selected on the GUI
+   *
+   * @param listOfNamesOfSamples list of names of samples on the GUI
+   * @return array of indices (integers) of selected samples
+   */
+  @Override
+  public List<Integer> viewDeleteSample(List<String> listOfNamesOfSamples) {
+    return call(() -> view.viewDeleteSample(listOfNamesOfSamples));
+  }
+
+  /**
+   * Iterates through the tests on the GUI and returns a list of names of tests that have been
+   * selected
+   *
+   * @return list of names of tests that have been selected on the GUI
+   */
+  @Override
+  public List<String> getSelectedTests() {
+    return call(() -> view.getSelectedTests());
+  }
+
+  /**
+   * Return list of selected tests and deselect all the selected tests
+   *
+   * @return list of names of tests that have been selected on the GUI
+   */
+  @Override
+  public List<String> getTestToAddToSample() {
+    return call(() -> view.getTestToAddToSample());
+  }
+
+  /**
+   * Iterates through the samples on the GUI and returns a list of names of samples that have been
+   * selected
+   *
+   * @return list of names of samples that have been selected on the GUI
+   */
+  @Override
+  public List<String> getSelectedSamples() {
+    return call(() -> view.getSelectedSamples());
+  }
+
+  /**
+   * Takes a list of names of tests and displays the tests
+   *
+   * @param tests list of tests to display
+   */
+  @Override
+  public void viewShowTestsOfSample(List<String> tests) {
+    run(() -> view.viewShowTestsOfSample(tests));
+  }
+
+  /**
+   * Creates a checkbox with the test's name and adds it to the GUI
+   */
+  @Override
+  public void viewAddTest() {
+    run(() -> view.viewAddTest());
+  }
+
+  /**
+   * Takes a list of names of test and returns an array of indices of tests from the original list
+   * that have been selected on the GUI
+   *
+   * @param listOfNamesOfTests list of names of tests on the GUI
+   * @return array of indices (integers) of selected tests
+   */
+  @Override
+  public List<Integer> viewDeleteTest(List<String> listOfNamesOfTests) {
+    return call(() -> view.viewDeleteTest(listOfNamesOfTests));
+  }
+
+  /**
+   * Takes a list of names of samples and displays the samples
+   *
+   * @param samples list of names of samples
+   */
+  @Override
+  public void viewShowSamplesOfTest(List<String> samples) {
+    run(() -> view.viewShowSamplesOfTest(samples));
+  }
+
+  /**
+   * Creates a checkbox with the equipment's name and adds it to the GUI
+   */
+  @Override
+  public void viewAddEquipment() {
+    run(() -> view.viewAddEquipment());
+  }
+
+  /**
+   * Takes a list of names of equipment and returns an array of indices of equipment from the
+   * original list that have been selected on the GUI
+   *
+   * @param listOfNamesOfEquipment list of names of equipment on the GUI
+   * @return array of indices (integers) of selected equipment
+   */
+  @Override
+  public List<Integer> viewDeleteEquipment(List<String> listOfNamesOfEquipment) {
+    return call(() -> view.viewDeleteEquipment(listOfNamesOfEquipment));
+  }
+
+  /**
+   * Returns a list of names of selected equipment
+   *
+   * @return list of names of selected equipment
+   */
+  @Override
+  public List<String> getSelectedEquipment() {
+    return call(() -> view.getSelectedEquipment());
+  }
+
+  /**
+   * Clears the equipment info display area
+   */
+  @Override
+  public void cleanUpEquipmentDisplay() {
+    run(() -> view.cleanUpEquipmentDisplay());
+  }
+
+  /**
+   * Takes an equipment's name and service urgency and displays to the GUI
+   *
+   * @param equipmentName  name of the equipment
+   * @param serviceUrgency the number of days until next service is due
+   */
+  @Override
+  public void showEquipmentInfo(String equipmentName, int serviceUrgency) {
+    run(() -> view.showEquipmentInfo(equipmentName, serviceUrgency));
+  }
+
+  /**
+   * Takes the order the model has sorted the samples in and sorts the checkboxes on the display
+   * in the same order, each checkbox staying checked or unchecked
+   *
+   * @param order the index each sample had before the sort, for each index after
+   */
+  @Override
+  public void sortSampleByID(int[] order) {
+    run(() -> view.sortSampleByID(order));
+  }
+
+  /**
+   * Takes the order the model has sorted the tests in and sorts the checkboxes on the display in
+   * the same order, each checkbox staying checked or unchecked
+   *
+   * @param order the index each test had before the sort, for each index after
+   */
+  @Override
+  public void sortTestByDuration(int[] order) {
+    run(() -> view.sortTestByDuration(order));
+  }
+
+  /**
+   * Takes the order the model has sorted the equipment in and sorts the checkboxes on the display
+   * in the same order, each checkbox staying checked or unchecked
+   *
+   * @param order the index each piece of equipment had before the sort, for each index after
+   */
+  @Override
+  public void sortEquipmentByService(int[] order) {
+    run(() -> view.sortEquipmentByService(order));
+  }
+
+  /**
+   * Takes lists of names of samples, tests and equipment that are already in the model, for
+   * example after it was restored from disk, and adds a checkbox for each to the GUI
+   *
+   * @param samples   list of names of samples
+   * @param tests     list of names of tests
+   * @param equipment list of names of equipment
+   */
+  @Override
+  public void viewShowItems(List<String> samples, List<String> tests, List<String> equipment) {
+    run(() -> view.viewShowItems(samples, tests, equipment));
+  }
+
+  /**
+   * Clears the sample display area
+   */
+  @Override
+  public void viewClearSamples() {
+    run(() -> view.viewClearSamples());
+  }
+
+  /**
+   * Clears the test display area
+   */
+  @Override
+  public void viewClearTests() {
+    run(() -> view.viewClearTests());
+  }
+
+  /**
+   * Clears the equipment display area
+   */
+  @Override
+  public void viewClearEquipment() {
+    run(() -> view.viewClearEquipment());
+  }
+
+  /**
+   * Tells the user that a command failed
+   *
+   * @param message what failed and why
+   */
+  @Override
+  public void viewShowError(String message) {
+    run(() -> view.viewShowError(message));
+  }
+
+  /**
+   * Shows that a command is taking a while, with a way to cancel the commands waiting behind it
+   *
+   * @param status what is running and what is waiting
+   */
+  @Override
+  public void viewShowProgress(String status) {
+    run(() -> view.viewShowProgress(status));
+  }
+
+  /**
+   * Hides the progress shown by viewShowProgress, once no command is running
+   */
+  @Override
+  public void viewHideProgress() {
+    run(() -> view.viewHideProgress());
+  }
+
+  /**
+   * Runs an action on the event dispatch thread and waits for it to finish
+   * @param action the action
+   */
+  private static void run(Runnable action) {
+    call(() -> {
+      action.run();
+      return null;
+    });
+  }
+
+  /**
+   * Runs an action on the event dispatch thread, waits for it to finish and returns its result
+   * @param action the action
+   * @return the result of the action
+   * @throws IllegalStateException if the calling thread is interrupted while waiting
+   */
+  private static <T> T call(Supplier<T> action) {
+    if (SwingUtilities.isEventDispatchThread()) {
+      return action.get();
+    }
+    List<T> result = new ArrayList<>(1);
+    try {
+      SwingUtilities.invokeAndWait(() -> result.add(action.get()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the view", e);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    return result.get(0);
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * This enumerated type sets the predefined constants CSV and JSON_LINES, the
+ * formats that worklists and reports can be exported in
+ */
+public enum ExportFormat {CSV, JSON_LINES}
@@ -7,7 +7,8 @@ import java.awt.event.ItemListener;
 public interface IController extends ActionListener, ItemListener {
 
   /**
-   * Calls on view to create the GUI
+   * Calls on view to create the GUI, then either shows the items already in the model or, if the
+   * model is empty, asks the view to autogenerate some
    */
   void go();
 
@@ -20,8 +21,8 @@ public interface IController extends ActionListener, ItemListener {
   /**
    * Gets an array of names of samples from the model and sends it to view, then asks the view to
    * delete selected samples and return an array of indices of the deleted samples in the original
-   * list of tests, then finally asks the model to delete samples from given indices (adjusted for
-   * previous deletions)
+   * list of tests, then finally asks the model to delete all samples at the given indices in one
+   * pass
    */
   void controllerDeleteSample();
 
@@ -46,8 +47,7 @@ public interface IController extends ActionListener, ItemListener {
   /**
    * Gets an array of names of tests from the model and sends it to view, then asks the view to
    * delete selected tests and return an array of indices of the deleted tests in the original list
-   * of tests, then finally asks the model to delete tests from given indices (adjusted for previous
-   * deletions)
+   * of tests, then finally asks the model to delete all tests at the given indices in one pass
    */
   void controllerDeleteTest();
 
@@ -66,8 +66,8 @@ public interface IController extends ActionListener, ItemListener {
   /**
    * Gets an array of names of equipment from the model and sends it to view, then asks the view to
    * delete selected equipment and return an array of indices of the deleted equipment in the
-   * original list of equipment, then finally asks the model to delete equipment from given indices
-   * (adjusted for previous deletions)
+   * original list of equipment, then finally asks the model to delete all equipment at the given
+   * indices in one pass
    */
   void controllerDeleteEquipment();
 
@@ -78,20 +78,20 @@ public interface IController extends ActionListener, ItemListener {
   void controllerShowEquipmentInfo();
 
   /**
-   * Asks the model to sort samples by ID, then gets a list of names of samples from model and sends
-   * to the view to reorder the samples
+   * Asks the model to sort samples by ID, then sends the order the model moved the samples in to
+   * the view to reorder the samples
    */
   void controllerSortSamplesByID();
 
   /**
-   * Asks the model to sort tests by duration, then gets a list of names of tests from model and
-   * sends to the view to reorder the tests
+   * Asks the model to sort tests by duration, then sends the order the model moved the tests in
+   * to the view to reorder the tests
    */
   void controllerSortTestsByDuration();
 
   /**
-   * Asks the model to sort equipment by next service due, then gets a list of names of equipment
-   * from model and sends to the view to reorder the equipment
+   * Asks the model to sort equipment by next service due, then sends the order the model moved
+   * the equipment in to the view to reorder the equipment
    */
   void controllerSortEquipmentByServiceUrgency();
 
@@ -113,8 +113,16 @@ public interface IController extends ActionListener, ItemListener {
   void controllerClearEquipment();
 
   /**
-   * Helper method to auto generate samples, tests and equipment. Tells view to autogenerate items
-   * (which ideally, it should not). This is for the sake of experimentation.
+   * Helper method to auto generate samples, tests and equipment, for the sake of experimentation.
+   * The items are added to the model, and the view is asked to show them
    */
   void controllerAutogenerate();
+
+  /**
+   * Returns the latencies of the commands the controller has dispatched, as a count and a
+   * histogram per command, split into time in the model and time in the view
+   *
+   * @return the metrics of the commands
+   */
+  CommandMetrics getMetrics();
 }
@@ -1,3 +1,4 @@
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -10,9 +11,17 @@ public interface IModel {
    * Adds a sample to the IModel dashboard
    *
    * @param sample the sample to be added to the IModel dashboard
+   * @throws IllegalArgumentException if a sample with the same ID is already in the dashboard
    */
   void addSample(Sample sample);
 
+  /**
+   * Takes the ID of a sample and returns the sample with that ID
+   * @param sampleID the ID (a six digit integer) of the sample of interest
+   * @return the sample with the given ID, or null if there is no such sample
+   */
+  Sample findSampleById(int sampleID);
+
   /**
    * Deletes a sample from the IModel dashboard at the given index, and
    * deletes the sample from the tests that contain the sample
@@ -22,6 +31,26 @@ public interface IModel {
    */
   void deleteSample(int index);
 
+  /**
+   * Deletes the samples at the given indices from the IModel dashboard in one pass, and
+   * deletes the samples from the tests that contain them. The indices refer to the list
+   * of samples before any of them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the samples to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing
+   *                                  is deleted
+   */
+  void deleteSamples(int[] indices);
+
+  /**
+   * Deletes the samples with the given IDs from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. IDs that no sample has are skipped
+   *
+   * @param sampleIDs the IDs of the samples to be deleted
+   * @return the number of samples deleted
+   */
+  int deleteSamplesById(int[] sampleIDs);
+
   /**
    * Adds equipment to the IModel dashboard
    *
@@ -37,6 +66,17 @@ public interface IModel {
    */
   void deleteEquipment(int index);
 
+  /**
+   * Deletes the equipment at the given indices from the IModel dashboard in one pass. The
+   * indices refer to the list of equipment before any of it is deleted, and may be given
+   * in any order
+   *
+   * @param indices the indices of the equipment to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing
+   *                                  is deleted
+   */
+  void deleteEquipment(int[] indices);
+
   /**
    * Adds a test to the IModel dashboard
    * @param test the test to be added to the IModel dashboard
@@ -52,6 +92,17 @@ public interface IModel {
    */
   void deleteTest(int index) throws IllegalArgumentException;
 
+  /**
+   * Deletes the tests at the given indices from the IModel dashboard in one pass, and
+   * deletes the tests from the samples that require them. The indices refer to the list
+   * of tests before any of them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the tests to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing
+   *                                  is deleted
+   */
+  void deleteTests(int[] indices);
+
   /**
    * Returns the current list of samples in the IModel dashboard
    * @return list of samples in the IModel dashboard
@@ -89,6 +140,48 @@ public interface IModel {
    */
   void sortTestsByPriority(TestPriority priority);
 
+  /**
+   * Returns a read-only view of the samples in the IModel dashboard in ascending order of ID.
+   * Unlike sortSamplesByID, this leaves the list of samples in its current order
+   * @return the samples in ascending order of ID
+   */
+  Iterable<Sample> getSamplesOrderedByID();
+
+  /**
+   * Returns a read-only view of the equipment in the IModel dashboard in ascending order of the
+   * number of days until service is due. Unlike sortEquipmentByServiceUrgency, this leaves the
+   * list of equipment in its current order
+   * @return the equipment, most urgent first
+   */
+  Iterable<Equipment> getEquipmentOrderedByServiceUrgency();
+
+  /**
+   * Returns the k pieces of equipment whose service is most urgent, most urgent first
+   * @param k the number of pieces of equipment to return
+   * @return list of at most k pieces of equipment with the fewest days until service is due
+   * @throws IllegalArgumentException if k is negative
+   */
+  List<Equipment> mostUrgentEquipment(int k);
+
+  /**
+   * Returns the equipment whose service is due within the given range of days, most urgent
+   * first. For example, equipmentDueWithin(0, 7) returns everything due in the next week
+   * @param fromDays the lowest number of days until service is due to include
+   * @param toDays the highest number of days until service is due to include
+   * @return list of equipment due from fromDays to toDays days from now, inclusive
+   * @throws IllegalArgumentException if fromDays is greater than toDays
+   */
+  List<Equipment> equipmentDueWithin(int fromDays, int toDays);
+
+  /**
+   * Returns a read-only view of the tests in the IModel dashboard in ascending order of one of
+   * two enumerated types; DURATION or NUMBER_OF_SAMPLES. Unlike sortTestsByPriority, this leaves
+   * the list of tests in its current order
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   * @return the tests in ascending order of the given priority
+   */
+  Iterable<LabTest> getTestsOrderedByPriority(TestPriority priority);
+
   /**
    * Takes the name of a sample and the name of a test and adds the test to the sample
    * @param sampleName name of the sample to add a test to
@@ -96,6 +189,16 @@ public interface IModel {
    */
   void addTestToSample(String sampleName, String testName);
 
+  /**
+   * Takes a collection of names of tests and a collection of names of samples and adds every
+   * test to every sample. Each name is looked up once, and pairs that are already linked are
+   * skipped
+   * @param testNames names of the tests to be added to the samples
+   * @param sampleNames names of the samples to add the tests to
+   * @return the number of tests newly added to samples
+   */
+  int assignTests(Collection<String> testNames, Collection<String> sampleNames);
+
   /**
    * Takes the name of a sample and returns a list of the names of test for the sample
    * @param sampleName the name of the sample of interest
@@ -117,6 +220,20 @@ public interface IModel {
    */
   int getEquipmentInfo(String equipmentName);
 
+  /**
+   * Returns whether the IModel dashboard holds a sample with the given name
+   * @param sampleName the name of the sample of interest
+   * @return true if there is at least one sample with that name, false otherwise
+   */
+  boolean containsSample(String sampleName);
+
+  /**
+   * Returns whether the IModel dashboard holds a test with the given name
+   * @param testName the name of the test of interest
+   * @return true if there is at least one test with that name, false otherwise
+   */
+  boolean containsTest(String testName);
+
   // For future refactoring: use method reference/predicate for the following 3 methods
   /**
    * Returns a list of names of the samples in the exact order of the list of samples
@@ -131,28 +131,38 @@ public interface IView {
   void showEquipmentInfo(String equipmentName, int serviceUrgency);
 
   /**
-   * Takes a list of names of current samples in sorted order and sorts the checkboxes on the
-   * display in the same order
+   * Takes the order the model has sorted the samples in and sorts the checkboxes on the display
+   * in the same order, each checkbox staying checked or unchecked
    *
-   * @param listOfNamesOfSamples list of names of sorted samples
+   * @param order the index each sample had before the sort, for each index after
    */
-  void sortSampleByID(List<String> listOfNamesOfSamples);
+  void sortSampleByID(int[] order);
 
   /**
-   * Takes a list of names of current tests in sorted order and sorts the checkboxes on the display
-   * in the same order
+   * Takes the order the model has sorted the tests in and sorts the checkboxes on the display in
+   * the same order, each checkbox staying checked or unchecked
    *
-   * @param listOfNamesOfTests list of names of sorted tests
+   * @param order the index each test had before the sort, for each index after
    */
-  void sortTestByDuration(List<String> listOfNamesOfTests);
+  void sortTestByDuration(int[] order);
 
   /**
-   * Takes a list of names of current equipment in sorted order and sorts the checkboxes on the
-   * display in the same order
+   * Takes the order the model has sorted the equipment in and sorts the checkboxes on the display
+   * in the same order, each checkbox staying checked or unchecked
    *
-   * @param listOfNamesOfEquipment list of names of sorted equipment
+   * @param order the index each piece of equipment had before the sort, for each index after
    */
-  void sortEquipmentByService(List<String> listOfNamesOfEquipment);
+  void sortEquipmentByService(int[] order);
+
+  /**
+   * Takes lists of names of samples, tests and equipment that are already in the model, for
+   * example after it was restored from disk, and adds a checkbox for each to the GUI
+   *
+   * @param samples   list of names of samples
+   * @param tests     list of names of tests
+   * @param equipment list of names of equipment
+   */
+  void viewShowItems(List<String> samples, List<String> tests, List<String> equipment);
 
   /**
    * Clears the sample display area
@@ -168,4 +178,23 @@ public interface IView {
    * Clears the equipment display area
    */
   void viewClearEquipment();
+
+  /**
+   * Tells the user that a command failed
+   *
+   * @param message what failed and why
+   */
+  void viewShowError(String message);
+
+  /**
+   * Shows that a command is taking a while, with a way to cancel the commands waiting behind it
+   *
+   * @param status what is running and what is waiting
+   */
+  void viewShowProgress(String status);
+
+  /**
+   * Hides the progress shown by viewShowProgress, once no command is running
+   */
+  void viewHideProgress();
 }
@@ -0,0 +1,165 @@
+import java.util.Arrays;
+
+/**
+ * This class represents a hash map from primitive int keys to objects. It uses open addressing
+ * with linear probing, so keys are never boxed and a lookup touches a single int array in the
+ * common case
+ *
+ * @param <V> the type of the values in the map
+ */
+public class IntHashMap<V> {
+  private static final int MIN_CAPACITY = 16;
+
+  private int[] keys;
+  private Object[] values;    // a null value marks an empty slot
+  private int size;
+
+  /**
+   * Constructs an empty map
+   */
+  public IntHashMap() {
+    this.keys = new int[MIN_CAPACITY];
+    this.values = new Object[MIN_CAPACITY];
+    this.size = 0;
+  }
+
+  /**
+   * Returns the value stored under the given key
+   * @param key the key to look up
+   * @return the value stored under the key, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public V get(int key) {
+    int mask = keys.length - 1;
+    for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return (V) values[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the map contains the given key
+   * @param key the key to look up
+   * @return true if the map contains the key, false otherwise
+   */
+  public boolean containsKey(int key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Stores the value under the given key, replacing any previous value
+   * @param key the key to store the value under
+   * @param value the value to store
+   * @return the previous value stored under the key, or null if there was none
+   * @throws IllegalArgumentException if the value is null
+   */
+  @SuppressWarnings("unchecked")
+  public V put(int key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Value cannot be null");
+    }
+    if ((size + 1) * 4 > keys.length * 3) {
+      resize(keys.length * 2);
+    }
+
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (values[i] != null) {
+      if (keys[i] == key) {
+        V previous = (V) values[i];
+        values[i] = value;
+        return previous;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    size++;
+    return null;
+  }
+
+  /**
+   * Removes the value stored under the given key
+   * @param key the key to remove
+   * @return the value that was stored under the key, or null if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(int key) {
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (values[i] != null && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    if (values[i] == null) {
+      return null;
+    }
+    V removed = (V) values[i];
+
+    // shift back the entries that follow in the same probe run, so that no tombstones are needed
+    int gap = i;
+    for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+      int home = slot(keys[j], mask);
+      if (((j - home) & mask) >= ((j - gap) & mask)) {
+        keys[gap] = keys[j];
+        values[gap] = values[j];
+        gap = j;
+      }
+    }
+    values[gap] = null;
+    size--;
+    return removed;
+  }
+
+  /**
+   * Returns the number of keys in the map
+   * @return the number of keys in the map
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Removes all keys from the map
+   */
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /**
+   * Rehashes every entry into tables of the given capacity
+   * @param capacity the new capacity, a power of two
+   */
+  private void resize(int capacity) {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[capacity];
+    values = new Object[capacity];
+
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldValues[j] != null) {
+        int i = slot(oldKeys[j], mask);
+        while (values[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  /**
+   * Returns the home slot of a key. Sample IDs are sequential, so the key is scrambled first
+   * to keep runs of consecutive IDs from forming long probe sequences
+   * @param key the key
+   * @param mask the table length minus one
+   * @return the home slot of the key
+   */
+  private static int slot(int key, int mask) {
+    int h = key * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
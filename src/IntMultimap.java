@@ -0,0 +1,181 @@
+import java.util.Arrays;
+
+/**
+ * This class represents a hash multimap from primitive int keys to non-negative int values, such
+ * as from sample IDs or name codes to the rows of a table. It uses open addressing with linear
+ * probing over two int arrays, so nothing is boxed, and every value can be renumbered in a single
+ * pass when the rows of the table move
+ */
+public class IntMultimap {
+  private static final int MIN_CAPACITY = 16;
+  private static final int EMPTY = -1;
+
+  private int[] keys;
+  private int[] values;     // EMPTY marks an empty slot
+  private int size;
+
+  /**
+   * Constructs an empty multimap
+   */
+  public IntMultimap() {
+    this.keys = new int[MIN_CAPACITY];
+    this.values = new int[MIN_CAPACITY];
+    Arrays.fill(this.values, EMPTY);
+    this.size = 0;
+  }
+
+  /**
+   * Returns the first value stored under the given key, which is the only one for a key that is
+   * never repeated
+   * @param key the key to look up
+   * @return a value stored under the key, or -1 if there is none
+   */
+  public int first(int key) {
+    int mask = keys.length - 1;
+    for (int i = slot(key, mask); values[i] != EMPTY; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return values[i];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns every value stored under the given key
+   * @param key the key to look up
+   * @return array of the values stored under the key, in no particular order
+   */
+  public int[] get(int key) {
+    int[] found = new int[1];
+    int count = 0;
+    int mask = keys.length - 1;
+    for (int i = slot(key, mask); values[i] != EMPTY; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        if (count == found.length) {
+          found = Arrays.copyOf(found, count * 2);
+        }
+        found[count++] = values[i];
+      }
+    }
+    return count == found.length ? found : Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Stores the value under the given key, alongside any values already stored under it
+   * @param key the key to store the value under
+   * @param value the value to store
+   * @throws IllegalArgumentException if the value is negative
+   */
+  public void put(int key, int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Value cannot be negative");
+    }
+    if ((size + 1) * 4 > keys.length * 3) {
+      resize(keys.length * 2);
+    }
+
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (values[i] != EMPTY) {
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    size++;
+  }
+
+  /**
+   * Removes the given value stored under the given key
+   * @param key the key the value is stored under
+   * @param value the value to remove
+   * @return true if the value was removed, false if it was not stored under the key
+   */
+  public boolean remove(int key, int value) {
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (values[i] != EMPTY && (keys[i] != key || values[i] != value)) {
+      i = (i + 1) & mask;
+    }
+    if (values[i] == EMPTY) {
+      return false;
+    }
+
+    // shift back the entries that follow in the same probe run, so that no tombstones are needed
+    int gap = i;
+    for (int j = (i + 1) & mask; values[j] != EMPTY; j = (j + 1) & mask) {
+      int home = slot(keys[j], mask);
+      if (((j - home) & mask) >= ((j - gap) & mask)) {
+        keys[gap] = keys[j];
+        values[gap] = values[j];
+        gap = j;
+      }
+    }
+    values[gap] = EMPTY;
+    size--;
+    return true;
+  }
+
+  /**
+   * Replaces every value v with renumbering[v], in one pass over the table. Used after the rows
+   * of a table move; the values of deleted rows must have been removed first
+   * @param renumbering the new number of every value
+   */
+  public void renumber(int[] renumbering) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != EMPTY) {
+        values[i] = renumbering[values[i]];
+      }
+    }
+  }
+
+  /**
+   * Returns the number of values in the multimap
+   * @return the number of values in the multimap
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Removes all keys and values from the multimap
+   */
+  public void clear() {
+    Arrays.fill(values, EMPTY);
+    size = 0;
+  }
+
+  /**
+   * Rehashes every entry into tables of the given capacity
+   * @param capacity the new capacity, a power of two
+   */
+  private void resize(int capacity) {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new int[capacity];
+    values = new int[capacity];
+    Arrays.fill(values, EMPTY);
+
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldValues[j] != EMPTY) {
+        int i = slot(oldKeys[j], mask);
+        while (values[i] != EMPTY) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  /**
+   * Returns the home slot of a key, scrambled so that runs of consecutive keys spread out
+   * @param key the key
+   * @param mask the table length minus one
+   * @return the home slot of the key
+   */
+  private static int slot(int key, int mask) {
+    int h = key * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
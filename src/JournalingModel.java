@@ -0,0 +1,1007 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * This class implements the IModel interface by decorating another IModel with a write-ahead
+ * journal. Every change made through this model is applied to the wrapped model and then
+ * appended to a binary journal file, and opening a journal replays its changes into the wrapped
+ * model, so the dashboard survives a restart.
+ *
+ * Appending only copies the record into an in-memory buffer; the buffer is written to the file
+ * and forced to disk according to the SyncPolicy. With GROUP_COMMIT, a background thread writes
+ * and forces everything appended within each interval together, and skips the force when
+ * nothing was appended, so an idle journal does not touch the disk.
+ *
+ * Each record is laid out as [payload length][CRC-32 of payload][opcode][operands]. A record
+ * that was cut short or does not match its checksum ends the replay, and the journal is
+ * truncated to the last good record. Changes made directly on Sample or LabTest objects rather
+ * than through the model are not journaled.
+ *
+ * checkpoint() saves the dashboard to a snapshot file (see {@link ModelSnapshot}) and restarts
+ * the journal with a record naming that snapshot, so opening the journal loads the snapshot and
+ * replays only the changes made after it, and the journal stays short
+ */
+public class JournalingModel implements IModel, Closeable {
+  private static final int HEADER_BYTES = 8;
+  private static final int BUFFER_BYTES = 1 << 16;
+  private static final long GROUP_COMMIT_MILLIS = 5;
+
+  // opcodes, one per change
+  private static final byte ADD_SAMPLE = 1;
+  private static final byte DELETE_SAMPLE = 2;
+  private static final byte DELETE_SAMPLES = 3;
+  private static final byte ADD_EQUIPMENT = 4;
+  private static final byte DELETE_EQUIPMENT = 5;
+  private static final byte DELETE_EQUIPMENT_BULK = 6;
+  private static final byte ADD_TEST = 7;
+  private static final byte DELETE_TEST = 8;
+  private static final byte DELETE_TESTS = 9;
+  private static final byte SORT_SAMPLES = 10;
+  private static final byte SORT_EQUIPMENT = 11;
+  private static final byte SORT_TESTS = 12;
+  private static final byte ADD_TEST_TO_SAMPLE = 13;
+  private static final byte ASSIGN_TESTS = 14;
+  private static final byte CLEAR_SAMPLES = 15;
+  private static final byte CLEAR_TESTS = 16;
+  private static final byte CLEAR_EQUIPMENT = 17;
+  private static final byte CHECKPOINT = 18;
+  private static final byte DELETE_SAMPLES_BY_ID = 19;
+
+  private final IModel model;
+  private final FileChannel channel;
+  private final SyncPolicy policy;
+  private final ScheduledExecutorService flusher;
+  private final CRC32 crc;
+  private final Path snapshot;
+  private long generation;          // the number of the last snapshot taken, 0 if none
+  private ByteBuffer record;        // the record being encoded
+  private ByteBuffer pending;       // records appended but not yet written to the file
+  private long written;             // bytes written to the file
+  private long synced;              // bytes written to the file when it was last forced
+  private boolean closed;
+
+  /**
+   * Constructs a journaling model around the given model, appending to the given open channel
+   * @param model the model to apply changes to
+   * @param channel the journal file, positioned at its end
+   * @param policy when to force records to disk
+   * @param snapshot the snapshot file of the journal
+   * @param generation the number of the last snapshot taken, 0 if none
+   */
+  private JournalingModel(IModel model, FileChannel channel, SyncPolicy policy, Path snapshot,
+                          long generation) {
+    this.model = model;
+    this.channel = channel;
+    this.policy = policy;
+    this.snapshot = snapshot;
+    this.generation = generation;
+    this.crc = new CRC32();
+    this.record = ByteBuffer.allocate(256);
+    this.pending = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    this.closed = false;
+
+    if (policy == SyncPolicy.EVERY_WRITE) {
+      this.flusher = null;
+    } else {
+      this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      this.flusher.scheduleWithFixedDelay(this::flushQuietly, GROUP_COMMIT_MILLIS,
+          GROUP_COMMIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Opens the journal at the given path, creating it if it does not exist, restores its
+   * snapshot and replays its changes into the given model, and returns a model that journals
+   * every further change. The snapshot file is the journal's path followed by ".snapshot"
+   * @param path the journal file
+   * @param model the model to restore into and apply changes to, normally empty
+   * @param policy when to force records to disk
+   * @return the journaling model
+   * @throws IOException if the journal or its snapshot cannot be read or written, or its
+   *                     changes cannot be replayed
+   */
+  public static JournalingModel open(Path path, IModel model, SyncPolicy policy)
+      throws IOException {
+    return open(path, path.resolveSibling(path.getFileName() + ".snapshot"), model, policy);
+  }
+
+  /**
+   * Opens the journal at the given path, creating it if it does not exist, loads the snapshot
+   * the journal was last restarted from, if any, then replays the changes journaled after it
+   * into the given model, and returns a model that journals every further change
+   * @param path the journal file
+   * @param snapshot the snapshot file of the journal, which need not exist
+   * @param model the model to restore into and apply changes to, normally empty
+   * @param policy when to force records to disk
+   * @return the journaling model
+   * @throws IOException if the journal or the snapshot cannot be read or written, the snapshot
+   *                     is not the one the journal was restarted from, or the changes cannot be
+   *                     replayed
+   */
+  public static JournalingModel open(Path path, Path snapshot, IModel model, SyncPolicy policy)
+      throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long generation = 0;
+    boolean restart = false;
+    try {
+      long start = 0;
+      long restartedFrom = checkpointOf(channel);
+      if (Files.exists(snapshot)) {
+        long[] mark = ModelSnapshot.readJournalMark(snapshot);
+        if (mark[0] == 0 || mark[0] < restartedFrom) {
+          throw new IOException("The snapshot " + snapshot + " is not the one the journal "
+              + path + " was restarted from");
+        }
+        ModelSnapshot.load(snapshot, model);
+        generation = mark[0];
+
+        // a crash between saving the snapshot and restarting the journal leaves the records the
+        // snapshot covers at the start of the journal; skip them and finish the restart
+        if (restartedFrom != generation) {
+          start = channel.size() < mark[1] ? 0 : mark[1];
+          restart = true;
+        }
+      } else if (restartedFrom > 0) {
+        throw new IOException("The snapshot " + snapshot + " the journal " + path
+            + " was restarted from is missing");
+      }
+
+      long end = replay(channel, model, start);
+      if (end < channel.size()) {
+        channel.truncate(end);
+      }
+      channel.position(end);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    JournalingModel journal = new JournalingModel(model, channel, policy, snapshot, generation);
+    if (restart) {
+      journal.checkpoint();
+    }
+    return journal;
+  }
+
+  /**
+   * Adds a sample to the IModel dashboard
+   *
+   * @param sample the sample to be added to the IModel dashboard
+   * @throws IllegalArgumentException if a sample with the same ID is already in the dashboard
+   */
+  @Override
+  public synchronized void addSample(Sample sample) {
+    model.addSample(sample);
+    begin(ADD_SAMPLE);
+    putString(sample.getSampleName());
+    putInteger(sample.getSampleID());
+    commit();
+  }
+
+  /**
+   * Takes the ID of a sample and returns the sample with that ID
+   *
+   * @param sampleID the ID (a six digit integer) of the sample of interest
+   * @return the sample with the given ID, or null if there is no such sample
+   */
+  @Override
+  public Sample findSampleById(int sampleID) {
+    return model.findSampleById(sampleID);
+  }
+
+  /**
+   * Deletes a sample from the IModel dashboard at the given index, and deletes the sample from
+   * the tests that contain the sample
+   *
+   * @param index the index of the sample to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public synchronized void deleteSample(int index) {
+    model.deleteSample(index);
+    begin(DELETE_SAMPLE);
+    record.putInt(index);
+    commit();
+  }
+
+  /**
+   * Deletes the samples at the given indices from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them
+   *
+   * @param indices the indices of the samples to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public synchronized void deleteSamples(int[] indices) {
+    model.deleteSamples(indices);
+    begin(DELETE_SAMPLES);
+    putInts(indices);
+    commit();
+  }
+
+  /**
+   * Deletes the samples with the given IDs from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. IDs that no sample has are skipped
+   *
+   * @param sampleIDs the IDs of the samples to be deleted
+   * @return the number of samples deleted
+   */
+  @Override
+  public synchronized int deleteSamplesById(int[] sampleIDs) {
+    int deleted = model.deleteSamplesById(sampleIDs);
+    begin(DELETE_SAMPLES_BY_ID);
+    putInts(sampleIDs);
+    commit();
+    return deleted;
+  }
+
+  /**
+   * Adds equipment to the IModel dashboard
+   *
+   * @param equipment the equipment to be added to the IModel dashboard
+   */
+  @Override
+  public synchronized void addEquipment(Equipment equipment) {
+    model.addEquipment(equipment);
+    begin(ADD_EQUIPMENT);
+    putString(equipment.getEquipmentName());
+    putInteger(equipment.getServiceUrgency());
+    commit();
+  }
+
+  /**
+   * Deletes equipment from the IModel dashboard at the given index
+   *
+   * @param index the index of the equipment to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public synchronized void deleteEquipment(int index) {
+    model.deleteEquipment(index);
+    begin(DELETE_EQUIPMENT);
+    record.putInt(index);
+    commit();
+  }
+
+  /**
+   * Deletes the equipment at the given indices from the IModel dashboard in one pass
+   *
+   * @param indices the indices of the equipment to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public synchronized void deleteEquipment(int[] indices) {
+    model.deleteEquipment(indices);
+    begin(DELETE_EQUIPMENT_BULK);
+    putInts(indices);
+    commit();
+  }
+
+  /**
+   * Adds a test to the IModel dashboard
+   *
+   * @param test the test to be added to the IModel dashboard
+   */
+  @Override
+  public synchronized void addTest(LabTest test) {
+    model.addTest(test);
+    begin(ADD_TEST);
+    putString(test.getTestName());
+    putInteger(test.getTestDuration());
+    commit();
+  }
+
+  /**
+   * Deletes a test from the IModel dashboard at the given index, and deletes the test from the
+   * samples that require the test
+   *
+   * @param index the index of the test to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public synchronized void deleteTest(int index) throws IllegalArgumentException {
+    model.deleteTest(index);
+    begin(DELETE_TEST);
+    record.putInt(index);
+    commit();
+  }
+
+  /**
+   * Deletes the tests at the given indices from the IModel dashboard in one pass, and deletes the
+   * tests from the samples that require them
+   *
+   * @param indices the indices of the tests to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public synchronized void deleteTests(int[] indices) {
+    model.deleteTests(indices);
+    begin(DELETE_TESTS);
+    putInts(indices);
+    commit();
+  }
+
+  /**
+   * Returns the current list of samples in the IModel dashboard
+   *
+   * @return list of samples in the IModel dashboard
+   */
+  @Override
+  public List<Sample> getListOfSamples() {
+    return model.getListOfSamples();
+  }
+
+  /**
+   * Returns the current list of equipment in the IModel dashboard
+   *
+   * @return list of equipment in the IModel dashboard
+   */
+  @Override
+  public List<Equipment> getListOfEquipment() {
+    return model.getListOfEquipment();
+  }
+
+  /**
+   * Returns the current list of tests in the IModel dashboard
+   *
+   * @return list of tests in the IModel dashboard
+   */
+  @Override
+  public List<LabTest> getListOfTests() {
+    return model.getListOfTests();
+  }
+
+  /**
+   * Sorts the list of samples in the IModel dashboard by ID
+   */
+  @Override
+  public synchronized void sortSamplesByID() {
+    model.sortSamplesByID();
+    begin(SORT_SAMPLES);
+    commit();
+  }
+
+  /**
+   * Sorts the list of equipment in the IModel dashboard by remaining number of days until service
+   * is due
+   */
+  @Override
+  public synchronized void sortEquipmentByServiceUrgency() {
+    model.sortEquipmentByServiceUrgency();
+    begin(SORT_EQUIPMENT);
+    commit();
+  }
+
+  /**
+   * Sorts the list of tests in the IModel dashboard by one of two enumerated types; DURATION or
+   * NUMBER_OF_SAMPLES
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   */
+  @Override
+  public synchronized void sortTestsByPriority(TestPriority priority) {
+    model.sortTestsByPriority(priority);
+    begin(SORT_TESTS);
+    record.put((byte) priority.ordinal());
+    commit();
+  }
+
+  /**
+   * Returns a read-only view of the samples in the IModel dashboard in ascending order of ID
+   *
+   * @return the samples in ascending order of ID
+   */
+  @Override
+  public Iterable<Sample> getSamplesOrderedByID() {
+    return model.getSamplesOrderedByID();
+  }
+
+  /**
+   * Returns a read-only view of the equipment in the IModel dashboard in ascending order of the
+   * number of days until service is due
+   *
+   * @return the equipment, most urgent first
+   */
+  @Override
+  public Iterable<Equipment> getEquipmentOrderedByServiceUrgency() {
+    return model.getEquipmentOrderedByServiceUrgency();
+  }
+
+  /**
+   * Returns the k pieces of equipment whose service is most urgent, most urgent first
+   *
+   * @param k the number of pieces of equipment to return
+   * @return list of at most k pieces of equipment with the fewest days until service is due
+   * @throws IllegalArgumentException if k is negative
+   */
+  @Override
+  public List<Equipment> mostUrgentEquipment(int k) {
+    return model.mostUrgentEquipment(k);
+  }
+
+  /**
+   * Returns the equipment whose service is due within the given range of days, most urgent first
+   *
+   * @param fromDays the lowest number of days until service is due to include
+   * @param toDays   the highest number of days until service is due to include
+   * @return list of equipment due from fromDays to toDays days from now, inclusive
+   * @throws IllegalArgumentException if fromDays is greater than toDays
+   */
+  @Override
+  public List<Equipment> equipmentDueWithin(int fromDays, int toDays) {
+    return model.equipmentDueWithin(fromDays, toDays);
+  }
+
+  /**
+   * Returns a read-only view of the tests in the IModel dashboard in ascending order of one of
+   * two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   * @return the tests in ascending order of the given priority
+   */
+  @Override
+  public Iterable<LabTest> getTestsOrderedByPriority(TestPriority priority) {
+    return model.getTestsOrderedByPriority(priority);
+  }
+
+  /**
+   * Takes the name of a sample and the name of a test and adds the test to the sample
+   *
+   * @param sampleName name of the sample to add a test to
+   * @param testName   name of test to be added to the sample
+   */
+  @Override
+  public synchronized void addTestToSample(String sampleName, String testName) {
+    model.addTestToSample(sampleName, testName);
+    begin(ADD_TEST_TO_SAMPLE);
+    putString(sampleName);
+    putString(testName);
+    commit();
+  }
+
+  /**
+   * Takes a collection of names of tests and a collection of names of samples and adds every test
+   * to every sample
+   *
+   * @param testNames   names of the tests to be added to the samples
+   * @param sampleNames names of the samples to add the tests to
+   * @return the number of tests newly added to samples
+   */
+  @Override
+  public synchronized int assignTests(Collection<String> testNames,
+                                      Collection<String> sampleNames) {
+    int added = model.assignTests(testNames, sampleNames);
+    if (added > 0) {
+      begin(ASSIGN_TESTS);
+      putStrings(testNames);
+      putStrings(sampleNames);
+      commit();
+    }
+    return added;
+  }
+
+  /**
+   * Takes the name of a sample and returns a copy of list of the names of test for the sample
+   *
+   * @param sampleName the name of the sample of interest
+   * @return List of names of tests requested for the sample
+   */
+  @Override
+  public List<String> getTestsForSample(String sampleName) {
+    return model.getTestsForSample(sampleName);
+  }
+
+  /**
+   * Takes the name of a test and returns a copy of list of the names of samples for the test
+   *
+   * @param testName the name of the sample of interest
+   * @return List of names of samples that require this test
+   */
+  @Override
+  public List<String> getSamplesForTest(String testName) {
+    return model.getSamplesForTest(testName);
+  }
+
+  /**
+   * Takes the name of an equipment and returns its service urgency
+   *
+   * @param equipmentName names of equipment
+   * @return number of days until next service is due
+   */
+  @Override
+  public int getEquipmentInfo(String equipmentName) {
+    return model.getEquipmentInfo(equipmentName);
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a sample with the given name
+   *
+   * @param sampleName the name of the sample of interest
+   * @return true if there is at least one sample with that name, false otherwise
+   */
+  @Override
+  public boolean containsSample(String sampleName) {
+    return model.containsSample(sampleName);
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a test with the given name
+   *
+   * @param testName the name of the test of interest
+   * @return true if there is at least one test with that name, false otherwise
+   */
+  @Override
+  public boolean containsTest(String testName) {
+    return model.containsTest(testName);
+  }
+
+  /**
+   * Returns a list of names of the samples in the exact order of the list of samples
+   *
+   * @return List of names of samples
+   */
+  @Override
+  public List<String> getListOfNamesOfSamples() {
+    return model.getListOfNamesOfSamples();
+  }
+
+  /**
+   * Returns a list of names of the tests in the exact order of the list of tests
+   *
+   * @return List of names of tests
+   */
+  @Override
+  public List<String> getListOfNamesOfTests() {
+    return model.getListOfNamesOfTests();
+  }
+
+  /**
+   * Returns a list of names of the equipment in the exact order of the list of equipment
+   *
+   * @return List of names of equipment
+   */
+  @Override
+  public List<String> getListOfNamesOfEquipment() {
+    return model.getListOfNamesOfEquipment();
+  }
+
+  /**
+   * Deletes all samples from the list of samples
+   */
+  @Override
+  public synchronized void clearSamples() {
+    model.clearSamples();
+    begin(CLEAR_SAMPLES);
+    commit();
+  }
+
+  /**
+   * Deletes all tests from the list of samples
+   */
+  @Override
+  public synchronized void clearTests() {
+    model.clearTests();
+    begin(CLEAR_TESTS);
+    commit();
+  }
+
+  /**
+   * Deletes all equipment from the list of samples
+   */
+  @Override
+  public synchronized void clearEquipment() {
+    model.clearEquipment();
+    begin(CLEAR_EQUIPMENT);
+    commit();
+  }
+
+  /**
+   * Writes every appended record to the journal and forces it to disk, unless the policy is NONE
+   *
+   * @throws IOException if the journal cannot be written
+   */
+  public void flush() throws IOException {
+    long upTo;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      writePending();
+      upTo = written;
+      if (policy == SyncPolicy.NONE || upTo == synced) {
+        return;   // nothing written since the last force, so an idle journal costs no syncs
+      }
+    }
+
+    // forcing outside the lock lets changes keep appending while the disk catches up; every
+    // record written above is covered by this force
+    channel.force(false);
+    synchronized (this) {
+      synced = Math.max(synced, upTo);
+    }
+  }
+
+  /**
+   * Saves the dashboard to the snapshot file and restarts the journal from it, so opening the
+   * journal loads the snapshot and replays only the changes made after this. The snapshot is
+   * written under a temporary name and moved into place, and records how much of the journal it
+   * covers, so a crash at any point leaves files that open() restores the dashboard from
+   *
+   * @throws IOException if the snapshot or the journal cannot be written
+   */
+  public synchronized void checkpoint() throws IOException {
+    if (closed) {
+      return;
+    }
+    writePending();
+    Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+    ModelSnapshot.save(model, temporary, generation + 1, channel.position());
+    Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    generation++;
+
+    channel.truncate(0);
+    channel.position(0);
+    begin(CHECKPOINT);
+    record.putLong(generation);
+    commit();
+    writePending();
+    channel.force(false);
+    synced = written;
+  }
+
+  /**
+   * Writes and forces every appended record and closes the journal. Changes made after closing
+   * are applied to the wrapped model but no longer journaled
+   *
+   * @throws IOException if the journal cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    if (flusher != null) {
+      flusher.shutdown();
+      try {
+        flusher.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      writePending();
+      if (written != synced) {
+        channel.force(false);
+        synced = written;
+      }
+      closed = true;
+      channel.close();
+    }
+  }
+
+  /**
+   * Starts encoding a record with the given opcode
+   * @param opcode the opcode of the change
+   */
+  private void begin(byte opcode) {
+    record.clear();
+    record.position(HEADER_BYTES);
+    record.put(opcode);
+  }
+
+  /**
+   * Finishes the record being encoded and appends it to the pending buffer, writing or forcing
+   * the journal as the policy requires
+   */
+  private void commit() {
+    if (closed) {
+      return;
+    }
+    int payloadLength = record.position() - HEADER_BYTES;
+    crc.reset();
+    crc.update(record.array(), HEADER_BYTES, payloadLength);
+    record.putInt(0, payloadLength);
+    record.putInt(4, (int) crc.getValue());
+    record.flip();
+
+    try {
+      if (record.remaining() > pending.remaining()) {
+        writePending();
+      }
+      if (record.remaining() > pending.capacity()) {
+        while (record.hasRemaining()) {
+          written += channel.write(record);    // too big to buffer; write it straight through
+        }
+      } else {
+        pending.put(record);
+      }
+      if (policy == SyncPolicy.EVERY_WRITE) {
+        writePending();
+        channel.force(false);
+        synced = written;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write to the journal", e);
+    }
+  }
+
+  /**
+   * Writes the pending buffer to the journal file
+   * @throws IOException if the journal cannot be written
+   */
+  private void writePending() throws IOException {
+    pending.flip();
+    while (pending.hasRemaining()) {
+      written += channel.write(pending);
+    }
+    pending.clear();
+  }
+
+  /**
+   * Flushes the journal from the background thread
+   */
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (IOException e) {
+      // the next flush, or close(), will report the failure
+    }
+  }
+
+  /**
+   * Makes sure the record being encoded has room for the given number of bytes
+   * @param bytes the number of bytes about to be put
+   */
+  private void ensure(int bytes) {
+    if (record.remaining() < bytes) {
+      ByteBuffer bigger = ByteBuffer.allocate(Math.max(record.capacity() * 2,
+          record.position() + bytes));
+      record.flip();
+      bigger.put(record);
+      record = bigger;
+    }
+  }
+
+  /**
+   * Puts a length-prefixed UTF-8 string, or -1 for null, into the record being encoded
+   * @param s the string
+   */
+  private void putString(String s) {
+    if (s == null) {
+      ensure(4);
+      record.putInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    ensure(4 + bytes.length);
+    record.putInt(bytes.length);
+    record.put(bytes);
+  }
+
+  /**
+   * Puts a count followed by the given strings into the record being encoded
+   * @param strings the strings
+   */
+  private void putStrings(Collection<String> strings) {
+    ensure(4);
+    record.putInt(strings.size());
+    for (String s : strings) {
+      putString(s);
+    }
+  }
+
+  /**
+   * Puts a nullable Integer into the record being encoded
+   * @param value the Integer
+   */
+  private void putInteger(Integer value) {
+    ensure(5);
+    record.put((byte) (value == null ? 0 : 1));
+    record.putInt(value == null ? 0 : value);
+  }
+
+  /**
+   * Puts a count followed by the given ints into the record being encoded
+   * @param values the ints
+   */
+  private void putInts(int[] values) {
+    ensure(4 + 4 * values.length);
+    record.putInt(values.length);
+    for (int value : values) {
+      record.putInt(value);
+    }
+  }
+
+  /**
+   * Returns the number of the snapshot the journal was restarted from, read from the record at
+   * its start
+   * @param channel the journal file
+   * @return the number of the snapshot, or 0 if the journal does not start with an intact
+   *         checkpoint record
+   * @throws IOException if the journal cannot be read
+   */
+  private static long checkpointOf(FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 9);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, buffer.position()) < 0) {
+        return 0;
+      }
+    }
+    buffer.flip();
+    ByteBuffer payload = buffer.slice(HEADER_BYTES, 9);
+    CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+    if (buffer.getInt(0) != 9 || buffer.getInt(4) != (int) crc.getValue()
+        || payload.get(0) != CHECKPOINT) {
+      return 0;
+    }
+    return payload.getLong(1);
+  }
+
+  /**
+   * Reads every complete, intact record from the given offset of the journal and applies it to
+   * the given model
+   * @param channel the journal file
+   * @param model the model to apply the changes to
+   * @param start the offset of the first record to replay
+   * @return the offset just past the last good record
+   * @throws IOException if the journal cannot be read or a change cannot be replayed
+   */
+  private static long replay(FileChannel channel, IModel model, long start) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    CRC32 crc = new CRC32();
+    long offset = start;
+    long size = channel.size();
+    channel.position(start);
+
+    buffer.limit(0);
+    while (true) {
+      if (buffer.remaining() < HEADER_BYTES && !refill(channel, buffer, HEADER_BYTES)) {
+        return offset;
+      }
+      int payloadLength = buffer.getInt(buffer.position());
+      int checksum = buffer.getInt(buffer.position() + 4);
+      if (payloadLength <= 0 || offset + HEADER_BYTES + payloadLength > size) {
+        return offset;    // torn tail
+      }
+      if (buffer.remaining() < HEADER_BYTES + payloadLength) {
+        if (HEADER_BYTES + payloadLength > buffer.capacity()) {
+          ByteBuffer bigger = ByteBuffer.allocateDirect(HEADER_BYTES + payloadLength);
+          bigger.put(buffer);
+          bigger.flip();
+          buffer = bigger;
+        }
+        if (!refill(channel, buffer, HEADER_BYTES + payloadLength)) {
+          return offset;
+        }
+      }
+
+      buffer.position(buffer.position() + HEADER_BYTES);
+      ByteBuffer payload = buffer.slice();
+      payload.limit(payloadLength);
+      crc.reset();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != checksum) {
+        return offset;    // corrupt record; nothing after it can be trusted
+      }
+
+      try {
+        apply(payload, model);
+      } catch (RuntimeException e) {
+        throw new IOException("Could not replay the journal record at offset " + offset, e);
+      }
+      buffer.position(buffer.position() + payloadLength);
+      offset += HEADER_BYTES + payloadLength;
+    }
+  }
+
+  /**
+   * Moves the unread bytes of the buffer to its start and reads more from the channel, until at
+   * least the given number of bytes are available or the file ends
+   * @param channel the journal file
+   * @param buffer the buffer, ready to be read from
+   * @param needed the number of bytes needed
+   * @return true if the bytes are available, false if the file ended first
+   * @throws IOException if the journal cannot be read
+   */
+  private static boolean refill(FileChannel channel, ByteBuffer buffer, int needed)
+      throws IOException {
+    buffer.compact();
+    while (buffer.position() < needed) {
+      if (channel.read(buffer) < 0) {
+        buffer.flip();
+        return false;
+      }
+    }
+    buffer.flip();
+    return true;
+  }
+
+  /**
+   * Decodes one record and applies its change to the model
+   * @param payload the payload of the record, starting with its opcode
+   * @param model the model to apply the change to
+   */
+  private static void apply(ByteBuffer payload, IModel model) {
+    byte opcode = payload.get();
+    switch (opcode) {
+      case ADD_SAMPLE -> model.addSample(new SampleImpl(getString(payload), getInteger(payload)));
+      case DELETE_SAMPLE -> model.deleteSample(payload.getInt());
+      case DELETE_SAMPLES -> model.deleteSamples(getInts(payload));
+      case ADD_EQUIPMENT -> model.addEquipment(
+          new EquipmentImpl(getString(payload), getInteger(payload)));
+      case DELETE_EQUIPMENT -> model.deleteEquipment(payload.getInt());
+      case DELETE_EQUIPMENT_BULK -> model.deleteEquipment(getInts(payload));
+      case ADD_TEST -> model.addTest(new LabTestImpl(getString(payload), getInteger(payload)));
+      case DELETE_TEST -> model.deleteTest(payload.getInt());
+      case DELETE_TESTS -> model.deleteTests(getInts(payload));
+      case SORT_SAMPLES -> model.sortSamplesByID();
+      case SORT_EQUIPMENT -> model.sortEquipmentByServiceUrgency();
+      case SORT_TESTS -> model.sortTestsByPriority(TestPriority.values()[payload.get()]);
+      case ADD_TEST_TO_SAMPLE -> model.addTestToSample(getString(payload), getString(payload));
+      case ASSIGN_TESTS -> model.assignTests(getStrings(payload), getStrings(payload));
+      case CLEAR_SAMPLES -> model.clearSamples();
+      case CLEAR_TESTS -> model.clearTests();
+      case CLEAR_EQUIPMENT -> model.clearEquipment();
+      case CHECKPOINT -> payload.getLong();   // the snapshot was loaded before the replay
+      case DELETE_SAMPLES_BY_ID -> model.deleteSamplesById(getInts(payload));
+      default -> throw new IllegalArgumentException("Unknown opcode " + opcode);
+    }
+  }
+
+  private static String getString(ByteBuffer payload) {
+    int length = payload.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    payload.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static List<String> getStrings(ByteBuffer payload) {
+    int count = payload.getInt();
+    List<String> strings = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      strings.add(getString(payload));
+    }
+    return strings;
+  }
+
+  private static Integer getInteger(ByteBuffer payload) {
+    boolean present = payload.get() != 0;
+    int value = payload.getInt();
+    return present ? value : null;
+  }
+
+  private static int[] getInts(ByteBuffer payload) {
+    int[] values = new int[payload.getInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = payload.getInt();
+    }
+    return values;
+  }
+}
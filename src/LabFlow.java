@@ -5,13 +5,200 @@
  * information.
  */
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
- * This class is the main entry point to LabFlow, a lab info management system
+ * This class is the main entry point to LabFlow, a lab info management system. If a journal
+ * file is given as the first argument, the dashboard is restored from it and its snapshot on
+ * startup, every change is journaled to it, and on exit the dashboard is saved to the snapshot
+ * and the journal restarted (see {@link JournalingModel#checkpoint()}). If the labflow.metrics
+ * system property is set to a number of seconds, a table of the latencies of the commands run in
+ * the GUI is printed to standard error that often. If the labflow.async system property is true,
+ * commands run in the background rather than on the event dispatch thread, so the window stays
+ * responsive while the model works.
+ *
+ * Given --batch as the first argument, LabFlow runs without a GUI and streams the records in the
+ * given CSV or TSV files into the dashboard (see {@link BatchIngest}):
+ *
+ * <pre>
+ * LabFlow --batch [--journal FILE] [--snapshot FILE] [--worklist FILE] [--matrix FILE]
+ *                 [--threads N] FILE...
+ * </pre>
+ *
+ * With --journal the dashboard is restored from the journal and the records are journaled to it.
+ * Once every file has been read, --snapshot saves the dashboard to a snapshot file, which with
+ * --journal becomes the snapshot the journal is restored from and restarts the journal, and
+ * --worklist and --matrix export the samples of each test and the tests of each sample (see
+ * {@link WorklistExporter}), as JSON Lines if the file name ends in .jsonl and as CSV otherwise.
+ *
+ * Given --generate as the first argument, LabFlow writes a synthetic workload to a file that
+ * --batch can replay (see {@link WorkloadGenerator}):
+ *
+ * <pre>
+ * LabFlow --generate [--seed N] [--samples N] [--tests N] [--equipment N] FILE
+ * </pre>
  */
 public class LabFlow {
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
+    if (args.length > 0 && args[0].equals("--batch")) {
+      System.exit(batch(args));
+    }
+    if (args.length > 0 && args[0].equals("--generate")) {
+      System.exit(generate(args));
+    }
+
     IModel model = new ModelImpl();
-    IController controller = new ControllerImpl(model);
+    if (args.length > 0) {
+      JournalingModel journal = JournalingModel.open(Paths.get(args[0]), model,
+          SyncPolicy.GROUP_COMMIT);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          journal.checkpoint();
+          journal.close();
+        } catch (IOException e) {
+          System.err.println("Could not close the journal: " + e.getMessage());
+        }
+      }));
+      model = journal;
+    }
+    IController controller = new ControllerImpl(model, Boolean.getBoolean("labflow.async"));
+    Integer metricsSeconds = Integer.getInteger("labflow.metrics");
+    if (metricsSeconds != null && metricsSeconds > 0) {
+      controller.getMetrics().startLogging(System.err, metricsSeconds, TimeUnit.SECONDS);
+    }
     controller.go();
   }
+
+  /**
+   * Runs LabFlow without a GUI, streaming records from files into the dashboard
+   * @param args the command line, starting with --batch
+   * @return the exit status; 0 if every file was read, 1 if a file could not be read, 2 if the
+   *         command line is wrong
+   * @throws IOException if a file, the journal or the snapshot cannot be read or written
+   */
+  private static int batch(String[] args) throws IOException {
+    Path journalFile = null;
+    Path snapshotFile = null;
+    Path worklistFile = null;
+    Path matrixFile = null;
+    int threads = Runtime.getRuntime().availableProcessors();
+    List<Path> files = new ArrayList<>();
+    try {
+      for (int i = 1; i < args.length; i++) {
+        switch (args[i]) {
+          case "--journal" -> journalFile = Paths.get(args[++i]);
+          case "--snapshot" -> snapshotFile = Paths.get(args[++i]);
+          case "--worklist" -> worklistFile = Paths.get(args[++i]);
+          case "--matrix" -> matrixFile = Paths.get(args[++i]);
+          case "--threads" -> threads = Integer.parseInt(args[++i]);
+          default -> files.add(Paths.get(args[i]));
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+      files.clear();
+    }
+    if (files.isEmpty() || threads < 1) {
+      System.err.println("usage: LabFlow --batch [--journal FILE] [--snapshot FILE] "
+          + "[--worklist FILE] [--matrix FILE] [--threads N] FILE...");
+      return 2;
+    }
+
+    int status = 0;
+    IModel model = new ModelImpl();
+    JournalingModel journal = null;
+    if (journalFile != null && snapshotFile != null) {
+      journal = JournalingModel.open(journalFile, snapshotFile, model, SyncPolicy.NONE);
+    } else if (journalFile != null) {
+      journal = JournalingModel.open(journalFile, model, SyncPolicy.NONE);
+    }
+    try {
+      try (BatchIngest ingest = new BatchIngest(journal == null ? model : journal, threads,
+          System.out)) {
+        for (Path file : files) {
+          if (!Files.isReadable(file)) {
+            System.err.println("Cannot read " + file);
+            status = 1;
+            continue;
+          }
+          ingest.ingest(file);
+        }
+      }
+      if (journal != null && snapshotFile != null) {
+        journal.checkpoint();
+      }
+    } finally {
+      if (journal != null) {
+        journal.close();
+      }
+    }
+    if (journal == null && snapshotFile != null) {
+      ModelSnapshot.save(model, snapshotFile);
+    }
+    try (WorklistExporter exporter = new WorklistExporter(model, threads)) {
+      if (worklistFile != null) {
+        exporter.exportWorklist(worklistFile, formatOf(worklistFile));
+      }
+      if (matrixFile != null) {
+        exporter.exportMatrix(matrixFile, formatOf(matrixFile));
+      }
+    }
+    return status;
+  }
+
+  /**
+   * Writes a synthetic workload to a file
+   * @param args the command line, starting with --generate
+   * @return the exit status; 0 if the workload was written, 2 if the command line is wrong
+   * @throws IOException if the file cannot be written
+   */
+  private static int generate(String[] args) throws IOException {
+    long seed = 1;
+    int samples = 1000000;
+    int tests = 300;
+    int equipment = 2000;
+    List<Path> files = new ArrayList<>();
+    WorkloadGenerator generator;
+    try {
+      for (int i = 1; i < args.length; i++) {
+        switch (args[i]) {
+          case "--seed" -> seed = Long.parseLong(args[++i]);
+          case "--samples" -> samples = Integer.parseInt(args[++i]);
+          case "--tests" -> tests = Integer.parseInt(args[++i]);
+          case "--equipment" -> equipment = Integer.parseInt(args[++i]);
+          default -> files.add(Paths.get(args[i]));
+        }
+      }
+      generator = files.size() != 1 ? null
+          : new WorkloadGenerator(seed, samples, tests, equipment);
+    } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+      generator = null;
+    }
+    if (generator == null) {
+      System.err.println("usage: LabFlow --generate [--seed N] [--samples N] [--tests N] "
+          + "[--equipment N] FILE");
+      return 2;
+    }
+
+    long start = System.nanoTime();
+    long records = generator.write(files.get(0));
+    System.out.printf("%s: %d records in %.2f s%n", files.get(0), records,
+        (System.nanoTime() - start) / 1e9);
+    return 0;
+  }
+
+  /**
+   * Returns the format to export to the given file in, from the file name
+   * @param file the file to export to
+   * @return JSON_LINES if the file name ends in .jsonl, CSV otherwise
+   */
+  private static ExportFormat formatOf(Path file) {
+    return file.getFileName().toString().endsWith(".jsonl") ? ExportFormat.JSON_LINES
+        : ExportFormat.CSV;
+  }
 }
@@ -18,20 +18,24 @@ public interface LabTest {
   Integer getTestDuration();
 
   /**
-   * Adds a sample to this test by adding the sample's name to the list of samples
-   * of this test. The sample's name is added to this test because this test was
-   * requested to be run on the sample. The call to this method was made when this
-   * test was added to the sample.
+   * Returns the handle that identifies this test in the {@link LinkStore} of its model
+   * @return int the handle of this test, or LinkStore.NO_HANDLE if it is in no store
+   */
+  int getHandle();
+
+  /**
+   * Adds a sample to this test by linking the sample to this test, so that the sample's
+   * name appears in the list of samples of this test (and this test's name appears in
+   * the sample's list of tests). Adding a sample that is already linked has no effect.
    * @param sample the Sample to add to this test's list of samples. Specifically, the
    *               sample's name will be added to the list
    */
   void addSampleToTest(Sample sample);
 
   /**
-   * Deletes a sample from this test by deleting the sample's name from the list of samples
-   * of this test. The sample's name is deleted from this test because this test was
-   * deleted from the sample. The call to this method was made when this
-   * test was deleted from the sample.
+   * Deletes a sample from this test by removing the link between the sample and this
+   * test, so that the sample's name is deleted from the list of samples of this test
+   * (and this test's name is deleted from the sample's list of tests).
    * @param sample the Sample to delete from this test's list of samples. Specifically, the
    *               sample's name will be deleted from the list
    */
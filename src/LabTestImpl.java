@@ -1,15 +1,16 @@
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * This class implements the LabTest interface with all its mandated methods
  */
-public class LabTestImpl implements LabTest {
+public class LabTestImpl implements LabTest, LinkStore.Member {
 
-  private final String name;
+  private final int nameCode;   // code of the name in the name dictionary
   private final Integer duration;
   private final List<String> listOfSamples;
+  private LinkStore linkStore;    // null until the test is linked or added to a model
+  private int handle;
 
   /**
    * Constructs a lab test with the given name and duration of the test
@@ -17,9 +18,10 @@ public class LabTestImpl implements LabTest {
    * @param duration duration of the test
    */
   public LabTestImpl(String name, Integer duration) {
-    this.name = name;
+    this.nameCode = NameDictionary.shared().encode(name);
     this.duration = duration;
-    this.listOfSamples = new ArrayList<>();
+    this.handle = LinkStore.NO_HANDLE;
+    this.listOfSamples = LinkStore.samplesOf(this);
   }
 
   /**
@@ -29,7 +31,7 @@ public class LabTestImpl implements LabTest {
    */
   @Override
   public String getTestName() {
-    return this.name;
+    return NameDictionary.shared().name(this.nameCode);
   }
 
   /**
@@ -43,9 +45,41 @@ public class LabTestImpl implements LabTest {
   }
 
   /**
-   * Adds a sample to this test by adding the sample's name to the list of samples of this test. The
-   * sample's name is added to this test because this test was requested to be run on the sample.
-   * The call to this method was made when this test was added to the sample.
+   * Returns the handle that identifies this test in its link store
+   *
+   * @return int the handle of this test, or LinkStore.NO_HANDLE if it is in no store
+   */
+  @Override
+  public int getHandle() {
+    return this.handle;
+  }
+
+  /**
+   * Returns the link store this test is in
+   *
+   * @return the link store, or null if the test has not been linked or added to a model
+   */
+  @Override
+  public LinkStore getLinkStore() {
+    return this.linkStore;
+  }
+
+  /**
+   * Records the link store this test has joined or left, and its handle there
+   *
+   * @param store the link store, or null if the test has left its store
+   * @param handle the handle of this test in the store
+   */
+  @Override
+  public void bind(LinkStore store, int handle) {
+    this.linkStore = store;
+    this.handle = handle;
+  }
+
+  /**
+   * Adds a sample to this test by linking the sample to this test, so that the sample's name
+   * appears in the list of samples of this test (and this test's name appears in the sample's list
+   * of tests). Adding a sample that is already linked has no effect.
    *
    * @param sample the Sample to add to this test's list of samples. Specifically, the sample's name
    *               will be added to the list
@@ -53,13 +87,13 @@ public class LabTestImpl implements LabTest {
   @Override
   public void addSampleToTest(Sample sample) {
     Objects.requireNonNull(sample);
-    listOfSamples.add(sample.getSampleName());
+    LinkStore.link(sample, this);
   }
 
   /**
-   * Deletes a sample from this test by deleting the sample's name from the list of samples of this
-   * test. The sample's name is deleted from this test because this test was deleted from the
-   * sample. The call to this method was made when this test was deleted from the sample.
+   * Deletes a sample from this test by removing the link between the sample and this test, so that
+   * the sample's name is deleted from the list of samples of this test (and this test's name is
+   * deleted from the sample's list of tests).
    *
    * @param sample the Sample to delete from this test's list of samples. Specifically, the sample's
    *               name will be deleted from the list
@@ -67,11 +101,12 @@ public class LabTestImpl implements LabTest {
   @Override
   public void deleteSampleFromTest(Sample sample) {
     Objects.requireNonNull(sample);
-    listOfSamples.remove(sample.getSampleName());
+    LinkStore.unlink(sample, this);
   }
 
   /**
-   * Returns a list of samples that require this test
+   * Returns a list of samples that require this test. The list is a live view of the links of
+   * this test
    *
    * @return List of samples that require this test
    */
@@ -103,7 +138,7 @@ public class LabTestImpl implements LabTest {
   @Override
   public int compareByNumberOfSamples(LabTest t) {
     Objects.requireNonNull(t);
-    return Integer.compare(this.listOfSamples.size(), t.getListOfSamples().size());
+    return Integer.compare(LinkStore.countSamplesOf(this), LinkStore.countSamplesOf(t));
   }
 
   /**
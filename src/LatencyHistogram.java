@@ -0,0 +1,133 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents a histogram of latencies in nanoseconds, in the manner of an HDR
+ * histogram: values below 64 ns each have their own bucket, and above that every power of two is
+ * split into 32 buckets, so a value is recorded to within about 3% across the whole range of a
+ * long. All buckets are allocated up front and recording a value only increments counters, so it
+ * never allocates and may be done from any thread
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong count;
+  private final AtomicLong sum;
+  private final AtomicLong max;
+
+  /**
+   * Constructs an empty histogram
+   */
+  public LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.count = new AtomicLong();
+    this.sum = new AtomicLong();
+    this.max = new AtomicLong();
+  }
+
+  /**
+   * Records one latency
+   * @param nanos the latency in nanoseconds; negative values are recorded as 0
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    this.counts.incrementAndGet(bucketOf(value));
+    this.count.incrementAndGet();
+    this.sum.addAndGet(value);
+    this.max.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Returns the number of latencies recorded
+   * @return the number of latencies recorded
+   */
+  public long getCount() {
+    return this.count.get();
+  }
+
+  /**
+   * Returns the largest latency recorded, exactly
+   * @return the largest latency in nanoseconds, or 0 if none has been recorded
+   */
+  public long getMax() {
+    return this.max.get();
+  }
+
+  /**
+   * Returns the mean of the latencies recorded
+   * @return the mean latency in nanoseconds, or 0 if none has been recorded
+   */
+  public double getMean() {
+    long n = this.count.get();
+    return n == 0 ? 0 : (double) this.sum.get() / n;
+  }
+
+  /**
+   * Returns the latency that the given percentage of recorded latencies are at or below, to
+   * within the precision of the buckets
+   * @param percentile the percentage, from 0 to 100
+   * @return the highest latency in the bucket holding the percentile, in nanoseconds, or 0 if
+   *         none has been recorded
+   * @throws IllegalArgumentException if the percentage is not between 0 and 100
+   */
+  public long getPercentile(double percentile) {
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("Invalid percentile");
+    }
+    long total = this.count.get();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += this.counts.get(bucket);
+      if (seen >= rank) {
+        return Math.min(highestIn(bucket), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Forgets every latency recorded
+   */
+  public void reset() {
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      this.counts.set(bucket, 0);
+    }
+    this.count.set(0);
+    this.sum.set(0);
+    this.max.set(0);
+  }
+
+  /**
+   * Returns the bucket a value is counted in
+   * @param value a non-negative value
+   * @return the index of its bucket
+   */
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS * 2) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return shift * SUB_BUCKETS + (int) (value >>> shift);
+  }
+
+  /**
+   * Returns the highest value counted in a bucket
+   * @param bucket the index of the bucket
+   * @return the highest value in the bucket
+   */
+  static long highestIn(int bucket) {
+    if (bucket < SUB_BUCKETS * 2) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
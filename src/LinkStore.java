@@ -0,0 +1,1216 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * This class represents the store of the links between the samples and tests of one dashboard.
+ * Every sample and every test in the store is given a dense integer handle, and the store keeps,
+ * for each handle, a compressed bitmap of the handles it is linked to on the other side. Adding,
+ * removing and checking a link are therefore (close to) constant time, and both sides of a link
+ * are always updated together.
+ *
+ * Each model owns a store of its own. A sample or test joins a store when it is added to a
+ * model, or when it is first linked to a sample or test that is already in one. Samples and tests
+ * linked before they are added to any model share a store of their own, which is merged into a
+ * model's store when one of them is added to it; linking items of two different models is an
+ * error. Deleting a sample or test from its model removes its links and releases its handle.
+ *
+ * Each slot holds its owner: the sample or test, or the name of a sample held by no single object.
+ * The slot of a test also holds the code of its name in the {@link NameDictionary}, so that tests
+ * are found by name without comparing strings; sample names are not encoded, as they are nearly
+ * all distinct. The names returned by {@link #testsOf(Sample)} and {@link #samplesOf(LabTest)}
+ * are listed in the order the linked samples or tests joined the store, which is not necessarily
+ * the order they were linked in, and are materialized lazily, only when the links have changed
+ * since the last read.
+ *
+ * A store may instead be built over {@link SampleRecords}, samples kept outside it together with
+ * the tests they are linked to, such as the records of a file. The store then keeps no slot and
+ * no bitmap for such a sample, only the bitmap of each test; the handle of the sample is the
+ * number of its record, so the samples of a test are listed in the order of their records.
+ */
+public class LinkStore {
+  /** The handle of a sample or test that is not in any store */
+  public static final int NO_HANDLE = -1;
+
+  /**
+   * The number of records a store over {@link SampleRecords} can address; samples that such a
+   * store holds outside any record are given handles from here up
+   */
+  public static final int RECORD_LIMIT = 1 << 30;
+
+  private static final int PAGE_SIZE = 1024;
+
+  private final boolean owned;    // false for a store of items not yet added to any model
+  private final Side samples;
+  private final Side tests;
+  private volatile int version;    // incremented whenever any link changes, under the lock
+
+  /**
+   * This interface represents a sample or test that can be held by a link store
+   */
+  interface Member {
+
+    /**
+     * Returns the store this sample or test is in
+     * @return the store, or null if it is not in any store yet
+     */
+    LinkStore getLinkStore();
+
+    /**
+     * Returns the handle of this sample or test in its store
+     * @return the handle, or NO_HANDLE if it is not in any store yet
+     */
+    int getHandle();
+
+    /**
+     * Returns the handle of this sample or test in its store, issuing one first if its store
+     * issues handles only to the items that are linked
+     * @return the handle
+     */
+    default int handleForLink() {
+      return getHandle();
+    }
+
+    /**
+     * Records the store this sample or test has joined or left, and its handle there
+     * @param store the store, or null if it has left its store
+     * @param handle the handle in the store, or NO_HANDLE
+     */
+    void bind(LinkStore store, int handle);
+  }
+
+  /**
+   * This interface represents samples kept outside a store together with their links, such as
+   * the records of a file. Each record is known by its number, which is the handle of its
+   * sample in the store, and holds the handles of the tests its sample is linked to. The store
+   * changes the links of a record only under its own lock
+   */
+  public interface SampleRecords {
+
+    /**
+     * Returns the sample in the given record
+     * @param record the number of the record
+     * @return the sample, or null if the record holds none
+     */
+    Sample sample(int record);
+
+    /**
+     * Links the sample in the given record to a test
+     * @param record the number of the record
+     * @param test handle of the test
+     * @return true if the link was added, false if it was already there
+     */
+    boolean link(int record, int test);
+
+    /**
+     * Removes the link between the sample in the given record and a test
+     * @param record the number of the record
+     * @param test handle of the test
+     * @return true if the link was removed, false if it was not there
+     */
+    boolean unlink(int record, int test);
+
+    /**
+     * Returns whether the sample in the given record is linked to a test
+     * @param record the number of the record
+     * @param test handle of the test
+     * @return true if they are linked, false otherwise
+     */
+    boolean isLinked(int record, int test);
+
+    /**
+     * Returns the handles of the tests linked to the sample in the given record
+     * @param record the number of the record
+     * @return array of handles of tests, in ascending order
+     */
+    int[] tests(int record);
+  }
+
+  /**
+   * Constructs an empty link store for a model
+   */
+  public LinkStore() {
+    this(true, new Slots(false));
+  }
+
+  /**
+   * Constructs an empty link store for a model whose samples are kept in the given records
+   * @param records the records of the samples, numbered below {@link #RECORD_LIMIT}
+   */
+  public LinkStore(SampleRecords records) {
+    this(true, new Records(records));
+  }
+
+  private LinkStore(boolean owned, Side samples) {
+    this.owned = owned;
+    this.samples = samples;
+    this.tests = new Slots(true);
+  }
+
+  /**
+   * Adds a sample being added to a model to this store, the store of the model. A sample that
+   * was linked before brings along every sample and test it is connected to
+   * @param sample the sample
+   * @throws IllegalArgumentException if the sample is in the store of another model
+   */
+  public void addSample(Sample sample) {
+    adopt(member(sample), samples);
+  }
+
+  /**
+   * Adds a test being added to a model to this store, the store of the model. A test that was
+   * linked before brings along every sample and test it is connected to
+   * @param test the test
+   * @throws IllegalArgumentException if the test is in the store of another model
+   */
+  public void addTest(LabTest test) {
+    adopt(member(test), tests);
+  }
+
+  /**
+   * Removes every link of a sample deleted from the model, releases its handle and takes the
+   * sample out of this store
+   * @param sample the sample
+   */
+  public synchronized void removeSample(Sample sample) {
+    remove(member(sample), samples, tests);
+  }
+
+  /**
+   * Removes every link of a test deleted from the model, releases its handle and takes the test
+   * out of this store
+   * @param test the test
+   */
+  public synchronized void removeTest(LabTest test) {
+    remove(member(test), tests, samples);
+  }
+
+  /**
+   * Issues a handle for a sample that is not held by a single object, such as a row of a table.
+   * The handle is kept until it is released with {@link #releaseSample(int)}
+   * @param name the name of the sample
+   * @return the handle of the sample
+   */
+  public synchronized int registerSample(String name) {
+    return samples.allocate(name);
+  }
+
+  /**
+   * Issues a handle for a sample read through the given object, such as a flyweight over a
+   * record in a file, which is asked for the name of the sample whenever it is needed. The
+   * handle is kept until it is released with {@link #releaseSample(int)}
+   * @param sample the sample
+   * @return the handle of the sample
+   */
+  public synchronized int registerSample(Sample sample) {
+    return samples.allocate(sample);
+  }
+
+  /**
+   * Removes every link of a sample registered with {@link #registerSample(String)} or
+   * {@link #registerSample(Sample)} and releases its handle
+   * @param sample handle of the sample
+   */
+  public synchronized void releaseSample(int sample) {
+    release(sample, samples, tests);
+  }
+
+  /**
+   * Links the given sample and test, putting them in the same store first if they are not
+   * @param sample the sample
+   * @param test the test
+   * @return true if the link was added, false if the sample and test were already linked
+   * @throws IllegalArgumentException if the sample and test are in the stores of two models
+   */
+  public static boolean link(Sample sample, LabTest test) {
+    Member s = member(sample);
+    Member t = member(test);
+    return join(s, t).link(s.handleForLink(), t.handleForLink());
+  }
+
+  /**
+   * Removes the link between the given sample and test
+   * @param sample the sample
+   * @param test the test
+   * @return true if the link was removed, false if the sample and test were not linked
+   */
+  public static boolean unlink(Sample sample, LabTest test) {
+    Member s = member(sample);
+    Member t = member(test);
+    LinkStore store = s.getLinkStore();
+    return store != null && store == t.getLinkStore()
+        && store.unlink(s.getHandle(), t.getHandle());
+  }
+
+  /**
+   * Returns the store that holds the links of the given sample
+   * @param sample the sample
+   * @return the store, or null if the sample is not in any store
+   */
+  public static LinkStore of(Sample sample) {
+    return member(sample).getLinkStore();
+  }
+
+  /**
+   * Returns the store that holds the links of the given test
+   * @param test the test
+   * @return the store, or null if the test is not in any store
+   */
+  public static LinkStore of(LabTest test) {
+    return member(test).getLinkStore();
+  }
+
+  /**
+   * Links the given sample and test
+   * @param sample handle of the sample
+   * @param test handle of the test
+   * @return true if the link was added, false if the sample and test were already linked
+   */
+  public synchronized boolean link(int sample, int test) {
+    if (!samples.add(sample, test)) {
+      return false;
+    }
+    tests.add(test, sample);
+    samples.touch(sample);
+    tests.touch(test);
+    version++;
+    return true;
+  }
+
+  /**
+   * Links every given sample to every given test, under a single acquisition of the store
+   * @param sampleHandles handles of the samples
+   * @param testHandles handles of the tests
+   * @return the number of links that were added; pairs that were already linked are skipped
+   */
+  public synchronized int linkAll(int[] sampleHandles, int[] testHandles) {
+    int added = 0;
+    for (int sample : sampleHandles) {
+      int addedToSample = 0;
+      for (int test : testHandles) {
+        if (samples.add(sample, test)) {
+          tests.add(test, sample);
+          tests.touch(test);
+          addedToSample++;
+        }
+      }
+      if (addedToSample > 0) {
+        samples.touch(sample);
+        added += addedToSample;
+      }
+    }
+    if (added > 0) {
+      version++;
+    }
+    return added;
+  }
+
+  /**
+   * Removes the link between the given sample and test
+   * @param sample handle of the sample
+   * @param test handle of the test
+   * @return true if the link was removed, false if the sample and test were not linked
+   */
+  public synchronized boolean unlink(int sample, int test) {
+    if (!samples.remove(sample, test)) {
+      return false;
+    }
+    tests.remove(test, sample);
+    samples.touch(sample);
+    tests.touch(test);
+    version++;
+    return true;
+  }
+
+  /**
+   * Returns whether the given sample and test are linked
+   * @param sample handle of the sample
+   * @param test handle of the test
+   * @return true if the sample and test are linked, false otherwise
+   */
+  public synchronized boolean isLinked(int sample, int test) {
+    return samples.contains(sample, test);
+  }
+
+  /**
+   * Removes every link of the given sample
+   * @param sample handle of the sample
+   */
+  public synchronized void unlinkAllTestsOf(int sample) {
+    unlinkAll(sample, samples, tests);
+  }
+
+  /**
+   * Removes every link of the given test
+   * @param test handle of the test
+   */
+  public synchronized void unlinkAllSamplesOf(int test) {
+    unlinkAll(test, tests, samples);
+  }
+
+  /**
+   * Returns the number of tests linked to the given sample
+   * @param sample handle of the sample
+   * @return number of tests linked to the sample
+   */
+  public synchronized int countTestsOf(int sample) {
+    return samples.count(sample);
+  }
+
+  /**
+   * Returns the number of samples linked to the given test
+   * @param test handle of the test
+   * @return number of samples linked to the test
+   */
+  public synchronized int countSamplesOf(int test) {
+    return tests.count(test);
+  }
+
+  /**
+   * Returns a counter that changes whenever any link in this store is added or removed, so that
+   * callers can cheaply tell whether anything derived from the links is out of date. Reading it
+   * takes no lock
+   * @return the current version of the links
+   */
+  public int version() {
+    return version;
+  }
+
+  /**
+   * Returns the handles of the tests linked to the given sample, in ascending order
+   * @param sample handle of the sample
+   * @return array of handles of the tests linked to the sample
+   */
+  public synchronized int[] testHandlesOf(int sample) {
+    return samples.handlesOf(sample);
+  }
+
+  /**
+   * Returns the handles of the samples linked to the given test, in ascending order
+   * @param test handle of the test
+   * @return array of handles of the samples linked to the test
+   */
+  public synchronized int[] sampleHandlesOf(int test) {
+    return tests.handlesOf(test);
+  }
+
+  /**
+   * Returns the handles of the tests linked to the given sample in its store, in ascending order
+   * @param sample the sample
+   * @return array of handles of the tests linked to the sample, empty if it is in no store
+   */
+  public static int[] testHandlesOf(Sample sample) {
+    Member s = member(sample);
+    LinkStore store = s.getLinkStore();
+    return store == null ? new int[0] : store.testHandlesOf(s.getHandle());
+  }
+
+  /**
+   * Returns the handles of the samples linked to the given test in its store, in ascending order
+   * @param test the test
+   * @return array of handles of the samples linked to the test, empty if it is in no store
+   */
+  public static int[] sampleHandlesOf(LabTest test) {
+    Member t = member(test);
+    LinkStore store = t.getLinkStore();
+    return store == null ? new int[0] : store.sampleHandlesOf(t.getHandle());
+  }
+
+  /**
+   * Returns the number of samples linked to the given test
+   * @param test the test
+   * @return number of samples linked to the test, 0 if it is in no store
+   */
+  public static int countSamplesOf(LabTest test) {
+    Member t = member(test);
+    LinkStore store = t.getLinkStore();
+    return store == null ? 0 : store.countSamplesOf(t.getHandle());
+  }
+
+  /**
+   * Returns a live view of the names of the tests linked to the given sample, which follows the
+   * sample from store to store. Removing a name from the view removes the link
+   * @param sample the sample
+   * @return list of names of the tests linked to the sample
+   */
+  public static List<String> testsOf(Sample sample) {
+    return new LinkView(member(sample), true);
+  }
+
+  /**
+   * Returns a live view of the names of the samples linked to the given test, which follows the
+   * test from store to store. Removing a name from the view removes the link
+   * @param test the test
+   * @return list of names of the samples linked to the test
+   */
+  public static List<String> samplesOf(LabTest test) {
+    return new LinkView(member(test), false);
+  }
+
+  /**
+   * Returns the given sample or test as a member of a store
+   * @param item the sample or test
+   * @return the member
+   * @throws IllegalArgumentException if the item cannot be held by a link store
+   */
+  private static Member member(Object item) {
+    if (!(item instanceof Member member)) {
+      throw new IllegalArgumentException("Invalid item: " + item + " cannot hold links");
+    }
+    return member;
+  }
+
+  /**
+   * Returns the store both the given sample and test are in, putting either or both in a store
+   * first if they are not, and merging the store of items outside any model into the other
+   * @param sample the sample
+   * @param test the test
+   * @return the store of the sample and test
+   * @throws IllegalArgumentException if the sample and test are in the stores of two models
+   */
+  private static LinkStore join(Member sample, Member test) {
+    LinkStore store = sample.getLinkStore();
+    if (store != null && store == test.getLinkStore()) {
+      return store;
+    }
+    synchronized (LinkStore.class) {
+      LinkStore ofSample = sample.getLinkStore();
+      LinkStore ofTest = test.getLinkStore();
+      if (ofSample != null && ofTest != null && ofSample != ofTest) {
+        if (ofSample.owned && ofTest.owned) {
+          throw new IllegalArgumentException(
+              "Invalid link: the sample and test are in different dashboards");
+        }
+        if (ofSample.owned) {
+          ofSample.merge(ofTest);
+        } else {
+          ofTest.merge(ofSample);
+        }
+        return sample.getLinkStore();
+      }
+      store = ofSample != null ? ofSample
+          : ofTest != null ? ofTest : new LinkStore(false, new Slots(false));
+      synchronized (store) {
+        if (ofSample == null) {
+          store.enter(sample, store.samples);
+        }
+        if (ofTest == null) {
+          store.enter(test, store.tests);
+        }
+      }
+      return store;
+    }
+  }
+
+  /**
+   * Puts an item being added to the model of this store in this store
+   * @param item the sample or test
+   * @param side the side of the item
+   * @throws IllegalArgumentException if the item is in the store of another model
+   */
+  private void adopt(Member item, Side side) {
+    synchronized (LinkStore.class) {
+      LinkStore current = item.getLinkStore();
+      if (current == this) {
+        return;
+      }
+      if (current != null && current.owned) {
+        throw new IllegalArgumentException("Invalid item: " + item + " is in another dashboard");
+      }
+      if (current != null) {
+        merge(current);
+      } else {
+        synchronized (this) {
+          enter(item, side);
+        }
+      }
+    }
+  }
+
+  /**
+   * Issues a handle for an item on the given side and binds the item to it
+   */
+  private void enter(Member item, Side side) {
+    item.bind(this, side.allocate(item));
+  }
+
+  /**
+   * Moves every item of a store of items outside any model into this store, with their links,
+   * keeping the order they joined in
+   * @param from the store to empty into this one
+   */
+  private void merge(LinkStore from) {
+    synchronized (this) {
+      synchronized (from) {
+        int[] sampleHandles = moveAll(from.samples, samples);
+        int[] testHandles = moveAll(from.tests, tests);
+        for (int old = 0; old < sampleHandles.length; old++) {
+          if (sampleHandles[old] != NO_HANDLE) {
+            for (int test : from.samples.handlesOf(old)) {
+              link(sampleHandles[old], testHandles[test]);
+            }
+          }
+        }
+        for (int old = 0; old < sampleHandles.length; old++) {
+          if (sampleHandles[old] != NO_HANDLE) {
+            from.samples.member(old).bind(this, sampleHandles[old]);
+          }
+        }
+        for (int old = 0; old < testHandles.length; old++) {
+          if (testHandles[old] != NO_HANDLE) {
+            from.tests.member(old).bind(this, testHandles[old]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Issues a handle on one side of this store for every item on the same side of another
+   * @return array of the new handle of each old handle, NO_HANDLE where there is no item
+   */
+  private static int[] moveAll(Side from, Side to) {
+    int[] handles = new int[from.limit()];
+    for (int old = 0; old < handles.length; old++) {
+      Member owner = from.member(old);
+      handles[old] = owner == null ? NO_HANDLE : to.allocate(owner);
+    }
+    return handles;
+  }
+
+  /**
+   * Takes an item out of this store, if it is in it
+   */
+  private void remove(Member item, Side side, Side other) {
+    if (item.getLinkStore() == this) {
+      release(item.getHandle(), side, other);
+      item.bind(null, NO_HANDLE);
+    }
+  }
+
+  /**
+   * Removes every link of a handle and frees its slot
+   * @param handle the handle to release
+   * @param side the side of the handle
+   * @param other the opposite side
+   */
+  private void release(int handle, Side side, Side other) {
+    unlinkAll(handle, side, other);
+    side.free(handle);
+  }
+
+  /**
+   * Removes every link of the given handle
+   * @param handle the handle
+   * @param side the side of the handle
+   * @param other the opposite side
+   */
+  private void unlinkAll(int handle, Side side, Side other) {
+    int[] linked = side.handlesOf(handle);
+    if (linked.length == 0) {
+      return;
+    }
+    for (int h : linked) {
+      side.remove(handle, h);
+      other.remove(h, handle);
+      other.touch(h);
+    }
+    side.touch(handle);
+    version++;
+  }
+
+  /**
+   * This class represents one side (samples or tests) of the store: the items on that side, and
+   * for each of them the handles it is linked to on the other side
+   */
+  private abstract static class Side {
+
+    /**
+     * Issues a handle for the given owner, a member or the name of a sample
+     */
+    abstract int allocate(Object owner);
+
+    /**
+     * Frees the handle of an item whose links are all removed
+     */
+    abstract void free(int handle);
+
+    /**
+     * Returns the number of handles issued so far
+     */
+    abstract int limit();
+
+    abstract boolean add(int handle, int linked);
+
+    abstract boolean remove(int handle, int linked);
+
+    abstract boolean contains(int handle, int linked);
+
+    /**
+     * Returns the handles linked to the given handle, in ascending order
+     */
+    abstract int[] handlesOf(int handle);
+
+    int count(int handle) {
+      return handlesOf(handle).length;
+    }
+
+    /**
+     * Returns the sample or test that owns the given handle, or null if it is not held by one
+     */
+    abstract Member member(int handle);
+
+    abstract String name(int handle);
+
+    abstract int nameCode(int handle);
+
+    /**
+     * Returns a number that changes whenever the links of the given handle change, or -1 once
+     * the handle is released
+     */
+    abstract int version(int handle);
+
+    abstract void touch(int handle);
+  }
+
+  /**
+   * This class holds the slots of one side of the store on the heap. Slots are kept in
+   * fixed-size pages so that handles can be issued in increasing order forever while the
+   * memory of fully released pages is returned. A released handle is never issued again
+   */
+  private static class Slots extends Side {
+    private final boolean coded;    // whether the slots hold the codes of the names of tests
+    private Page[] pages = new Page[16];
+    private int nextHandle = 0;
+
+    Slots(boolean coded) {
+      this.coded = coded;
+    }
+
+    /**
+     * Issues the next handle and stores the given owner in its slot, with the code of its name
+     * on the side of the tests
+     */
+    @Override
+    int allocate(Object owner) {
+      if (nextHandle == Integer.MAX_VALUE) {
+        throw new IllegalStateException("Out of link handles");
+      }
+      int handle = nextHandle++;
+      int p = handle / PAGE_SIZE;
+      if (p == pages.length) {
+        pages = Arrays.copyOf(pages, pages.length * 2);
+      }
+      if (pages[p] == null) {
+        pages[p] = new Page(coded);
+      }
+      Page page = pages[p];
+      page.owners[handle % PAGE_SIZE] = owner;
+      if (coded) {
+        page.names[handle % PAGE_SIZE] =
+            NameDictionary.shared().encode(((LabTest) owner).getTestName());
+      }
+      page.live++;
+      return handle;
+    }
+
+    /**
+     * Frees the slot of the given handle, and its page once every slot in it is freed
+     */
+    @Override
+    void free(int handle) {
+      int p = handle / PAGE_SIZE;
+      Page page = pages[p];
+      page.owners[handle % PAGE_SIZE] = null;
+      page.links[handle % PAGE_SIZE] = null;
+      page.versions[handle % PAGE_SIZE]++;
+      if (--page.live == 0 && (p + 1) * PAGE_SIZE <= nextHandle) {
+        pages[p] = null;
+      }
+    }
+
+    @Override
+    int limit() {
+      return nextHandle;
+    }
+
+    @Override
+    boolean add(int handle, int linked) {
+      return links(handle, true).add(linked);
+    }
+
+    @Override
+    boolean remove(int handle, int linked) {
+      CompressedBitmap links = links(handle, false);
+      return links != null && links.remove(linked);
+    }
+
+    @Override
+    boolean contains(int handle, int linked) {
+      CompressedBitmap links = links(handle, false);
+      return links != null && links.contains(linked);
+    }
+
+    /**
+     * Returns the links of the given handle, creating them if asked to. A released handle has
+     * no links
+     */
+    CompressedBitmap links(int handle, boolean create) {
+      Page page = page(handle);
+      if (page == null) {
+        return null;
+      }
+      CompressedBitmap links = page.links[handle % PAGE_SIZE];
+      if (links == null && create) {
+        links = new CompressedBitmap();
+        page.links[handle % PAGE_SIZE] = links;
+      }
+      return links;
+    }
+
+    @Override
+    Member member(int handle) {
+      Page page = page(handle);
+      return page != null && page.owners[handle % PAGE_SIZE] instanceof Member member
+          ? member : null;
+    }
+
+    @Override
+    String name(int handle) {
+      if (coded) {
+        return NameDictionary.shared().name(nameCode(handle));
+      }
+      Page page = page(handle);
+      Object owner = page == null ? null : page.owners[handle % PAGE_SIZE];
+      return owner instanceof Sample sample ? sample.getSampleName() : (String) owner;
+    }
+
+    @Override
+    int nameCode(int handle) {
+      Page page = page(handle);
+      return page == null ? NameDictionary.NO_NAME : page.names[handle % PAGE_SIZE];
+    }
+
+    @Override
+    int version(int handle) {
+      Page page = page(handle);
+      return page == null ? -1 : page.versions[handle % PAGE_SIZE];
+    }
+
+    @Override
+    void touch(int handle) {
+      pages[handle / PAGE_SIZE].versions[handle % PAGE_SIZE]++;
+    }
+
+    @Override
+    int count(int handle) {
+      CompressedBitmap links = links(handle, false);
+      return links == null ? 0 : links.cardinality();
+    }
+
+    @Override
+    int[] handlesOf(int handle) {
+      CompressedBitmap links = links(handle, false);
+      return links == null ? new int[0] : links.toArray();
+    }
+
+    private Page page(int handle) {
+      int p = handle / PAGE_SIZE;
+      return handle < 0 || p >= pages.length ? null : pages[p];
+    }
+  }
+
+  /**
+   * This class represents the side of the samples of a store built over records. The links of a
+   * sample in a record are kept in the record; samples held by objects outside any record, such
+   * as samples linked to a test of the model before they are added to it, get slots of their own
+   * with handles from RECORD_LIMIT up. Every record shares a single version
+   */
+  private static class Records extends Side {
+    private final SampleRecords records;
+    private final Slots others = new Slots(false);
+    private int version;
+
+    Records(SampleRecords records) {
+      this.records = records;
+    }
+
+    @Override
+    int allocate(Object owner) {
+      if (others.limit() == Integer.MAX_VALUE - RECORD_LIMIT) {
+        throw new IllegalStateException("Out of link handles");
+      }
+      return RECORD_LIMIT + others.allocate(owner);
+    }
+
+    @Override
+    void free(int handle) {
+      if (handle >= RECORD_LIMIT) {
+        others.free(handle - RECORD_LIMIT);
+      }
+    }
+
+    @Override
+    int limit() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    boolean add(int handle, int linked) {
+      return handle < RECORD_LIMIT ? records.link(handle, linked)
+          : others.add(handle - RECORD_LIMIT, linked);
+    }
+
+    @Override
+    boolean remove(int handle, int linked) {
+      return handle < RECORD_LIMIT ? records.unlink(handle, linked)
+          : others.remove(handle - RECORD_LIMIT, linked);
+    }
+
+    @Override
+    boolean contains(int handle, int linked) {
+      return handle < RECORD_LIMIT ? records.isLinked(handle, linked)
+          : others.contains(handle - RECORD_LIMIT, linked);
+    }
+
+    @Override
+    int[] handlesOf(int handle) {
+      return handle < RECORD_LIMIT ? records.tests(handle)
+          : others.handlesOf(handle - RECORD_LIMIT);
+    }
+
+    @Override
+    Member member(int handle) {
+      if (handle >= RECORD_LIMIT) {
+        return others.member(handle - RECORD_LIMIT);
+      }
+      return records.sample(handle) instanceof Member member ? member : null;
+    }
+
+    @Override
+    String name(int handle) {
+      if (handle >= RECORD_LIMIT) {
+        return others.name(handle - RECORD_LIMIT);
+      }
+      Sample sample = records.sample(handle);
+      return sample == null ? null : sample.getSampleName();
+    }
+
+    @Override
+    int nameCode(int handle) {
+      return NameDictionary.NO_NAME;
+    }
+
+    @Override
+    int version(int handle) {
+      return handle < RECORD_LIMIT ? version : others.version(handle - RECORD_LIMIT);
+    }
+
+    @Override
+    void touch(int handle) {
+      if (handle < RECORD_LIMIT) {
+        version++;
+      } else {
+        others.touch(handle - RECORD_LIMIT);
+      }
+    }
+  }
+
+  /**
+   * This class holds a page of slots
+   */
+  private static class Page {
+    final Object[] owners = new Object[PAGE_SIZE];    // members, or names of samples
+    final int[] names;      // codes in the name dictionary, null on the side of the samples
+    final CompressedBitmap[] links = new CompressedBitmap[PAGE_SIZE];
+    final int[] versions = new int[PAGE_SIZE];
+    int live;
+
+    Page(boolean coded) {
+      this.names = coded ? new int[PAGE_SIZE] : null;
+    }
+  }
+
+  /**
+   * This class represents a live list view of the names linked to one sample or test. The view
+   * looks up the store and handle of its owner on every read, so it follows the owner into and
+   * out of stores. The names are materialized on the first read after the links change, and
+   * then served from a cache. Its iterators are fail-fast: they throw a
+   * ConcurrentModificationException once the links change other than through the iterator
+   */
+  private static class LinkView extends AbstractList<String> {
+    private final Member owner;
+    private final boolean ofSample;
+    private LinkStore cachedStore;
+    private int cachedHandle;
+    private int cachedVersion;
+    private int[] cachedHandles;
+    private String[] cachedNames;
+
+    LinkView(Member owner, boolean ofSample) {
+      this.owner = owner;
+      this.ofSample = ofSample;
+    }
+
+    @Override
+    public String get(int index) {
+      return snapshot().names[index];
+    }
+
+    @Override
+    public int size() {
+      LinkStore store = owner.getLinkStore();
+      if (store == null) {
+        return 0;
+      }
+      synchronized (store) {
+        return side(store).count(owner.getHandle());
+      }
+    }
+
+    @Override
+    public String remove(int index) {
+      Snapshot snapshot = snapshot();
+      String name = snapshot.names[index];
+      unlink(snapshot, snapshot.handles[index]);
+      return name;
+    }
+
+    @Override
+    public void clear() {
+      LinkStore store = owner.getLinkStore();
+      if (store != null) {
+        synchronized (store) {
+          store.unlinkAll(owner.getHandle(), side(store), other(store));
+        }
+      }
+    }
+
+    /**
+     * Finds the name of a test by comparing dictionary codes, without comparing any strings
+     */
+    @Override
+    public int indexOf(Object o) {
+      if (!(o instanceof String name)) {
+        return -1;
+      }
+      Snapshot snapshot = snapshot();
+      if (!ofSample) {
+        for (int i = 0; i < snapshot.names.length; i++) {
+          if (Objects.equals(snapshot.names[i], name)) {
+            return i;
+          }
+        }
+        return -1;
+      }
+      int code = NameDictionary.shared().codeOf(name);
+      if (code == NameDictionary.NO_NAME || snapshot.store == null) {
+        return -1;
+      }
+      synchronized (snapshot.store) {
+        Side other = other(snapshot.store);
+        for (int i = 0; i < snapshot.handles.length; i++) {
+          if (other.nameCode(snapshot.handles[i]) == code) {
+            return i;
+          }
+        }
+        return -1;
+      }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      int index = indexOf(o);
+      if (index < 0) {
+        return false;
+      }
+      remove(index);
+      return true;
+    }
+
+    @Override
+    public Object[] toArray() {
+      return snapshot().names.clone();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<String> listIterator(int index) {
+      Snapshot snapshot = snapshot();
+      if (index < 0 || index > snapshot.names.length) {
+        throw new IndexOutOfBoundsException("Index: " + index);
+      }
+      return new LinkIterator(snapshot, index);
+    }
+
+    private Side side(LinkStore store) {
+      return ofSample ? store.samples : store.tests;
+    }
+
+    private Side other(LinkStore store) {
+      return ofSample ? store.tests : store.samples;
+    }
+
+    /**
+     * Removes the link between the owner and the given handle on the other side
+     */
+    private void unlink(Snapshot snapshot, int linked) {
+      if (ofSample) {
+        snapshot.store.unlink(snapshot.handle, linked);
+      } else {
+        snapshot.store.unlink(linked, snapshot.handle);
+      }
+    }
+
+    /**
+     * Returns the names linked to the owner now, with the state of the links they were read at
+     */
+    private Snapshot snapshot() {
+      LinkStore store = owner.getLinkStore();
+      if (store == null) {
+        return new Snapshot(null, NO_HANDLE, 0, new int[0], new String[0]);
+      }
+      synchronized (store) {
+        int handle = owner.getHandle();
+        Side side = side(store);
+        int version = side.version(handle);
+        if (cachedNames == null || cachedStore != store || cachedHandle != handle
+            || cachedVersion != version) {
+          Side other = other(store);
+          cachedHandles = side.handlesOf(handle);
+          cachedNames = new String[cachedHandles.length];
+          for (int i = 0; i < cachedHandles.length; i++) {
+            cachedNames[i] = other.name(cachedHandles[i]);
+          }
+          cachedStore = store;
+          cachedHandle = handle;
+          cachedVersion = version;
+        }
+        return new Snapshot(store, handle, version, cachedHandles, cachedNames);
+      }
+    }
+
+    /**
+     * This class holds the names linked to the owner as read at one version of its links
+     */
+    private record Snapshot(LinkStore store, int handle, int version, int[] handles,
+                            String[] names) {
+    }
+
+    /**
+     * This class represents a fail-fast iterator over the names read at one version of the
+     * links. Removing through the iterator moves it on to the version the removal makes
+     */
+    private class LinkIterator implements ListIterator<String> {
+      private Snapshot expected;
+      private int cursor;
+      private int last = -1;
+
+      LinkIterator(Snapshot snapshot, int index) {
+        this.expected = snapshot;
+        this.cursor = index;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return cursor < expected.names.length;
+      }
+
+      @Override
+      public String next() {
+        checkForComodification();
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        last = cursor;
+        return expected.names[cursor++];
+      }
+
+      @Override
+      public boolean hasPrevious() {
+        return cursor > 0;
+      }
+
+      @Override
+      public String previous() {
+        checkForComodification();
+        if (!hasPrevious()) {
+          throw new NoSuchElementException();
+        }
+        last = --cursor;
+        return expected.names[cursor];
+      }
+
+      @Override
+      public int nextIndex() {
+        return cursor;
+      }
+
+      @Override
+      public int previousIndex() {
+        return cursor - 1;
+      }
+
+      @Override
+      public void remove() {
+        if (last < 0) {
+          throw new IllegalStateException();
+        }
+        checkForComodification();
+        synchronized (expected.store) {
+          unlink(expected, expected.handles[last]);
+          int[] handles = new int[expected.handles.length - 1];
+          String[] names = new String[handles.length];
+          System.arraycopy(expected.handles, 0, handles, 0, last);
+          System.arraycopy(expected.handles, last + 1, handles, last, handles.length - last);
+          System.arraycopy(expected.names, 0, names, 0, last);
+          System.arraycopy(expected.names, last + 1, names, last, names.length - last);
+          int version = side(expected.store).version(expected.handle);
+          expected = new Snapshot(expected.store, expected.handle, version, handles, names);
+        }
+        cursor = last;
+        last = -1;
+      }
+
+      @Override
+      public void set(String name) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void add(String name) {
+        throw new UnsupportedOperationException();
+      }
+
+      private void checkForComodification() {
+        LinkStore store = owner.getLinkStore();
+        if (store != expected.store) {
+          throw new ConcurrentModificationException();
+        }
+        if (store == null) {
+          return;
+        }
+        synchronized (store) {
+          if (owner.getHandle() != expected.handle
+              || side(store).version(expected.handle) != expected.version) {
+            throw new ConcurrentModificationException();
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,1496 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+import java.util.function.LongConsumer;
+
+/**
+ * This class implements the IModel interface for archives of millions of samples. The samples
+ * are stored off the Java heap, as fixed-width records in a memory-mapped file, and the order of
+ * the list of samples is a second memory-mapped file of record numbers. The indexes by ID and by
+ * name are open-addressing tables in temporary memory-mapped files, rebuilt when the archive is
+ * opened. A Sample read from this model is a small
+ * flyweight over its record, so the heap does not grow with the number of samples archived;
+ * the flyweight stays valid until its sample is deleted.
+ *
+ * The links of the samples are kept off the heap as well, in a third memory-mapped file: a
+ * hash multimap from the record of each sample to the numbers of its tests. The model's
+ * {@link LinkStore} is built over this table, so it keeps a bitmap for each test but nothing for
+ * each sample, and the handle of a sample is the number of its record. Adding a sample copies
+ * its record and moves its links; the Sample passed to addSample is not itself kept. Tests and
+ * equipment are few and are held on the heap as in {@link ModelImpl}. They are saved, with the
+ * number of each test, to a fourth file by {@link #force()} and {@link #close()}.
+ *
+ * The samples, their order and their links are in the mapped files as soon as each change is
+ * made, so if the process dies, reopening the archive restores them. The tests and equipment
+ * are restored as they were at the last force: tests added since then are lost with their
+ * links, and tests deleted since then come back without theirs. A link is never restored onto
+ * another test, as the numbers of tests are not reused. Only force and close write the mapped
+ * files to the device, so that they also survive a crash of the machine.
+ */
+public class MappedModelImpl implements IModel, Closeable {
+  private static final int MAGIC = 0x4C46534D;    // "LFSM"
+  private static final int LINKS_MAGIC = 0x4C46534C;    // "LFSL"
+  private static final int CATALOG_MAGIC = 0x4C465343;    // "LFSC"
+  private static final int VERSION = 1;
+  private static final int RECORD_WIDTH = 128;
+  private static final int SEGMENT_SIZE = 1 << 26;    // a multiple of RECORD_WIDTH
+
+  // layout of a record
+  private static final int ID = 0;
+  private static final int FLAGS = 4;
+  private static final int NAME_LENGTH = 6;
+  private static final int NAME = 8;
+  private static final int NAME_WIDTH = RECORD_WIDTH - NAME;
+  private static final byte LIVE = 1;
+  private static final byte HAS_ID = 2;
+
+  // layout of the header, which takes the place of record 0
+  private static final int HEADER_MAGIC = 0;
+  private static final int HEADER_VERSION = 4;
+  private static final int HEADER_RECORDS = 8;
+  private static final int HEADER_FREE = 12;
+  private static final int HEADER_SIZE = 16;
+
+  private final MappedFile records;
+  private final MappedFile order;
+  private final SampleLinks sampleLinks;
+  private final Path catalogPath;
+  private final RecordIndex recordsByID;
+  private final RecordIndex recordsByName;
+  private final LinkStore links;
+  private final ModelImpl others;   // the tests and equipment
+  private final List<Sample> samples;
+  private int recordCount;    // records in use or free, counting the header
+  private int freeRecord;     // first record of the free list, or 0 if it is empty
+  private int size;           // number of samples
+
+  /**
+   * Constructs the model over the given file, creating the file if it does not exist and
+   * otherwise reopening the samples archived in it. The order of the samples is kept in a
+   * second file named after the first with ".order" appended, the links of the samples in a
+   * third with ".links" appended, and the tests and equipment in a fourth with ".catalog"
+   * appended
+   *
+   * @param path the file to archive the samples in
+   * @throws IOException if the files cannot be opened or are not a sample archive
+   */
+  public MappedModelImpl(Path path) throws IOException {
+    this.records = new MappedFile(path);
+    this.order = new MappedFile(path.resolveSibling(path.getFileName() + ".order"));
+    this.catalogPath = path.resolveSibling(path.getFileName() + ".catalog");
+    Path directory = path.toAbsolutePath().getParent();
+    this.sampleLinks =
+        new SampleLinks(directory, path.resolveSibling(path.getFileName() + ".links"));
+    this.recordsByID = new RecordIndex(directory);
+    this.recordsByName = new RecordIndex(directory);
+    this.links = new LinkStore(this.sampleLinks);
+    this.others = new ModelImpl(this.links);
+    this.samples = new SampleList();
+
+    this.records.ensure(RECORD_WIDTH);
+    if (this.records.getInt(HEADER_MAGIC) == 0) {
+      this.records.putInt(HEADER_MAGIC, MAGIC);
+      this.records.putInt(HEADER_VERSION, VERSION);
+      this.recordCount = 1;
+      writeHeader();
+      return;
+    }
+    try {
+      if (this.records.getInt(HEADER_MAGIC) != MAGIC
+          || this.records.getInt(HEADER_VERSION) != VERSION) {
+        throw new IOException("Not a LabFlow sample archive: " + path);
+      }
+      this.recordCount = this.records.getInt(HEADER_RECORDS);
+      this.freeRecord = this.records.getInt(HEADER_FREE);
+      this.size = this.records.getInt(HEADER_SIZE);
+      this.records.ensure((long) this.recordCount * RECORD_WIDTH);
+      this.order.ensure((long) this.size * 4);
+      for (int i = 0; i < this.size; i++) {
+        index(orderAt(i));
+      }
+      if (Files.exists(this.catalogPath)) {
+        readCatalog();
+      }
+      this.sampleLinks.restore();
+    } catch (IOException | RuntimeException e) {
+      closeFiles();
+      throw e;
+    }
+  }
+
+  /**
+   * Adds a sample to the IModel dashboard by copying its ID and name into a new record, and
+   * moving its links to the record
+   *
+   * @param sample the sample to be added to the IModel dashboard
+   * @throws IllegalArgumentException if a sample with the same ID is already in the dashboard,
+   *                                  if the sample's name is too long for a record, or if the
+   *                                  sample is in another dashboard
+   */
+  @Override
+  public void addSample(Sample sample) {
+    Integer sampleID = sample.getSampleID();
+    if (sampleID != null && findRecordById(sampleID) != 0) {
+      throw new IllegalArgumentException("Duplicate sample ID: " + sampleID);
+    }
+    String name = sample.getSampleName();
+    byte[] bytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    if (bytes != null && bytes.length > NAME_WIDTH) {
+      throw new IllegalArgumentException("Sample name too long: " + name);
+    }
+    boolean linked = LinkStore.of(sample) != null;
+    if (linked) {
+      this.links.addSample(sample);
+    }
+
+    int record = allocateRecord();
+    long offset = offset(record);
+    this.records.putInt(offset + ID, sampleID == null ? 0 : sampleID);
+    this.records.put(offset + FLAGS, sampleID == null ? LIVE : LIVE | HAS_ID);
+    this.records.putShort(offset + NAME_LENGTH, (short) (bytes == null ? -1 : bytes.length));
+    if (bytes != null) {
+      this.records.put(offset + NAME, bytes);
+    }
+
+    ensureOrder(this.size + 1);
+    setOrderAt(this.size++, record);
+    writeHeader();
+    index(record);
+
+    if (linked) {
+      int[] tests = this.links.testHandlesOf(sample.getHandle());
+      if (tests.length > 0) {
+        this.links.linkAll(new int[]{record}, tests);
+      }
+      if (!(sample instanceof MappedSample)) {
+        this.links.removeSample(sample);
+      }
+    }
+  }
+
+  /**
+   * Deletes a sample from the IModel dashboard at the given index, and
+   * deletes the sample from the tests that contain the sample
+   *
+   * @param index the index of the sample to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteSample(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IllegalArgumentException("Invalid index");
+    }
+
+    releaseRecord(orderAt(index));
+    for (int i = index + 1; i < this.size; i++) {
+      setOrderAt(i - 1, orderAt(i));
+    }
+    this.size--;
+    writeHeader();
+  }
+
+  /**
+   * Deletes the samples at the given indices from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. The indices refer to the list of samples before
+   * any of them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the samples to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteSamples(int[] indices) {
+    boolean[] marked = new boolean[this.size];
+    for (int index : indices) {
+      if (index < 0 || index >= this.size) {
+        throw new IllegalArgumentException("Invalid index");
+      }
+      marked[index] = true;
+    }
+
+    int kept = 0;
+    for (int i = 0; i < marked.length; i++) {
+      int record = orderAt(i);
+      if (marked[i]) {
+        releaseRecord(record);
+      } else {
+        setOrderAt(kept++, record);
+      }
+    }
+    this.size = kept;
+    writeHeader();
+  }
+
+  /**
+   * Deletes the samples with the given IDs from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. IDs that no sample has are skipped
+   *
+   * @param sampleIDs the IDs of the samples to be deleted
+   * @return the number of samples deleted
+   */
+  @Override
+  public int deleteSamplesById(int[] sampleIDs) {
+    IntHashMap<Boolean> doomed = new IntHashMap<>();
+    for (int sampleID : sampleIDs) {
+      int record = findRecordById(sampleID);
+      if (record != 0) {
+        doomed.put(record, Boolean.TRUE);
+      }
+    }
+    if (doomed.size() == 0) {
+      return 0;
+    }
+
+    int kept = 0;
+    for (int i = 0; i < this.size; i++) {
+      int record = orderAt(i);
+      if (doomed.containsKey(record)) {
+        releaseRecord(record);
+      } else {
+        setOrderAt(kept++, record);
+      }
+    }
+    this.size = kept;
+    writeHeader();
+    return doomed.size();
+  }
+
+  /**
+   * Takes the ID of a sample and returns the sample with that ID
+   *
+   * @param sampleID the ID (a six digit integer) of the sample of interest
+   * @return the sample with the given ID, or null if there is no such sample
+   */
+  @Override
+  public Sample findSampleById(int sampleID) {
+    int record = findRecordById(sampleID);
+    return record == 0 ? null : new MappedSample(record);
+  }
+
+  /**
+   * Adds equipment to the IModel dashboard
+   *
+   * @param equipment the equipment to be added to the IModel dashboard
+   */
+  @Override
+  public void addEquipment(Equipment equipment) {
+    this.others.addEquipment(equipment);
+  }
+
+  /**
+   * Deletes equipment from the IModel dashboard at the given index
+   *
+   * @param index the index of the equipment to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteEquipment(int index) {
+    this.others.deleteEquipment(index);
+  }
+
+  /**
+   * Deletes the equipment at the given indices from the IModel dashboard in one pass
+   *
+   * @param indices the indices of the equipment to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteEquipment(int[] indices) {
+    this.others.deleteEquipment(indices);
+  }
+
+  /**
+   * Adds a test to the IModel dashboard
+   *
+   * @param test the test to be added to the IModel dashboard
+   */
+  @Override
+  public void addTest(LabTest test) {
+    this.others.addTest(test);
+  }
+
+  /**
+   * Deletes a test from the IModel dashboard at the given index, and
+   * deletes the test from the samples that require the test
+   *
+   * @param index the index of the test to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteTest(int index) {
+    this.others.deleteTest(index);
+  }
+
+  /**
+   * Deletes the tests at the given indices from the IModel dashboard in one pass, and deletes the
+   * tests from the samples that require them
+   *
+   * @param indices the indices of the tests to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteTests(int[] indices) {
+    this.others.deleteTests(indices);
+  }
+
+  /**
+   * Returns a read-only view of the samples in the IModel dashboard. Each read of an element
+   * returns a new flyweight over the sample's record
+   *
+   * @return list of samples in the IModel dashboard
+   */
+  @Override
+  public List<Sample> getListOfSamples() {
+    return this.samples;
+  }
+
+  /**
+   * Returns the current list of equipment in the IModel dashboard
+   *
+   * @return list of equipment in the IModel dashboard
+   */
+  @Override
+  public List<Equipment> getListOfEquipment() {
+    return this.others.getListOfEquipment();
+  }
+
+  /**
+   * Returns the current list of tests in the IModel dashboard
+   *
+   * @return list of tests in the IModel dashboard
+   */
+  @Override
+  public List<LabTest> getListOfTests() {
+    return this.others.getListOfTests();
+  }
+
+  /**
+   * Sorts the list of samples in the IModel dashboard by ID. Only the record numbers in the
+   * order file are moved; the records stay where they are
+   */
+  @Override
+  public void sortSamplesByID() {
+    long[] sorted = recordsOrderedByID();
+    for (int i = 0; i < sorted.length; i++) {
+      setOrderAt(i, (int) sorted[i]);
+    }
+  }
+
+  /**
+   * Sorts the list of equipment in the IModel dashboard by remaining number of days
+   * until service is due
+   */
+  @Override
+  public void sortEquipmentByServiceUrgency() {
+    this.others.sortEquipmentByServiceUrgency();
+  }
+
+  /**
+   * Sorts the list of tests in the IModel dashboard by one of two enumerated types; DURATION or
+   * NUMBER_OF_SAMPLES
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   */
+  @Override
+  public void sortTestsByPriority(TestPriority priority) {
+    this.others.sortTestsByPriority(priority);
+  }
+
+  /**
+   * Returns the samples in the IModel dashboard in ascending order of ID. The samples are not
+   * kept in an ordered index, as that would not fit off the heap, so each call sorts the IDs
+   *
+   * @return the samples in ascending order of ID
+   */
+  @Override
+  public Iterable<Sample> getSamplesOrderedByID() {
+    long[] sorted = recordsOrderedByID();
+    return new AbstractList<Sample>() {
+      @Override
+      public Sample get(int index) {
+        return new MappedSample((int) sorted[index]);
+      }
+
+      @Override
+      public int size() {
+        return sorted.length;
+      }
+    };
+  }
+
+  /**
+   * Returns a read-only view of the equipment in the IModel dashboard in ascending order of the
+   * number of days until service is due
+   *
+   * @return the equipment, most urgent first
+   */
+  @Override
+  public Iterable<Equipment> getEquipmentOrderedByServiceUrgency() {
+    return this.others.getEquipmentOrderedByServiceUrgency();
+  }
+
+  /**
+   * Returns the k pieces of equipment whose service is most urgent, most urgent first
+   *
+   * @param k the number of pieces of equipment to return
+   * @return list of at most k pieces of equipment with the fewest days until service is due
+   * @throws IllegalArgumentException if k is negative
+   */
+  @Override
+  public List<Equipment> mostUrgentEquipment(int k) {
+    return this.others.mostUrgentEquipment(k);
+  }
+
+  /**
+   * Returns the equipment whose service is due within the given range of days, most urgent first
+   *
+   * @param fromDays the lowest number of days until service is due to include
+   * @param toDays   the highest number of days until service is due to include
+   * @return list of equipment due from fromDays to toDays days from now, inclusive
+   * @throws IllegalArgumentException if fromDays is greater than toDays
+   */
+  @Override
+  public List<Equipment> equipmentDueWithin(int fromDays, int toDays) {
+    return this.others.equipmentDueWithin(fromDays, toDays);
+  }
+
+  /**
+   * Returns a read-only view of the tests in the IModel dashboard in ascending order of one of
+   * two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   * @return the tests in ascending order of the given priority
+   */
+  @Override
+  public Iterable<LabTest> getTestsOrderedByPriority(TestPriority priority) {
+    return this.others.getTestsOrderedByPriority(priority);
+  }
+
+  /**
+   * Takes the name of a sample and the name of a test and adds the test to the sample
+   *
+   * @param sampleName name of the sample to add a test to
+   * @param testName   name of test to be added to the sample
+   */
+  @Override
+  public void addTestToSample(String sampleName, String testName) {
+    assignTests(Collections.singletonList(testName), Collections.singletonList(sampleName));
+  }
+
+  /**
+   * Takes a collection of names of tests and a collection of names of samples and adds every test
+   * to every sample. Each name is looked up once, and pairs that are already linked are skipped
+   *
+   * @param testNames   names of the tests to be added to the samples
+   * @param sampleNames names of the samples to add the tests to
+   * @return the number of tests newly added to samples
+   */
+  @Override
+  public int assignTests(Collection<String> testNames, Collection<String> sampleNames) {
+    int[] testHandles = this.others.testHandles(testNames);
+    if (testHandles.length == 0) {
+      return 0;
+    }
+
+    int[] sampleHandles = new int[sampleNames.size()];
+    int samples = 0;
+    for (String name : new LinkedHashSet<>(sampleNames)) {
+      for (int record : recordsNamed(name)) {
+        if (samples == sampleHandles.length) {
+          sampleHandles = Arrays.copyOf(sampleHandles, samples * 2);
+        }
+        sampleHandles[samples++] = record;
+      }
+    }
+    return this.others.assignTests(Arrays.copyOf(sampleHandles, samples), testHandles);
+  }
+
+  /**
+   * Takes the name of a sample and returns a copy of list of the names of test for the sample
+   *
+   * @param sampleName the name of the sample of interest
+   * @return List of names of tests requested for the sample
+   */
+  @Override
+  public List<String> getTestsForSample(String sampleName) {
+    List<String> tests = new ArrayList<>();
+    for (int record : recordsNamed(sampleName)) {
+      tests.addAll(new MappedSample(record).getListOfTests());
+    }
+    return tests;
+  }
+
+  /**
+   * Takes the name of a test and returns a copy of list of the names of samples for the test
+   *
+   * @param testName the name of the sample of interest
+   * @return List of names of samples that require this test
+   */
+  @Override
+  public List<String> getSamplesForTest(String testName) {
+    return this.others.getSamplesForTest(testName);
+  }
+
+  /**
+   * Takes the name of an equipment and returns its service urgency
+   *
+   * @param equipmentName names of equipment
+   * @return number of days until next service is due
+   */
+  @Override
+  public int getEquipmentInfo(String equipmentName) {
+    return this.others.getEquipmentInfo(equipmentName);
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a sample with the given name
+   *
+   * @param sampleName the name of the sample of interest
+   * @return true if there is at least one sample with that name, false otherwise
+   */
+  @Override
+  public boolean containsSample(String sampleName) {
+    return recordsNamed(sampleName).length > 0;
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a test with the given name
+   *
+   * @param testName the name of the test of interest
+   * @return true if there is at least one test with that name, false otherwise
+   */
+  @Override
+  public boolean containsTest(String testName) {
+    return this.others.containsTest(testName);
+  }
+
+  /**
+   * Returns a list of names of the samples in the exact order of the list of samples
+   *
+   * @return List of names of samples
+   */
+  @Override
+  public List<String> getListOfNamesOfSamples() {
+    List<String> namesOfSamples = new ArrayList<>(this.size);
+    for (int i = 0; i < this.size; i++) {
+      namesOfSamples.add(nameOf(orderAt(i)));
+    }
+    return namesOfSamples;
+  }
+
+  /**
+   * Returns a list of names of the tests in the exact order of the list of tests
+   *
+   * @return List of names of tests
+   */
+  @Override
+  public List<String> getListOfNamesOfTests() {
+    return this.others.getListOfNamesOfTests();
+  }
+
+  /**
+   * Returns a list of names of the equipment in the exact order of the list of equipment
+   *
+   * @return List of names of equipment
+   */
+  @Override
+  public List<String> getListOfNamesOfEquipment() {
+    return this.others.getListOfNamesOfEquipment();
+  }
+
+  /**
+   * Deletes all samples from the list of samples, and reuses the whole archive from the start
+   */
+  @Override
+  public void clearSamples() {
+    for (int i = 0; i < this.size; i++) {
+      this.links.releaseSample(orderAt(i));
+    }
+    this.recordsByID.clear();
+    this.recordsByName.clear();
+    this.recordCount = 1;
+    this.freeRecord = 0;
+    this.size = 0;
+    writeHeader();
+  }
+
+  /**
+   * Deletes all tests from the list of tests, and from the samples that require them
+   */
+  @Override
+  public void clearTests() {
+    this.others.clearTests();
+  }
+
+  /**
+   * Deletes all equipment from the list of equipment
+   */
+  @Override
+  public void clearEquipment() {
+    this.others.clearEquipment();
+  }
+
+  /**
+   * Writes every change to the archive through to the device, and saves the tests and equipment
+   *
+   * @throws UncheckedIOException if the tests and equipment cannot be saved
+   */
+  public void force() {
+    try {
+      flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Forces every change to disk, closes the archive and deletes the temporary index files. The
+   * model must not be used afterwards
+   *
+   * @throws IOException if the tests and equipment cannot be saved or the files cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      closeFiles();
+    }
+  }
+
+  /**
+   * Closes the archive and deletes the temporary index files
+   *
+   * @throws IOException if the files cannot be closed
+   */
+  private void closeFiles() throws IOException {
+    try {
+      this.records.close();
+      this.order.close();
+      this.sampleLinks.close();
+    } finally {
+      this.recordsByID.close();
+      this.recordsByName.close();
+    }
+  }
+
+  /**
+   * Writes the records, the order and the links to the device, then the tests, with the number
+   * of each, and the equipment to the catalog. The catalog is written under a temporary name and
+   * moved into place, so the file is always whole
+   * @throws IOException if the catalog cannot be written
+   */
+  private void flush() throws IOException {
+    this.records.force();
+    this.order.force();
+    this.sampleLinks.force();
+
+    Path temporary = this.catalogPath.resolveSibling(this.catalogPath.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      List<LabTest> tests = this.others.getListOfTests();
+      out.writeInt(CATALOG_MAGIC);
+      out.writeInt(this.sampleLinks.nextNumber);
+      out.writeInt(tests.size());
+      for (LabTest test : tests) {
+        writeString(out, test.getTestName());
+        writeInteger(out, test.getTestDuration());
+        out.writeInt(this.sampleLinks.numberOf(test.getHandle()));
+      }
+      List<Equipment> equipment = this.others.getListOfEquipment();
+      out.writeInt(equipment.size());
+      for (Equipment piece : equipment) {
+        writeString(out, piece.getEquipmentName());
+        writeInteger(out, piece.getServiceUrgency());
+      }
+      out.flush();
+      channel.force(false);
+    }
+    Files.move(temporary, this.catalogPath, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Adds the tests and equipment in the catalog to the model, with the number of each test
+   * @throws IOException if the file cannot be read or is not a catalog
+   */
+  private void readCatalog() throws IOException {
+    try (DataInputStream in =
+             new DataInputStream(new BufferedInputStream(Files.newInputStream(this.catalogPath)))) {
+      if (in.readInt() != CATALOG_MAGIC) {
+        throw new IOException("Not a LabFlow catalog: " + this.catalogPath);
+      }
+      this.sampleLinks.nextNumber = in.readInt();
+      int tests = in.readInt();
+      for (int i = 0; i < tests; i++) {
+        LabTest test = new LabTestImpl(readString(in), readInteger(in));
+        this.others.addTest(test);
+        int number = in.readInt();
+        if (number != 0) {
+          this.sampleLinks.number(test.getHandle(), number);
+        }
+      }
+      int equipment = in.readInt();
+      for (int i = 0; i < equipment; i++) {
+        this.others.addEquipment(new EquipmentImpl(readString(in), readInteger(in)));
+      }
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeInt(value);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static Integer readInteger(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readInt() : null;
+  }
+
+  /**
+   * Returns the name of the sample in the given record
+   * @param record the record of the sample
+   * @return the name of the sample
+   */
+  private String nameOf(int record) {
+    long offset = offset(record);
+    int length = this.records.getShort(offset + NAME_LENGTH);
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    this.records.get(offset + NAME, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the ID of the sample in the given record
+   * @param record the record of the sample
+   * @return the ID of the sample, or null if it has none
+   */
+  private Integer idOf(int record) {
+    long offset = offset(record);
+    if ((this.records.get(offset + FLAGS) & HAS_ID) == 0) {
+      return null;
+    }
+    return this.records.getInt(offset + ID);
+  }
+
+  /**
+   * Returns the record of the sample with the given ID
+   * @param sampleID the ID to look for
+   * @return the record of the sample, or 0 if there is no such sample
+   */
+  private int findRecordById(int sampleID) {
+    int[] found = {0};
+    this.recordsByID.forEach(sampleID, record -> {
+      if (this.records.getInt(offset(record) + ID) == sampleID) {
+        found[0] = record;
+        return false;
+      }
+      return true;
+    });
+    return found[0];
+  }
+
+  /**
+   * Returns the records of the samples with the given name
+   * @param name the name to look for
+   * @return array of records, usually of one sample
+   */
+  private int[] recordsNamed(String name) {
+    int[][] found = {new int[1]};
+    int[] count = {0};
+    this.recordsByName.forEach(Objects.hashCode(name), record -> {
+      if (Objects.equals(nameOf(record), name)) {
+        if (count[0] == found[0].length) {
+          found[0] = Arrays.copyOf(found[0], count[0] * 2);
+        }
+        found[0][count[0]++] = record;
+      }
+      return true;
+    });
+    return Arrays.copyOf(found[0], count[0]);
+  }
+
+  /**
+   * Returns the records of the samples sorted by ID, in the low 32 bits of each element;
+   * samples without an ID come first
+   * @return array of records in ascending order of ID
+   */
+  private long[] recordsOrderedByID() {
+    long[] keys = new long[this.size];
+    for (int i = 0; i < keys.length; i++) {
+      int record = orderAt(i);
+      Integer sampleID = idOf(record);
+      long key = sampleID == null ? Integer.MIN_VALUE : sampleID;
+      keys[i] = key << 32 | record;
+    }
+    Arrays.sort(keys);
+    return keys;
+  }
+
+  /**
+   * Adds the given record to the indexes by ID and by name
+   * @param record the record to index
+   */
+  private void index(int record) {
+    Integer sampleID = idOf(record);
+    if (sampleID != null) {
+      this.recordsByID.add(sampleID, record);
+    }
+    this.recordsByName.add(Objects.hashCode(nameOf(record)), record);
+  }
+
+  /**
+   * Removes the links and index entries of the sample in the given record, and frees the record
+   * @param record the record of the deleted sample
+   */
+  private void releaseRecord(int record) {
+    long offset = offset(record);
+    this.links.releaseSample(record);
+    Integer sampleID = idOf(record);
+    if (sampleID != null) {
+      this.recordsByID.remove(sampleID, record);
+    }
+    this.recordsByName.remove(Objects.hashCode(nameOf(record)), record);
+
+    // a free record holds the next free record in place of its ID
+    this.records.put(offset + FLAGS, (byte) 0);
+    this.records.putInt(offset + ID, this.freeRecord);
+    this.freeRecord = record;
+  }
+
+  /**
+   * Returns a free record, growing the archive if there is none
+   * @return the number of the record
+   */
+  private int allocateRecord() {
+    if (this.freeRecord != 0) {
+      int record = this.freeRecord;
+      this.freeRecord = this.records.getInt(offset(record) + ID);
+      return record;
+    }
+    if (this.recordCount == LinkStore.RECORD_LIMIT) {
+      throw new IllegalStateException("Sample archive is full");
+    }
+    this.records.ensure((long) (this.recordCount + 1) * RECORD_WIDTH);
+    return this.recordCount++;
+  }
+
+  private void writeHeader() {
+    this.records.putInt(HEADER_RECORDS, this.recordCount);
+    this.records.putInt(HEADER_FREE, this.freeRecord);
+    this.records.putInt(HEADER_SIZE, this.size);
+  }
+
+  private int orderAt(int index) {
+    return this.order.getInt((long) index * 4);
+  }
+
+  private void setOrderAt(int index, int record) {
+    this.order.putInt((long) index * 4, record);
+  }
+
+  private void ensureOrder(int size) {
+    this.order.ensure((long) size * 4);
+  }
+
+  private static long offset(int record) {
+    return (long) record * RECORD_WIDTH;
+  }
+
+  /**
+   * This class represents a read-only list view of the samples, in the order of the order file
+   */
+  private class SampleList extends AbstractList<Sample> implements RandomAccess {
+    @Override
+    public Sample get(int index) {
+      Objects.checkIndex(index, MappedModelImpl.this.size);
+      return new MappedSample(orderAt(index));
+    }
+
+    @Override
+    public int size() {
+      return MappedModelImpl.this.size;
+    }
+  }
+
+  /**
+   * This class implements the Sample interface as a flyweight over one record of the archive.
+   * Two flyweights over the same record are equal
+   */
+  private class MappedSample implements Sample, LinkStore.Member {
+    private final int record;
+
+    MappedSample(int record) {
+      this.record = record;
+    }
+
+    @Override
+    public String getSampleName() {
+      return nameOf(this.record);
+    }
+
+    @Override
+    public Integer getSampleID() {
+      return idOf(this.record);
+    }
+
+    @Override
+    public int getHandle() {
+      return this.record;
+    }
+
+    @Override
+    public LinkStore getLinkStore() {
+      return MappedModelImpl.this.links;
+    }
+
+    @Override
+    public void bind(LinkStore store, int handle) {
+      // a record keeps its handle for as long as it is in the archive
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> getListOfTests() {
+      return LinkStore.testsOf(this);
+    }
+
+    @Override
+    public void addTestToSample(LabTest test) {
+      Objects.requireNonNull(test);
+      LinkStore.link(this, test);
+    }
+
+    @Override
+    public void deleteTestFromSample(LabTest test) {
+      Objects.requireNonNull(test);
+      LinkStore.unlink(this, test);
+    }
+
+    @Override
+    public int compareByID(Sample s) {
+      Objects.requireNonNull(s);
+      return this.getSampleID().compareTo(s.getSampleID());
+    }
+
+    private MappedModelImpl model() {
+      return MappedModelImpl.this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof MappedSample other && other.model() == model()
+          && other.record == this.record;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.record;
+    }
+
+    @Override
+    public String toString() {
+      return this.getSampleName();
+    }
+  }
+
+  /**
+   * This class represents the links of the samples, as a saved RecordIndex from the record of
+   * each sample to the numbers of its tests. A test is given a number when it is first linked to
+   * a sample, and numbers are never reused, so that a link read back after a crash names the
+   * test it was made to or a test that is gone
+   */
+  private class SampleLinks implements LinkStore.SampleRecords, Closeable {
+    private final RecordIndex table;
+    private final IntHashMap<Integer> numberOfHandle = new IntHashMap<>();
+    private final IntHashMap<Integer> handleOfNumber = new IntHashMap<>();
+    private int nextNumber = 1;
+    private boolean restoring;    // whether the links told to the store are already in the table
+
+    SampleLinks(Path directory, Path file) throws IOException {
+      this.table = new RecordIndex(directory, file);
+    }
+
+    /**
+     * Returns the number of the test with the given handle
+     * @return the number, or 0 if the test has never been linked to a sample
+     */
+    int numberOf(int test) {
+      Integer number = this.numberOfHandle.get(test);
+      return number == null ? 0 : number;
+    }
+
+    /**
+     * Gives the test with the given handle the number it was saved with
+     */
+    void number(int test, int number) {
+      this.numberOfHandle.put(test, number);
+      this.handleOfNumber.put(number, test);
+    }
+
+    /**
+     * Tells the store of every link in the table between a sample and a known test, and removes
+     * the links of records and tests that are gone, as a crash may leave behind
+     */
+    void restore() {
+      long[][] gone = {new long[16]};
+      int[] count = {0};
+      this.restoring = true;
+      try {
+        this.table.forEach(entry -> {
+          int record = (int) (entry >>> 32);
+          Integer test = this.handleOfNumber.get((int) entry);
+          if (test != null && sample(record) != null) {
+            MappedModelImpl.this.links.link(record, test);
+          } else {
+            if (count[0] == gone[0].length) {
+              gone[0] = Arrays.copyOf(gone[0], count[0] * 2);
+            }
+            gone[0][count[0]++] = entry;
+          }
+        });
+      } finally {
+        this.restoring = false;
+      }
+      for (int i = 0; i < count[0]; i++) {
+        this.table.remove((int) (gone[0][i] >>> 32), (int) gone[0][i]);
+      }
+    }
+
+    @Override
+    public Sample sample(int record) {
+      return record < MappedModelImpl.this.recordCount
+          && (MappedModelImpl.this.records.get(offset(record) + FLAGS) & LIVE) != 0
+          ? new MappedSample(record) : null;
+    }
+
+    @Override
+    public boolean link(int record, int test) {
+      if (this.restoring) {
+        return true;
+      }
+      Integer number = this.numberOfHandle.get(test);
+      if (number == null) {
+        if (this.nextNumber == Integer.MAX_VALUE) {
+          throw new IllegalStateException("Out of test numbers");
+        }
+        number = this.nextNumber++;
+        number(test, number);
+      }
+      if (this.table.contains(record, number)) {
+        return false;
+      }
+      this.table.add(record, number);
+      return true;
+    }
+
+    @Override
+    public boolean unlink(int record, int test) {
+      Integer number = this.numberOfHandle.get(test);
+      return number != null && this.table.remove(record, number);
+    }
+
+    @Override
+    public boolean isLinked(int record, int test) {
+      Integer number = this.numberOfHandle.get(test);
+      return number != null && this.table.contains(record, number);
+    }
+
+    @Override
+    public int[] tests(int record) {
+      int[][] tests = {new int[4]};
+      int[] count = {0};
+      this.table.forEach(record, number -> {
+        Integer test = this.handleOfNumber.get(number);
+        if (test != null) {
+          if (count[0] == tests[0].length) {
+            tests[0] = Arrays.copyOf(tests[0], count[0] * 2);
+          }
+          tests[0][count[0]++] = test;
+        }
+        return true;
+      });
+      int[] sorted = Arrays.copyOf(tests[0], count[0]);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+
+    void force() {
+      this.table.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.table.close();
+    }
+  }
+
+  /**
+   * This class represents a file mapped into memory in fixed-size segments, which are added as
+   * the file grows
+   */
+  private static class MappedFile implements Closeable {
+    private final FileChannel channel;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    MappedFile(Path path) throws IOException {
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      ensure(this.channel.size());
+    }
+
+    /**
+     * Maps enough segments to cover the given number of bytes, growing the file if needed
+     */
+    void ensure(long bytes) {
+      while ((long) this.segments.length * SEGMENT_SIZE < bytes) {
+        try {
+          MappedByteBuffer segment = this.channel.map(FileChannel.MapMode.READ_WRITE,
+              (long) this.segments.length * SEGMENT_SIZE, SEGMENT_SIZE);
+          this.segments = Arrays.copyOf(this.segments, this.segments.length + 1);
+          this.segments[this.segments.length - 1] = segment;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
+    int getInt(long position) {
+      return segment(position).getInt((int) (position % SEGMENT_SIZE));
+    }
+
+    void putInt(long position, int value) {
+      segment(position).putInt((int) (position % SEGMENT_SIZE), value);
+    }
+
+    long getLong(long position) {
+      return segment(position).getLong((int) (position % SEGMENT_SIZE));
+    }
+
+    void putLong(long position, long value) {
+      segment(position).putLong((int) (position % SEGMENT_SIZE), value);
+    }
+
+    short getShort(long position) {
+      return segment(position).getShort((int) (position % SEGMENT_SIZE));
+    }
+
+    void putShort(long position, short value) {
+      segment(position).putShort((int) (position % SEGMENT_SIZE), value);
+    }
+
+    byte get(long position) {
+      return segment(position).get((int) (position % SEGMENT_SIZE));
+    }
+
+    void put(long position, byte value) {
+      segment(position).put((int) (position % SEGMENT_SIZE), value);
+    }
+
+    /**
+     * Reads bytes that lie within one segment, as every record does
+     */
+    void get(long position, byte[] bytes) {
+      segment(position).get((int) (position % SEGMENT_SIZE), bytes);
+    }
+
+    void put(long position, byte[] bytes) {
+      segment(position).put((int) (position % SEGMENT_SIZE), bytes);
+    }
+
+    void force() {
+      for (MappedByteBuffer segment : this.segments) {
+        segment.force();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.channel.close();
+    }
+
+    private MappedByteBuffer segment(long position) {
+      return this.segments[(int) (position / SEGMENT_SIZE)];
+    }
+  }
+
+  /**
+   * This class represents a hash multimap from an int key to int values, such as record numbers,
+   * held in a memory-mapped file so that it takes neither heap nor direct memory. Each entry
+   * packs the key and the value into a long, so the table can be probed and rearranged without
+   * reading the records. Keys may repeat, and callers check each value found. An index is
+   * either temporary, in a file deleted when it is closed, or saved in a file that is kept, with
+   * a header, and reopened by the next run
+   */
+  private static class RecordIndex implements Closeable {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int HEADER = 8;    // magic and capacity of a saved index
+
+    private final Path directory;
+    private final Path saved;    // the file of a saved index, or null if it is temporary
+    private Path file;
+    private MappedFile table;
+    private int capacity;
+    private int count;
+
+    /**
+     * Constructs an empty temporary index in the given directory
+     */
+    RecordIndex(Path directory) throws IOException {
+      this.directory = directory;
+      this.saved = null;
+      allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Opens the index saved in the given file, creating it if it does not exist
+     */
+    RecordIndex(Path directory, Path saved) throws IOException {
+      this.directory = directory;
+      this.saved = saved;
+      this.file = saved;
+      this.table = new MappedFile(saved);
+      this.table.ensure(HEADER);
+      if (this.table.getInt(0) == 0) {
+        this.capacity = INITIAL_CAPACITY;
+        this.table.ensure(HEADER + (long) this.capacity * 8);
+        this.table.putInt(4, this.capacity);
+        this.table.putInt(0, LINKS_MAGIC);
+        return;
+      }
+      this.capacity = this.table.getInt(4);
+      if (this.table.getInt(0) != LINKS_MAGIC || Integer.bitCount(this.capacity) != 1) {
+        this.table.close();
+        throw new IOException("Not a LabFlow links file: " + saved);
+      }
+      this.table.ensure(HEADER + (long) this.capacity * 8);
+      forEach(entry -> this.count++);
+    }
+
+    void add(int key, int value) {
+      if ((this.count + 1) * 2L > this.capacity) {
+        grow();
+      }
+      insert(this.table, base(), this.capacity, entry(key, value));
+      this.count++;
+    }
+
+    /**
+     * Removes one entry of the given key and value
+     * @return true if the entry was removed, false if there was none
+     */
+    boolean remove(int key, int value) {
+      long entry = entry(key, value);
+      int mask = this.capacity - 1;
+      int i = home(key, mask);
+      while (get(i) != entry) {
+        if (get(i) == 0) {
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+
+      // shift back the entries after the removed one that would no longer be found
+      int j = i;
+      while (true) {
+        put(i, 0);
+        long next;
+        int k;
+        do {
+          j = (j + 1) & mask;
+          next = get(j);
+          if (next == 0) {
+            this.count--;
+            return true;
+          }
+          k = home((int) (next >>> 32), mask);
+        } while (i <= j ? i < k && k <= j : i < k || k <= j);
+        put(i, next);
+        i = j;
+      }
+    }
+
+    /**
+     * Returns whether there is an entry of the given key and value
+     */
+    boolean contains(int key, int value) {
+      boolean[] found = {false};
+      forEach(key, v -> {
+        found[0] = v == value;
+        return !found[0];
+      });
+      return found[0];
+    }
+
+    /**
+     * Passes every value stored under the given key to the action, until it returns false
+     */
+    void forEach(int key, IntPredicate action) {
+      int mask = this.capacity - 1;
+      for (int i = home(key, mask); ; i = (i + 1) & mask) {
+        long entry = get(i);
+        if (entry == 0) {
+          return;
+        }
+        if ((int) (entry >>> 32) == key && !action.test((int) entry)) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Passes every entry, with its key in the upper 32 bits and its value in the lower, to the
+     * action
+     */
+    void forEach(LongConsumer action) {
+      for (int i = 0; i < this.capacity; i++) {
+        long entry = get(i);
+        if (entry != 0) {
+          action.accept(entry);
+        }
+      }
+    }
+
+    void clear() {
+      try {
+        close();
+        allocate(INITIAL_CAPACITY);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      this.count = 0;
+    }
+
+    void force() {
+      this.table.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        this.table.close();
+      } finally {
+        if (this.saved == null) {
+          Files.deleteIfExists(this.file);
+        }
+      }
+    }
+
+    /**
+     * Rehashes the entries into a table twice as large. A saved index is rehashed into a new
+     * file that is then moved over the old one, so the file always holds a whole table
+     */
+    private void grow() {
+      MappedFile old = this.table;
+      Path oldFile = this.file;
+      int oldCapacity = this.capacity;
+      long oldBase = base();
+      try {
+        allocate(oldCapacity * 2);
+        for (int i = 0; i < oldCapacity; i++) {
+          long entry = old.getLong(oldBase + (long) i * 8);
+          if (entry != 0) {
+            insert(this.table, base(), this.capacity, entry);
+          }
+        }
+        old.close();
+        if (this.saved == null) {
+          Files.deleteIfExists(oldFile);
+        } else {
+          Files.move(this.file, this.saved, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+          this.file = this.saved;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void allocate(int capacity) throws IOException {
+      if (this.saved == null) {
+        this.file = Files.createTempFile(this.directory, "labflow", ".index");
+      } else {
+        this.file = this.saved.resolveSibling(this.saved.getFileName() + ".tmp");
+        Files.deleteIfExists(this.file);
+      }
+      this.table = new MappedFile(this.file);
+      this.table.ensure(base() + (long) capacity * 8);
+      if (this.saved != null) {
+        this.table.putInt(0, LINKS_MAGIC);
+        this.table.putInt(4, capacity);
+      }
+      this.capacity = capacity;
+    }
+
+    private long base() {
+      return this.saved == null ? 0 : HEADER;
+    }
+
+    private long get(int i) {
+      return this.table.getLong(base() + (long) i * 8);
+    }
+
+    private void put(int i, long entry) {
+      this.table.putLong(base() + (long) i * 8, entry);
+    }
+
+    private static void insert(MappedFile table, long base, int capacity, long entry) {
+      int mask = capacity - 1;
+      int i = home((int) (entry >>> 32), mask);
+      while (table.getLong(base + (long) i * 8) != 0) {
+        i = (i + 1) & mask;
+      }
+      table.putLong(base + (long) i * 8, entry);
+    }
+
+    private static long entry(int key, int value) {
+      return (long) key << 32 | value;
+    }
+
+    private static int home(int key, int mask) {
+      int h = key * 0x9E3779B9;
+      return (h ^ (h >>> 16)) & mask;
+    }
+  }
+}
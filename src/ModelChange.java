@@ -0,0 +1,159 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class represents one change to an IModel, as reported by an ObservableModel.
+ *
+ * An INSERTED change gives the indices of items added, always a run at the end of a list; a
+ * REMOVED change gives the indices the removed items had before the change, in increasing order;
+ * a MOVED change gives, for each index of a list after it was sorted, the index the item at it
+ * had before. A LINKED or UNLINKED change gives names of samples and names of tests, every one
+ * of the samples having been linked to or unlinked from every one of the tests. A removed item
+ * is unlinked from everything it was linked to, reported just before it is removed
+ */
+public class ModelChange {
+  private final ChangeKind kind;
+  private final ModelEntity entity;
+  private final int first;
+  private final int count;
+  private final int[] indices;
+  private final List<String> samples;
+  private final List<String> tests;
+
+  private ModelChange(ChangeKind kind, ModelEntity entity, int first, int count, int[] indices,
+                      List<String> samples, List<String> tests) {
+    this.kind = kind;
+    this.entity = entity;
+    this.first = first;
+    this.count = count;
+    this.indices = indices;
+    this.samples = samples;
+    this.tests = tests;
+  }
+
+  /**
+   * Returns a change adding items at the end of a list
+   * @param entity the kind of item
+   * @param first the index of the first item added
+   * @param count the number of items added
+   * @return the change
+   */
+  static ModelChange inserted(ModelEntity entity, int first, int count) {
+    return new ModelChange(ChangeKind.INSERTED, entity, first, count, null, null, null);
+  }
+
+  /**
+   * Returns a change removing items from a list
+   * @param entity the kind of item
+   * @param indices the indices of the items before they were removed, in increasing order
+   * @return the change
+   */
+  static ModelChange removed(ModelEntity entity, int[] indices) {
+    return new ModelChange(ChangeKind.REMOVED, entity, 0, indices.length, indices, null, null);
+  }
+
+  /**
+   * Returns a change reordering a list
+   * @param entity the kind of item
+   * @param order the index each item had before, for each index after
+   * @return the change
+   */
+  static ModelChange moved(ModelEntity entity, int[] order) {
+    return new ModelChange(ChangeKind.MOVED, entity, 0, order.length, order, null, null);
+  }
+
+  /**
+   * Returns a change linking or unlinking samples and tests
+   * @param kind LINKED or UNLINKED
+   * @param samples names of the samples
+   * @param tests names of the tests
+   * @return the change
+   */
+  static ModelChange links(ChangeKind kind, Collection<String> samples, Collection<String> tests) {
+    return new ModelChange(kind, null, 0, 0, null, List.copyOf(samples), List.copyOf(tests));
+  }
+
+  /**
+   * Returns one change adding the items this change added and the items the given change added,
+   * if they come straight after
+   * @param next the change after this one
+   * @return the change adding both runs of items, or null if the changes are not two such runs
+   */
+  ModelChange merge(ModelChange next) {
+    if (this.kind != ChangeKind.INSERTED || next.kind != ChangeKind.INSERTED
+        || this.entity != next.entity || this.first + this.count != next.first) {
+      return null;
+    }
+    return inserted(this.entity, this.first, this.count + next.count);
+  }
+
+  /**
+   * Returns the kind of change
+   * @return the kind of change
+   */
+  public ChangeKind getKind() {
+    return this.kind;
+  }
+
+  /**
+   * Returns the kind of item inserted, removed or moved
+   * @return the kind of item, or null for a change to links
+   */
+  public ModelEntity getEntity() {
+    return this.entity;
+  }
+
+  /**
+   * Returns the number of items inserted, removed or moved
+   * @return the number of items, or 0 for a change to links
+   */
+  public int getCount() {
+    return this.count;
+  }
+
+  /**
+   * Returns the indices of the items inserted or removed, or the order of the items moved
+   * @return array of indices, empty for a change to links
+   */
+  public int[] getIndices() {
+    if (this.kind == ChangeKind.INSERTED) {
+      int[] inserted = new int[this.count];
+      Arrays.setAll(inserted, i -> this.first + i);
+      return inserted;
+    }
+    return this.indices == null ? new int[0] : this.indices.clone();
+  }
+
+  /**
+   * Returns the names of the samples linked or unlinked
+   * @return list of names of samples, empty for a change to a list
+   */
+  public List<String> getSamples() {
+    return this.samples == null ? List.of() : this.samples;
+  }
+
+  /**
+   * Returns the names of the tests linked or unlinked
+   * @return list of names of tests, empty for a change to a list
+   */
+  public List<String> getTests() {
+    return this.tests == null ? List.of() : this.tests;
+  }
+
+  /**
+   * Returns a short description of the change, such as "INSERTED SAMPLE 4-5" or
+   * "LINKED [JANE DOE] [HCV]"
+   * @return String describing the change
+   */
+  @Override
+  public String toString() {
+    if (this.entity == null) {
+      return this.kind + " " + this.samples + " " + this.tests;
+    }
+    if (this.kind == ChangeKind.INSERTED) {
+      return this.kind + " " + this.entity + " " + this.first + "-" + (this.first + this.count - 1);
+    }
+    return this.kind + " " + this.entity + " " + Arrays.toString(this.indices);
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * This enumerated type sets the predefined constants SAMPLE, TEST and EQUIPMENT,
+ * the kinds of item held in the lists of an IModel
+ */
+public enum ModelEntity {SAMPLE, TEST, EQUIPMENT}
\ No newline at end of file
@@ -1,6 +1,14 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 
 /**
  * This class implements the IModel interface with all its mandated methods
@@ -11,23 +19,71 @@ public class ModelImpl implements IModel {
   private final List<Equipment> equipment;
   private final List<Sample> samples;
 
+  // name indexes, kept in sync with the lists above so that lookups by name are O(1).
+  // A name maps to a list because nothing stops two entities from sharing a name
+  private final Map<String, List<LabTest>> testsByName;
+  private final Map<String, List<Equipment>> equipmentByName;
+  private final Map<String, List<Sample>> samplesByName;
+  private final IntHashMap<Sample> samplesByID;
+
+  // ordered indexes, kept in sync with the lists above so that sorted reads need no sort
+  private final SortedIndex<Sample> samplesOrderedByID;
+  private final SortedIndex<Equipment> equipmentOrderedByServiceUrgency;
+  private final SortedIndex<LabTest> testsOrderedByDuration;
+  private final SortedIndex<LabTest> testsOrderedByNumberOfSamples;
+  private final IntHashMap<LabTest> testsByHandle;
+  private final LinkStore links;
+  private int linkVersionSeen;    // version of the links the sample counts were last read at
+
   /**
    * Constructs the model and instantiates the lists of sample, test, equipment
    */
   public ModelImpl() {
+    this(new LinkStore());
+  }
+
+  /**
+   * Constructs the model over the given link store, which it shares with the model it is part of
+   * @param links the link store of the samples and tests
+   */
+  ModelImpl(LinkStore links) {
+    this.links = links;
     this.tests = new ArrayList<>();
     this.equipment = new ArrayList<>();
     this.samples = new ArrayList<>();
+    this.testsByName = new HashMap<>();
+    this.equipmentByName = new HashMap<>();
+    this.samplesByName = new HashMap<>();
+    this.samplesByID = new IntHashMap<>();
+    this.testsByHandle = new IntHashMap<>();
+    this.samplesOrderedByID = new SortedIndex<>(s -> orderKey(s.getSampleID()));
+    this.equipmentOrderedByServiceUrgency =
+        new SortedIndex<>(e -> orderKey(e.getServiceUrgency()));
+    this.testsOrderedByDuration = new SortedIndex<>(t -> orderKey(t.getTestDuration()));
+    this.testsOrderedByNumberOfSamples =
+        new SortedIndex<>(t -> this.links.countSamplesOf(t.getHandle()));
+    this.linkVersionSeen = links.version();
   }
 
   /**
    * Adds a sample to the IModel dashboard
    *
    * @param sample the sample to be added to the IModel dashboard
+   * @throws IllegalArgumentException if a sample with the same ID is already in the dashboard,
+   *                                  or the sample is in another dashboard
    */
   @Override
   public void addSample(Sample sample) {
+    if (sample.getSampleID() != null && this.samplesByID.containsKey(sample.getSampleID())) {
+      throw new IllegalArgumentException("Duplicate sample ID: " + sample.getSampleID());
+    }
+    this.links.addSample(sample);
+    if (sample.getSampleID() != null) {
+      this.samplesByID.put(sample.getSampleID(), sample);
+    }
     this.samples.add(sample);
+    index(this.samplesByName, sample.getSampleName(), sample);
+    this.samplesOrderedByID.add(sample);
   }
 
   /**
@@ -44,23 +100,103 @@ public class ModelImpl implements IModel {
     }
 
     // next, delete the sample from the tests that contain the sample
-    for (LabTest test : this.tests) {
-      if (test.getListOfSamples().contains(this.samples.get(index).getSampleName())) {
-        test.deleteSampleFromTest(this.samples.get(index));
+    Sample sample = this.samples.get(index);
+    boolean upToDate = countsUpToDate();
+    int[] testHandles = LinkStore.testHandlesOf(sample);
+    this.links.removeSample(sample);
+    recount(testHandles, upToDate);
+
+    this.samples.remove(index);
+    unindexSample(sample);
+  }
+
+  /**
+   * Deletes the samples at the given indices from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. The indices refer to the list of samples before
+   * any of them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the samples to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteSamples(int[] indices) {
+    deleteMarked(mark(indices, this.samples.size()));
+  }
+
+  /**
+   * Deletes the samples with the given IDs from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. IDs that no sample has are skipped
+   *
+   * @param sampleIDs the IDs of the samples to be deleted
+   * @return the number of samples deleted
+   */
+  @Override
+  public int deleteSamplesById(int[] sampleIDs) {
+    Set<Sample> doomed = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int sampleID : sampleIDs) {
+      Sample sample = this.samplesByID.get(sampleID);
+      if (sample != null) {
+        doomed.add(sample);
+      }
+    }
+    if (doomed.isEmpty()) {
+      return 0;
+    }
+    boolean[] marked = new boolean[this.samples.size()];
+    for (int i = 0; i < marked.length; i++) {
+      marked[i] = doomed.contains(this.samples.get(i));
+    }
+    deleteMarked(marked);
+    return doomed.size();
+  }
+
+  /**
+   * Deletes the marked samples and their links, shifting every remaining sample at most once
+   * @param marked array with true at the index of every sample to delete
+   */
+  private void deleteMarked(boolean[] marked) {
+    boolean upToDate = countsUpToDate();
+    for (int i = 0; i < marked.length; i++) {
+      if (marked[i]) {
+        Sample sample = this.samples.get(i);
+        int[] testHandles = LinkStore.testHandlesOf(sample);
+        this.links.removeSample(sample);
+        recount(testHandles, false);
+        unindexSample(sample);
       }
     }
+    if (upToDate) {
+      this.linkVersionSeen = this.links.version();
+    }
+    compact(this.samples, marked);
+  }
 
-    this.samples.remove(index);
+  /**
+   * Takes the ID of a sample and returns the sample with that ID
+   *
+   * @param sampleID the ID (a six digit integer) of the sample of interest
+   * @return the sample with the given ID, or null if there is no such sample
+   */
+  @Override
+  public Sample findSampleById(int sampleID) {
+    return this.samplesByID.get(sampleID);
   }
 
   /**
    * Adds a test to the IModel dashboard
    *
    * @param test the test to be added to the IModel dashboard
+   * @throws IllegalArgumentException if the test is in another dashboard
    */
   @Override
   public void addTest(LabTest test) {
+    this.links.addTest(test);
     this.tests.add(test);
+    this.testsByHandle.put(test.getHandle(), test);
+    index(this.testsByName, test.getTestName(), test);
+    this.testsOrderedByDuration.add(test);
+    this.testsOrderedByNumberOfSamples.add(test);
   }
 
   /**
@@ -76,16 +212,41 @@ public class ModelImpl implements IModel {
       throw new IllegalArgumentException("Invalid index");
     }
 
-    // next, delete the test from the samples that require the test
-    for (Sample sample : this.samples) {
-      if (sample.getListOfTests().contains(this.tests.get(index).getTestName())) {
-        sample.deleteTestFromSample(this.tests.get(index));
-      }
-    }
+    // next, delete the test from the samples that require the test, which changes the count of
+    // no other test
+    LabTest test = this.tests.get(index);
+    boolean upToDate = countsUpToDate();
+    unindexTest(test);
+    this.links.removeTest(test);
+    recount(new int[0], upToDate);
 
     this.tests.remove(index);   // TODO: better to directly remove object?
   }
 
+  /**
+   * Deletes the tests at the given indices from the IModel dashboard in one pass, and deletes the
+   * tests from the samples that require them. The indices refer to the list of tests before any of
+   * them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the tests to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteTests(int[] indices) {
+    boolean[] marked = mark(indices, this.tests.size());
+    boolean upToDate = countsUpToDate();
+    for (int i = 0; i < marked.length; i++) {
+      if (marked[i]) {
+        LabTest test = this.tests.get(i);
+        unindexTest(test);
+        this.links.removeTest(test);
+      }
+    }
+    recount(new int[0], upToDate);
+    compact(this.tests, marked);
+  }
+
   /**
    * Adds equipment to the IModel dashboard
    *
@@ -94,6 +255,8 @@ public class ModelImpl implements IModel {
   @Override
   public void addEquipment(Equipment equipment) {
     this.equipment.add(equipment);
+    index(this.equipmentByName, equipment.getEquipmentName(), equipment);
+    this.equipmentOrderedByServiceUrgency.add(equipment);
   }
 
   /**
@@ -108,7 +271,27 @@ public class ModelImpl implements IModel {
       throw new IllegalArgumentException("Invalid index");
     }
 
-    this.equipment.remove(index);   // TODO: better to directly remove object?
+    Equipment removed = this.equipment.remove(index);   // TODO: better to directly remove object?
+    unindexEquipment(removed);
+  }
+
+  /**
+   * Deletes the equipment at the given indices from the IModel dashboard in one pass. The indices
+   * refer to the list of equipment before any of it is deleted, and may be given in any order
+   *
+   * @param indices the indices of the equipment to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteEquipment(int[] indices) {
+    boolean[] marked = mark(indices, this.equipment.size());
+    for (int i = 0; i < marked.length; i++) {
+      if (marked[i]) {
+        unindexEquipment(this.equipment.get(i));
+      }
+    }
+    compact(this.equipment, marked);
   }
 
   /**
@@ -146,7 +329,8 @@ public class ModelImpl implements IModel {
    */
   @Override
   public void sortSamplesByID() {
-    this.samples.sort(Sample::compareByID);
+    copyInto(this.samples, this.samplesOrderedByID);
+    this.samplesOrderedByID.reorder(this.samples);
   }
 
   /**
@@ -155,7 +339,8 @@ public class ModelImpl implements IModel {
    */
   @Override
   public void sortEquipmentByServiceUrgency() {
-    this.equipment.sort(Equipment::compareByServiceDue);
+    copyInto(this.equipment, this.equipmentOrderedByServiceUrgency);
+    this.equipmentOrderedByServiceUrgency.reorder(this.equipment);
   }
 
   /**
@@ -168,11 +353,91 @@ public class ModelImpl implements IModel {
    */
   @Override
   public void sortTestsByPriority(TestPriority priority) {
+    copyInto(this.tests, getTestsOrderedByPriority(priority));
+    this.testsOrderedByDuration.reorder(this.tests);
+    this.testsOrderedByNumberOfSamples.reorder(this.tests);
+  }
+
+  /**
+   * Returns a read-only view of the samples in the IModel dashboard in ascending order of ID.
+   * The order is maintained as samples are added and deleted, so reading it costs no sort
+   *
+   * @return the samples in ascending order of ID
+   */
+  @Override
+  public Iterable<Sample> getSamplesOrderedByID() {
+    return this.samplesOrderedByID.view();
+  }
+
+  /**
+   * Returns a read-only view of the equipment in the IModel dashboard in ascending order of the
+   * number of days until service is due. The order is maintained as equipment is added and
+   * deleted, so reading it costs no sort
+   *
+   * @return the equipment, most urgent first
+   */
+  @Override
+  public Iterable<Equipment> getEquipmentOrderedByServiceUrgency() {
+    return this.equipmentOrderedByServiceUrgency.view();
+  }
+
+  /**
+   * Returns the k pieces of equipment whose service is most urgent, most urgent first. This reads
+   * the head of the service urgency index, in O(k + log n)
+   *
+   * @param k the number of pieces of equipment to return
+   * @return list of at most k pieces of equipment with the fewest days until service is due
+   * @throws IllegalArgumentException if k is negative
+   */
+  @Override
+  public List<Equipment> mostUrgentEquipment(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("Invalid number of equipment");
+    }
+    return this.equipmentOrderedByServiceUrgency.first(k);
+  }
+
+  /**
+   * Returns the equipment whose service is due within the given range of days, most urgent first.
+   * This reads a range of the service urgency index, in O(log n + k) for k matching items
+   *
+   * @param fromDays the lowest number of days until service is due to include
+   * @param toDays   the highest number of days until service is due to include
+   * @return list of equipment due from fromDays to toDays days from now, inclusive
+   * @throws IllegalArgumentException if fromDays is greater than toDays
+   */
+  @Override
+  public List<Equipment> equipmentDueWithin(int fromDays, int toDays) {
+    if (fromDays > toDays) {
+      throw new IllegalArgumentException("Invalid range of days");
+    }
+    return this.equipmentOrderedByServiceUrgency.range(fromDays, toDays);
+  }
+
+  /**
+   * Returns a read-only view of the tests in the IModel dashboard in ascending order of one of
+   * two enumerated types; DURATION or NUMBER_OF_SAMPLES. The order is maintained as tests are
+   * added and deleted and as samples are added to tests, so reading it costs no sort
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   * @return the tests in ascending order of the given priority
+   */
+  @Override
+  public Iterable<LabTest> getTestsOrderedByPriority(TestPriority priority) {
     if (priority == TestPriority.DURATION) {
-      this.tests.sort(LabTest::compareByDuration);
-    } else {
-      this.tests.sort(LabTest::compareByNumberOfSamples);
+      return this.testsOrderedByDuration.view();
+    }
+
+    // the model re-keys the tests it links and unlinks itself, but links can also change through
+    // samples and tests outside the model; only then are all the tests re-keyed
+    int linkVersion = this.links.version();
+    if (linkVersion != this.linkVersionSeen) {
+      for (LabTest test : this.tests) {
+        this.testsOrderedByNumberOfSamples.update(test);
+      }
+      this.linkVersionSeen = linkVersion;
     }
+    return this.testsOrderedByNumberOfSamples.view();
   }
 
   /**
@@ -185,15 +450,55 @@ public class ModelImpl implements IModel {
   public void addTestToSample(String sampleName, String testName) {
 
     // find the desired sample and test, and add test to sample
-    for (Sample sample : this.getListOfSamples()) {
-      if (Objects.equals(sample.getSampleName(), sampleName)) {
-        for (LabTest test : this.getListOfTests()) {
-          if (Objects.equals(test.getTestName(), testName)) {
-            sample.addTestToSample(test);
-          }
-        }
+    boolean upToDate = countsUpToDate();
+    for (Sample sample : lookup(this.samplesByName, sampleName)) {
+      for (LabTest test : lookup(this.testsByName, testName)) {
+        sample.addTestToSample(test);
       }
     }
+    recount(testHandles(Collections.singletonList(testName)), upToDate);
+  }
+
+  /**
+   * Takes a collection of names of tests and a collection of names of samples and adds every test
+   * to every sample. Each name is looked up once, and pairs that are already linked are skipped
+   *
+   * @param testNames   names of the tests to be added to the samples
+   * @param sampleNames names of the samples to add the tests to
+   * @return the number of tests newly added to samples
+   */
+  @Override
+  public int assignTests(Collection<String> testNames, Collection<String> sampleNames) {
+    int[] testHandles = handles(testNames, this.testsByName, LabTest::getHandle);
+    int[] sampleHandles = handles(sampleNames, this.samplesByName, Sample::getHandle);
+    return assignTests(sampleHandles, testHandles);
+  }
+
+  /**
+   * Adds every given test of this model to every given sample, and re-keys only those tests in
+   * the number of samples index. The models that keep their samples elsewhere link through this
+   * so that their tests are re-keyed the same way
+   *
+   * @param sampleHandles handles of the samples
+   * @param testHandles   handles of the tests
+   * @return the number of tests newly added to samples
+   */
+  int assignTests(int[] sampleHandles, int[] testHandles) {
+    boolean upToDate = countsUpToDate();
+    int added = this.links.linkAll(sampleHandles, testHandles);
+    if (added > 0) {
+      recount(testHandles, upToDate);
+    }
+    return added;
+  }
+
+  /**
+   * Returns the handles of the tests with the given names, looking up each distinct name once
+   * @param testNames the names of the tests
+   * @return array of handles of the tests with those names
+   */
+  int[] testHandles(Collection<String> testNames) {
+    return handles(testNames, this.testsByName, LabTest::getHandle);
   }
 
   /**
@@ -207,10 +512,8 @@ public class ModelImpl implements IModel {
     List<String> tests = new ArrayList<>();
 
     // find the desired sample and add its tests to the new list
-    for (Sample sample : this.getListOfSamples()) {
-      if (Objects.equals(sample.getSampleName(), sampleName)) {
-        tests.addAll(sample.getListOfTests());
-      }
+    for (Sample sample : lookup(this.samplesByName, sampleName)) {
+      tests.addAll(sample.getListOfTests());
     }
     return tests;
   }
@@ -226,10 +529,8 @@ public class ModelImpl implements IModel {
     List<String> samples = new ArrayList<>();
 
     // find the desired test and add its samples to the new list
-    for (LabTest test : this.getListOfTests()) {
-      if (Objects.equals(test.getTestName(), testName)) {
-        samples.addAll(test.getListOfSamples());
-      }
+    for (LabTest test : lookup(this.testsByName, testName)) {
+      samples.addAll(test.getListOfSamples());
     }
 
     return samples;
@@ -242,15 +543,33 @@ public class ModelImpl implements IModel {
    */
   public int getEquipmentInfo(String equipmentName) {
     int serviceUrgency = 0;
-    for (Equipment equipment : this.getListOfEquipment()) {
-      if (Objects.equals(equipment.getEquipmentName(), equipmentName)) {
-        serviceUrgency = equipment.getServiceUrgency();
-      }
+    for (Equipment equipment : lookup(this.equipmentByName, equipmentName)) {
+      serviceUrgency = equipment.getServiceUrgency();
     }
 
     return serviceUrgency;
   }
 
+  /**
+   * Returns whether the IModel dashboard holds a sample with the given name
+   * @param sampleName the name of the sample of interest
+   * @return true if there is at least one sample with that name, false otherwise
+   */
+  @Override
+  public boolean containsSample(String sampleName) {
+    return this.samplesByName.containsKey(sampleName);
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a test with the given name
+   * @param testName the name of the test of interest
+   * @return true if there is at least one test with that name, false otherwise
+   */
+  @Override
+  public boolean containsTest(String testName) {
+    return this.testsByName.containsKey(testName);
+  }
+
   // For future refactoring: use method reference/predicate for the following 3 methods
   /**
    * Returns a list of names of the samples in the exact order of the list of samples
@@ -301,9 +620,20 @@ public class ModelImpl implements IModel {
    */
   @Override
   public void clearSamples() {
+    boolean upToDate = countsUpToDate();
+    for (Sample sample : this.samples) {
+      this.links.removeSample(sample);
+    }
     this.samples.clear();
+    this.samplesByName.clear();
+    this.samplesByID.clear();
+    this.samplesOrderedByID.clear();
     for (LabTest test : this.tests) {
       test.getListOfSamples().clear();
+      this.testsOrderedByNumberOfSamples.update(test);
+    }
+    if (upToDate) {
+      this.linkVersionSeen = this.links.version();
     }
   }
 
@@ -312,7 +642,16 @@ public class ModelImpl implements IModel {
    */
   @Override
   public void clearTests() {
+    boolean upToDate = countsUpToDate();
+    for (LabTest test : this.tests) {
+      this.links.removeTest(test);
+    }
+    recount(new int[0], upToDate);
     this.tests.clear();
+    this.testsByHandle.clear();
+    this.testsByName.clear();
+    this.testsOrderedByDuration.clear();
+    this.testsOrderedByNumberOfSamples.clear();
     for (Sample sample : this.samples) {
       sample.getListOfTests().clear();
     }
@@ -324,5 +663,184 @@ public class ModelImpl implements IModel {
   @Override
   public void clearEquipment() {
     this.equipment.clear();
+    this.equipmentByName.clear();
+    this.equipmentOrderedByServiceUrgency.clear();
+  }
+
+  /**
+   * Removes a deleted sample from every sample index
+   * @param sample the deleted sample
+   */
+  private void unindexSample(Sample sample) {
+    unindex(this.samplesByName, sample.getSampleName(), sample);
+    if (sample.getSampleID() != null) {
+      this.samplesByID.remove(sample.getSampleID());
+    }
+    this.samplesOrderedByID.remove(sample);
+  }
+
+  /**
+   * Removes a deleted test from every test index
+   * @param test the deleted test
+   */
+  private void unindexTest(LabTest test) {
+    unindex(this.testsByName, test.getTestName(), test);
+    this.testsByHandle.remove(test.getHandle());
+    this.testsOrderedByDuration.remove(test);
+    this.testsOrderedByNumberOfSamples.remove(test);
+  }
+
+  /**
+   * Returns whether the number of samples index holds the current count of every test
+   * @return true if no link has changed since the index was last brought up to date
+   */
+  boolean countsUpToDate() {
+    return this.links.version() == this.linkVersionSeen;
+  }
+
+  /**
+   * Re-keys the given tests in the number of samples index after the model changed their links,
+   * in O(log n) each. If the index was up to date before the change, it is up to date again, so
+   * the next read of the index re-keys nothing
+   * @param testHandles handles of the tests whose links changed
+   * @param upToDate    whether the index was up to date before the change
+   */
+  private void recount(int[] testHandles, boolean upToDate) {
+    for (int handle : testHandles) {
+      LabTest test = this.testsByHandle.get(handle);
+      if (test != null) {
+        this.testsOrderedByNumberOfSamples.update(test);
+      }
+    }
+    if (upToDate) {
+      this.linkVersionSeen = this.links.version();
+    }
+  }
+
+  /**
+   * Removes deleted equipment from every equipment index
+   * @param equipment the deleted equipment
+   */
+  private void unindexEquipment(Equipment equipment) {
+    unindex(this.equipmentByName, equipment.getEquipmentName(), equipment);
+    this.equipmentOrderedByServiceUrgency.remove(equipment);
+  }
+
+  /**
+   * Returns the key an Integer property is ordered by; missing values come first
+   * @param value the value of the property
+   * @return the key to order by
+   */
+  private static long orderKey(Integer value) {
+    return value == null ? Long.MIN_VALUE : value;
+  }
+
+  /**
+   * Replaces the contents of the list with the items in the given order, in O(n)
+   * @param list the list to reorder
+   * @param order the items of the list in the desired order
+   */
+  private static <T> void copyInto(List<T> list, Iterable<T> order) {
+    int i = 0;
+    for (T item : order) {
+      list.set(i++, item);
+    }
+  }
+
+  /**
+   * Validates the given indices and marks them in an array the size of the list they refer to
+   * @param indices indices into a list
+   * @param size the size of the list
+   * @return array with true at every given index
+   * @throws IllegalArgumentException if any index is out of range
+   */
+  private static boolean[] mark(int[] indices, int size) {
+    boolean[] marked = new boolean[size];
+    for (int index : indices) {
+      if (index < 0 || index >= size) {
+        throw new IllegalArgumentException("Invalid index");
+      }
+      marked[index] = true;
+    }
+    return marked;
+  }
+
+  /**
+   * Removes the marked items from the list, shifting every remaining item at most once
+   * @param list the list to compact
+   * @param marked array with true at the index of every item to remove
+   */
+  private static <T> void compact(List<T> list, boolean[] marked) {
+    int kept = 0;
+    for (int i = 0; i < marked.length; i++) {
+      if (!marked[i]) {
+        list.set(kept++, list.get(i));
+      }
+    }
+    list.subList(kept, list.size()).clear();
+  }
+
+  /**
+   * Adds the given item to the list of items stored under the given name
+   * @param index the name index to add to
+   * @param name the name of the item
+   * @param item the item to add
+   */
+  private static <T> void index(Map<String, List<T>> index, String name, T item) {
+    index.computeIfAbsent(name, k -> new ArrayList<>(1)).add(item);
+  }
+
+  /**
+   * Removes the given item (by identity) from the list of items stored under the given name
+   * @param index the name index to remove from
+   * @param name the name of the item
+   * @param item the item to remove
+   */
+  private static <T> void unindex(Map<String, List<T>> index, String name, T item) {
+    List<T> items = index.get(name);
+    if (items == null) {
+      return;
+    }
+    for (int i = 0; i < items.size(); i++) {
+      if (items.get(i) == item) {
+        items.remove(i);
+        break;
+      }
+    }
+    if (items.isEmpty()) {
+      index.remove(name);
+    }
+  }
+
+  /**
+   * Looks up each distinct name once and returns the handles of all items with those names
+   * @param names the names to look up
+   * @param index the name index to look up
+   * @param handle function returning the handle of an item
+   * @return array of handles of the items with the given names
+   */
+  private static <T> int[] handles(Collection<String> names, Map<String, List<T>> index,
+                                   ToIntFunction<T> handle) {
+    int[] handles = new int[names.size()];
+    int count = 0;
+    for (String name : new LinkedHashSet<>(names)) {
+      for (T item : lookup(index, name)) {
+        if (count == handles.length) {
+          handles = Arrays.copyOf(handles, count * 2);
+        }
+        handles[count++] = handle.applyAsInt(item);
+      }
+    }
+    return Arrays.copyOf(handles, count);
+  }
+
+  /**
+   * Returns the items stored under the given name, or an empty list if there are none
+   * @param index the name index to look up
+   * @param name the name to look up
+   * @return list of items with the given name
+   */
+  private static <T> List<T> lookup(Map<String, List<T>> index, String name) {
+    return index.getOrDefault(name, Collections.emptyList());
   }
 }
@@ -0,0 +1,14 @@
+import java.util.List;
+
+/**
+ * This interface represents a listener of an ObservableModel, which is told about the changes
+ * made to the model one transaction at a time
+ */
+public interface ModelListener {
+
+  /**
+   * Takes the changes made to the model by one transaction, in the order they were made
+   * @param changes list of changes, not empty
+   */
+  void modelChanged(List<ModelChange> changes);
+}
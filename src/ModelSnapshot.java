@@ -0,0 +1,489 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * This class saves a whole IModel dashboard to a compact binary snapshot file and loads it back,
+ * which is much faster than replaying a long journal.
+ *
+ * The file is a header followed by length-prefixed blocks: one block for the tests, one for the
+ * equipment, and one block per chunk of samples. Names are dictionary-encoded within each block,
+ * IDs, durations and service urgencies are stored as plain ints, and the tests of each sample
+ * are stored as a packed list of varint indices into the tests block. Samples and tests are
+ * stored in the order they were created, each with its position in the model's list. Every
+ * sample chunk can be decoded on its own, so loading decodes chunks in parallel with positional
+ * reads and then creates and adds the samples in order.
+ *
+ * A snapshot taken by a JournalingModel also records where in its journal the snapshot was
+ * taken, so opening the journal replays only the changes made after it
+ */
+public class ModelSnapshot {
+  private static final int MAGIC = 0x4C46534E;    // "LFSN"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 28;
+  private static final int SAMPLES_PER_CHUNK = 1 << 16;
+
+  /**
+   * Saves the samples, tests and equipment in the given model, and the links between the samples
+   * and tests, to a snapshot file. Links to tests that are not in the model are not saved
+   *
+   * @param model the model to save
+   * @param path the snapshot file, which is replaced if it exists
+   * @throws IOException if the file cannot be written
+   */
+  public static void save(IModel model, Path path) throws IOException {
+    save(model, path, 0, 0);
+  }
+
+  /**
+   * Saves a model to a snapshot file, recording where in its journal the snapshot was taken
+   *
+   * @param model the model to save
+   * @param path the snapshot file, which is replaced if it exists
+   * @param generation the number of the snapshot among those taken of the journal
+   * @param journalBytes the length of the journal the snapshot covers
+   * @throws IOException if the file cannot be written
+   */
+  static void save(IModel model, Path path, long generation, long journalBytes)
+      throws IOException {
+    List<Sample> samples = model.getListOfSamples();
+    List<LabTest> tests = model.getListOfTests();
+    List<Equipment> equipment = model.getListOfEquipment();
+    int chunks = (samples.size() + SAMPLES_PER_CHUNK - 1) / SAMPLES_PER_CHUNK;
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      Block header = new Block();
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.putInt(chunks);
+      header.putLong(generation);
+      header.putLong(journalBytes);
+      header.writeTo(channel, false);
+
+      // tests in the order they were created: positions in the list, names, durations
+      int[] order = creationOrder(tests, LabTest::getHandle);
+      IntHashMap<Integer> testIndexByHandle = new IntHashMap<>();
+      Block block = new Block();
+      block.putInt(tests.size());
+      Dictionary names = new Dictionary();
+      int[] codes = new int[tests.size()];
+      for (int i = 0; i < order.length; i++) {
+        LabTest test = tests.get(order[i]);
+        codes[i] = names.encode(test.getTestName());
+        testIndexByHandle.put(test.getHandle(), i);
+      }
+      names.writeTo(block);
+      for (int i = 0; i < order.length; i++) {
+        block.putVarint(order[i]);
+        block.putVarint(codes[i]);
+        block.putInteger(tests.get(order[i]).getTestDuration());
+      }
+      block.writeTo(channel, true);
+
+      // equipment in list order: names, service urgencies
+      block = new Block();
+      block.putInt(equipment.size());
+      names = new Dictionary();
+      codes = new int[equipment.size()];
+      for (int i = 0; i < codes.length; i++) {
+        codes[i] = names.encode(equipment.get(i).getEquipmentName());
+      }
+      names.writeTo(block);
+      for (int i = 0; i < codes.length; i++) {
+        block.putVarint(codes[i]);
+        block.putInteger(equipment.get(i).getServiceUrgency());
+      }
+      block.writeTo(channel, true);
+
+      // samples in the order they were created, chunk by chunk: positions in the list, names,
+      // IDs, and the indices of their tests in the tests block
+      order = creationOrder(samples, Sample::getHandle);
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        int from = chunk * SAMPLES_PER_CHUNK;
+        int to = Math.min(samples.size(), from + SAMPLES_PER_CHUNK);
+        block = new Block();
+        block.putInt(to - from);
+        names = new Dictionary();
+        codes = new int[to - from];
+        for (int i = from; i < to; i++) {
+          codes[i - from] = names.encode(samples.get(order[i]).getSampleName());
+        }
+        names.writeTo(block);
+        for (int i = from; i < to; i++) {
+          Sample sample = samples.get(order[i]);
+          block.putVarint(order[i]);
+          block.putVarint(codes[i - from]);
+          block.putInteger(sample.getSampleID());
+
+          int[] linked = LinkStore.testHandlesOf(sample);
+          int count = 0;
+          for (int j = 0; j < linked.length; j++) {
+            Integer index = testIndexByHandle.get(linked[j]);
+            if (index != null) {
+              linked[count++] = index;
+            }
+          }
+          block.putVarint(count);
+          for (int j = 0; j < count; j++) {
+            block.putVarint(linked[j]);
+          }
+        }
+        block.writeTo(channel, true);
+      }
+      channel.force(false);
+    }
+  }
+
+  /**
+   * Loads a snapshot file into the given model, adding its tests, equipment and samples in the
+   * order of their lists when it was saved and restoring the links between the samples and
+   * tests. The tests of a sample are listed in the order the tests are added, which is the order
+   * of the list of tests when the snapshot was saved, and the samples of a test in the order the
+   * samples were saved, oldest first. Either may differ from the order they were listed in
+   * before
+   *
+   * @param path the snapshot file
+   * @param model the model to load into, normally empty
+   * @throws IOException if the file cannot be read or is not a snapshot
+   */
+  public static void load(Path path, IModel model) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = readHeader(channel, path);
+      int chunks = header.getInt(8);
+      long position = header.limit();
+
+      // tests
+      ByteBuffer block = readBlock(channel, position);
+      position += 4 + block.remaining();
+      int count = block.getInt();
+      String[] names = readDictionary(block);
+      LabTest[] tests = new LabTest[count];
+      LabTest[] testsInList = new LabTest[count];
+      for (int i = 0; i < count; i++) {
+        int at = getVarint(block);
+        tests[i] = new LabTestImpl(names[getVarint(block)], getInteger(block));
+        testsInList[at] = tests[i];
+      }
+      for (LabTest test : testsInList) {
+        model.addTest(test);
+      }
+
+      // equipment
+      block = readBlock(channel, position);
+      position += 4 + block.remaining();
+      count = block.getInt();
+      names = readDictionary(block);
+      for (int i = 0; i < count; i++) {
+        model.addEquipment(new EquipmentImpl(names[getVarint(block)], getInteger(block)));
+      }
+
+      // locate the sample chunks and decode them in parallel, then create and link the samples
+      // in order and add them to the model
+      long[] positions = new long[chunks];
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        positions[chunk] = position;
+        position += 4 + readFully(channel, position, 4).getInt();
+      }
+      List<Chunk> decoded;
+      try {
+        decoded = IntStream.range(0, chunks).parallel()
+            .mapToObj(chunk -> decodeChunk(channel, positions[chunk]))
+            .toList();
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      count = 0;
+      for (Chunk chunk : decoded) {
+        count += chunk.ids.length;
+      }
+      Sample[] samplesInList = new Sample[count];
+      for (Chunk chunk : decoded) {
+        for (int i = 0; i < chunk.ids.length; i++) {
+          Sample sample = new SampleImpl(chunk.names[chunk.codes[i]], chunk.ids[i]);
+          for (int j = chunk.offsets[i]; j < chunk.offsets[i + 1]; j++) {
+            sample.addTestToSample(tests[chunk.tests[j]]);
+          }
+          samplesInList[chunk.positions[i]] = sample;
+        }
+      }
+      for (Sample sample : samplesInList) {
+        model.addSample(sample);
+      }
+    }
+  }
+
+  /**
+   * Returns where in its journal a snapshot was taken
+   *
+   * @param path the snapshot file
+   * @return array of the number of the snapshot among those taken of the journal and the length
+   *         of the journal it covers, both 0 if it was not taken of a journal
+   * @throws IOException if the file cannot be read or is not a snapshot
+   */
+  static long[] readJournalMark(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = readHeader(channel, path);
+      return new long[]{header.getLong(12), header.getLong(20)};
+    }
+  }
+
+  /**
+   * Reads the header of a snapshot
+   * @param channel the snapshot file
+   * @param path the snapshot file, for the message of an error
+   * @return buffer holding the header, whose limit is its length
+   * @throws IOException if the file cannot be read or is not a snapshot
+   */
+  private static ByteBuffer readHeader(FileChannel channel, Path path) throws IOException {
+    ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+    if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+      throw new IOException("Not a LabFlow snapshot: " + path);
+    }
+    return header;
+  }
+
+  /**
+   * Returns the positions of the given samples or tests in the order they were created, which
+   * is the order of their handles
+   * @param items the samples or tests
+   * @param handle gets the handle of a sample or test
+   * @return the positions in items, ordered by handle
+   */
+  private static <T> int[] creationOrder(List<T> items, ToIntFunction<T> handle) {
+    long[] keys = new long[items.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = (long) handle.applyAsInt(items.get(i)) << 32 | i;
+    }
+    Arrays.sort(keys);
+    int[] order = new int[keys.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = (int) keys[i];
+    }
+    return order;
+  }
+
+  /**
+   * Reads and decodes one chunk of samples
+   * @param channel the snapshot file
+   * @param position the position of the chunk's block
+   * @return the decoded chunk
+   */
+  private static Chunk decodeChunk(FileChannel channel, long position) {
+    try {
+      ByteBuffer block = readBlock(channel, position);
+      int count = block.getInt();
+      Chunk chunk = new Chunk(readDictionary(block), count);
+      int links = 0;
+      for (int i = 0; i < count; i++) {
+        chunk.positions[i] = getVarint(block);
+        chunk.codes[i] = getVarint(block);
+        chunk.ids[i] = getInteger(block);
+        int linked = getVarint(block);
+        if (links + linked > chunk.tests.length) {
+          int[] bigger = new int[Math.max(chunk.tests.length * 2, links + linked)];
+          System.arraycopy(chunk.tests, 0, bigger, 0, links);
+          chunk.tests = bigger;
+        }
+        for (int j = 0; j < linked; j++) {
+          chunk.tests[links++] = getVarint(block);
+        }
+        chunk.offsets[i + 1] = links;
+      }
+      return chunk;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the length-prefixed block at the given position
+   * @param channel the snapshot file
+   * @param position the position of the block's length
+   * @return buffer holding the block's bytes
+   * @throws IOException if the file cannot be read or ends early
+   */
+  private static ByteBuffer readBlock(FileChannel channel, long position) throws IOException {
+    int length = readFully(channel, position, 4).getInt();
+    return readFully(channel, position + 4, length);
+  }
+
+  /**
+   * Reads the given number of bytes at the given position, without moving the channel's own
+   * position, so several threads can read at once
+   * @param channel the snapshot file
+   * @param position where to read from
+   * @param length the number of bytes to read
+   * @return buffer holding the bytes, ready to be read
+   * @throws IOException if the file cannot be read or ends early
+   */
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Snapshot ends early");
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static String[] readDictionary(ByteBuffer block) {
+    String[] names = new String[getVarint(block)];
+    for (int i = 0; i < names.length; i++) {
+      int length = getVarint(block) - 1;
+      if (length >= 0) {
+        names[i] = new String(block.array(), block.position(), length, StandardCharsets.UTF_8);
+        block.position(block.position() + length);
+      }
+    }
+    return names;
+  }
+
+  private static int getVarint(ByteBuffer block) {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = block.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private static Integer getInteger(ByteBuffer block) {
+    return block.get() == 0 ? null : block.getInt();
+  }
+
+  /**
+   * This class holds one decoded chunk of samples as columns, with the tests of sample i
+   * stored at tests[offsets[i]] up to tests[offsets[i + 1]]
+   */
+  private static class Chunk {
+    final String[] names;
+    final int[] positions;
+    final int[] codes;
+    final Integer[] ids;
+    final int[] offsets;
+    int[] tests;
+
+    Chunk(String[] names, int count) {
+      this.names = names;
+      this.positions = new int[count];
+      this.codes = new int[count];
+      this.ids = new Integer[count];
+      this.offsets = new int[count + 1];
+      this.tests = new int[count];
+    }
+  }
+
+  /**
+   * This class assigns each distinct name a small code, in order of first use
+   */
+  private static class Dictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    int encode(String name) {
+      Integer code = codes.get(name);
+      if (code == null) {
+        code = names.size();
+        codes.put(name, code);
+        names.add(name);
+      }
+      return code;
+    }
+
+    void writeTo(Block block) {
+      block.putVarint(names.size());
+      for (String name : names) {
+        if (name == null) {
+          block.putVarint(0);
+        } else {
+          byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+          block.putVarint(bytes.length + 1);
+          block.put(bytes);
+        }
+      }
+    }
+  }
+
+  /**
+   * This class represents a growable buffer that one block is encoded into before it is
+   * written out
+   */
+  private static class Block {
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    void putInt(int value) {
+      ensure(4);
+      buffer.putInt(value);
+    }
+
+    void putLong(long value) {
+      ensure(8);
+      buffer.putLong(value);
+    }
+
+    void putVarint(int value) {
+      ensure(5);
+      while ((value & ~0x7F) != 0) {
+        buffer.put((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+
+    void putInteger(Integer value) {
+      ensure(5);
+      if (value == null) {
+        buffer.put((byte) 0);
+      } else {
+        buffer.put((byte) 1);
+        buffer.putInt(value);
+      }
+    }
+
+    void put(byte[] bytes) {
+      ensure(bytes.length);
+      buffer.put(bytes);
+    }
+
+    /**
+     * Writes the block to the channel, preceded by its length if asked to
+     */
+    void writeTo(FileChannel channel, boolean withLength) throws IOException {
+      buffer.flip();
+      if (withLength) {
+        ByteBuffer length = ByteBuffer.allocate(4).putInt(0, buffer.remaining());
+        while (length.hasRemaining()) {
+          channel.write(length);
+        }
+      }
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    private void ensure(int bytes) {
+      if (buffer.remaining() < bytes) {
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2,
+            buffer.position() + bytes));
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+      }
+    }
+  }
+}
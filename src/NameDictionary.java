@@ -0,0 +1,112 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class represents the dictionary of the names of tests. Each distinct name is given a
+ * small int code, so that tests and the link store keep one int per test in place of a String
+ * reference, two tests with the same name share a single String, and names are compared by
+ * code. A laboratory has few distinct names of tests, so codes are never freed; the dictionary
+ * grows with the number of distinct test names ever used, not with the number of tests.
+ *
+ * Reading a name or looking up a code takes no lock, so tests read from many threads and many
+ * models do not contend; only adding a new name does
+ */
+public class NameDictionary {
+  private static final NameDictionary SHARED = new NameDictionary();
+
+  /** The code of a null name, which is not held in the dictionary */
+  public static final int NO_NAME = -1;
+
+  private final Map<String, Integer> codes;
+  private volatile String[] names;    // republished after every name added
+  private int size;
+
+  /**
+   * Constructs an empty dictionary
+   */
+  private NameDictionary() {
+    this.codes = new ConcurrentHashMap<>();
+    this.names = new String[64];
+    this.size = 0;
+  }
+
+  /**
+   * Returns the dictionary shared by all tests
+   * @return the shared dictionary
+   */
+  public static NameDictionary shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns the code of the given name, adding the name if it is new
+   * @param name the name to encode
+   * @return the code of the name, or NO_NAME if the name is null
+   */
+  public int encode(String name) {
+    if (name == null) {
+      return NO_NAME;
+    }
+    Integer code = this.codes.get(name);
+    return code != null ? code : add(name);
+  }
+
+  /**
+   * Returns the code of the given name without adding it, which is enough to compare the name
+   * with the codes held by others
+   * @param name the name to look up
+   * @return the code of the name, or NO_NAME if the name is null or not in the dictionary
+   */
+  public int codeOf(String name) {
+    Integer code = name == null ? null : this.codes.get(name);
+    return code == null ? NO_NAME : code;
+  }
+
+  /**
+   * Returns the name of the given code
+   * @param code a code returned by {@link #encode(String)}
+   * @return the name of the code, or null for NO_NAME
+   */
+  public String name(int code) {
+    if (code == NO_NAME) {
+      return null;
+    }
+    String[] names = this.names;
+    String name = code < names.length ? names[code] : null;
+    if (name == null) {
+      synchronized (this) {    // a code read before the array holding its name was published
+        name = this.names[code];
+      }
+    }
+    return name;
+  }
+
+  /**
+   * Returns the number of distinct names in the dictionary
+   * @return number of names held
+   */
+  public int size() {
+    return this.codes.size();
+  }
+
+  /**
+   * Adds a name, unless another thread added it first
+   * @param name the name to add
+   * @return the code of the name
+   */
+  private synchronized int add(String name) {
+    Integer code = this.codes.get(name);
+    if (code == null) {
+      code = this.size++;
+      String[] names = this.names;
+      if (code == names.length) {
+        names = Arrays.copyOf(names, code * 2);
+      }
+      names[code] = name;
+      this.names = names;
+      this.codes.put(name, code);
+    }
+    return code;
+  }
+}
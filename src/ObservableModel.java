@@ -0,0 +1,725 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class implements the IModel interface by decorating another IModel, telling listeners
+ * about every change made through it: items inserted into, removed from and moved within the
+ * lists of samples, tests and equipment, and tests linked to and unlinked from samples. Views,
+ * journals and caches can then follow the model change by change rather than reading whole
+ * lists back after every action.
+ *
+ * Changes are delivered in batches, one per transaction. Each change made outside a transaction
+ * is a transaction of its own; changes made between beginTransaction and endTransaction are
+ * delivered together when the outermost transaction ends, with runs of insertions merged. When
+ * no one is listening, nothing is recorded and calls cost only a counter update more.
+ *
+ * The model must only be changed through this class while it is in use, and, like the model it
+ * decorates, it is meant to be used by one thread at a time
+ */
+public class ObservableModel implements IModel {
+  private final IModel model;
+  private final List<ModelListener> listeners;
+  private final int[] sizes;
+  private List<ModelChange> pending;
+  private int depth;
+
+  /**
+   * Constructs a model that reports the changes made to the given model
+   * @param model the model to observe
+   */
+  public ObservableModel(IModel model) {
+    this.model = model;
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.sizes = new int[ModelEntity.values().length];
+    this.sizes[ModelEntity.SAMPLE.ordinal()] = model.getListOfSamples().size();
+    this.sizes[ModelEntity.TEST.ordinal()] = model.getListOfTests().size();
+    this.sizes[ModelEntity.EQUIPMENT.ordinal()] = model.getListOfEquipment().size();
+    this.pending = new ArrayList<>();
+  }
+
+  /**
+   * Adds a listener to be told about every later transaction
+   * @param listener the listener
+   */
+  public void addModelListener(ModelListener listener) {
+    this.listeners.add(listener);
+  }
+
+  /**
+   * Removes a listener, which is told about no later transaction
+   * @param listener the listener
+   */
+  public void removeModelListener(ModelListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  /**
+   * Starts a transaction, whose changes are delivered together when it ends. A transaction begun
+   * inside another is part of the other
+   */
+  public void beginTransaction() {
+    this.depth++;
+  }
+
+  /**
+   * Ends the transaction last begun, delivering its changes to the listeners if it is the
+   * outermost one
+   * @throws IllegalStateException if no transaction has begun
+   */
+  public void endTransaction() {
+    if (this.depth == 0) {
+      throw new IllegalStateException("No transaction has begun");
+    }
+    if (--this.depth == 0) {
+      deliver();
+    }
+  }
+
+  /**
+   * Adds a sample to the IModel dashboard
+   *
+   * @param sample the sample to be added to the IModel dashboard
+   * @throws IllegalArgumentException if a sample with the same ID is already in the dashboard
+   */
+  @Override
+  public void addSample(Sample sample) {
+    model.addSample(sample);
+    inserted(ModelEntity.SAMPLE);
+  }
+
+  /**
+   * Takes the ID of a sample and returns the sample with that ID
+   *
+   * @param sampleID the ID (a six digit integer) of the sample of interest
+   * @return the sample with the given ID, or null if there is no such sample
+   */
+  @Override
+  public Sample findSampleById(int sampleID) {
+    return model.findSampleById(sampleID);
+  }
+
+  /**
+   * Deletes a sample from the IModel dashboard at the given index, and
+   * deletes the sample from the tests that contain the sample
+   *
+   * @param index the index of the sample to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteSample(int index) {
+    BitSet removed = mark(ModelEntity.SAMPLE, new int[]{index});
+    List<ModelChange> unlinks = unlinks(ModelEntity.SAMPLE, removed);
+    model.deleteSample(index);
+    removed(ModelEntity.SAMPLE, removed, unlinks);
+  }
+
+  /**
+   * Deletes the samples at the given indices from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. The indices refer to the list of samples before
+   * any of them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the samples to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteSamples(int[] indices) {
+    BitSet removed = mark(ModelEntity.SAMPLE, indices);
+    List<ModelChange> unlinks = unlinks(ModelEntity.SAMPLE, removed);
+    model.deleteSamples(indices);
+    removed(ModelEntity.SAMPLE, removed, unlinks);
+  }
+
+  /**
+   * Deletes the samples with the given IDs from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. IDs that no sample has are skipped
+   *
+   * @param sampleIDs the IDs of the samples to be deleted
+   * @return the number of samples deleted
+   */
+  @Override
+  public int deleteSamplesById(int[] sampleIDs) {
+    if (this.listeners.isEmpty()) {
+      int deleted = model.deleteSamplesById(sampleIDs);
+      this.sizes[ModelEntity.SAMPLE.ordinal()] -= deleted;
+      return deleted;
+    }
+    IntHashMap<Boolean> doomed = new IntHashMap<>();
+    for (int sampleID : sampleIDs) {
+      doomed.put(sampleID, Boolean.TRUE);
+    }
+    List<Sample> samples = model.getListOfSamples();
+    int[] indices = new int[samples.size()];
+    int found = 0;
+    for (int i = 0; i < samples.size(); i++) {
+      Integer sampleID = samples.get(i).getSampleID();
+      if (sampleID != null && doomed.containsKey(sampleID)) {
+        indices[found++] = i;
+      }
+    }
+    deleteSamples(Arrays.copyOf(indices, found));
+    return found;
+  }
+
+  /**
+   * Adds equipment to the IModel dashboard
+   *
+   * @param equipment the equipment to be added to the IModel dashboard
+   */
+  @Override
+  public void addEquipment(Equipment equipment) {
+    model.addEquipment(equipment);
+    inserted(ModelEntity.EQUIPMENT);
+  }
+
+  /**
+   * Deletes equipment from the IModel dashboard at the given index
+   *
+   * @param index the index of the equipment to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteEquipment(int index) throws IllegalArgumentException {
+    BitSet removed = mark(ModelEntity.EQUIPMENT, new int[]{index});
+    model.deleteEquipment(index);
+    removed(ModelEntity.EQUIPMENT, removed, List.of());
+  }
+
+  /**
+   * Deletes the equipment at the given indices from the IModel dashboard in one pass. The indices
+   * refer to the list of equipment before any of it is deleted, and may be given in any order
+   *
+   * @param indices the indices of the equipment to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteEquipment(int[] indices) {
+    BitSet removed = mark(ModelEntity.EQUIPMENT, indices);
+    model.deleteEquipment(indices);
+    removed(ModelEntity.EQUIPMENT, removed, List.of());
+  }
+
+  /**
+   * Adds a test to the IModel dashboard
+   *
+   * @param test the test to be added to the IModel dashboard
+   */
+  @Override
+  public void addTest(LabTest test) {
+    model.addTest(test);
+    inserted(ModelEntity.TEST);
+  }
+
+  /**
+   * Deletes a test from the IModel dashboard at the given index, and
+   * deletes the test from the samples that require the test
+   *
+   * @param index the index of the test to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteTest(int index) throws IllegalArgumentException {
+    BitSet removed = mark(ModelEntity.TEST, new int[]{index});
+    List<ModelChange> unlinks = unlinks(ModelEntity.TEST, removed);
+    model.deleteTest(index);
+    removed(ModelEntity.TEST, removed, unlinks);
+  }
+
+  /**
+   * Deletes the tests at the given indices from the IModel dashboard in one pass, and deletes the
+   * tests from the samples that require them. The indices refer to the list of tests before any of
+   * them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the tests to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteTests(int[] indices) {
+    BitSet removed = mark(ModelEntity.TEST, indices);
+    List<ModelChange> unlinks = unlinks(ModelEntity.TEST, removed);
+    model.deleteTests(indices);
+    removed(ModelEntity.TEST, removed, unlinks);
+  }
+
+  /**
+   * Returns the current list of samples in the IModel dashboard
+   *
+   * @return list of samples in the IModel dashboard
+   */
+  @Override
+  public List<Sample> getListOfSamples() {
+    return model.getListOfSamples();
+  }
+
+  /**
+   * Returns the current list of equipment in the IModel dashboard
+   *
+   * @return list of equipment in the IModel dashboard
+   */
+  @Override
+  public List<Equipment> getListOfEquipment() {
+    return model.getListOfEquipment();
+  }
+
+  /**
+   * Returns the current list of tests in the IModel dashboard
+   *
+   * @return list of tests in the IModel dashboard
+   */
+  @Override
+  public List<LabTest> getListOfTests() {
+    return model.getListOfTests();
+  }
+
+  /**
+   * Sorts the list of samples in the IModel dashboard by ID
+   */
+  @Override
+  public void sortSamplesByID() {
+    List<Object> before = keys(ModelEntity.SAMPLE);
+    model.sortSamplesByID();
+    moved(ModelEntity.SAMPLE, before);
+  }
+
+  /**
+   * Sorts the list of equipment in the IModel dashboard by remaining number of days
+   * until service is due
+   */
+  @Override
+  public void sortEquipmentByServiceUrgency() {
+    List<Object> before = keys(ModelEntity.EQUIPMENT);
+    model.sortEquipmentByServiceUrgency();
+    moved(ModelEntity.EQUIPMENT, before);
+  }
+
+  /**
+   * Sorts the list of tests in the IModel dashboard by one of two enumerated types; DURATION or
+   * NUMBER_OF_SAMPLES. Sorting by DURATION will use the duration of each test in the list of tests,
+   * while sorting by NUMBER_OF_SAMPLES will use the number of samples in the lust of samples of
+   * each test
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   */
+  @Override
+  public void sortTestsByPriority(TestPriority priority) {
+    List<Object> before = keys(ModelEntity.TEST);
+    model.sortTestsByPriority(priority);
+    moved(ModelEntity.TEST, before);
+  }
+
+  /**
+   * Returns a read-only view of the samples in the IModel dashboard in ascending order of ID.
+   * The order is maintained as samples are added and deleted, so reading it costs no sort
+   *
+   * @return the samples in ascending order of ID
+   */
+  @Override
+  public Iterable<Sample> getSamplesOrderedByID() {
+    return model.getSamplesOrderedByID();
+  }
+
+  /**
+   * Returns a read-only view of the equipment in the IModel dashboard in ascending order of the
+   * number of days until service is due. The order is maintained as equipment is added and
+   * deleted, so reading it costs no sort
+   *
+   * @return the equipment, most urgent first
+   */
+  @Override
+  public Iterable<Equipment> getEquipmentOrderedByServiceUrgency() {
+    return model.getEquipmentOrderedByServiceUrgency();
+  }
+
+  /**
+   * Returns the k pieces of equipment whose service is most urgent, most urgent first. This reads
+   * the head of the service urgency index, in O(k + log n)
+   *
+   * @param k the number of pieces of equipment to return
+   * @return list of at most k pieces of equipment with the fewest days until service is due
+   * @throws IllegalArgumentException if k is negative
+   */
+  @Override
+  public List<Equipment> mostUrgentEquipment(int k) {
+    return model.mostUrgentEquipment(k);
+  }
+
+  /**
+   * Returns the equipment whose service is due within the given range of days, most urgent first.
+   * This reads a range of the service urgency index, in O(log n + k) for k matching items
+   *
+   * @param fromDays the lowest number of days until service is due to include
+   * @param toDays   the highest number of days until service is due to include
+   * @return list of equipment due from fromDays to toDays days from now, inclusive
+   * @throws IllegalArgumentException if fromDays is greater than toDays
+   */
+  @Override
+  public List<Equipment> equipmentDueWithin(int fromDays, int toDays) {
+    return model.equipmentDueWithin(fromDays, toDays);
+  }
+
+  /**
+   * Returns a read-only view of the tests in the IModel dashboard in ascending order of one of
+   * two enumerated types; DURATION or NUMBER_OF_SAMPLES. The order is maintained as tests are
+   * added and deleted and as samples are added to tests, so reading it costs no sort
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   * @return the tests in ascending order of the given priority
+   */
+  @Override
+  public Iterable<LabTest> getTestsOrderedByPriority(TestPriority priority) {
+    return model.getTestsOrderedByPriority(priority);
+  }
+
+  /**
+   * Takes the name of a sample and the name of a test and adds the test to the sample
+   *
+   * @param sampleName name of the sample to add a test to
+   * @param testName   name of test to be added to the sample
+   */
+  @Override
+  public void addTestToSample(String sampleName, String testName) {
+    boolean linked = this.listeners.isEmpty()
+        || model.getTestsForSample(sampleName).contains(testName);
+    model.addTestToSample(sampleName, testName);
+    if (!linked && model.getTestsForSample(sampleName).contains(testName)) {
+      publish(ModelChange.links(ChangeKind.LINKED, List.of(sampleName), List.of(testName)));
+    }
+  }
+
+  /**
+   * Takes a collection of names of tests and a collection of names of samples and adds every test
+   * to every sample. Each name is looked up once, and pairs that are already linked are skipped.
+   * Only the pairs newly linked are reported, one LINKED change for each set of samples given the
+   * same new tests
+   *
+   * @param testNames   names of the tests to be added to the samples
+   * @param sampleNames names of the samples to add the tests to
+   * @return the number of tests newly added to samples
+   */
+  @Override
+  public int assignTests(Collection<String> testNames, Collection<String> sampleNames) {
+    if (this.listeners.isEmpty()) {
+      return model.assignTests(testNames, sampleNames);
+    }
+    Map<String, Set<String>> before = new LinkedHashMap<>();
+    for (String sampleName : sampleNames) {
+      before.computeIfAbsent(sampleName, name -> new HashSet<>(model.getTestsForSample(name)));
+    }
+    int added = model.assignTests(testNames, sampleNames);
+    if (added == 0) {
+      return added;
+    }
+
+    // group the samples by the tests they gained, in the order the samples were given
+    Map<List<String>, List<String>> linked = new LinkedHashMap<>();
+    for (Map.Entry<String, Set<String>> sample : before.entrySet()) {
+      List<String> gained = new ArrayList<>();
+      for (String test : new LinkedHashSet<>(model.getTestsForSample(sample.getKey()))) {
+        if (!sample.getValue().contains(test)) {
+          gained.add(test);
+        }
+      }
+      if (!gained.isEmpty()) {
+        linked.computeIfAbsent(gained, tests -> new ArrayList<>()).add(sample.getKey());
+      }
+    }
+    beginTransaction();
+    for (Map.Entry<List<String>, List<String>> link : linked.entrySet()) {
+      publish(ModelChange.links(ChangeKind.LINKED, link.getValue(), link.getKey()));
+    }
+    endTransaction();
+    return added;
+  }
+
+  /**
+   * Takes the name of a sample and returns a copy of list of the names of test for the sample
+   *
+   * @param sampleName the name of the sample of interest
+   * @return List of names of tests requested for the sample
+   */
+  @Override
+  public List<String> getTestsForSample(String sampleName) {
+    return model.getTestsForSample(sampleName);
+  }
+
+  /**
+   * Takes the name of a test and returns a copy of list of the names of samples for the test
+   *
+   * @param testName the name of the sample of interest
+   * @return List of names of samples that require this test
+   */
+  @Override
+  public List<String> getSamplesForTest(String testName) {
+    return model.getSamplesForTest(testName);
+  }
+
+  /**
+   * Takes the name of an equipment and returns its service urgency
+   * @param equipmentName names of equipment
+   * @return number of days until next service is due
+   */
+  @Override
+  public int getEquipmentInfo(String equipmentName) {
+    return model.getEquipmentInfo(equipmentName);
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a sample with the given name
+   * @param sampleName the name of the sample of interest
+   * @return true if there is at least one sample with that name, false otherwise
+   */
+  @Override
+  public boolean containsSample(String sampleName) {
+    return model.containsSample(sampleName);
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a test with the given name
+   * @param testName the name of the test of interest
+   * @return true if there is at least one test with that name, false otherwise
+   */
+  @Override
+  public boolean containsTest(String testName) {
+    return model.containsTest(testName);
+  }
+
+  /**
+   * Returns a list of names of the samples in the exact order of the list of samples
+   * @return List of names of samples
+   */
+  @Override
+  public List<String> getListOfNamesOfSamples() {
+    return model.getListOfNamesOfSamples();
+  }
+
+  /**
+   * Returns a list of names of the tests in the exact order of the list of tests
+   *
+   * @return List of names of tests
+   */
+  @Override
+  public List<String> getListOfNamesOfTests() {
+    return model.getListOfNamesOfTests();
+  }
+
+  /**
+   * Returns a list of names of the equipment in the exact order of the list of equipment
+   *
+   * @return List of names of equipment
+   */
+  @Override
+  public List<String> getListOfNamesOfEquipment() {
+    return model.getListOfNamesOfEquipment();
+  }
+
+  /**
+   * Deletes all samples from the list of samples
+   */
+  @Override
+  public void clearSamples() {
+    BitSet removed = all(ModelEntity.SAMPLE);
+    List<ModelChange> unlinks = unlinks(ModelEntity.SAMPLE, removed);
+    model.clearSamples();
+    removed(ModelEntity.SAMPLE, removed, unlinks);
+  }
+
+  /**
+   * Deletes all tests from the list of samples
+   */
+  @Override
+  public void clearTests() {
+    BitSet removed = all(ModelEntity.TEST);
+    List<ModelChange> unlinks = unlinks(ModelEntity.TEST, removed);
+    model.clearTests();
+    removed(ModelEntity.TEST, removed, unlinks);
+  }
+
+  /**
+   * Deletes all equipment from the list of samples
+   */
+  @Override
+  public void clearEquipment() {
+    BitSet removed = all(ModelEntity.EQUIPMENT);
+    model.clearEquipment();
+    removed(ModelEntity.EQUIPMENT, removed, List.of());
+  }
+
+  /**
+   * Records a change, delivering it at once unless a transaction is open
+   * @param change the change
+   */
+  private void publish(ModelChange change) {
+    if (!this.listeners.isEmpty()) {
+      int last = this.pending.size() - 1;
+      ModelChange merged = last < 0 ? null : this.pending.get(last).merge(change);
+      if (merged != null) {
+        this.pending.set(last, merged);
+      } else {
+        this.pending.add(change);
+      }
+    }
+    if (this.depth == 0) {
+      deliver();
+    }
+  }
+
+  private void deliver() {
+    if (this.pending.isEmpty()) {
+      return;
+    }
+    List<ModelChange> changes = List.copyOf(this.pending);
+    this.pending = new ArrayList<>();
+    for (ModelListener listener : this.listeners) {
+      listener.modelChanged(changes);
+    }
+  }
+
+  private void inserted(ModelEntity entity) {
+    publish(ModelChange.inserted(entity, this.sizes[entity.ordinal()]++, 1));
+  }
+
+  /**
+   * Returns the distinct indices among the given ones that are in range
+   * @param entity the list the indices refer to
+   * @param indices the indices
+   * @return set of indices
+   */
+  private BitSet mark(ModelEntity entity, int[] indices) {
+    int size = this.sizes[entity.ordinal()];
+    BitSet marked = new BitSet(size);
+    for (int index : indices) {
+      if (index >= 0 && index < size) {
+        marked.set(index);
+      }
+    }
+    return marked;
+  }
+
+  private BitSet all(ModelEntity entity) {
+    BitSet marked = new BitSet();
+    marked.set(0, this.sizes[entity.ordinal()]);
+    return marked;
+  }
+
+  /**
+   * Returns the links that removing the given samples or tests removes, if anyone is listening
+   * @param entity SAMPLE or TEST
+   * @param removed the indices of the items to be removed
+   * @return list of UNLINKED changes, one for each item with links
+   */
+  private List<ModelChange> unlinks(ModelEntity entity, BitSet removed) {
+    List<ModelChange> unlinks = new ArrayList<>();
+    if (this.listeners.isEmpty() || removed.isEmpty()) {
+      return unlinks;
+    }
+    if (entity == ModelEntity.SAMPLE) {
+      List<Sample> samples = model.getListOfSamples();
+      for (int i = removed.nextSetBit(0); i >= 0; i = removed.nextSetBit(i + 1)) {
+        List<String> tests = samples.get(i).getListOfTests();
+        if (!tests.isEmpty()) {
+          unlinks.add(ModelChange.links(ChangeKind.UNLINKED,
+              List.of(samples.get(i).getSampleName()), tests));
+        }
+      }
+    } else {
+      List<LabTest> tests = model.getListOfTests();
+      for (int i = removed.nextSetBit(0); i >= 0; i = removed.nextSetBit(i + 1)) {
+        List<String> samples = tests.get(i).getListOfSamples();
+        if (!samples.isEmpty()) {
+          unlinks.add(ModelChange.links(ChangeKind.UNLINKED, samples,
+              List.of(tests.get(i).getTestName())));
+        }
+      }
+    }
+    return unlinks;
+  }
+
+  /**
+   * Records the removal of items that the decorated model has just removed
+   * @param entity the list the items were removed from
+   * @param removed the indices of the items
+   * @param unlinks the links removed with them
+   */
+  private void removed(ModelEntity entity, BitSet removed, List<ModelChange> unlinks) {
+    this.sizes[entity.ordinal()] -= removed.cardinality();
+    if (removed.isEmpty()) {
+      return;
+    }
+    beginTransaction();
+    for (ModelChange unlink : unlinks) {
+      publish(unlink);
+    }
+    publish(ModelChange.removed(entity, removed.stream().toArray()));
+    endTransaction();
+  }
+
+  /**
+   * Returns what identifies each item of a list, if anyone is listening: the item itself. A model
+   * that returns a new object each time a sample is read returns one equal to the last, for the
+   * same row or record, so handles are not needed, and are not issued to unlinked samples
+   * @param entity the list
+   * @return list of keys in the order of the list, or null if no one is listening
+   */
+  private List<Object> keys(ModelEntity entity) {
+    if (this.listeners.isEmpty()) {
+      return null;
+    }
+    List<Object> keys = new ArrayList<>(this.sizes[entity.ordinal()]);
+    switch (entity) {
+      case SAMPLE -> keys.addAll(model.getListOfSamples());
+      case TEST -> keys.addAll(model.getListOfTests());
+      case EQUIPMENT -> keys.addAll(model.getListOfEquipment());
+    }
+    return keys;
+  }
+
+  /**
+   * Records the move of the items of a list that the decorated model has just sorted. Samples
+   * and tests are matched by equals, which their implementations leave to identity or to the row
+   * or record, and equipment by identity, so items that have the same name are never confused
+   * @param entity the list
+   * @param before the keys of the items before the sort, or null if no one was listening
+   * @throws IllegalStateException if the decorated model returns an item after the sort that
+   *                               is not equal to any item it returned before
+   */
+  private void moved(ModelEntity entity, List<Object> before) {
+    if (before == null) {
+      return;
+    }
+    List<Object> after = keys(entity);
+    Map<Object, Integer> index = entity == ModelEntity.EQUIPMENT
+        ? new IdentityHashMap<>() : new HashMap<>();
+    for (int i = 0; i < before.size(); i++) {
+      index.put(before.get(i), i);
+    }
+    int[] order = new int[after.size()];
+    boolean same = true;
+    for (int i = 0; i < order.length; i++) {
+      Integer position = index.get(after.get(i));
+      if (position == null) {
+        throw new IllegalStateException("Sorted " + entity.name().toLowerCase(Locale.ROOT)
+            + " list holds an item that is not equal to any item before the sort: "
+            + after.get(i));
+      }
+      order[i] = position;
+      same &= order[i] == i;
+    }
+    if (!same) {
+      publish(ModelChange.moved(entity, order));
+    }
+  }
+}
@@ -17,6 +17,12 @@ public interface Sample {
    */
   Integer getSampleID();
 
+  /**
+   * Returns the handle that identifies this sample in the {@link LinkStore} of its model
+   * @return int the handle of this sample, or LinkStore.NO_HANDLE if it is in no store
+   */
+  int getHandle();
+
   /**
    * Returns the list of tests that have been requested for this sample
    * @return List of tests that have been requested for this sample
@@ -24,9 +30,10 @@ public interface Sample {
   List<String> getListOfTests();
 
   /**
-   * Adds a test to this sample by adding the test's name to the list of tests of this sample,
-   * if and only if the sample does not already contain the test. When the test's name is added
-   * to this sample, this sample's name is added to the test's list of samples.
+   * Adds a test to this sample by linking the test to this sample, if and only if the sample
+   * does not already contain the test. When the test is linked to this sample, the test's name
+   * appears in this sample's list of tests and this sample's name appears in the test's list
+   * of samples.
    *
    * @param test the LabTest to add to this sample's list of tests. Specifically, the test's name
    *             will be added to the list
@@ -34,9 +41,9 @@ public interface Sample {
   void addTestToSample(LabTest test);
 
   /**
-   * Deletes a test to this sample by deleting the test's name to the list of tests
-   * of this sample. When the test's name is deleted from this sample, this sample's name
-   * is deleted from the test's list of samples.
+   * Deletes a test from this sample by removing the link between the test and this sample.
+   * When the link is removed, the test's name is deleted from this sample's list of tests
+   * and this sample's name is deleted from the test's list of samples.
    * @param test the LabTest to delete from this sample's list of tests. Specifically, the
    *             test's name will be deleted from the list
    */
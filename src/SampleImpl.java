@@ -1,14 +1,15 @@
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * This class implements the Sample interface with all it's mandated methods
  */
-public class SampleImpl implements Sample {
+public class SampleImpl implements Sample, LinkStore.Member {
   private final String name;
   private final Integer ID;
   private final List<String> listOfTests;
+  private LinkStore linkStore;    // null until the sample is linked or added to a model
+  private int handle;
 
   /**
    * Constructs a sample with the patient's name and identification number
@@ -18,7 +19,8 @@ public class SampleImpl implements Sample {
   public SampleImpl(String name, Integer ID) {
     this.name = name;
     this.ID = ID;
-    this.listOfTests = new ArrayList<>();
+    this.handle = LinkStore.NO_HANDLE;
+    this.listOfTests = LinkStore.testsOf(this);
   }
 
   /**
@@ -42,9 +44,41 @@ public class SampleImpl implements Sample {
   }
 
   /**
-   * Adds a test to this sample by adding the test's name to the list of tests of this sample,
-   * if and only if the sample does not already contain the test. When the test's name is added
-   * to this sample, this sample's name is added to the test's list of samples.
+   * Returns the handle that identifies this sample in its link store
+   *
+   * @return int the handle of this sample, or LinkStore.NO_HANDLE if it is in no store
+   */
+  @Override
+  public int getHandle() {
+    return this.handle;
+  }
+
+  /**
+   * Returns the link store this sample is in
+   *
+   * @return the link store, or null if the sample has not been linked or added to a model
+   */
+  @Override
+  public LinkStore getLinkStore() {
+    return this.linkStore;
+  }
+
+  /**
+   * Records the link store this sample has joined or left, and its handle there
+   *
+   * @param store the link store, or null if the sample has left its store
+   * @param handle the handle of this sample in the store
+   */
+  @Override
+  public void bind(LinkStore store, int handle) {
+    this.linkStore = store;
+    this.handle = handle;
+  }
+
+  /**
+   * Adds a test to this sample by linking the test to this sample, if and only if the sample does
+   * not already contain the test. When the test is linked to this sample, the test's name appears
+   * in this sample's list of tests and this sample's name appears in the test's list of samples.
    *
    * @param test the LabTest to add to this sample's list of tests. Specifically, the test's name
    *             will be added to the list
@@ -52,17 +86,13 @@ public class SampleImpl implements Sample {
   @Override
   public void addTestToSample(LabTest test) {
     Objects.requireNonNull(test);
-    if (this.listOfTests.contains(test.getTestName())) {
-      return;
-    }
-    listOfTests.add(test.getTestName());
-    test.addSampleToTest(this);
+    LinkStore.link(this, test);
   }
 
   /**
-   * Deletes a test to this sample by deleting the test's name to the list of tests of this sample.
-   * When the test's name is deleted from this sample, this sample's name is deleted from the test's
-   * list of samples.
+   * Deletes a test from this sample by removing the link between the test and this sample. When
+   * the link is removed, the test's name is deleted from this sample's list of tests and this
+   * sample's name is deleted from the test's list of samples.
    *
    * @param test the LabTest to delete from this sample's list of tests. Specifically, the test's
    *             name will be deleted from the list
@@ -70,8 +100,7 @@ public class SampleImpl implements Sample {
   @Override
   public void deleteTestFromSample(LabTest test) {
     Objects.requireNonNull(test);
-    listOfTests.remove(test.getTestName());
-    test.deleteSampleFromTest(this);
+    LinkStore.unlink(this, test);
   }
 
   /**
@@ -88,7 +117,8 @@ public class SampleImpl implements Sample {
   }
 
   /**
-   * Returns the list of tests that have been requested for this sample
+   * Returns the list of tests that have been requested for this sample. The list is a live view
+   * of the links of this sample
    *
    * @return List of tests that have been requested for this sample
    */
@@ -0,0 +1,329 @@
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class represents a table of samples stored column by column: an int array of IDs, an
+ * array of names, and an int array of handles in the {@link LinkStore} of the model, whose
+ * bitmaps hold the tests of each sample. The tests are kept there rather than as a range of a
+ * test column of the table, since links also change through the samples and tests themselves
+ * and the store already holds them compactly, from both sides. Rows are dense, so scans and
+ * sorts over a column are loops over a single array. Deleting or sorting rows moves the columns
+ * and renumbers the indexes by ID and by name in one pass each; rows deleted one at a time are
+ * renumbered together, before the indexes are next used. Sample names are nearly all distinct,
+ * so they are kept as they are rather than encoded; the index by name is keyed by their hash
+ * codes.
+ */
+public class SampleTable {
+  /** The ID column value of a sample without an ID */
+  public static final int NO_ID = Integer.MIN_VALUE;
+
+  private static final int MIN_CAPACITY = 16;
+
+  private int[] ids;
+  private String[] names;
+  private int[] handles;
+  private int size;
+  private final IntMultimap rowsByID;
+  private final IntMultimap rowsByName;
+  private final LinkStore links;
+  private int[] rowsOrderedByID;    // null until needed after the table changes
+
+  // rows deleted one at a time since the indexes were last renumbered, in ascending order and
+  // numbered as the indexes still number them
+  private int[] deletedRows;
+  private int deletedCount;
+
+  /**
+   * Constructs an empty table, whose samples are linked in the given store
+   * @param links the link store of the model the table belongs to
+   */
+  public SampleTable(LinkStore links) {
+    this.links = links;
+    this.ids = new int[MIN_CAPACITY];
+    this.names = new String[MIN_CAPACITY];
+    this.handles = new int[MIN_CAPACITY];
+    this.size = 0;
+    this.rowsByID = new IntMultimap();
+    this.rowsByName = new IntMultimap();
+    this.deletedRows = new int[MIN_CAPACITY];
+    this.deletedCount = 0;
+  }
+
+  /**
+   * Appends a sample to the table and issues its handle in the link store
+   * @param sampleID the ID of the sample, or null if it has none
+   * @param name the name of the sample
+   * @return the row of the sample
+   * @throws IllegalArgumentException if a sample with the same ID is already in the table, or
+   *                                  the ID is NO_ID
+   */
+  public int add(Integer sampleID, String name) {
+    int id = sampleID == null ? NO_ID : sampleID;
+    if (sampleID != null && id == NO_ID) {
+      throw new IllegalArgumentException("Invalid sample ID: " + sampleID);
+    }
+    renumberDeleted();
+    if (sampleID != null && rowsByID.first(id) >= 0) {
+      throw new IllegalArgumentException("Duplicate sample ID: " + sampleID);
+    }
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+      names = Arrays.copyOf(names, size * 2);
+      handles = Arrays.copyOf(handles, size * 2);
+    }
+
+    int row = size++;
+    ids[row] = id;
+    names[row] = name;
+    handles[row] = links.registerSample(name);
+    if (id != NO_ID) {
+      rowsByID.put(id, row);
+    }
+    rowsByName.put(Objects.hashCode(name), row);
+    rowsOrderedByID = null;
+    return row;
+  }
+
+  /**
+   * Returns the number of samples in the table
+   * @return the number of rows
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the ID of the sample in the given row
+   * @param row the row
+   * @return the ID of the sample, or null if it has none
+   */
+  public Integer id(int row) {
+    return ids[check(row)] == NO_ID ? null : ids[row];
+  }
+
+  /**
+   * Returns the name of the sample in the given row
+   * @param row the row
+   * @return the name of the sample
+   */
+  public String name(int row) {
+    return names[check(row)];
+  }
+
+  /**
+   * Returns the handle in the link store of the sample in the given row
+   * @param row the row
+   * @return the handle of the sample
+   */
+  public int handle(int row) {
+    return handles[check(row)];
+  }
+
+  /**
+   * Returns the names of all samples, in row order
+   * @return array of names of the samples
+   */
+  public String[] names() {
+    return Arrays.copyOf(names, size);
+  }
+
+  /**
+   * Returns the row of the sample with the given ID
+   * @param sampleID the ID to look for
+   * @return the row of the sample, or -1 if there is no such sample
+   */
+  public int rowOf(int sampleID) {
+    renumberDeleted();
+    return sampleID == NO_ID ? -1 : rowsByID.first(sampleID);
+  }
+
+  /**
+   * Returns the rows of the samples with the given name, in ascending order
+   * @param name the name to look for
+   * @return array of rows, usually of one sample
+   */
+  public int[] rowsNamed(String name) {
+    renumberDeleted();
+    int[] rows = rowsByName.get(Objects.hashCode(name));
+    int count = 0;
+    for (int row : rows) {
+      if (Objects.equals(names[row], name)) {
+        rows[count++] = row;
+      }
+    }
+    rows = Arrays.copyOf(rows, count);
+    Arrays.sort(rows);
+    return rows;
+  }
+
+  /**
+   * Returns the rows of the table in ascending order of ID; samples without an ID come first
+   * @return array of rows ordered by ID. The array must not be changed
+   */
+  public int[] rowsOrderedByID() {
+    if (rowsOrderedByID == null) {
+      long[] keys = new long[size];
+      for (int row = 0; row < size; row++) {
+        keys[row] = (long) ids[row] << 32 | row;
+      }
+      Arrays.sort(keys);
+      int[] rows = new int[size];
+      for (int i = 0; i < size; i++) {
+        rows[i] = (int) keys[i];
+      }
+      rowsOrderedByID = rows;
+    }
+    return rowsOrderedByID;
+  }
+
+  /**
+   * Reorders the rows of the table by ID
+   */
+  public void sortByID() {
+    renumberDeleted();
+    int[] order = rowsOrderedByID();
+    int[] renumbering = new int[size];
+    for (int i = 0; i < size; i++) {
+      renumbering[order[i]] = i;
+    }
+    ids = permute(ids, order);
+    names = permute(names, order);
+    handles = permute(handles, order);
+    rowsByID.renumber(renumbering);
+    rowsByName.renumber(renumbering);
+
+    int[] identity = new int[size];
+    Arrays.setAll(identity, i -> i);
+    rowsOrderedByID = identity;
+  }
+
+  /**
+   * Deletes the marked rows in one pass, releasing their handles
+   * @param marked array the size of the table, with true at every row to delete
+   */
+  public void delete(boolean[] marked) {
+    renumberDeleted();
+    int[] renumbering = new int[size];
+    int kept = 0;
+    for (int row = 0; row < size; row++) {
+      if (marked[row]) {
+        release(row);
+      } else {
+        ids[kept] = ids[row];
+        names[kept] = names[row];
+        handles[kept] = handles[row];
+        renumbering[row] = kept++;
+      }
+    }
+    Arrays.fill(names, kept, size, null);
+    size = kept;
+    rowsByID.renumber(renumbering);
+    rowsByName.renumber(renumbering);
+    rowsOrderedByID = null;
+  }
+
+  /**
+   * Deletes the given row, releasing its handle. The columns are shifted in place, and the
+   * indexes are renumbered later in one pass for all the rows deleted this way in the meantime
+   * @param row the row to delete
+   */
+  public void delete(int row) {
+    check(row);
+
+    // the number of the row in the indexes counts the deleted rows not yet renumbered
+    int indexed = row;
+    int at = 0;
+    while (at < deletedCount && deletedRows[at] <= indexed) {
+      indexed++;
+      at++;
+    }
+    if (ids[row] != NO_ID) {
+      rowsByID.remove(ids[row], indexed);
+    }
+    rowsByName.remove(Objects.hashCode(names[row]), indexed);
+    links.releaseSample(handles[row]);
+
+    if (deletedCount == deletedRows.length) {
+      deletedRows = Arrays.copyOf(deletedRows, deletedCount * 2);
+    }
+    System.arraycopy(deletedRows, at, deletedRows, at + 1, deletedCount - at);
+    deletedRows[at] = indexed;
+    deletedCount++;
+
+    int moved = size - row - 1;
+    System.arraycopy(ids, row + 1, ids, row, moved);
+    System.arraycopy(names, row + 1, names, row, moved);
+    System.arraycopy(handles, row + 1, handles, row, moved);
+    names[--size] = null;
+    rowsOrderedByID = null;
+  }
+
+  /**
+   * Deletes every row, releasing their handles
+   */
+  public void clear() {
+    for (int row = 0; row < size; row++) {
+      links.releaseSample(handles[row]);
+    }
+    Arrays.fill(names, 0, size, null);
+    size = 0;
+    deletedCount = 0;
+    rowsByID.clear();
+    rowsByName.clear();
+    rowsOrderedByID = null;
+  }
+
+  /**
+   * Removes the index entries of a row and releases its handle
+   * @param row the row being deleted
+   */
+  private void release(int row) {
+    if (ids[row] != NO_ID) {
+      rowsByID.remove(ids[row], row);
+    }
+    rowsByName.remove(Objects.hashCode(names[row]), row);
+    links.releaseSample(handles[row]);
+  }
+
+  /**
+   * Renumbers the indexes by ID and by name for the rows deleted one at a time since they were
+   * last renumbered, in one pass each
+   */
+  private void renumberDeleted() {
+    if (deletedCount == 0) {
+      return;
+    }
+    int[] renumbering = new int[size + deletedCount];
+    int deleted = 0;
+    for (int row = 0; row < renumbering.length; row++) {
+      if (deleted < deletedCount && deletedRows[deleted] == row) {
+        deleted++;
+      } else {
+        renumbering[row] = row - deleted;
+      }
+    }
+    deletedCount = 0;
+    rowsByID.renumber(renumbering);
+    rowsByName.renumber(renumbering);
+  }
+
+  private int check(int row) {
+    return Objects.checkIndex(row, size);
+  }
+
+  private static int[] permute(int[] column, int[] order) {
+    int[] permuted = new int[column.length];
+    for (int i = 0; i < order.length; i++) {
+      permuted[i] = column[order[i]];
+    }
+    return permuted;
+  }
+
+  private static String[] permute(String[] column, int[] order) {
+    String[] permuted = new String[column.length];
+    for (int i = 0; i < order.length; i++) {
+      permuted[i] = column[order[i]];
+    }
+    return permuted;
+  }
+}
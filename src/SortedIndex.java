@@ -0,0 +1,204 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.ToLongFunction;
+
+/**
+ * This class represents a secondary index that keeps items ordered by a long key. Adding,
+ * removing and re-keying an item cost O(log n), and iterating over the index returns the items
+ * in ascending key order. Items with equal keys are returned in the order of the list they are
+ * kept in, as last given to {@link #reorder(List)}, with the items added since in the order they
+ * were added, so the order is that of a stable sort of the list and depends on nothing else
+ *
+ * @param <T> the type of the items in the index
+ */
+public class SortedIndex<T> implements Iterable<T> {
+  private final ToLongFunction<T> key;
+  private final TreeSet<Node<T>> nodes;
+  private final Map<T, Node<T>> nodeOf;   // by identity; items added more than once are chained
+  private long nextSequence;
+
+  /**
+   * Constructs an empty index ordered by the given key
+   * @param key function returning the key of an item
+   */
+  public SortedIndex(ToLongFunction<T> key) {
+    this.key = key;
+    this.nodes = new TreeSet<>();
+    this.nodeOf = new IdentityHashMap<>();
+    this.nextSequence = 0;
+  }
+
+  /**
+   * Adds an item to the index
+   * @param item the item to add
+   */
+  public void add(T item) {
+    Node<T> node = new Node<>(key.applyAsLong(item), nextSequence++, item);
+    node.next = nodeOf.put(item, node);
+    nodes.add(node);
+  }
+
+  /**
+   * Removes an item from the index. If the item was added more than once, only one copy
+   * is removed
+   * @param item the item to remove
+   * @return true if the item was removed, false if it was not in the index
+   */
+  public boolean remove(T item) {
+    Node<T> node = nodeOf.remove(item);
+    if (node == null) {
+      return false;
+    }
+    if (node.next != null) {
+      nodeOf.put(item, node.next);
+    }
+    nodes.remove(node);
+    return true;
+  }
+
+  /**
+   * Recomputes the key of an item and moves it to its new position if the key changed
+   * @param item the item whose key may have changed
+   */
+  public void update(T item) {
+    long newKey = key.applyAsLong(item);
+    for (Node<T> node = nodeOf.get(item); node != null; node = node.next) {
+      if (node.key != newKey) {
+        nodes.remove(node);
+        node.key = newKey;
+        nodes.add(node);
+      }
+    }
+  }
+
+  /**
+   * Breaks the ties between items with equal keys in the order of the given list, which must
+   * hold the items of the index. Called whenever the list the items are kept in is reordered,
+   * in O(n log n)
+   * @param order the items of the index in their new order
+   */
+  public void reorder(List<T> order) {
+    Map<T, Node<T>> next = new IdentityHashMap<>();   // for items added more than once
+    nodes.clear();
+    nextSequence = 0;
+    for (T item : order) {
+      Node<T> node = next.containsKey(item) ? next.get(item) : nodeOf.get(item);
+      next.put(item, node.next);
+      node.sequence = nextSequence++;
+      nodes.add(node);
+    }
+  }
+
+  /**
+   * Removes every item from the index
+   */
+  public void clear() {
+    nodes.clear();
+    nodeOf.clear();
+  }
+
+  /**
+   * Returns the number of items in the index
+   * @return the number of items in the index
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * Returns the first k items in ascending key order, in O(k + log n)
+   * @param k the number of items to return
+   * @return list of at most k items with the smallest keys
+   */
+  public List<T> first(int k) {
+    List<T> result = new ArrayList<>(Math.min(k, nodes.size()));
+    Iterator<Node<T>> it = nodes.iterator();
+    while (result.size() < k && it.hasNext()) {
+      result.add(it.next().item);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the items whose keys are within the given range, in ascending key order, in
+   * O(log n + k) for k matching items
+   * @param fromKey the lowest key to include
+   * @param toKey the highest key to include
+   * @return list of the items with keys from fromKey to toKey, inclusive
+   */
+  public List<T> range(long fromKey, long toKey) {
+    List<T> result = new ArrayList<>();
+    if (fromKey > toKey) {
+      return result;
+    }
+    Node<T> from = new Node<>(fromKey, Long.MIN_VALUE, null);
+    Node<T> to = new Node<>(toKey, Long.MAX_VALUE, null);
+    for (Node<T> node : nodes.subSet(from, true, to, true)) {
+      result.add(node.item);
+    }
+    return result;
+  }
+
+  /**
+   * Returns a read-only view of the index, which iterates over the items in ascending key order
+   * and, unlike the index itself, cannot be cast back to change it
+   * @return read-only view of the items
+   */
+  public Iterable<T> view() {
+    return this::iterator;
+  }
+
+  /**
+   * Returns a read-only iterator over the items in ascending key order
+   * @return iterator over the items
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return items(nodes.iterator());
+  }
+
+  /**
+   * Wraps an iterator over nodes in a read-only iterator over their items
+   * @param nodes iterator over nodes
+   * @return iterator over the items of the nodes
+   */
+  static <T> Iterator<T> items(Iterator<Node<T>> nodes) {
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return nodes.hasNext();
+      }
+
+      @Override
+      public T next() {
+        return nodes.next().item;
+      }
+    };
+  }
+
+  /**
+   * This class represents an item in the index, with the key it is currently filed under
+   */
+  static class Node<T> implements Comparable<Node<T>> {
+    private long key;
+    private long sequence;
+    private final T item;
+    private Node<T> next;   // another node for the same item, if it was added more than once
+
+    Node(long key, long sequence, T item) {
+      this.key = key;
+      this.sequence = sequence;
+      this.item = item;
+    }
+
+    @Override
+    public int compareTo(Node<T> other) {
+      int byKey = Long.compare(this.key, other.key);
+      return byKey != 0 ? byKey : Long.compare(this.sequence, other.sequence);
+    }
+  }
+}
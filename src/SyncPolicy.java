@@ -0,0 +1,8 @@
+/**
+ * This enumerated type sets the predefined constants EVERY_WRITE, GROUP_COMMIT
+ * and NONE, which decide when a journal forces its records to disk. EVERY_WRITE
+ * forces each record before the change returns, GROUP_COMMIT forces all records
+ * written within a short interval together in the background, and NONE leaves
+ * it to the operating system
+ */
+public enum SyncPolicy {EVERY_WRITE, GROUP_COMMIT, NONE}
@@ -0,0 +1,521 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class turns the tests assigned to the samples of an IModel dashboard into a run plan:
+ * batches of samples for each piece of equipment to run a test on, one after another, so that
+ * the day ends as early as possible. Each sample takes the duration of its test, and a test can
+ * only run on the equipment that is able to run it.
+ *
+ * The plan is first made by list scheduling in LPT order: the sample-tests are taken longest
+ * test first and each is given to the capable piece of equipment that finishes earliest. It may
+ * then be improved by local search, moving a sample-test off the piece of equipment that finishes
+ * last, or swapping it for a shorter one, while that ends the day earlier, and then shaking the
+ * plan up a little and searching again. Several searches, each shaking the plan up differently,
+ * run in parallel and the best plan is kept; the plan depends only on the dashboard, the seed,
+ * the number of threads and the number of rounds.
+ *
+ * Sample-tests of the same test are interchangeable, so a plan is kept as the number of samples
+ * of each test that each piece of equipment runs, and its size does not grow with the number of
+ * samples.
+ */
+public class TestScheduler implements AutoCloseable {
+  private static final int MAX_STEPS = 100_000;
+  private static final int KICK = 3;
+
+  private final int threads;
+  private final ExecutorService searchers;
+  private int rounds;
+  private long seed;
+
+  /**
+   * Constructs a scheduler that improves its plans with the given number of parallel searches
+   * @param threads the number of local searches to run in parallel, or 0 for list scheduling
+   *                alone
+   * @throws IllegalArgumentException if threads is negative
+   */
+  public TestScheduler(int threads) {
+    if (threads < 0) {
+      throw new IllegalArgumentException("Invalid number of threads");
+    }
+    this.threads = threads;
+    this.searchers = threads == 0 ? null : Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "labflow-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.rounds = 20;
+  }
+
+  /**
+   * Sets the number of times each search shakes up the plan it has found and searches again
+   * @param rounds the number of rounds, 0 to stop at the first plan that cannot be improved
+   * @throws IllegalArgumentException if rounds is negative
+   */
+  public void setRounds(int rounds) {
+    if (rounds < 0) {
+      throw new IllegalArgumentException("Invalid number of rounds");
+    }
+    this.rounds = rounds;
+  }
+
+  /**
+   * Sets the seed the searches shake up their plans with
+   * @param seed the seed
+   */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Stops the search threads
+   */
+  @Override
+  public void close() {
+    if (this.searchers != null) {
+      this.searchers.shutdownNow();
+    }
+  }
+
+  /**
+   * Takes a dashboard and which tests each piece of equipment can run, and returns a plan
+   * running every test assigned to a sample on equipment able to run it. Tests assigned to
+   * samples that no equipment can run are left out of the plan and listed in it
+   * @param model the dashboard; it must not be changed while the plan is made
+   * @param testsOfEquipment the names of the tests each piece of equipment can run, by name of
+   *                         the equipment
+   * @return the plan
+   * @throws IllegalArgumentException if a piece of equipment named is not in the dashboard
+   */
+  public Schedule plan(IModel model, Map<String, ? extends Collection<String>> testsOfEquipment) {
+    Problem problem = new Problem(model, testsOfEquipment);
+    Plan best = problem.listSchedule();
+    if (this.searchers != null && best.makespan() > 0) {
+      List<Future<Plan>> searches = new ArrayList<>(this.threads);
+      for (int i = 0; i < this.threads; i++) {
+        Random random = new Random(this.seed + i);
+        Plan start = best.copy();
+        int searchRounds = this.rounds;
+        searches.add(this.searchers.submit(() -> start.search(random, searchRounds)));
+      }
+      for (Future<Plan> search : searches) {
+        Plan plan = join(search);
+        if (plan.makespan() < best.makespan()) {
+          best = plan;
+        }
+      }
+    }
+    return problem.schedule(best);
+  }
+
+  private static Plan join(Future<Plan> search) {
+    try {
+      return search.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while scheduling", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Could not search for a schedule", e.getCause());
+    }
+  }
+
+  /**
+   * This class holds the tests, samples and equipment to schedule, by index
+   */
+  private static class Problem {
+    private final String[] testNames;
+    private final long[] durations;
+    private final List<List<String>> samples;
+    private final String[] equipmentNames;
+    private final int[][] capable;      // the equipment able to run each test
+    private final boolean[][] canRun;   // whether each piece of equipment can run each test
+    private final int[] byDuration;     // the tests to run, longest first
+    private final List<String> unscheduled;
+
+    Problem(IModel model, Map<String, ? extends Collection<String>> testsOfEquipment) {
+      List<LabTest> tests = model.getListOfTests();
+      List<Equipment> equipment = model.getListOfEquipment();
+      Map<String, Integer> testIndex = new HashMap<>();
+      Map<String, Integer> equipmentIndex = new HashMap<>();
+      this.testNames = new String[tests.size()];
+      this.durations = new long[tests.size()];
+      this.samples = new ArrayList<>(tests.size());
+      for (int t = 0; t < tests.size(); t++) {
+        this.testNames[t] = tests.get(t).getTestName();
+        this.durations[t] = tests.get(t).getTestDuration();
+        this.samples.add(testIndex.putIfAbsent(this.testNames[t], t) == null
+            ? model.getSamplesForTest(this.testNames[t]) : List.of());
+      }
+      this.equipmentNames = new String[equipment.size()];
+      for (int m = 0; m < equipment.size(); m++) {
+        this.equipmentNames[m] = equipment.get(m).getEquipmentName();
+        equipmentIndex.putIfAbsent(this.equipmentNames[m], m);
+      }
+
+      this.canRun = new boolean[equipment.size()][tests.size()];
+      int[] capableCount = new int[tests.size()];
+      for (Map.Entry<String, ? extends Collection<String>> entry : testsOfEquipment.entrySet()) {
+        Integer m = equipmentIndex.get(entry.getKey());
+        if (m == null) {
+          throw new IllegalArgumentException("No equipment " + entry.getKey());
+        }
+        for (String test : entry.getValue()) {
+          Integer t = testIndex.get(test);
+          if (t != null && !this.canRun[m][t]) {
+            this.canRun[m][t] = true;
+            capableCount[t]++;
+          }
+        }
+      }
+      this.capable = new int[tests.size()][];
+      for (int t = 0; t < tests.size(); t++) {
+        this.capable[t] = new int[capableCount[t]];
+        for (int m = 0, i = 0; i < capableCount[t]; m++) {
+          if (this.canRun[m][t]) {
+            this.capable[t][i++] = m;
+          }
+        }
+      }
+
+      List<Integer> toRun = new ArrayList<>();
+      this.unscheduled = new ArrayList<>();
+      for (int t = 0; t < tests.size(); t++) {
+        if (this.samples.get(t).isEmpty()) {
+          continue;
+        }
+        if (this.capable[t].length == 0) {
+          this.unscheduled.add(this.testNames[t]);
+        } else {
+          toRun.add(t);
+        }
+      }
+      toRun.sort((a, b) -> this.durations[a] != this.durations[b]
+          ? Long.compare(this.durations[b], this.durations[a]) : Integer.compare(a, b));
+      this.byDuration = toRun.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns the plan made by giving each sample-test, longest test first, to the capable
+     * piece of equipment that finishes earliest
+     * @return the plan
+     */
+    Plan listSchedule() {
+      Plan plan = new Plan(this);
+      for (int t : this.byDuration) {
+        for (int n = this.samples.get(t).size(); n > 0; n--) {
+          int earliest = this.capable[t][0];
+          for (int m : this.capable[t]) {
+            if (plan.load[m] < plan.load[earliest]) {
+              earliest = m;
+            }
+          }
+          plan.add(earliest, t, 1);
+        }
+      }
+      return plan;
+    }
+
+    /**
+     * Returns the batches of a plan, the samples of each test given out to the equipment in
+     * order, and each piece of equipment running its batches longest test first
+     * @param plan the plan
+     * @return the schedule
+     */
+    Schedule schedule(Plan plan) {
+      List<Batch> batches = new ArrayList<>();
+      int[] given = new int[this.testNames.length];
+      long[] clock = new long[this.equipmentNames.length];
+      for (int m = 0; m < this.equipmentNames.length; m++) {
+        for (int t : this.byDuration) {
+          int count = plan.counts[m][t];
+          if (count == 0) {
+            continue;
+          }
+          List<String> batch = this.samples.get(t).subList(given[t], given[t] + count);
+          given[t] += count;
+          batches.add(new Batch(this.equipmentNames[m], this.testNames[t], clock[m],
+              count * this.durations[t], batch));
+          clock[m] += count * this.durations[t];
+        }
+      }
+      return new Schedule(batches, plan.makespan(), this.unscheduled);
+    }
+  }
+
+  /**
+   * This class represents a plan as the number of samples of each test each piece of equipment
+   * runs, with the time each piece of equipment is busy
+   */
+  private static class Plan {
+    private final Problem problem;
+    private final int[][] counts;
+    private final long[] load;
+
+    Plan(Problem problem) {
+      this.problem = problem;
+      this.counts = new int[problem.equipmentNames.length][problem.testNames.length];
+      this.load = new long[problem.equipmentNames.length];
+    }
+
+    Plan copy() {
+      Plan copy = new Plan(this.problem);
+      for (int m = 0; m < this.counts.length; m++) {
+        System.arraycopy(this.counts[m], 0, copy.counts[m], 0, this.counts[m].length);
+      }
+      System.arraycopy(this.load, 0, copy.load, 0, this.load.length);
+      return copy;
+    }
+
+    void add(int m, int t, int count) {
+      this.counts[m][t] += count;
+      this.load[m] += count * this.problem.durations[t];
+    }
+
+    long makespan() {
+      long makespan = 0;
+      for (long busy : this.load) {
+        makespan = Math.max(makespan, busy);
+      }
+      return makespan;
+    }
+
+    int last() {
+      int last = 0;
+      for (int m = 1; m < this.load.length; m++) {
+        if (this.load[m] > this.load[last]) {
+          last = m;
+        }
+      }
+      return last;
+    }
+
+    /**
+     * Improves this plan by local search, then shakes it up and searches again the given number
+     * of times, and returns the best plan found
+     * @param random where to shake the plan up and in what order to try changes
+     * @param rounds the number of times to shake the plan up
+     * @return the best plan found, which may be this one
+     */
+    Plan search(Random random, int rounds) {
+      descend(random);
+      Plan best = copy();
+      for (int round = 0; round < rounds; round++) {
+        kick(random);
+        descend(random);
+        if (makespan() < best.makespan()) {
+          best = copy();
+        }
+      }
+      return best;
+    }
+
+    /**
+     * Moves or swaps sample-tests off the piece of equipment that finishes last while each
+     * change makes it finish earlier without making the other one finish as late, which lowers
+     * the sum of the squares of the loads, so the search ends
+     * @param random in what order to try changes
+     */
+    private void descend(Random random) {
+      Problem p = this.problem;
+      List<Integer> tests = new ArrayList<>();
+      for (int step = 0; step < MAX_STEPS; step++) {
+        int last = last();
+        tests.clear();
+        for (int t : p.byDuration) {
+          if (this.counts[last][t] > 0) {
+            tests.add(t);
+          }
+        }
+        Collections.shuffle(tests, random);
+        if (!improve(last, tests, random)) {
+          return;
+        }
+      }
+    }
+
+    private boolean improve(int last, List<Integer> tests, Random random) {
+      Problem p = this.problem;
+      for (int t : tests) {
+        int[] capable = p.capable[t];
+        int offset = random.nextInt(capable.length);
+        for (int i = 0; i < capable.length; i++) {
+          int m = capable[(offset + i) % capable.length];
+          if (m == last) {
+            continue;
+          }
+          if (this.load[m] + p.durations[t] < this.load[last]) {
+            add(last, t, -1);
+            add(m, t, 1);
+            return true;
+          }
+          for (int u : p.byDuration) {
+            if (this.counts[m][u] > 0 && p.canRun[last][u] && p.durations[u] < p.durations[t]
+                && this.load[m] + p.durations[t] - p.durations[u] < this.load[last]) {
+              add(last, t, -1);
+              add(m, t, 1);
+              add(m, u, -1);
+              add(last, u, 1);
+              return true;
+            }
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Moves a few sample-tests chosen at random to other equipment able to run them
+     * @param random which sample-tests to move and where
+     */
+    private void kick(Random random) {
+      Problem p = this.problem;
+      if (p.byDuration.length == 0) {
+        return;
+      }
+      for (int k = 0; k < KICK; k++) {
+        int t = p.byDuration[random.nextInt(p.byDuration.length)];
+        int[] capable = p.capable[t];
+        int from = capable[random.nextInt(capable.length)];
+        int to = capable[random.nextInt(capable.length)];
+        if (from != to && this.counts[from][t] > 0) {
+          add(from, t, -1);
+          add(to, t, 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * This class represents a run plan: the batches each piece of equipment runs, and the tests
+   * that could not be planned
+   */
+  public static class Schedule {
+    private final List<Batch> batches;
+    private final long makespan;
+    private final List<String> unscheduled;
+
+    Schedule(List<Batch> batches, long makespan, List<String> unscheduled) {
+      this.batches = Collections.unmodifiableList(batches);
+      this.makespan = makespan;
+      this.unscheduled = Collections.unmodifiableList(unscheduled);
+    }
+
+    /**
+     * Returns the time the last batch ends
+     * @return the makespan, in the units of the durations of the tests
+     */
+    public long getMakespan() {
+      return this.makespan;
+    }
+
+    /**
+     * Returns every batch, by equipment in the order of the dashboard and then by start
+     * @return list of batches
+     */
+    public List<Batch> getBatches() {
+      return this.batches;
+    }
+
+    /**
+     * Returns the batches of one piece of equipment, by start
+     * @param equipment the name of the equipment
+     * @return list of batches, empty if it runs none
+     */
+    public List<Batch> getBatches(String equipment) {
+      List<Batch> batches = new ArrayList<>();
+      for (Batch batch : this.batches) {
+        if (batch.equipment.equals(equipment)) {
+          batches.add(batch);
+        }
+      }
+      return batches;
+    }
+
+    /**
+     * Returns the names of the tests assigned to samples that no equipment can run
+     * @return list of names of tests
+     */
+    public List<String> getUnscheduledTests() {
+      return this.unscheduled;
+    }
+  }
+
+  /**
+   * This class represents one test run on a piece of equipment for a group of samples, one
+   * sample after another
+   */
+  public static class Batch {
+    private final String equipment;
+    private final String test;
+    private final long start;
+    private final long duration;
+    private final List<String> samples;
+
+    Batch(String equipment, String test, long start, long duration, List<String> samples) {
+      this.equipment = equipment;
+      this.test = test;
+      this.start = start;
+      this.duration = duration;
+      this.samples = samples;
+    }
+
+    /**
+     * Returns the name of the equipment the batch runs on
+     * @return the name of the equipment
+     */
+    public String getEquipment() {
+      return this.equipment;
+    }
+
+    /**
+     * Returns the name of the test the batch runs
+     * @return the name of the test
+     */
+    public String getTest() {
+      return this.test;
+    }
+
+    /**
+     * Returns the time the batch starts, from the start of the plan
+     * @return the start of the batch
+     */
+    public long getStart() {
+      return this.start;
+    }
+
+    /**
+     * Returns the time the batch takes, the duration of its test for each of its samples
+     * @return the duration of the batch
+     */
+    public long getDuration() {
+      return this.duration;
+    }
+
+    /**
+     * Returns the names of the samples the batch runs the test on
+     * @return list of names of samples
+     */
+    public List<String> getSamples() {
+      return this.samples;
+    }
+
+    /**
+     * Returns a short description of the batch, such as "CENTRIFUGE HCV 0+12 [JANE DOE]"
+     * @return String describing the batch
+     */
+    @Override
+    public String toString() {
+      return this.equipment + " " + this.test + " " + this.start + "+" + this.duration + " "
+          + this.samples;
+    }
+  }
+}
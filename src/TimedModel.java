@@ -0,0 +1,597 @@
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class implements the IModel interface by decorating another IModel, adding up the time
+ * spent in each call to it, so that the time a command spends in the model can be told apart
+ * from the time it spends in the view. Each thread adds up its own time, so the model may be
+ * timed from several threads at once and a thread reads only the time of its own calls; the
+ * calls themselves are passed on unchanged
+ */
+public class TimedModel implements IModel {
+  private final IModel model;
+  private final ThreadLocal<long[]> nanos;    // one counter per thread
+
+  /**
+   * Constructs a model that times every call to the given model
+   * @param model the model to time
+   */
+  public TimedModel(IModel model) {
+    this.model = model;
+    this.nanos = ThreadLocal.withInitial(() -> new long[1]);
+  }
+
+  /**
+   * Returns the total time the calling thread has spent in calls to the model since it was
+   * constructed
+   * @return the time in nanoseconds
+   */
+  public long getNanos() {
+    return this.nanos.get()[0];
+  }
+
+  /**
+   * Adds the time since the given start to the time of the calling thread
+   * @param start the System.nanoTime() at which the call started
+   */
+  private void spent(long start) {
+    this.nanos.get()[0] += System.nanoTime() - start;
+  }
+
+  /**
+   * Adds a sample to the IModel dashboard
+   *
+   * @param sample the sample to be added to the IModel dashboard
+   * @throws IllegalArgumentException if a sample with the same ID is already in the dashboard
+   */
+  @Override
+  public void addSample(Sample sample) {
+    long start = System.nanoTime();
+    try {
+      model.addSample(sample);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Takes the ID of a sample and returns the sample with that ID
+   *
+   * @param sampleID the ID (a six digit integer) of the sample of interest
+   * @return the sample with the given ID, or null if there is no such sample
+   */
+  @Override
+  public Sample findSampleById(int sampleID) {
+    long start = System.nanoTime();
+    try {
+      return model.findSampleById(sampleID);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes a sample from the IModel dashboard at the given index, and
+   * deletes the sample from the tests that contain the sample
+   *
+   * @param index the index of the sample to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteSample(int index) {
+    long start = System.nanoTime();
+    try {
+      model.deleteSample(index);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes the samples at the given indices from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. The indices refer to the list of samples before
+   * any of them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the samples to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteSamples(int[] indices) {
+    long start = System.nanoTime();
+    try {
+      model.deleteSamples(indices);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes the samples with the given IDs from the IModel dashboard in one pass, and deletes
+   * the samples from the tests that contain them. IDs that no sample has are skipped
+   *
+   * @param sampleIDs the IDs of the samples to be deleted
+   * @return the number of samples deleted
+   */
+  @Override
+  public int deleteSamplesById(int[] sampleIDs) {
+    long start = System.nanoTime();
+    try {
+      return model.deleteSamplesById(sampleIDs);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Adds equipment to the IModel dashboard
+   *
+   * @param equipment the equipment to be added to the IModel dashboard
+   */
+  @Override
+  public void addEquipment(Equipment equipment) {
+    long start = System.nanoTime();
+    try {
+      model.addEquipment(equipment);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes equipment from the IModel dashboard at the given index
+   *
+   * @param index the index of the equipment to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteEquipment(int index) throws IllegalArgumentException {
+    long start = System.nanoTime();
+    try {
+      model.deleteEquipment(index);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes the equipment at the given indices from the IModel dashboard in one pass. The indices
+   * refer to the list of equipment before any of it is deleted, and may be given in any order
+   *
+   * @param indices the indices of the equipment to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteEquipment(int[] indices) {
+    long start = System.nanoTime();
+    try {
+      model.deleteEquipment(indices);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Adds a test to the IModel dashboard
+   *
+   * @param test the test to be added to the IModel dashboard
+   */
+  @Override
+  public void addTest(LabTest test) {
+    long start = System.nanoTime();
+    try {
+      model.addTest(test);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes a test from the IModel dashboard at the given index, and
+   * deletes the test from the samples that require the test
+   *
+   * @param index the index of the test to be deleted
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  @Override
+  public void deleteTest(int index) throws IllegalArgumentException {
+    long start = System.nanoTime();
+    try {
+      model.deleteTest(index);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes the tests at the given indices from the IModel dashboard in one pass, and deletes the
+   * tests from the samples that require them. The indices refer to the list of tests before any of
+   * them is deleted, and may be given in any order
+   *
+   * @param indices the indices of the tests to be deleted
+   * @throws IllegalArgumentException if any index is out of range, in which case nothing is
+   *                                  deleted
+   */
+  @Override
+  public void deleteTests(int[] indices) {
+    long start = System.nanoTime();
+    try {
+      model.deleteTests(indices);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns the current list of samples in the IModel dashboard
+   *
+   * @return list of samples in the IModel dashboard
+   */
+  @Override
+  public List<Sample> getListOfSamples() {
+    long start = System.nanoTime();
+    try {
+      return model.getListOfSamples();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns the current list of equipment in the IModel dashboard
+   *
+   * @return list of equipment in the IModel dashboard
+   */
+  @Override
+  public List<Equipment> getListOfEquipment() {
+    long start = System.nanoTime();
+    try {
+      return model.getListOfEquipment();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns the current list of tests in the IModel dashboard
+   *
+   * @return list of tests in the IModel dashboard
+   */
+  @Override
+  public List<LabTest> getListOfTests() {
+    long start = System.nanoTime();
+    try {
+      return model.getListOfTests();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Sorts the list of samples in the IModel dashboard by ID
+   */
+  @Override
+  public void sortSamplesByID() {
+    long start = System.nanoTime();
+    try {
+      model.sortSamplesByID();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Sorts the list of equipment in the IModel dashboard by remaining number of days
+   * until service is due
+   */
+  @Override
+  public void sortEquipmentByServiceUrgency() {
+    long start = System.nanoTime();
+    try {
+      model.sortEquipmentByServiceUrgency();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Sorts the list of tests in the IModel dashboard by one of two enumerated types; DURATION or
+   * NUMBER_OF_SAMPLES. Sorting by DURATION will use the duration of each test in the list of tests,
+   * while sorting by NUMBER_OF_SAMPLES will use the number of samples in the lust of samples of
+   * each test
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   */
+  @Override
+  public void sortTestsByPriority(TestPriority priority) {
+    long start = System.nanoTime();
+    try {
+      model.sortTestsByPriority(priority);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns a read-only view of the samples in the IModel dashboard in ascending order of ID.
+   * The order is maintained as samples are added and deleted, so reading it costs no sort
+   *
+   * @return the samples in ascending order of ID
+   */
+  @Override
+  public Iterable<Sample> getSamplesOrderedByID() {
+    long start = System.nanoTime();
+    try {
+      return model.getSamplesOrderedByID();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns a read-only view of the equipment in the IModel dashboard in ascending order of the
+   * number of days until service is due. The order is maintained as equipment is added and
+   * deleted, so reading it costs no sort
+   *
+   * @return the equipment, most urgent first
+   */
+  @Override
+  public Iterable<Equipment> getEquipmentOrderedByServiceUrgency() {
+    long start = System.nanoTime();
+    try {
+      return model.getEquipmentOrderedByServiceUrgency();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns the k pieces of equipment whose service is most urgent, most urgent first. This reads
+   * the head of the service urgency index, in O(k + log n)
+   *
+   * @param k the number of pieces of equipment to return
+   * @return list of at most k pieces of equipment with the fewest days until service is due
+   * @throws IllegalArgumentException if k is negative
+   */
+  @Override
+  public List<Equipment> mostUrgentEquipment(int k) {
+    long start = System.nanoTime();
+    try {
+      return model.mostUrgentEquipment(k);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns the equipment whose service is due within the given range of days, most urgent first.
+   * This reads a range of the service urgency index, in O(log n + k) for k matching items
+   *
+   * @param fromDays the lowest number of days until service is due to include
+   * @param toDays   the highest number of days until service is due to include
+   * @return list of equipment due from fromDays to toDays days from now, inclusive
+   * @throws IllegalArgumentException if fromDays is greater than toDays
+   */
+  @Override
+  public List<Equipment> equipmentDueWithin(int fromDays, int toDays) {
+    long start = System.nanoTime();
+    try {
+      return model.equipmentDueWithin(fromDays, toDays);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns a read-only view of the tests in the IModel dashboard in ascending order of one of
+   * two enumerated types; DURATION or NUMBER_OF_SAMPLES. The order is maintained as tests are
+   * added and deleted and as samples are added to tests, so reading it costs no sort
+   *
+   * @param priority one of two enumerated types; DURATION or NUMBER_OF_SAMPLES
+   * @return the tests in ascending order of the given priority
+   */
+  @Override
+  public Iterable<LabTest> getTestsOrderedByPriority(TestPriority priority) {
+    long start = System.nanoTime();
+    try {
+      return model.getTestsOrderedByPriority(priority);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Takes the name of a sample and the name of a test and adds the test to the sample
+   *
+   * @param sampleName name of the sample to add a test to
+   * @param testName   name of test to be added to the sample
+   */
+  @Override
+  public void addTestToSample(String sampleName, String testName) {
+    long start = System.nanoTime();
+    try {
+      model.addTestToSample(sampleName, testName);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Takes a collection of names of tests and a collection of names of samples and adds every test
+   * to every sample. Each name is looked up once, and pairs that are already linked are skipped
+   *
+   * @param testNames   names of the tests to be added to the samples
+   * @param sampleNames names of the samples to add the tests to
+   * @return the number of tests newly added to samples
+   */
+  @Override
+  public int assignTests(Collection<String> testNames, Collection<String> sampleNames) {
+    long start = System.nanoTime();
+    try {
+      return model.assignTests(testNames, sampleNames);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Takes the name of a sample and returns a copy of list of the names of test for the sample
+   *
+   * @param sampleName the name of the sample of interest
+   * @return List of names of tests requested for the sample
+   */
+  @Override
+  public List<String> getTestsForSample(String sampleName) {
+    long start = System.nanoTime();
+    try {
+      return model.getTestsForSample(sampleName);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Takes the name of a test and returns a copy of list of the names of samples for the test
+   *
+   * @param testName the name of the sample of interest
+   * @return List of names of samples that require this test
+   */
+  @Override
+  public List<String> getSamplesForTest(String testName) {
+    long start = System.nanoTime();
+    try {
+      return model.getSamplesForTest(testName);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Takes the name of an equipment and returns its service urgency
+   * @param equipmentName names of equipment
+   * @return number of days until next service is due
+   */
+  @Override
+  public int getEquipmentInfo(String equipmentName) {
+    long start = System.nanoTime();
+    try {
+      return model.getEquipmentInfo(equipmentName);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a sample with the given name
+   * @param sampleName the name of the sample of interest
+   * @return true if there is at least one sample with that name, false otherwise
+   */
+  @Override
+  public boolean containsSample(String sampleName) {
+    long start = System.nanoTime();
+    try {
+      return model.containsSample(sampleName);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns whether the IModel dashboard holds a test with the given name
+   * @param testName the name of the test of interest
+   * @return true if there is at least one test with that name, false otherwise
+   */
+  @Override
+  public boolean containsTest(String testName) {
+    long start = System.nanoTime();
+    try {
+      return model.containsTest(testName);
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns a list of names of the samples in the exact order of the list of samples
+   * @return List of names of samples
+   */
+  @Override
+  public List<String> getListOfNamesOfSamples() {
+    long start = System.nanoTime();
+    try {
+      return model.getListOfNamesOfSamples();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns a list of names of the tests in the exact order of the list of tests
+   *
+   * @return List of names of tests
+   */
+  @Override
+  public List<String> getListOfNamesOfTests() {
+    long start = System.nanoTime();
+    try {
+      return model.getListOfNamesOfTests();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Returns a list of names of the equipment in the exact order of the list of equipment
+   *
+   * @return List of names of equipment
+   */
+  @Override
+  public List<String> getListOfNamesOfEquipment() {
+    long start = System.nanoTime();
+    try {
+      return model.getListOfNamesOfEquipment();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes all samples from the list of samples
+   */
+  @Override
+  public void clearSamples() {
+    long start = System.nanoTime();
+    try {
+      model.clearSamples();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes all tests from the list of samples
+   */
+  @Override
+  public void clearTests() {
+    long start = System.nanoTime();
+    try {
+      model.clearTests();
+    } finally {
+      spent(start);
+    }
+  }
+
+  /**
+   * Deletes all equipment from the list of samples
+   */
+  @Override
+  public void clearEquipment() {
+    long start = System.nanoTime();
+    try {
+      model.clearEquipment();
+    } finally {
+      spent(start);
+    }
+  }
+}
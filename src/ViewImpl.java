@@ -1,17 +1,17 @@
 import java.awt.BorderLayout;
 import java.awt.Color;
-import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Locale;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
-import javax.swing.JCheckBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextArea;
@@ -24,8 +24,9 @@ public class ViewImpl implements IView {
   private JFrame frame;
   private JTabbedPane tabs;
   private JPanel samplePane, testPane, equipmentPane, resultPane, sButtonPanel,
-      tButtonPanel, eButtonPanel, rPanel, sPaneRight, sPaneCenter, sPaneLeft, tPaneRight,
-      sPaneTopLeft, sPaneBottomLeft, ePaneLeft, ePaneRight, tPaneCenter, mainPane;
+      tButtonPanel, eButtonPanel, rPanel, sPaneRight, sPaneLeft, tPaneRight,
+      sPaneBottomLeft, ePaneRight, mainPane;
+  private CheckListModel sampleItems, testItems, sampleTestItems, equipmentItems;
   private JButton sAddButton, tAddButton, eAddButton, sSortButton, tSortButton, eSortButton,
       sClearButton, tClearButton, eClearButton, sDeleteButton, sShowButton, tDeleteButton,
       tShowButton, sAddTestButton, eShowButton, eDeleteButton, autoButton;
@@ -34,14 +35,9 @@ public class ViewImpl implements IView {
   private JScrollPane sScrollPaneTopLeft, tScrollPaneCenter, eScrollPaneLeft, sScrollPaneTopRight,
       sScrollPaneCenter, eScrollPaneTopRight;
   private JLabel sLabel1, sLabel2, tLabel1, tLabel2, eLabel1, eLabel2, rLabel1;
-  private final String[] someTests = {"HBV", "HCV", "HTLV I", "HTLV II", "HBCORE", "HIV I",
-                                      "HIV II", "DCA", "COVID I"};
-  private final String[] someSamples = {"JANE DOE", "LUKE SKYWALKER", "TOM CRUISE", "CHRIS ROCK",
-                                        "MARK MILLER", "MEL GIBSON", "LEO MESSI", "ALVARO MONGE"};
-  private final String[] someEquipment = {"CENTRIFUGE", "INCUBATOR", "FREEZER", "FUME HOOD",
-                                          "PRINTER", "SCALE", "PIPETTE", "MICROSCOPE",
-                                          "WATER PURIFIER", "HOTPLATE", "SHAKER", "FURNACE",
-                                          "OVEN", "AUTOCLAVE"};
+  private JPanel progressPanel;
+  private JLabel progressLabel;
+  private final ViewUpdates updates = new ViewUpdates();
   private final IController controller;
 
   /**
@@ -77,15 +73,10 @@ public class ViewImpl implements IView {
     // left, right, center panels
     sPaneRight = new JPanel(new BorderLayout());
     sPaneLeft = new JPanel(new BorderLayout());
-    sPaneCenter = new JPanel();
-    sPaneCenter.setBackground(Color.WHITE);
-    sPaneCenter.setLayout(new BoxLayout(sPaneCenter, BoxLayout.PAGE_AXIS));
-    sPaneCenter.setPreferredSize(new Dimension(400, 400));
-
-    // upper left, bottom left, upper right panels/text area
-    sPaneTopLeft = new JPanel();
-    sPaneTopLeft.setBackground(Color.WHITE);
-    sPaneTopLeft.setLayout(new BoxLayout(sPaneTopLeft, BoxLayout.PAGE_AXIS));
+    sampleItems = new CheckListModel();
+
+    // upper left (tests to add to samples), bottom left, upper right panels/text area
+    sampleTestItems = new CheckListModel();
     sPaneBottomLeft = new JPanel();
     sPaneBottomLeft.setLayout(new BoxLayout(sPaneBottomLeft, BoxLayout.PAGE_AXIS));
 
@@ -98,10 +89,13 @@ public class ViewImpl implements IView {
     sButtonPanel = new JPanel();
 
     // scroll panes for upper left, upper right
-    sScrollPaneTopLeft = new JScrollPane(sPaneTopLeft);
+    sScrollPaneTopLeft = new JScrollPane(
+        new CheckList(sampleTestItems, new Font(Font.SERIF, Font.PLAIN, 17)));
     sScrollPaneTopLeft.setAutoscrolls(true);
     sScrollPaneTopRight = new JScrollPane(sPaneTopRight);
-    sScrollPaneCenter = new JScrollPane(sPaneCenter);
+    sScrollPaneCenter = new JScrollPane(
+        new CheckList(sampleItems, new Font(Font.SERIF, Font.PLAIN, 17)));
+    sScrollPaneCenter.setPreferredSize(new Dimension(400, 400));
     sScrollPaneCenter.setAutoscrolls(true);
 
     // buttons
@@ -165,14 +159,13 @@ public class ViewImpl implements IView {
 
     /* --------------------------------test pane components-------------------------------- */
 
-    tPaneCenter = new JPanel();
-    tPaneCenter.setBackground(Color.WHITE);
-    tPaneCenter.setLayout(new BoxLayout(tPaneCenter, BoxLayout.PAGE_AXIS));
+    testItems = new CheckListModel();
     tPaneRight = new JPanel(new BorderLayout());
     tButtonPanel = new JPanel();
 
     // scrollable panes for left, center
-    tScrollPaneCenter = new JScrollPane(tPaneCenter);
+    tScrollPaneCenter = new JScrollPane(
+        new CheckList(testItems, new Font(Font.SERIF, Font.PLAIN, 16)));
     tScrollPaneCenter.setAutoscrolls(true);
 
     // buttons
@@ -215,9 +208,7 @@ public class ViewImpl implements IView {
     /* -------------------------------equipment pane components------------------------------- */
 
     // left, right sections
-    ePaneLeft = new JPanel();
-    ePaneLeft.setBackground(Color.WHITE);
-    ePaneLeft.setLayout(new BoxLayout(ePaneLeft, BoxLayout.PAGE_AXIS));
+    equipmentItems = new CheckListModel();
     ePaneRight = new JPanel(new BorderLayout());
     ePaneTopRight = new JTextArea(10, 10);
     ePaneTopRight.setEditable(false);
@@ -226,7 +217,8 @@ public class ViewImpl implements IView {
     eButtonPanel = new JPanel();
 
     // scrollable panes for left and upper right sections
-    eScrollPaneLeft = new JScrollPane(ePaneLeft);
+    eScrollPaneLeft = new JScrollPane(
+        new CheckList(equipmentItems, new Font(Font.SERIF, Font.PLAIN, 17)));
     eScrollPaneTopRight = new JScrollPane(ePaneTopRight);
 
     // buttons
@@ -289,14 +281,28 @@ public class ViewImpl implements IView {
     //tabs.add("manage equipment", equipmentPane);
     //tabs.add("send results", resultPane);
 
+    /* ------------------------------------progress bar------------------------------------ */
+
+    // shown while a command takes a while, with a button to cancel the commands waiting
+    progressPanel = new JPanel(new BorderLayout(10, 0));
+    progressLabel = new JLabel();
+    JProgressBar progressBar = new JProgressBar();
+    progressBar.setIndeterminate(true);
+    JButton cancelButton = new JButton("cancel waiting");
+    cancelButton.setActionCommand("cancel");
+    cancelButton.addActionListener(controller);
+    progressPanel.add(progressLabel, BorderLayout.LINE_START);
+    progressPanel.add(progressBar, BorderLayout.CENTER);
+    progressPanel.add(cancelButton, BorderLayout.LINE_END);
+    progressPanel.setVisible(false);
+
     // add tabs to frame, pack, set visible
     frame.add(tabs, BorderLayout.CENTER);
+    frame.add(progressPanel, BorderLayout.PAGE_END);
     frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     //frame.setSize(700, 400);
     frame.pack();
     frame.setVisible(true);
-
-    this.viewAutogenerate();
   }
 
   /**
@@ -327,73 +333,34 @@ public class ViewImpl implements IView {
   }
 
   /**
-   * Creates a checkbox with the sample's name and adds it to the GUI
+   * Adds the sample's name to the list of samples on the GUI
    */
   @Override
   public void viewAddSample() {
-
-    // create checkbox, add item listener, display to GUI
-    JCheckBox cb = new JCheckBox(sTextField1.getText().toUpperCase());
-    cb.setFont(new Font(Font.SERIF, Font.PLAIN, 17));
-    cb.addItemListener(controller);
-
-    sPaneCenter.updateUI();
-    sPaneCenter.add(cb);
+    sampleItems.add(sTextField1.getText().toUpperCase(Locale.ROOT));
     sTextField1.setText(null);
     sTextField2.setText(null);
   }
 
+
   /**
    * Takes a list of names of samples and returns an array of indices of samples
-   * from the original list that have been selected on the GUI
+   * from the original list that have been selected on the GUI, removing them from the GUI
    * @param listOfNamesOfSamples list of names of samples on the GUI
    * @return array of indices (integers) of selected samples
    */
   @Override
   public List<Integer> viewDeleteSample(List<String> listOfNamesOfSamples) {
-    List<Integer> indices = new ArrayList<>();
-
-    // for each comp selected, get name, loop through list, delete sample
-    Component[] components = sPaneCenter.getComponents();
-    for (Component component:components) {
-      if (((JCheckBox) component).getModel().isSelected()) {
-
-        // if it is selected, get its index in the list of names and append to 'indices'
-        for (String sampleName : listOfNamesOfSamples) {
-          if (Objects.equals(sampleName, ((JCheckBox) component).getText())) {
-            indices.add(listOfNamesOfSamples.indexOf(sampleName));
-
-            // remove from display
-            sPaneCenter.remove(component);
-            sPaneCenter.revalidate();
-            sPaneCenter.repaint();
-          }
-        }
-      }
-    }
-    return indices;
+    return deleteChecked(sampleItems, listOfNamesOfSamples);
   }
 
   /**
-   * Iterates through the tests on the GUI and returns a list of names of tests
-   * that have been selected
+   * Returns a list of names of tests that have been selected
    * @return list of names of tests that have been selected on the GUI
    */
   @Override
   public List<String> getSelectedTests() {
-    List<String> tests = new ArrayList<>();
-
-    // get components of the panel
-    Component[] components = sPaneTopLeft.getComponents();
-    for (Component component:components) {
-      if (((JCheckBox) component).getModel().isSelected()) {
-
-        // if it selected, add its text to the list of strings
-        tests.add(((JCheckBox) component).getText());
-      }
-    }
-
-    return tests;
+    return sampleTestItems.getCheckedNames();
   }
 
   /**
@@ -402,40 +369,18 @@ public class ViewImpl implements IView {
    */
   @Override
   public List<String> getTestToAddToSample() {
-
-    // get selected checkboxes
-    List<String > tests = this.getSelectedTests();
-
-    // uncheck the checkboxes
-    Component[] comps = sPaneTopLeft.getComponents();
-    for (Component component:comps) {
-      ((JCheckBox)component).setSelected(false);
-    }
-    sPaneTopLeft.revalidate();
-    sPaneTopLeft.repaint();
-
+    List<String> tests = sampleTestItems.getCheckedNames();
+    sampleTestItems.uncheckAll();
     return tests;
   }
 
   /**
-   * Iterates through the samples on the GUI and returns a list of names of samples
-   * that have been selected
+   * Returns a list of names of samples that have been selected
    * @return list of names of samples that have been selected on the GUI
    */
   @Override
   public List<String> getSelectedSamples() {
-    List<String> samples = new ArrayList<>();
-
-    // get components of the panel
-    Component[] components = sPaneCenter.getComponents();
-    for (Component component:components) {
-      if (((JCheckBox) component).getModel().isSelected()) {
-
-        // if it selected, add its text to the list of strings
-        samples.add(((JCheckBox) component).getText());
-      }
-    }
-    return samples;
+    return sampleItems.getCheckedNames();
   }
 
   /**
@@ -444,88 +389,35 @@ public class ViewImpl implements IView {
    */
   @Override
   public void viewShowTestsOfSample(List<String> tests) {
-    sPaneTopRight.setText(null);
-
-    // 'tests' is a copy of list of tests
-    for (String test:tests) {
-      sPaneTopRight.append(test + "\n");
-      sPaneTopRight.revalidate();
-      sPaneTopRight.repaint();
-    }
+    updates.setText(sPaneTopRight, lines(tests));
   }
 
   /**
-   * Creates a checkbox with the test's name and adds it to the GUI
+   * Adds the test's name to the lists of tests on the GUI
    */
   @Override
   public void viewAddTest() {
-
-    // create checkbox, add item listener, display to GUI
-    JCheckBox cb = new JCheckBox(tTextField1.getText().toUpperCase());
-    cb.setFont(new Font(Font.SERIF, Font.PLAIN, 16));
-    cb.setActionCommand("t");
-    cb.addItemListener(controller);
-
-    tPaneCenter.updateUI();
-    tPaneCenter.add(cb);
+    String name = tTextField1.getText().toUpperCase(Locale.ROOT);
+    testItems.add(name);
+    sampleTestItems.add(name);
     tTextField1.setText(null);
     tTextField2.setText(null);
-
-    // after displaying to main test pane, display to the test area of the sample pane
-    Component[] components = tPaneCenter.getComponents();
-    Component comp = components[components.length-1];
-    JCheckBox cbCopy = new JCheckBox(((JCheckBox)comp).getText());
-    cbCopy.setFont(new Font(Font.SERIF, Font.PLAIN, 17));
-    cbCopy.setActionCommand("t");
-    cbCopy.addItemListener(controller);
-    sPaneTopLeft.updateUI();
-    sPaneTopLeft.add(cbCopy);
   }
 
+
   /**
    * Takes a list of names of test and returns an array of indices of tests
-   * from the original list that have been selected on the GUI
+   * from the original list that have been selected on the GUI, removing them from the GUI
    * @param listOfNamesOfTests list of names of tests on the GUI
    * @return array of indices (integers) of selected tests
    */
   @Override
   public List<Integer> viewDeleteTest(List<String> listOfNamesOfTests) {
-    List<Integer> indices = new ArrayList<>();
-
-    // get components of the panel
-    Component[] components = tPaneCenter.getComponents();
-    for (Component component:components) {
-
-      // if it is selected, get its index in the list of names and append to 'indices'
-      if (((JCheckBox) component).getModel().isSelected()) {
-        for (String test : listOfNamesOfTests) {
-          if (Objects.equals(test, ((JCheckBox) component).getText())) {
-            indices.add(listOfNamesOfTests.indexOf(test));
-
-            // remove from display
-            tPaneCenter.remove(component);
-            tPaneCenter.revalidate();
-            tPaneCenter.repaint();
-          }
-        }
-      }
-    }
+    List<Integer> indices = deleteChecked(testItems, listOfNamesOfTests);
 
     // reflect changes on test display of sample pane
-    sPaneTopLeft.removeAll();
-    sPaneTopLeft.revalidate();
-    sPaneTopLeft.repaint();
-
-    Component[] comps = tPaneCenter.getComponents();
-    for (Component component:comps) {
-      JCheckBox cbCopy = new JCheckBox(((JCheckBox)component).getText());
-      cbCopy.setFont(new Font(Font.DIALOG, Font.PLAIN, 17));
-      cbCopy.setActionCommand("t");
-      cbCopy.addItemListener(controller);
-      sPaneTopLeft.updateUI();
-      sPaneTopLeft.add(cbCopy);
-    }
-
+    sampleTestItems.clear();
+    sampleTestItems.addAll(testItems.getNames());
     return indices;
   }
 
@@ -535,62 +427,44 @@ public class ViewImpl implements IView {
    */
   @Override
   public void viewShowSamplesOfTest(List<String> samples){
-    sPaneTopRight.setText(null);
-
-    for (String sample : samples) {
-      sPaneTopRight.append(sample + "\n");
-      sPaneTopRight.revalidate();
-      sPaneTopRight.repaint();
-    }
+    updates.setText(sPaneTopRight, lines(samples));
   }
 
   /**
-   * Creates a checkbox with the equipment's name and adds it to the GUI
+   * Adds the equipment's name to the list of equipment on the GUI
    */
   @Override
   public void viewAddEquipment() {
-
-    // create checkbox, add item listener, display to GUI
-    JCheckBox cb = new JCheckBox(eTextField1.getText().toUpperCase());
-    cb.setFont(new Font(Font.SERIF, Font.PLAIN, 17));
-    cb.addItemListener(controller);
-
-    ePaneLeft.updateUI();
-    ePaneLeft.add(cb);
+    equipmentItems.add(eTextField1.getText().toUpperCase(Locale.ROOT));
     eTextField1.setText(null);
     eTextField2.setText(null);
   }
 
+
+  /**
+   * Takes lists of names of samples, tests and equipment that are already in the model, for
+   * example after it was restored from disk, and adds them to the GUI
+   * @param samples list of names of samples
+   * @param tests list of names of tests
+   * @param equipment list of names of equipment
+   */
+  @Override
+  public void viewShowItems(List<String> samples, List<String> tests, List<String> equipment) {
+    sampleItems.addAll(samples);
+    testItems.addAll(tests);
+    sampleTestItems.addAll(tests);
+    equipmentItems.addAll(equipment);
+  }
+
   /**
    * Takes a list of names of equipment and returns an array of indices of equipment
-   * from the original list that have been selected on the GUI
+   * from the original list that have been selected on the GUI, removing them from the GUI
    * @param listOfNamesOfEquipment list of names of equipment on the GUI
    * @return array of indices (integers) of selected equipment
    */
   @Override
   public List<Integer> viewDeleteEquipment(List<String> listOfNamesOfEquipment) {
-    List<Integer> indices = new ArrayList<>();
-
-    // get components of the panel
-    Component[] components = ePaneLeft.getComponents();
-    for (Component component:components) {
-
-      // if it is selected, get its index in the list of names and append to 'indices'
-      if (((JCheckBox) component).getModel().isSelected()) {
-        for (String equipment : listOfNamesOfEquipment) {
-          if (Objects.equals(equipment, ((JCheckBox) component).getText())) {
-            indices.add(listOfNamesOfEquipment.indexOf(equipment));
-
-            // remove from display
-            ePaneLeft.remove(component);
-            ePaneLeft.revalidate();
-            ePaneLeft.repaint();
-          }
-        }
-      }
-    }
-
-    return indices;
+    return deleteChecked(equipmentItems, listOfNamesOfEquipment);
   }
 
   /**
@@ -599,17 +473,7 @@ public class ViewImpl implements IView {
    */
   @Override
   public List<String> getSelectedEquipment() {
-    List<String> equipment = new ArrayList<>();
-
-    // get components, if selected, add text to the list
-    Component[] components = ePaneLeft.getComponents();
-    for (Component component : components) {
-      if (((JCheckBox) component).getModel().isSelected()) {
-        equipment.add(((JCheckBox) component).getText());
-      }
-    }
-
-    return equipment;
+    return equipmentItems.getCheckedNames();
   }
 
   /**
@@ -617,7 +481,7 @@ public class ViewImpl implements IView {
    */
   @Override
   public void cleanUpEquipmentDisplay() {
-    ePaneTopRight.setText(null);
+    updates.setText(ePaneTopRight, null);
   }
 
   /**
@@ -627,92 +491,38 @@ public class ViewImpl implements IView {
    */
   @Override
   public void showEquipmentInfo(String equipmentName, int serviceUrgency) {
-    ePaneTopRight.append("Equipment: " + equipmentName + "\n");
-    ePaneTopRight.append("Next service due in (days): " + serviceUrgency + "\n\n");
+    updates.append(ePaneTopRight, "Equipment: " + equipmentName + "\n"
+        + "Next service due in (days): " + serviceUrgency + "\n\n");
   }
 
   /**
-   * Takes a list of names of current samples in sorted order and sorts
-   * the checkboxes on the display in the same order
-   * @param listOfNamesOfSamples list of names of sorted samples
+   * Takes the order the model has sorted the samples in and shows the samples in the same
+   * order, each staying checked or unchecked
+   * @param order the index each sample had before the sort, for each index after
    */
   @Override
-  public void sortSampleByID(List<String> listOfNamesOfSamples) {
-
-    // get components of the panel
-    Component[] components = sPaneCenter.getComponents();
-
-    // clear the display area
-    sPaneCenter.removeAll();
-    sPaneCenter.revalidate();
-    sPaneCenter.repaint();
-
-    // add back components in sorted order
-    for (String sample: listOfNamesOfSamples) {
-      for (Component component:components) {
-        if (Objects.equals(((JCheckBox) component).getText(), sample)) {
-          sPaneCenter.add(component);
-          sPaneCenter.revalidate();
-          sPaneCenter.repaint();
-        }
-      }
-    }
+  public void sortSampleByID(int[] order) {
+    sampleItems.permute(order);
   }
 
   /**
-   * Takes a list of names of current tests in sorted order and sorts
-   * the checkboxes on the display in the same order
-   * @param listOfNamesOfTests list of names of sorted tests
+   * Takes the order the model has sorted the tests in and shows the tests in the same
+   * order, each staying checked or unchecked
+   * @param order the index each test had before the sort, for each index after
    */
   @Override
-  public void sortTestByDuration(List<String> listOfNamesOfTests) {
-
-    // get components of the panel
-    Component[] components = tPaneCenter.getComponents();
-
-    // clear the display area
-    tPaneCenter.removeAll();
-    tPaneCenter.revalidate();
-    tPaneCenter.repaint();
-
-    // add back components in sorted order
-    for (String test: listOfNamesOfTests) {
-      for (Component component:components) {
-        if (Objects.equals(((JCheckBox) component).getText(), test)) {
-          tPaneCenter.add(component);
-          tPaneCenter.revalidate();
-          tPaneCenter.repaint();
-        }
-      }
-    }
+  public void sortTestByDuration(int[] order) {
+    testItems.permute(order);
   }
 
   /**
-   * Takes a list of names of current equipment in sorted order and sorts
-   * the checkboxes on the display in the same order
-   * @param listOfNamesOfEquipment list of names of sorted equipment
+   * Takes the order the model has sorted the equipment in and shows the equipment in the same
+   * order, each staying checked or unchecked
+   * @param order the index each piece of equipment had before the sort, for each index after
    */
   @Override
-  public void sortEquipmentByService(List<String> listOfNamesOfEquipment) {
-
-    // get components of the panel
-    Component[] components = ePaneLeft.getComponents();
-
-    // clear the display area
-    ePaneLeft.removeAll();
-    ePaneLeft.revalidate();
-    ePaneLeft.repaint();
-
-    // add back components in sorted order
-    for (String equipment: listOfNamesOfEquipment) {
-      for (Component component:components) {
-        if (Objects.equals(((JCheckBox) component).getText(), equipment)) {
-          ePaneLeft.add(component);
-          ePaneLeft.revalidate();
-          ePaneLeft.repaint();
-        }
-      }
-    }
+  public void sortEquipmentByService(int[] order) {
+    equipmentItems.permute(order);
   }
 
   /**
@@ -720,13 +530,8 @@ public class ViewImpl implements IView {
    */
   @Override
   public void viewClearSamples() {
-
-    // clear display area
-    sPaneCenter.removeAll();
-    sPaneCenter.revalidate();
-    sPaneCenter.repaint();
-
-    sPaneTopRight.setText(null);
+    sampleItems.clear();
+    updates.setText(sPaneTopRight, null);
   }
 
   /**
@@ -736,13 +541,8 @@ public class ViewImpl implements IView {
   public void viewClearTests() {
 
     // clear both display areas
-    tPaneCenter.removeAll();
-    tPaneCenter.revalidate();
-    tPaneCenter.repaint();
-
-    sPaneTopLeft.removeAll();
-    sPaneTopLeft.revalidate();
-    sPaneTopLeft.repaint();
+    testItems.clear();
+    sampleTestItems.clear();
   }
 
   /**
@@ -750,49 +550,75 @@ public class ViewImpl implements IView {
    */
   @Override
   public void viewClearEquipment() {
-
-    // clear display area
-    ePaneTopRight.setText(null);
-    ePaneLeft.removeAll();
-    ePaneLeft.revalidate();
-    ePaneLeft.repaint();
+    updates.setText(ePaneTopRight, null);
+    equipmentItems.clear();
   }
 
   /**
-   * Clears sample, test and equipment display areas, auto generates items
-   * and displays items to the GUI
+   * Returns the given names one to a line
+   * @param names list of names
+   * @return String holding each name followed by a new line
    */
-  public void viewAutogenerate() {
-
-    // *** view should NOT autogenerate numbers!!!
-    // this is done for ease and will be refactored in a future extension
-
-    controller.controllerClearSamples();
-    controller.controllerClearTests();
-    controller.controllerClearEquipment();
+  private static String lines(List<String> names) {
+    StringBuilder text = new StringBuilder();
+    for (String name : names) {
+      text.append(name).append('\n');
+    }
+    return text.toString();
+  }
 
-    // samples
-    for (String sample : someSamples) {
-      int ID = (int) (Math.random() * 100000);
-      sTextField1.setText(sample);
-      sTextField2.setText(String.valueOf(ID));
-      controller.controllerAddSample();
+  /**
+   * Removes the checked rows of a list from the GUI and returns them. Each row stays at the index
+   * of the item it shows in the model, since rows are added after the model adds the item,
+   * removed when the model removes it, and sorted in the order the model sorted its items in, so
+   * the rows are the indices of the items to delete even when names repeat
+   * @param items the list on the GUI
+   * @param names the names in the model
+   * @return list of indices of the removed rows in the list of names
+   */
+  private static List<Integer> deleteChecked(CheckListModel items, List<String> names) {
+    int[] rows = items.removeChecked();
+    List<Integer> deleted = new ArrayList<>(rows.length);
+    for (int row : rows) {
+      if (row < names.size()) {
+        deleted.add(row);
+      }
     }
+    return deleted;
+  }
 
-    // tests
-    for (String test : someTests) {
-      int duration = (int) (((Math.random() * 100) % 10) + 1);
-      tTextField1.setText(test);
-      tTextField2.setText(String.valueOf(duration));
-      controller.controllerAddTest();
+  /**
+   * Shows the status of a command that is taking a while, with a progress bar and a button
+   * to cancel the commands waiting behind it
+   * @param status what is running and what is waiting
+   */
+  @Override
+  public void viewShowProgress(String status) {
+    progressLabel.setText(status);
+    if (!progressPanel.isVisible()) {
+      progressPanel.setVisible(true);
+      updates.invalidate(frame.getRootPane());
     }
+  }
 
-    // equipment
-    for (String equipment : someEquipment) {
-      int service = (int) (((Math.random() * 100000) % 365));
-      eTextField1.setText(equipment);
-      eTextField2.setText(String.valueOf(service));
-      controller.controllerAddEquipment();
+  /**
+   * Hides the progress bar
+   */
+  @Override
+  public void viewHideProgress() {
+    if (progressPanel.isVisible()) {
+      progressPanel.setVisible(false);
+      updates.invalidate(frame.getRootPane());
     }
   }
+
+  /**
+   * Tells the user that a command failed, in a dialog
+   *
+   * @param message what failed and why
+   */
+  @Override
+  public void viewShowError(String message) {
+    JOptionPane.showMessageDialog(frame, message, "LabFlow", JOptionPane.ERROR_MESSAGE);
+  }
 }
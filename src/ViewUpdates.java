@@ -0,0 +1,98 @@
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import javax.swing.text.JTextComponent;
+
+/**
+ * This class collects the changes a view makes to its components while a command runs and
+ * applies them together once per frame, so a command that touches a pane many times costs one
+ * layout and one repaint of it. The text of a text component is built up here and set on it in
+ * one go, and components marked dirty are revalidated and repainted once each.
+ *
+ * Like the components it updates, it must only be used on the event dispatch thread
+ */
+public class ViewUpdates {
+  private static final int FRAME_MILLIS = 16;
+
+  private final Map<JTextComponent, StringBuilder> texts;
+  private final Set<JComponent> dirty;
+  private final Timer frame;
+
+  /**
+   * Constructs a batch with nothing to update
+   */
+  public ViewUpdates() {
+    this.texts = new LinkedHashMap<>();
+    this.dirty = new LinkedHashSet<>();
+    this.frame = new Timer(FRAME_MILLIS, e -> flush());
+    this.frame.setRepeats(false);
+  }
+
+  /**
+   * Replaces the text of a component at the next frame
+   * @param component the component
+   * @param text the new text, or null for none
+   */
+  public void setText(JTextComponent component, String text) {
+    this.texts.put(component, new StringBuilder(text == null ? "" : text));
+    schedule();
+  }
+
+  /**
+   * Adds to the end of the text of a component at the next frame, after any text set or added
+   * since the last frame
+   * @param component the component
+   * @param text the text to add
+   */
+  public void append(JTextComponent component, String text) {
+    StringBuilder pending = this.texts.get(component);
+    if (pending == null) {
+      pending = new StringBuilder(component.getText());
+      this.texts.put(component, pending);
+    }
+    pending.append(text);
+    schedule();
+  }
+
+  /**
+   * Revalidates and repaints a component at the next frame
+   * @param component the component
+   */
+  public void invalidate(JComponent component) {
+    this.dirty.add(component);
+    schedule();
+  }
+
+  /**
+   * Returns whether there are updates waiting for the next frame
+   * @return true if there are updates waiting
+   */
+  public boolean isPending() {
+    return !this.texts.isEmpty() || !this.dirty.isEmpty();
+  }
+
+  /**
+   * Applies every update waiting, now rather than at the next frame
+   */
+  public void flush() {
+    this.frame.stop();
+    for (Map.Entry<JTextComponent, StringBuilder> text : this.texts.entrySet()) {
+      text.getKey().setText(text.getValue().toString());
+    }
+    this.texts.clear();
+    for (JComponent component : this.dirty) {
+      component.revalidate();
+      component.repaint();
+    }
+    this.dirty.clear();
+  }
+
+  private void schedule() {
+    if (!this.frame.isRunning()) {
+      this.frame.start();
+    }
+  }
+}
@@ -0,0 +1,400 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class exports the assignments in an IModel dashboard to files, as the worklist of each
+ * test (the samples it is to be run on) and as the matrix of the tests of each sample, in CSV or
+ * JSON Lines.
+ *
+ * An export is split into partitions, one per test for the worklist and one per range of samples
+ * for the matrix. The partitions are encoded in parallel, each into a temporary file beside the
+ * output through a small buffer, and the temporary files are then appended to the output in
+ * order by the file system, so the output is never held in memory. The model must not be changed
+ * during an export.
+ */
+public class WorklistExporter implements AutoCloseable {
+  private static final int SAMPLES_PER_PARTITION = 1 << 16;
+  private static final int BUFFER_CHARS = 1 << 15;
+
+  private final IModel model;
+  private final ExecutorService workers;
+
+  /**
+   * Constructs an exporter for the given model
+   * @param model the model to export
+   * @param threads the number of partitions to encode at once
+   * @throws IllegalArgumentException if threads is less than one
+   */
+  public WorklistExporter(IModel model, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid number of threads");
+    }
+    this.model = model;
+    this.workers = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "labflow-export");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Exports the worklist of every test, in the order of the list of tests. In CSV each line is
+   * a test and one of its samples; in JSON Lines each line is a test with all of its samples
+   *
+   * @param out the file to write, replaced if it exists
+   * @param format the format to write in
+   * @throws IOException if the file cannot be written
+   */
+  public void exportWorklist(Path out, ExportFormat format) throws IOException {
+    List<LabTest> tests = List.copyOf(this.model.getListOfTests());
+    Samples samples = new Samples(this.model.getListOfSamples());
+
+    String header = format == ExportFormat.CSV ? "test,duration,sample,sample_id\n" : "";
+    export(out, header, tests.size(), (partition, writer) -> {
+      LabTest test = tests.get(partition);
+      int[] handles = LinkStore.sampleHandlesOf(test);
+      if (format == ExportFormat.CSV) {
+        for (int handle : handles) {
+          int row = samples.rowOf(handle);
+          if (row >= 0) {
+            writer.csv(test.getTestName()).append(',').append(test.getTestDuration())
+                .append(',').csv(samples.name(row)).append(',').append(samples.id(row))
+                .append('\n');
+          }
+        }
+      } else {
+        writer.append("{\"test\":").json(test.getTestName())
+            .append(",\"duration\":").jsonNumber(test.getTestDuration())
+            .append(",\"samples\":[");
+        boolean first = true;
+        for (int handle : handles) {
+          int row = samples.rowOf(handle);
+          if (row >= 0) {
+            writer.append(first ? "{\"name\":" : ",{\"name\":").json(samples.name(row))
+                .append(",\"id\":").jsonNumber(samples.id(row)).append('}');
+            first = false;
+          }
+        }
+        writer.append("]}\n");
+      }
+    });
+  }
+
+  /**
+   * Exports the tests of every sample, in the order of the list of samples. In CSV each line is
+   * a sample with a column per test holding 1 if the test is assigned to the sample and 0 if
+   * not; in JSON Lines each line is a sample with the names of its tests
+   *
+   * @param out the file to write, replaced if it exists
+   * @param format the format to write in
+   * @throws IOException if the file cannot be written
+   */
+  public void exportMatrix(Path out, ExportFormat format) throws IOException {
+    List<LabTest> tests = List.copyOf(this.model.getListOfTests());
+    Samples samples = new Samples(this.model.getListOfSamples());
+    IntMultimap columnOfTest = new IntMultimap();
+    for (int column = 0; column < tests.size(); column++) {
+      columnOfTest.put(tests.get(column).getHandle(), column);
+    }
+
+    StringBuilder header = new StringBuilder();
+    if (format == ExportFormat.CSV) {
+      header.append("sample,sample_id");
+      for (LabTest test : tests) {
+        header.append(',').append(csv(test.getTestName()));
+      }
+      header.append('\n');
+    }
+    int partitions = (samples.size() + SAMPLES_PER_PARTITION - 1) / SAMPLES_PER_PARTITION;
+    export(out, header.toString(), partitions, (partition, writer) -> {
+      int from = partition * SAMPLES_PER_PARTITION;
+      int to = Math.min(samples.size(), from + SAMPLES_PER_PARTITION);
+      char[] cells = new char[tests.size() * 2];
+      for (int row = from; row < to; row++) {
+        int[] handles = samples.testHandles(row);
+        if (format == ExportFormat.CSV) {
+          for (int column = 0; column < tests.size(); column++) {
+            cells[column * 2] = ',';
+            cells[column * 2 + 1] = '0';
+          }
+          for (int handle : handles) {
+            int column = columnOfTest.first(handle);
+            if (column >= 0) {
+              cells[column * 2 + 1] = '1';
+            }
+          }
+          writer.csv(samples.name(row)).append(',').append(samples.id(row)).append(cells)
+              .append('\n');
+        } else {
+          writer.append("{\"sample\":").json(samples.name(row))
+              .append(",\"id\":").jsonNumber(samples.id(row)).append(",\"tests\":[");
+          boolean first = true;
+          for (int handle : handles) {
+            int column = columnOfTest.first(handle);
+            if (column >= 0) {
+              writer.append(first ? "" : ",").json(tests.get(column).getTestName());
+              first = false;
+            }
+          }
+          writer.append("]}\n");
+        }
+      }
+    });
+  }
+
+  /**
+   * Stops the worker threads
+   */
+  @Override
+  public void close() {
+    this.workers.shutdownNow();
+  }
+
+  /**
+   * Encodes every partition into its own temporary file on the workers, and appends the files
+   * to the output in order as they are finished
+   * @param out the file to write
+   * @param header text to write before the first partition
+   * @param partitions the number of partitions
+   * @param encoder encodes one partition
+   * @throws IOException if a file cannot be written
+   */
+  private void export(Path out, String header, int partitions, PartitionEncoder encoder)
+      throws IOException {
+    Path directory = out.toAbsolutePath().getParent();
+    List<Future<Path>> parts = new ArrayList<>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      int partition = i;
+      parts.add(this.workers.submit(() -> {
+        Path part = Files.createTempFile(directory, ".labflow-export", ".part");
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE);
+             PartWriter writer = new PartWriter(channel)) {
+          encoder.encode(partition, writer);
+        } catch (IOException | RuntimeException e) {
+          Files.deleteIfExists(part);
+          throw e;
+        }
+        return part;
+      }));
+    }
+
+    int next = 0;
+    try (FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer bytes = ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8));
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      for (; next < partitions; next++) {
+        Path part = await(parts.get(next));
+        try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+          long size = in.size();
+          for (long done = 0; done < size; ) {
+            done += in.transferTo(done, size - done, channel);
+          }
+        } finally {
+          Files.deleteIfExists(part);
+        }
+      }
+    } finally {
+      // on failure, discard the partitions that were not appended
+      for (; next < parts.size(); next++) {
+        parts.get(next).cancel(true);
+        try {
+          Files.deleteIfExists(parts.get(next).get());
+        } catch (Exception e) {
+          // the partition was never written
+        }
+      }
+    }
+  }
+
+  /**
+   * Waits for a partition to be encoded
+   * @param part the partition being encoded
+   * @return the temporary file holding the partition
+   * @throws IOException if the partition could not be written
+   */
+  private static Path await(Future<Path> part) throws IOException {
+    try {
+      return part.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while exporting", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException cause) {
+        throw cause;
+      }
+      throw new IOException("Could not export", e.getCause());
+    }
+  }
+
+  /**
+   * Returns a CSV field holding the given text, quoted if needed
+   * @param text the text of the field
+   * @return the field
+   */
+  private static String csv(String text) {
+    if (text == null) {
+      return "";
+    }
+    if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0
+        && text.indexOf('\r') < 0) {
+      return text;
+    }
+    return '"' + text.replace("\"", "\"\"") + '"';
+  }
+
+  /**
+   * This interface represents the encoding of one partition of an export
+   */
+  private interface PartitionEncoder {
+    void encode(int partition, PartWriter writer) throws IOException;
+  }
+
+  /**
+   * This class holds the samples being exported, with a primitive map from the handle of each
+   * sample to its position, so that the handles in the link store can be turned into samples.
+   * Samples without tests may have no handle, and are left out of the map. The samples are read
+   * from the model's own list as they are needed rather than copied, since a model may build
+   * each sample it returns on the fly
+   */
+  private static class Samples {
+    private final List<Sample> list;
+    private final IntMultimap rowOfHandle;
+
+    Samples(List<Sample> list) {
+      this.list = list;
+      this.rowOfHandle = new IntMultimap();
+      for (int row = 0; row < this.list.size(); row++) {
+        int handle = this.list.get(row).getHandle();
+        if (handle != LinkStore.NO_HANDLE) {
+          this.rowOfHandle.put(handle, row);
+        }
+      }
+    }
+
+    int size() {
+      return this.list.size();
+    }
+
+    int rowOf(int handle) {
+      return this.rowOfHandle.first(handle);
+    }
+
+    int[] testHandles(int row) {
+      return LinkStore.testHandlesOf(this.list.get(row));
+    }
+
+    String name(int row) {
+      return this.list.get(row).getSampleName();
+    }
+
+    Integer id(int row) {
+      return this.list.get(row).getSampleID();
+    }
+  }
+
+  /**
+   * This class represents a writer of text to a channel through a fixed-size buffer, with the
+   * escaping needed by CSV and JSON
+   */
+  private static class PartWriter implements AutoCloseable {
+    private final FileChannel channel;
+    private final StringBuilder buffer = new StringBuilder(BUFFER_CHARS + 1024);
+
+    PartWriter(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    PartWriter append(String text) throws IOException {
+      this.buffer.append(text);
+      return flushIfFull();
+    }
+
+    PartWriter append(char c) throws IOException {
+      this.buffer.append(c);
+      return flushIfFull();
+    }
+
+    PartWriter append(char[] chars) throws IOException {
+      this.buffer.append(chars);
+      return flushIfFull();
+    }
+
+    /**
+     * Appends a CSV field holding a number, or nothing if it is missing
+     */
+    PartWriter append(Integer number) throws IOException {
+      return append(number == null ? "" : number.toString());
+    }
+
+    /**
+     * Appends a JSON number, or null if it is missing
+     */
+    PartWriter jsonNumber(Integer number) throws IOException {
+      return append(number == null ? "null" : number.toString());
+    }
+
+    PartWriter csv(String text) throws IOException {
+      return append(WorklistExporter.csv(text));
+    }
+
+    PartWriter json(String text) throws IOException {
+      if (text == null) {
+        return append("null");
+      }
+      this.buffer.append('"');
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        switch (c) {
+          case '"' -> this.buffer.append("\\\"");
+          case '\\' -> this.buffer.append("\\\\");
+          case '\n' -> this.buffer.append("\\n");
+          case '\r' -> this.buffer.append("\\r");
+          case '\t' -> this.buffer.append("\\t");
+          default -> {
+            if (c < 0x20) {
+              this.buffer.append(String.format("\\u%04x", (int) c));
+            } else {
+              this.buffer.append(c);
+            }
+          }
+        }
+      }
+      this.buffer.append('"');
+      return flushIfFull();
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+
+    private PartWriter flushIfFull() throws IOException {
+      if (this.buffer.length() >= BUFFER_CHARS) {
+        flush();
+      }
+      return this;
+    }
+
+    private void flush() throws IOException {
+      ByteBuffer bytes = ByteBuffer.wrap(this.buffer.toString().getBytes(StandardCharsets.UTF_8));
+      while (bytes.hasRemaining()) {
+        this.channel.write(bytes);
+      }
+      this.buffer.setLength(0);
+    }
+  }
+}
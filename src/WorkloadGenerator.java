@@ -0,0 +1,336 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class generates a synthetic lab workload of realistic volume without a GUI: hundreds of
+ * tests, equipment whose services fall due over the coming year (some already overdue), and
+ * millions of samples, each ordered a panel of tests. Panels are drawn from a Zipf distribution,
+ * so a few panels make up most orders as in a real lab, and the tests in each panel are drawn
+ * from a Zipf distribution too. Samples are added in batches, and after each batch a fraction of
+ * the samples in the dashboard are deleted, as cancelled or expired orders.
+ *
+ * The workload depends only on the seed and the settings, so the same workload can be applied
+ * to an IModel directly or written to a file and replayed with {@link BatchIngest}, any number
+ * of times.
+ */
+public class WorkloadGenerator {
+  private static final int BATCH = 10000;
+  private static final int MAX_PANEL_TESTS = 8;
+  private static final String[] COMMON_TESTS = {"CBC", "BMP", "CMP", "LIPID PANEL", "HBA1C",
+      "TSH", "URINALYSIS", "PT INR", "CRP", "FERRITIN", "VITAMIN D", "B12", "HCV", "HBV", "HIV",
+      "PSA", "TROPONIN", "D DIMER", "BLOOD CULTURE", "ESR"};
+  private static final String[] EQUIPMENT_KINDS = {"CENTRIFUGE", "ANALYZER", "PIPETTE",
+      "INCUBATOR", "FREEZER", "MICROSCOPE", "SEQUENCER", "THERMOCYCLER"};
+  private static final String[] FAMILY_NAMES = {"SMITH", "GARCIA", "NGUYEN", "JOHNSON", "KIM",
+      "MULLER", "ROSSI", "SILVA", "KOWALSKI", "OKAFOR", "TANAKA", "COHEN", "SINGH", "DUBOIS",
+      "IVANOV", "HANSEN"};
+  private static final String[] GIVEN_NAMES = {"JANE", "JOHN", "MARIA", "WEI", "AISHA", "LUCA",
+      "SOFIA", "OMAR", "YUKI", "ANNA", "DAVID", "FATIMA", "PEDRO", "LENA", "RAVI", "CHLOE"};
+
+  private final long seed;
+  private final int samples;
+  private final int tests;
+  private final int equipment;
+  private double skew = 1.0;
+  private double deleteFraction = 0.02;
+
+  /**
+   * Constructs a generator of workloads of the given size
+   * @param seed the seed the workload is generated from
+   * @param samples the number of samples to add, before any are deleted
+   * @param tests the number of tests
+   * @param equipment the number of pieces of equipment
+   * @throws IllegalArgumentException if a number is negative, or there are samples but no tests
+   */
+  public WorkloadGenerator(long seed, int samples, int tests, int equipment) {
+    if (samples < 0 || tests < 0 || equipment < 0 || (samples > 0 && tests == 0)) {
+      throw new IllegalArgumentException("Invalid workload size");
+    }
+    this.seed = seed;
+    this.samples = samples;
+    this.tests = tests;
+    this.equipment = equipment;
+  }
+
+  /**
+   * Sets the exponent of the Zipf distributions panels and tests are drawn from; 0 draws them
+   * uniformly, and the larger it is the more orders go to the most popular ones. It is 1 unless
+   * set
+   * @param skew the exponent
+   * @throws IllegalArgumentException if skew is negative
+   */
+  public void setSkew(double skew) {
+    if (skew < 0) {
+      throw new IllegalArgumentException("Invalid skew");
+    }
+    this.skew = skew;
+  }
+
+  /**
+   * Sets the fraction of the samples in each batch that are deleted after it. It is 0.02 unless
+   * set
+   * @param deleteFraction the fraction, from 0 to 1
+   * @throws IllegalArgumentException if the fraction is not between 0 and 1
+   */
+  public void setDeleteFraction(double deleteFraction) {
+    if (!(deleteFraction >= 0 && deleteFraction <= 1)) {
+      throw new IllegalArgumentException("Invalid delete fraction");
+    }
+    this.deleteFraction = deleteFraction;
+  }
+
+  /**
+   * Generates the workload and applies it to the given model. Deletions are applied a batch at
+   * a time
+   * @param model the model to apply the workload to, which should have none of its samples
+   * @return the number of records applied
+   */
+  public long apply(IModel model) {
+    return generate(new Sink() {
+      private final IntHashMap<String> deleted = new IntHashMap<>();
+
+      @Override
+      void test(String name, int duration) {
+        model.addTest(new LabTestImpl(name, duration));
+      }
+
+      @Override
+      void equipment(String name, int serviceUrgency) {
+        model.addEquipment(new EquipmentImpl(name, serviceUrgency));
+      }
+
+      @Override
+      void sample(String name, int id, List<String> tests) {
+        model.addSample(new SampleImpl(name, id));
+        model.assignTests(tests, List.of(name));
+      }
+
+      @Override
+      void delete(String name, int id) {
+        this.deleted.put(id, name);
+      }
+
+      @Override
+      void flush() {
+        if (this.deleted.size() == 0) {
+          return;
+        }
+        List<Sample> samples = model.getListOfSamples();
+        int[] indices = new int[this.deleted.size()];
+        int found = 0;
+        for (int i = 0; i < samples.size() && found < indices.length; i++) {
+          Integer id = samples.get(i).getSampleID();
+          if (id != null && this.deleted.containsKey(id)) {
+            indices[found++] = i;
+          }
+        }
+        model.deleteSamples(Arrays.copyOf(indices, found));
+        this.deleted.clear();
+      }
+    });
+  }
+
+  /**
+   * Generates the workload and writes it to the given file as CSV records that
+   * {@link BatchIngest} can replay
+   * @param file the file to write, replaced if it exists
+   * @return the number of records written
+   * @throws IOException if the file cannot be written
+   */
+  public long write(Path file) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write("# LabFlow workload, seed " + this.seed + ", " + this.samples + " samples, "
+          + this.tests + " tests, " + this.equipment + " equipment\n");
+      StringBuilder batch = new StringBuilder();
+      try {
+        return generate(new Sink() {
+          @Override
+          void test(String name, int duration) {
+            write("test,", name, duration);
+          }
+
+          @Override
+          void equipment(String name, int serviceUrgency) {
+            write("equipment,", name, serviceUrgency);
+          }
+
+          @Override
+          void sample(String name, int id, List<String> tests) {
+            write("sample,", name, id);
+            for (String test : tests) {
+              batch.append("assign,").append(name).append(',').append(test).append('\n');
+            }
+          }
+
+          @Override
+          void delete(String name, int id) {
+            write("delete,", name, id);
+          }
+
+          private void write(String kind, String name, int number) {
+            batch.append(kind).append(name).append(',').append(number).append('\n');
+          }
+
+          @Override
+          void flush() {
+            try {
+              writer.append(batch);
+            } catch (IOException e) {
+              throw new WriteFailure(e);
+            }
+            batch.setLength(0);
+          }
+        });
+      } catch (WriteFailure e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  /**
+   * Generates the workload into the given sink
+   * @param sink receives the records of the workload in order
+   * @return the number of records generated
+   */
+  private long generate(Sink sink) {
+    Random random = new Random(this.seed);
+    long records = 0;
+
+    String[] testNames = new String[this.tests];
+    for (int i = 0; i < this.tests; i++) {
+      testNames[i] = i < COMMON_TESTS.length ? COMMON_TESTS[i]
+          : String.format("ASSAY %03d", i - COMMON_TESTS.length + 1);
+      // durations are skewed: most tests take a few hours, a few take days
+      int duration = (int) Math.min(240, Math.round(Math.exp(1.2 + random.nextGaussian())));
+      sink.test(testNames[i], Math.max(1, duration));
+      records++;
+    }
+    for (int i = 0; i < this.equipment; i++) {
+      String kind = EQUIPMENT_KINDS[random.nextInt(EQUIPMENT_KINDS.length)];
+      // due any day over the coming year, with one in twenty already overdue
+      sink.equipment(kind + " " + (i + 1), random.nextInt(395) - 20);
+      records++;
+    }
+    sink.flush();
+    if (this.samples == 0) {
+      return records;
+    }
+
+    Zipf testRanks = new Zipf(this.tests, this.skew);
+    List<List<String>> panels = new ArrayList<>();
+    for (int i = Math.max(1, this.tests / 2); i > 0; i--) {
+      int size = Math.min(this.tests, 1 + random.nextInt(MAX_PANEL_TESTS));
+      List<String> panel = new ArrayList<>(size);
+      while (panel.size() < size) {
+        String test = testNames[testRanks.next(random)];
+        if (!panel.contains(test)) {
+          panel.add(test);
+        }
+      }
+      panels.add(panel);
+    }
+    Zipf panelRanks = new Zipf(panels.size(), this.skew);
+
+    int[] liveIDs = new int[Math.min(this.samples, 1 << 16)];
+    String[] liveNames = new String[liveIDs.length];
+    int live = 0;
+    for (int added = 0; added < this.samples; ) {
+      int batchStart = added;
+      int batchEnd = Math.min(this.samples, added + BATCH);
+      for (; added < batchEnd; added++) {
+        // an odd multiplier permutes the ints, so the IDs are distinct but not in order
+        int id = (added * 0x9E3779B1) & Integer.MAX_VALUE;
+        String name = FAMILY_NAMES[random.nextInt(FAMILY_NAMES.length)] + " "
+            + GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)] + " " + (added + 1);
+        List<String> panel = panels.get(panelRanks.next(random));
+        sink.sample(name, id, panel);
+        records += 1 + panel.size();
+        if (live == liveIDs.length) {
+          liveIDs = Arrays.copyOf(liveIDs, live * 2);
+          liveNames = Arrays.copyOf(liveNames, live * 2);
+        }
+        liveIDs[live] = id;
+        liveNames[live++] = name;
+      }
+
+      int deletes = (int) Math.round((batchEnd - batchStart) * this.deleteFraction);
+      for (int i = 0; i < deletes && live > 0; i++) {
+        int victim = random.nextInt(live);
+        sink.delete(liveNames[victim], liveIDs[victim]);
+        live--;
+        liveIDs[victim] = liveIDs[live];
+        liveNames[victim] = liveNames[live];
+        liveNames[live] = null;
+        records++;
+      }
+      sink.flush();
+    }
+    return records;
+  }
+
+  /**
+   * This class receives the records of a workload as they are generated
+   */
+  private abstract static class Sink {
+    abstract void test(String name, int duration);
+
+    abstract void equipment(String name, int serviceUrgency);
+
+    abstract void sample(String name, int id, List<String> tests);
+
+    abstract void delete(String name, int id);
+
+    /**
+     * Called at the end of each batch, after its deletions
+     */
+    void flush() {
+    }
+  }
+
+  /**
+   * This class draws ranks from 0 to n - 1 with probability proportional to 1 / (rank + 1)^skew
+   */
+  private static class Zipf {
+    private final double[] cumulative;
+
+    Zipf(int n, double skew) {
+      this.cumulative = new double[n];
+      double total = 0;
+      for (int i = 0; i < n; i++) {
+        total += 1 / Math.pow(i + 1, skew);
+        this.cumulative[i] = total;
+      }
+      for (int i = 0; i < n; i++) {
+        this.cumulative[i] /= total;
+      }
+    }
+
+    int next(Random random) {
+      int i = Arrays.binarySearch(this.cumulative, random.nextDouble());
+      return Math.min(i < 0 ? -i - 1 : i, this.cumulative.length - 1);
+    }
+  }
+
+  /**
+   * This class carries an IOException out of a sink, whose methods cannot throw it
+   */
+  private static class WriteFailure extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    WriteFailure(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+  }
+}
@@ -0,0 +1,173 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is a JUnit test for the headless batch ingestion of CSV and TSV files
+ */
+public class BatchIngestTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  IModel Model1;
+  ByteArrayOutputStream log;
+
+  /**
+   * Instantiates an empty model and a log to report to
+   */
+  @Before
+  public void setUp() {
+    Model1 = new ModelImpl();
+    log = new ByteArrayOutputStream();
+  }
+
+  /**
+   * Tests that records are applied in file order, and that malformed records and
+   * duplicate sample IDs are rejected without stopping the run
+   * @throws IOException if the file cannot be written or read
+   */
+  @Test
+  public void testIngestCsv() throws IOException {
+    BatchIngest.Report report = ingest("lab.csv",
+        "# kind,name,value",
+        "test,hcv,4",
+        "test,HBV,5",
+        "sample,jane doe,3456",
+        "sample,\"DOE, JOHN\",1256",
+        "equipment,CENTRIFUGE,20",
+        "",
+        "assign,JANE DOE,HCV",
+        "assign,JANE DOE,HBV",
+        "assign,\"DOE, JOHN\",HBV",
+        "sample,JANE ROE,3456",
+        "sample,JACK BLACK,12x",
+        "virus,FLU,3",
+        "sample,\"JACK BLACK,9212",
+        "test,HIV");
+
+    assertEquals(13, report.getRows());
+    assertEquals(8, report.getApplied());
+    assertEquals(5, report.getRejected());
+    assertEquals("[JANE DOE, DOE, JOHN]", Model1.getListOfNamesOfSamples().toString());
+    assertEquals("[HCV, HBV]", Model1.getTestsForSample("JANE DOE").toString());
+    assertEquals("[JANE DOE, DOE, JOHN]", Model1.getSamplesForTest("HBV").toString());
+    assertEquals(20, Model1.getEquipmentInfo("CENTRIFUGE"));
+    assertTrue(log.toString().contains("lab.csv:11: rejected, Duplicate sample ID: 3456"));
+    assertTrue(log.toString().contains("lab.csv:13: rejected, unknown record kind 'virus'"));
+  }
+
+  /**
+   * Tests that deletions are applied to the sample with the given name and ID, and rejected if
+   * there is no such sample
+   * @throws IOException if the file cannot be written or read
+   */
+  @Test
+  public void testIngestDeletes() throws IOException {
+    BatchIngest.Report report = ingest("lab.csv",
+        "test,HCV,4",
+        "sample,JANE DOE,3456",
+        "sample,JOHN DOE,1256",
+        "sample,JACK BLACK,9212",
+        "assign,JOHN DOE,HCV",
+        "delete,JANE DOE,3456",
+        "delete,JOHN DOE,9212",
+        "delete,JOHN DOE,1256",
+        "sample,JANE DOE,3456");
+
+    assertEquals(8, report.getApplied());
+    assertEquals(1, report.getRejected());
+    assertEquals("[JACK BLACK, JANE DOE]", Model1.getListOfNamesOfSamples().toString());
+    assertEquals("[]", Model1.getSamplesForTest("HCV").toString());
+    assertTrue(log.toString().contains("lab.csv:7: rejected, No sample JOHN DOE with ID 9212"));
+  }
+
+  /**
+   * Tests that a second deletion of the same sample in one run is rejected on its own line
+   * @throws IOException if the file cannot be written or read
+   */
+  @Test
+  public void testIngestDuplicateDeletes() throws IOException {
+    BatchIngest.Report report = ingest("lab.csv",
+        "sample,JANE DOE,3456",
+        "sample,JOHN DOE,1256",
+        "delete,JANE DOE,3456",
+        "delete,JANE DOE,3456",
+        "delete,JOHN DOE,1256");
+
+    assertEquals(4, report.getApplied());
+    assertEquals(1, report.getRejected());
+    assertEquals("[]", Model1.getListOfNamesOfSamples().toString());
+    assertTrue(log.toString().contains("lab.csv:4: rejected, No sample JANE DOE with ID 3456"));
+    assertFalse(log.toString().contains("lab.csv:3: rejected"));
+  }
+
+  /**
+   * Tests that assignments to samples or of tests that are not in the model are rejected
+   * @throws IOException if the file cannot be written or read
+   */
+  @Test
+  public void testIngestUnknownAssignments() throws IOException {
+    BatchIngest.Report report = ingest("lab.csv",
+        "test,HCV,4",
+        "sample,JANE DOE,3456",
+        "assign,JANE DOE,HCV",
+        "assign,JANE DOE,HIV",
+        "assign,JOHN DOE,HCV",
+        "assign,JOHN DOE,HBV",
+        "delete,JANE DOE,3456",
+        "assign,JANE DOE,HCV");
+
+    assertEquals(4, report.getApplied());
+    assertEquals(4, report.getRejected());
+    assertEquals("[]", Model1.getSamplesForTest("HCV").toString());
+    assertTrue(log.toString().contains("lab.csv:4: rejected, No test HIV"));
+    assertTrue(log.toString().contains("lab.csv:6: rejected, No sample JOHN DOE"));
+    assertTrue(log.toString().contains("lab.csv:8: rejected, No sample JANE DOE"));
+  }
+
+  /**
+   * Tests that a TSV file with more records than fit in one chunk is applied in
+   * order
+   * @throws IOException if the file cannot be written or read
+   */
+  @Test
+  public void testIngestLargeTsv() throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add("test\tHCV\t4");
+    for (int i = 0; i < 20000; i++) {
+      lines.add("sample\tPATIENT " + i + "\t" + i);
+      lines.add("assign\tPATIENT " + i + "\tHCV");
+    }
+    BatchIngest.Report report = ingest("lab.tsv", lines.toArray(new String[0]));
+
+    assertEquals(0, report.getRejected());
+    assertEquals(20000, Model1.getListOfSamples().size());
+    assertEquals("PATIENT 19999", Model1.getListOfSamples().get(19999).getSampleName());
+    assertEquals(20000, Model1.getSamplesForTest("HCV").size());
+  }
+
+  /**
+   * Writes the given lines to a file and ingests it on four threads
+   * @param name the name of the file
+   * @param lines the lines of the file
+   * @return the report of the run
+   * @throws IOException if the file cannot be written or read
+   */
+  private BatchIngest.Report ingest(String name, String... lines) throws IOException {
+    Path file = folder.getRoot().toPath().resolve(name);
+    Files.write(file, List.of(lines));
+    try (BatchIngest ingest = new BatchIngest(Model1, 4, new PrintStream(log, true))) {
+      return ingest.ingest(file);
+    }
+  }
+}
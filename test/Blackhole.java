@@ -0,0 +1,15 @@
+/**
+ * This class takes the results of the calls a benchmark times, so that the compiler cannot
+ * find them unused and drop the calls
+ */
+public class Blackhole {
+  private static volatile long sink;
+
+  /**
+   * Takes a result that must be computed
+   * @param value the result, such as a sum of sizes returned by the calls
+   */
+  public static void consume(long value) {
+    sink ^= value;
+  }
+}
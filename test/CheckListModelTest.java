@@ -0,0 +1,161 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import org.junit.Test;
+
+/**
+ * This is a JUnit test for the items of a list of checkboxes
+ */
+public class CheckListModelTest {
+  private final List<String> events = new ArrayList<>();
+
+  /**
+   * Returns a list holding the given names, that records every event it fires
+   * @param names the names
+   * @return the list
+   */
+  private CheckListModel list(String... names) {
+    CheckListModel items = new CheckListModel();
+    items.addAll(List.of(names));
+    items.addListDataListener(new ListDataListener() {
+      @Override
+      public void intervalAdded(ListDataEvent e) {
+        events.add("added " + e.getIndex0() + "-" + e.getIndex1());
+      }
+
+      @Override
+      public void intervalRemoved(ListDataEvent e) {
+        events.add("removed " + e.getIndex0() + "-" + e.getIndex1());
+      }
+
+      @Override
+      public void contentsChanged(ListDataEvent e) {
+        events.add("changed " + e.getIndex0() + "-" + e.getIndex1());
+      }
+    });
+    return items;
+  }
+
+  /**
+   * Tests that removing the checked rows keeps the others in order and returns the rows removed
+   */
+  @Test
+  public void testRemoveChecked() {
+    CheckListModel items = list("A", "B", "C", "D", "E");
+    items.toggle(1);
+    items.toggle(3);
+
+    assertEquals("[B, D]", items.getCheckedNames().toString());
+    assertArrayEquals(new int[]{1, 3}, items.removeChecked());
+    assertEquals("[A, C, E]", items.getNames().toString());
+    assertEquals("[]", items.getCheckedNames().toString());
+    assertArrayEquals(new int[0], items.removeChecked());
+    assertEquals("[changed 1-1, changed 3-3, changed 1-2, removed 3-4]", events.toString());
+  }
+
+  /**
+   * Tests that selecting and deleting thousands of rows with the same name deletes exactly
+   * those rows
+   */
+  @Test
+  public void testDeleteManyDuplicates() {
+    String[] names = new String[100000];
+    Arrays.fill(names, "JANE DOE");
+    CheckListModel items = list(names);
+    for (int row = 0; row < names.length; row += 3) {
+      items.toggle(row);
+    }
+    int[] rows = items.getCheckedRows();
+    int[] removed = items.removeChecked();
+
+    assertEquals(33334, rows.length);
+    assertArrayEquals(rows, removed);
+    assertEquals(3 * 33333, removed[33333]);
+    assertEquals(66666, items.getSize());
+  }
+
+  /**
+   * Tests that a list kept in the order a model reports for its sorts deletes the checked
+   * sample, not another sample with the same name
+   */
+  @Test
+  public void testSortThenDeleteDuplicates() {
+    ObservableModel model = new ObservableModel(new ModelImpl());
+    model.addSample(new SampleImpl("A", 5));
+    model.addSample(new SampleImpl("A", 3));
+    CheckListModel items = list("A", "A");
+    items.toggle(1);
+    model.addModelListener(changes -> {
+      for (ModelChange change : changes) {
+        if (change.getKind() == ChangeKind.MOVED) {
+          items.permute(change.getIndices());
+        }
+      }
+    });
+
+    model.sortSamplesByID();
+    assertEquals("[true, false]", checks(items));
+    model.deleteSamples(items.removeChecked());
+    assertEquals(1, model.getListOfSamples().size());
+    assertEquals(5, model.getListOfSamples().get(0).getSampleID().intValue());
+    assertEquals("[A]", items.getNames().toString());
+  }
+
+  /**
+   * Tests that permuting moves names and checks together with one event, and rejects anything
+   * that is not a permutation of the rows
+   */
+  @Test
+  public void testPermute() {
+    CheckListModel items = list("A", "B", "C");
+    items.toggle(0);
+    events.clear();
+    items.permute(new int[]{2, 0, 1});
+
+    assertEquals("[C, A, B]", items.getNames().toString());
+    assertEquals("[false, true, false]", checks(items));
+    assertEquals("[changed 0-2]", events.toString());
+    for (int[] order : new int[][]{{0, 1}, {0, 0, 1}, {0, 1, 3}}) {
+      try {
+        items.permute(order);
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertEquals("Invalid permutation", e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Returns whether each row of a list is checked
+   * @param items the list
+   * @return String holding whether each row is checked, in order
+   */
+  private static String checks(CheckListModel items) {
+    List<Boolean> checks = new ArrayList<>();
+    for (int row = 0; row < items.getSize(); row++) {
+      checks.add(items.isChecked(row));
+    }
+    return checks.toString();
+  }
+
+  /**
+   * Tests that unchecking and clearing fire one event each
+   */
+  @Test
+  public void testUncheckAllAndClear() {
+    CheckListModel items = list("A", "B", "C");
+    items.uncheckAll();
+    items.toggle(2);
+    items.uncheckAll();
+    assertEquals("[]", items.getCheckedNames().toString());
+    items.clear();
+    items.clear();
+
+    assertEquals(0, items.getSize());
+    assertEquals("[changed 2-2, changed 2-2, removed 0-2]", events.toString());
+  }
+}
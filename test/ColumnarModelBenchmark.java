@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * This is a benchmark comparing the columnar LIMS model with the object-based
+ * one on full-table scans, sorts and lookups. Run it with the sample counts to
+ * try as arguments, for example: java ColumnarModelBenchmark 100000 1000000
+ */
+public class ColumnarModelBenchmark {
+  private static final int TESTS = 20;
+  private static final int TESTS_PER_SAMPLE = 3;
+  private static final int REPEATS = 7;
+
+  /**
+   * Runs the benchmark for each sample count given
+   * @param args the sample counts, 100000 if none are given
+   */
+  public static void main(String[] args) {
+    int[] counts = args.length == 0 ? new int[]{100000} : new int[args.length];
+    for (int i = 0; i < args.length; i++) {
+      counts[i] = Integer.parseInt(args[i]);
+    }
+
+    System.out.printf("%-10s %-9s %10s %10s %10s %10s %10s %10s%n", "samples", "model",
+        "heap MB", "fill ms", "names ms", "sort ms", "ordered ms", "lookup ms");
+    for (int count : counts) {
+      run(count, "ModelImpl", ModelImpl::new);
+      run(count, "Columnar", ColumnarModelImpl::new);
+    }
+  }
+
+  /**
+   * Fills a model with the given number of samples and times each operation on it
+   * @param count the number of samples
+   * @param label the name of the model in the report
+   * @param factory creates an empty model
+   */
+  private static void run(int count, String label, Supplier<IModel> factory) {
+    long heapBefore = usedHeap();
+    long start = System.nanoTime();
+    IModel model = fill(factory.get(), count);
+    double fill = (System.nanoTime() - start) / 1e6;
+    long heap = (usedHeap() - heapBefore) >> 20;
+
+    double names = best(model, m -> m.getListOfNamesOfSamples().size());
+    double sort = best(model, m -> {
+      m.sortSamplesByID();
+      m.addSample(new SampleImpl("LATE", -1 - m.getListOfSamples().size()));
+      return 0;
+    });
+    double ordered = best(model, m -> {
+      long sum = 0;
+      for (Sample sample : m.getSamplesOrderedByID()) {
+        sum += sample.getSampleID();
+      }
+      return sum;
+    });
+    double lookup = best(model, m -> {
+      Random random = new Random(1);
+      long found = 0;
+      for (int i = 0; i < 100000; i++) {
+        found += m.findSampleById(random.nextInt(count * 2)) == null ? 0 : 1;
+      }
+      return found;
+    });
+    System.out.printf("%-10d %-9s %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n", count, label,
+        heap, fill, names, sort, ordered, lookup);
+    model.clearSamples();
+  }
+
+  /**
+   * Adds the given number of samples with shuffled IDs, each linked to a few tests
+   * @param model the model to fill
+   * @param count the number of samples
+   * @return the model
+   */
+  private static IModel fill(IModel model, int count) {
+    Random random = new Random(42);
+    List<LabTest> tests = new ArrayList<>();
+    for (int i = 0; i < TESTS; i++) {
+      LabTest test = new LabTestImpl("TEST " + i, random.nextInt(10) + 1);
+      tests.add(test);
+      model.addTest(test);
+    }
+    int[] ids = new int[count];
+    for (int i = 0; i < count; i++) {
+      int j = random.nextInt(i + 1);
+      ids[i] = ids[j];
+      ids[j] = i * 2;
+    }
+    for (int i = 0; i < count; i++) {
+      Sample sample = new SampleImpl("PATIENT " + i, ids[i]);
+      for (int t = 0; t < TESTS_PER_SAMPLE; t++) {
+        sample.addTestToSample(tests.get(random.nextInt(TESTS)));
+      }
+      model.addSample(sample);
+    }
+    return model;
+  }
+
+  /**
+   * Returns the best time of several runs of an operation, after one warm-up run
+   * @param model the model to run the operation on
+   * @param operation the operation, returning a value so its work cannot be optimized away
+   * @return the best time in milliseconds
+   */
+  private static double best(IModel model, ToLongFunction<IModel> operation) {
+    long sink = operation.applyAsLong(model);
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < REPEATS; i++) {
+      long start = System.nanoTime();
+      sink += operation.applyAsLong(model);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    Blackhole.consume(sink);
+    return best / 1e6;
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
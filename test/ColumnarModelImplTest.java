@@ -0,0 +1,90 @@
+import static org.junit.Assert.*;
+
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a JUnit test for the columnar LIMS model, checking that it behaves
+ * like the object-based model
+ */
+public class ColumnarModelImplTest {
+  IModel Model1;
+
+  /**
+   * Instantiates a columnar model with three samples and two tests
+   */
+  @Before
+  public void setUp() {
+    Model1 = new ColumnarModelImpl();
+    Model1.addSample(new SampleImpl("JANE DOE", 3456));
+    Model1.addSample(new SampleImpl("JOHN DOE", 1256));
+    Model1.addSample(new SampleImpl("JACK BLACK", 9212));
+    Model1.addTest(new LabTestImpl("HCV", 4));
+    Model1.addTest(new LabTestImpl("HBV", 5));
+  }
+
+  /**
+   * Tests finding, linking, sorting and deleting samples
+   */
+  @Test
+  public void testSamples() {
+    assertEquals("[JANE DOE, JOHN DOE, JACK BLACK]", Model1.getListOfSamples().toString());
+    assertEquals("JOHN DOE", Model1.findSampleById(1256).getSampleName());
+    assertNull(Model1.findSampleById(1));
+    assertEquals(Model1.getListOfSamples().get(1), Model1.findSampleById(1256));
+
+    Model1.assignTests(List.of("HCV", "HBV"), List.of("JANE DOE", "JACK BLACK"));
+    Model1.addTestToSample("JOHN DOE", "HBV");
+    assertEquals("[HCV, HBV]", Model1.getTestsForSample("JACK BLACK").toString());
+    assertEquals("[JANE DOE, JOHN DOE, JACK BLACK]", Model1.getSamplesForTest("HBV").toString());
+
+    Model1.sortSamplesByID();
+    assertEquals("[JOHN DOE, JANE DOE, JACK BLACK]", Model1.getListOfNamesOfSamples().toString());
+    assertEquals("JACK BLACK", Model1.findSampleById(9212).getSampleName());
+
+    Model1.deleteSamples(new int[]{1, 0});
+    assertNull(Model1.findSampleById(3456));
+    assertEquals("JACK BLACK", Model1.findSampleById(9212).getSampleName());
+    assertEquals("[JACK BLACK]", Model1.getSamplesForTest("HBV").toString());
+    Model1.addSample(new SampleImpl("JANE DOE", 3456));
+    assertEquals("[JANE DOE, JACK BLACK]", Model1.getSamplesOrderedByID().toString());
+    assertEquals("[]", Model1.getTestsForSample("JANE DOE").toString());
+
+    try {
+      Model1.addSample(new SampleImpl("COPY", 9212));
+      fail("expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals(2, Model1.getListOfSamples().size());
+    }
+  }
+
+  /**
+   * Tests that samples deleted one at a time leave the lookups by ID and by name right
+   */
+  @Test
+  public void testDeleteOneAtATime() {
+    for (int i = 0; i < 20; i++) {
+      Model1.addSample(new SampleImpl("S" + i, 100 + i));
+    }
+    Model1.deleteSample(4);
+    Model1.deleteSample(3);
+    Model1.deleteSample(10);
+    Model1.deleteSample(0);
+    Model1.deleteSample(Model1.getListOfSamples().size() - 1);
+    assertEquals("[JOHN DOE, JACK BLACK, S2, S3, S4, S5, S6, S7, S8, S10, S11, S12, S13, S14, "
+        + "S15, S16, S17, S18]", Model1.getListOfNamesOfSamples().toString());
+    assertNull(Model1.findSampleById(3456));
+    assertNull(Model1.findSampleById(100));
+    assertNull(Model1.findSampleById(109));
+    assertNull(Model1.findSampleById(119));
+    assertEquals("S10", Model1.findSampleById(110).getSampleName());
+    assertEquals(Model1.getListOfSamples().get(9), Model1.findSampleById(110));
+
+    Model1.deleteSample(0);
+    Model1.addSample(new SampleImpl("S8", 200));
+    Model1.assignTests(List.of("HCV"), List.of("S8"));
+    assertEquals("[S8, S8]", Model1.getSamplesForTest("HCV").toString());
+    assertEquals("S18", Model1.findSampleById(118).getSampleName());
+  }
+}
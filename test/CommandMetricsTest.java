@@ -0,0 +1,90 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * This is a JUnit test for the latency histograms and the per-command metrics
+ */
+public class CommandMetricsTest {
+
+  /**
+   * Tests that percentiles are within the precision of the buckets and the maximum is exact
+   */
+  @Test
+  public void testHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getPercentile(99));
+    for (int i = 1; i <= 100000; i++) {
+      histogram.record(i * 10L);
+    }
+    assertEquals(100000, histogram.getCount());
+    assertEquals(1000000, histogram.getMax());
+    assertEquals(500005, histogram.getMean(), 1e-6);
+    assertEquals(500000, histogram.getPercentile(50), 500000 * 0.035);
+    assertEquals(990000, histogram.getPercentile(99), 990000 * 0.035);
+    assertEquals(1000000, histogram.getPercentile(100));
+    assertEquals(10, histogram.getPercentile(0));
+
+    for (long value : new long[]{0, 1, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE}) {
+      int bucket = LatencyHistogram.bucketOf(value);
+      assertTrue(LatencyHistogram.highestIn(bucket) >= value);
+      assertTrue(bucket == 0 || LatencyHistogram.highestIn(bucket - 1) < value);
+    }
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+  }
+
+  /**
+   * Tests that the time a command spends in the model is told apart from the rest, and that a
+   * command begun inside another is counted as part of it
+   * @throws InterruptedException if the test is interrupted while sleeping
+   */
+  @Test
+  public void testModelAndViewTime() throws InterruptedException {
+    CommandMetrics metrics = new CommandMetrics(new ModelImpl());
+    IModel model = metrics.getModel();
+    for (int i = 0; i < 3; i++) {
+      metrics.begin("sort ID");
+      model.sortSamplesByID();
+      metrics.begin("add sample");
+      metrics.end();
+      Thread.sleep(20);
+      metrics.end();
+    }
+
+    CommandMetrics.Timings sort = metrics.getTimings("sort ID");
+    assertEquals(3, sort.getTotal().getCount());
+    assertEquals(3, sort.getModel().getCount());
+    assertTrue(sort.getView().getPercentile(50) >= 20000000L);
+    assertTrue(sort.getModel().getMax() < 20000000L);
+    assertNull(metrics.getTimings("add sample"));
+    assertTrue(metrics.report().contains("sort ID"));
+  }
+
+  /**
+   * Tests that commands timed on different threads at the same time are timed apart
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test
+  public void testThreadsTimedApart() throws InterruptedException {
+    CommandMetrics metrics = new CommandMetrics(new ModelImpl());
+    metrics.begin("sort ID");
+    Thread other = new Thread(() -> {
+      metrics.begin("add sample");
+      metrics.getModel().addSample(new SampleImpl("JANE DOE", 3456));
+      metrics.end();
+    });
+    other.start();
+    other.join();
+    metrics.end();
+
+    assertEquals(1, metrics.getTimings("sort ID").getTotal().getCount());
+    assertEquals(1, metrics.getTimings("add sample").getTotal().getCount());
+    try {
+      metrics.end();
+      fail("expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("No command is being timed", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,112 @@
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.junit.Test;
+
+/**
+ * This is a JUnit test for running commands in the background and calling the view on the
+ * event dispatch thread
+ */
+public class CommandQueueTest {
+  private final List<String> calls = new CopyOnWriteArrayList<>();
+
+  /**
+   * Returns a view that records the name of each method called on it, and whether it was
+   * called on the event dispatch thread
+   * @return the view
+   */
+  private IView recordingView() {
+    return (IView) Proxy.newProxyInstance(IView.class.getClassLoader(),
+        new Class<?>[]{IView.class}, (proxy, method, args) -> {
+          calls.add(method.getName() + (SwingUtilities.isEventDispatchThread() ? "" : " off EDT"));
+          return method.getReturnType() == List.class ? List.of("JANE DOE") : null;
+        });
+  }
+
+  /**
+   * Tests that commands run in order, that waiting commands can be cancelled, and that a
+   * command that takes a while shows its progress until the queue is idle
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test
+  public void testQueue() throws InterruptedException {
+    List<String> ran = new CopyOnWriteArrayList<>();
+    CountDownLatch release = new CountDownLatch(1);
+    try (CommandQueue queue = new CommandQueue(recordingView())) {
+      queue.submit("sort ID", () -> {
+        ran.add("sort ID");
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      queue.submit("clearSamples", () -> ran.add("clearSamples"));
+      queue.submit("clearTests", () -> ran.add("clearTests"));
+      assertTrue(queue.isBusy());
+
+      Thread.sleep(500);
+      assertTrue(calls.contains("viewShowProgress"));
+      assertEquals(2, queue.cancelWaiting());
+      queue.submit("add test", () -> ran.add("add test"));
+      release.countDown();
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while ((queue.isBusy() || !calls.contains("viewHideProgress"))
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(List.of("sort ID", "add test"), ran);
+      assertTrue(calls.contains("viewHideProgress"));
+    }
+  }
+
+  /**
+   * Tests that a command that fails is reported to the view on the event dispatch thread, and
+   * that the commands behind it still run
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test
+  public void testFailureReported() throws InterruptedException {
+    List<String> ran = new CopyOnWriteArrayList<>();
+    try (CommandQueue queue = new CommandQueue(recordingView())) {
+      queue.submit("deleteSample", () -> {
+        throw new IllegalArgumentException("Invalid index");
+      });
+      queue.submit("clearTests", () -> ran.add("clearTests"));
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while ((queue.isBusy() || !calls.contains("viewShowError"))
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue(calls.contains("viewShowError"));
+      assertEquals(List.of("clearTests"), ran);
+    }
+  }
+
+  /**
+   * Tests that calls to an EdtView from another thread run on the event dispatch thread and
+   * return their results
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test
+  public void testEdtView() throws InterruptedException {
+    IView view = new EdtView(recordingView());
+    List<List<String>> results = new CopyOnWriteArrayList<>();
+    Thread thread = new Thread(() -> {
+      view.viewClearSamples();
+      results.add(view.getSelectedSamples());
+    });
+    thread.start();
+    thread.join();
+
+    assertEquals(List.of("viewClearSamples", "getSelectedSamples"), calls);
+    assertEquals(List.of(List.of("JANE DOE")), results);
+  }
+}
@@ -0,0 +1,245 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a JUnit test for the thread-safe LIMS model, covering the
+ * snapshots it returns and its behaviour under many concurrent threads
+ */
+public class ConcurrentModelImplTest {
+  private static final int WRITERS = 4;
+  private static final int READERS = 4;
+  private static final int OPERATIONS = 4000;
+
+  IModel Model1;
+
+  /**
+   * Instantiates a thread-safe model
+   */
+  @Before
+  public void setUp() {
+    Model1 = new ConcurrentModelImpl();
+  }
+
+  /**
+   * Tests that the lists returned by the model are snapshots that do not
+   * change with the model and cannot be changed by the caller
+   */
+  @Test
+  public void testListsAreSnapshots() {
+    Model1.addSample(new SampleImpl("Jane Doe", 3456));
+    List<Sample> samples = Model1.getListOfSamples();
+
+    Model1.addSample(new SampleImpl("John Doe", 1256));
+    assertEquals("[Jane Doe]", samples.toString());
+    assertEquals("[John Doe, Jane Doe]", Model1.getSamplesOrderedByID().toString());
+
+    try {
+      samples.clear();
+      fail("expected an UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+      assertEquals(2, Model1.getListOfSamples().size());
+    }
+  }
+
+  /**
+   * Tests that repeated reads share one result until the model changes, and that
+   * links changed through a sample itself are seen by the next read
+   */
+  @Test
+  public void testReadsSeeChanges() {
+    Sample sample = new SampleImpl("Jane Doe", 3456);
+    LabTest test = new LabTestImpl("Glucose", 5);
+    Model1.addSample(sample);
+    Model1.addTest(test);
+    assertSame(Model1.getListOfSamples(), Model1.getListOfSamples());
+    assertEquals("[]", Model1.getTestsForSample("Jane Doe").toString());
+
+    sample.addTestToSample(test);
+    assertEquals("[Glucose]", Model1.getTestsForSample("Jane Doe").toString());
+    assertEquals("[Glucose]",
+        Model1.getTestsOrderedByPriority(TestPriority.NUMBER_OF_SAMPLES).toString());
+
+    List<Sample> samples = Model1.getListOfSamples();
+    Model1.addSample(new SampleImpl("John Doe", 1256));
+    assertNotSame(samples, Model1.getListOfSamples());
+    assertEquals("[Jane Doe, John Doe]", Model1.getListOfNamesOfSamples().toString());
+  }
+
+  /**
+   * Tests that the sample-test links stay consistent with the samples and tests
+   * in the model while several threads add, link and delete samples and tests
+   * and several other threads read the model
+   *
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test
+  public void testLinksStayConsistentUnderConcurrentWrites() throws InterruptedException {
+    ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    AtomicBoolean writing = new AtomicBoolean(true);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> writers = new ArrayList<>();
+    List<Thread> readers = new ArrayList<>();
+
+    for (int w = 0; w < WRITERS; w++) {
+      int writer = w;
+      writers.add(new Thread(() -> {
+        Random random = new Random(writer);
+        try {
+          start.await();
+          for (int i = 0; i < OPERATIONS; i++) {
+            write(random, writer, i);
+          }
+        } catch (Throwable t) {
+          failures.add(t);
+        }
+      }));
+    }
+
+    for (int r = 0; r < READERS; r++) {
+      int reader = r;
+      readers.add(new Thread(() -> {
+        Random random = new Random(100 + reader);
+        try {
+          start.await();
+          while (writing.get()) {
+            read(random);
+          }
+        } catch (Throwable t) {
+          failures.add(t);
+        }
+      }));
+    }
+
+    writers.forEach(Thread::start);
+    readers.forEach(Thread::start);
+    start.countDown();
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    writing.set(false);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    assertTrue("threads failed: " + failures, failures.isEmpty());
+    assertLinksConsistent();
+  }
+
+  /**
+   * Performs one random change on the model
+   * @param random the source of randomness of this writer
+   * @param writer the number of this writer, used to keep its IDs and names unique
+   * @param i the number of this change
+   */
+  private void write(Random random, int writer, int i) {
+    int id = writer * OPERATIONS + i;
+    switch (random.nextInt(6)) {
+      case 0, 1 -> Model1.addSample(new SampleImpl("S" + id, id));
+      case 2 -> Model1.addTest(new LabTestImpl("T" + id, random.nextInt(10) + 1));
+      case 3 -> {
+        List<String> samples = Model1.getListOfNamesOfSamples();
+        List<String> tests = Model1.getListOfNamesOfTests();
+        if (!samples.isEmpty() && !tests.isEmpty()) {
+          Model1.assignTests(
+              List.of(tests.get(random.nextInt(tests.size()))),
+              List.of(samples.get(random.nextInt(samples.size())),
+                      samples.get(random.nextInt(samples.size()))));
+        }
+      }
+      case 4 -> deleteRandom(random, Model1.getListOfSamples().size(), true);
+      default -> deleteRandom(random, Model1.getListOfTests().size(), false);
+    }
+  }
+
+  /**
+   * Deletes a random sample or test. Another writer may have deleted items since the size was
+   * read, so an index that has gone out of range is expected now and then
+   * @param random the source of randomness of this writer
+   * @param size the number of items when last read
+   * @param sample true to delete a sample, false to delete a test
+   */
+  private void deleteRandom(Random random, int size, boolean sample) {
+    if (size == 0) {
+      return;
+    }
+    try {
+      if (sample) {
+        Model1.deleteSample(random.nextInt(size));
+      } else {
+        Model1.deleteTest(random.nextInt(size));
+      }
+    } catch (IllegalArgumentException e) {
+      // lost a race with another writer
+    }
+  }
+
+  /**
+   * Performs one random read of the model, and checks what it can of the result
+   * @param random the source of randomness of this reader
+   */
+  private void read(Random random) {
+    int id = random.nextInt(WRITERS * OPERATIONS);
+    Sample sample = Model1.findSampleById(id);
+    if (sample != null) {
+      assertEquals(Integer.valueOf(id), sample.getSampleID());
+      Model1.getTestsForSample(sample.getSampleName());
+    }
+    for (Sample s : Model1.getListOfSamples()) {
+      assertNotNull(s);
+    }
+    Model1.getSamplesForTest("T" + id);
+    Model1.getTestsOrderedByPriority(TestPriority.NUMBER_OF_SAMPLES);
+  }
+
+  /**
+   * Checks that every link joins a sample and a test that are both in the model,
+   * and that both sides of every link agree
+   */
+  private void assertLinksConsistent() {
+    Set<Integer> sampleHandles = new HashSet<>();
+    Set<Integer> testHandles = new HashSet<>();
+    for (Sample sample : Model1.getListOfSamples()) {
+      sampleHandles.add(sample.getHandle());
+    }
+    for (LabTest test : Model1.getListOfTests()) {
+      testHandles.add(test.getHandle());
+    }
+
+    int links = 0;
+    for (Sample sample : Model1.getListOfSamples()) {
+      LinkStore store = LinkStore.of(sample);
+      for (int test : LinkStore.testHandlesOf(sample)) {
+        assertTrue("sample linked to a deleted test", testHandles.contains(test));
+        assertTrue("link missing on the test side",
+            Arrays.binarySearch(store.sampleHandlesOf(test), sample.getHandle()) >= 0);
+        links++;
+      }
+      assertEquals(LinkStore.testHandlesOf(sample).length,
+          Model1.getTestsForSample(sample.getSampleName()).size());
+    }
+
+    int reverseLinks = 0;
+    for (LabTest test : Model1.getListOfTests()) {
+      LinkStore store = LinkStore.of(test);
+      for (int sample : LinkStore.sampleHandlesOf(test)) {
+        assertTrue("test linked to a deleted sample", sampleHandles.contains(sample));
+        assertTrue("link missing on the sample side",
+            Arrays.binarySearch(store.testHandlesOf(sample), test.getHandle()) >= 0);
+        reverseLinks++;
+      }
+      assertEquals(LinkStore.sampleHandlesOf(test).length, test.getListOfSamples().size());
+    }
+    assertEquals(links, reverseLinks);
+  }
+}
@@ -0,0 +1,215 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is a JUnit test for the journaling LIMS model, checking that a
+ * journal replays into the same dashboard it recorded, alone or on top of the
+ * snapshot it was restarted from
+ */
+public class JournalingModelTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  Path journalFile;
+
+  /**
+   * Picks a fresh journal file
+   * @throws IOException if the temporary folder cannot be created
+   */
+  @Before
+  public void setUp() throws IOException {
+    journalFile = folder.getRoot().toPath().resolve("labflow.journal");
+  }
+
+  /**
+   * Tests that reopening a journal restores samples, tests, equipment, their
+   * order and the links between samples and tests
+   * @throws IOException if the journal cannot be written or read
+   */
+  @Test
+  public void testReplayRestoresModel() throws IOException {
+    try (JournalingModel model = JournalingModel.open(journalFile, new ModelImpl(),
+        SyncPolicy.GROUP_COMMIT)) {
+      record(model);
+    }
+
+    IModel restored = new ModelImpl();
+    JournalingModel.open(journalFile, restored, SyncPolicy.NONE).close();
+    assertRecorded(restored);
+  }
+
+  /**
+   * Tests that a record cut short by a crash is dropped on replay, and that
+   * the journal can be appended to afterwards
+   * @throws IOException if the journal cannot be written or read
+   */
+  @Test
+  public void testTornRecordIsTruncated() throws IOException {
+    try (JournalingModel model = JournalingModel.open(journalFile, new ModelImpl(),
+        SyncPolicy.EVERY_WRITE)) {
+      record(model);
+      model.addSample(new SampleImpl("TORN", 999999));
+    }
+    try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    IModel restored = new ModelImpl();
+    try (JournalingModel model = JournalingModel.open(journalFile, restored,
+        SyncPolicy.EVERY_WRITE)) {
+      assertRecorded(restored);
+      model.addEquipment(new EquipmentImpl("FREEZER", 3));
+    }
+
+    IModel reopened = new ModelImpl();
+    JournalingModel.open(journalFile, reopened, SyncPolicy.NONE).close();
+    assertEquals("[INCUBATOR, FREEZER]", reopened.getListOfNamesOfEquipment().toString());
+  }
+
+  /**
+   * Tests that after a checkpoint the journal holds only the changes made since,
+   * and that reopening it loads the snapshot and replays those changes
+   * @throws IOException if the journal or snapshot cannot be written or read
+   */
+  @Test
+  public void testCheckpointRestartsJournal() throws IOException {
+    try (JournalingModel model = JournalingModel.open(journalFile, new ModelImpl(),
+        SyncPolicy.GROUP_COMMIT)) {
+      record(model);
+      model.flush();
+      long before = Files.size(journalFile);
+      model.checkpoint();
+      assertTrue(Files.size(journalFile) < before);
+      model.addEquipment(new EquipmentImpl("FREEZER", 3));
+    }
+
+    IModel restored = new ModelImpl();
+    try (JournalingModel model = JournalingModel.open(journalFile, restored,
+        SyncPolicy.NONE)) {
+      assertEquals("[JOHN DOE, JANE DOE]", restored.getListOfNamesOfSamples().toString());
+      assertEquals("[HCV, HBV]", restored.getTestsForSample("JANE DOE").toString());
+      assertEquals("[INCUBATOR, FREEZER]", restored.getListOfNamesOfEquipment().toString());
+      model.checkpoint();
+      model.deleteEquipment(1);
+    }
+
+    IModel reopened = new ModelImpl();
+    JournalingModel.open(journalFile, reopened, SyncPolicy.NONE).close();
+    assertRecorded(reopened);
+  }
+
+  /**
+   * Tests that sorts after a checkpoint break ties the same way when the journal is replayed
+   * onto the snapshot as they did in the model that recorded them, so that the positions of
+   * later deletions pick the same items
+   * @throws IOException if the journal or snapshot cannot be written or read
+   */
+  @Test
+  public void testSortTiesSurviveCheckpoint() throws IOException {
+    IModel live = new ModelImpl();
+    try (JournalingModel model = JournalingModel.open(journalFile, live,
+        SyncPolicy.NONE)) {
+      model.addTest(new LabTestImpl("T1", 5));
+      model.addTest(new LabTestImpl("T2", 1));
+      model.addTest(new LabTestImpl("T3", 1));
+      model.addEquipment(new EquipmentImpl("E1", 4));
+      model.addEquipment(new EquipmentImpl("E2", 4));
+      model.addEquipment(new EquipmentImpl("E3", 2));
+      model.sortTestsByPriority(TestPriority.DURATION);
+      model.sortEquipmentByServiceUrgency();
+      model.checkpoint();
+      model.sortTestsByPriority(TestPriority.NUMBER_OF_SAMPLES);
+      model.deleteTest(0);
+      model.sortEquipmentByServiceUrgency();
+      model.deleteEquipment(1);
+    }
+    assertEquals("[T3, T1]", live.getListOfNamesOfTests().toString());
+    assertEquals("[E3, E2]", live.getListOfNamesOfEquipment().toString());
+
+    IModel reopened = new ModelImpl();
+    JournalingModel.open(journalFile, reopened, SyncPolicy.NONE).close();
+    assertEquals(live.getListOfNamesOfTests(), reopened.getListOfNamesOfTests());
+    assertEquals(live.getListOfNamesOfEquipment(), reopened.getListOfNamesOfEquipment());
+  }
+
+  /**
+   * Tests that a crash after the snapshot is saved but before the journal is
+   * restarted neither loses nor repeats a change, and that a journal whose
+   * snapshot is missing is refused
+   * @throws IOException if the journal or snapshot cannot be written or read
+   */
+  @Test
+  public void testCheckpointCrash() throws IOException {
+    Path copy = folder.getRoot().toPath().resolve("copy.journal");
+    try (JournalingModel model = JournalingModel.open(journalFile, new ModelImpl(),
+        SyncPolicy.EVERY_WRITE)) {
+      record(model);
+      Files.copy(journalFile, copy);
+      model.checkpoint();
+    }
+    Files.copy(copy, journalFile, StandardCopyOption.REPLACE_EXISTING);
+    try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 9}));    // a torn record
+    }
+
+    IModel restored = new ModelImpl();
+    JournalingModel.open(journalFile, restored, SyncPolicy.NONE).close();
+    assertRecorded(restored);
+    IModel reopened = new ModelImpl();
+    JournalingModel.open(journalFile, reopened, SyncPolicy.NONE).close();
+    assertRecorded(reopened);
+
+    Files.delete(journalFile.resolveSibling("labflow.journal.snapshot"));
+    try {
+      JournalingModel.open(journalFile, new ModelImpl(), SyncPolicy.NONE);
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().endsWith("is missing"));
+    }
+  }
+
+  /**
+   * Makes a series of changes through the given model
+   * @param model the model to change
+   */
+  private void record(IModel model) {
+    model.addSample(new SampleImpl("JANE DOE", 3456));
+    model.addSample(new SampleImpl("JOHN DOE", 1256));
+    model.addSample(new SampleImpl("JACK BLACK", 9212));
+    model.addTest(new LabTestImpl("HCV", 4));
+    model.addTest(new LabTestImpl("HBV", 5));
+    model.addEquipment(new EquipmentImpl("CENTRIFUGE", 20));
+    model.addEquipment(new EquipmentImpl("INCUBATOR", 10));
+    model.assignTests(List.of("HCV", "HBV"), List.of("JANE DOE", "JACK BLACK"));
+    model.addTestToSample("JOHN DOE", "HBV");
+    model.sortSamplesByID();
+    model.deleteSamples(new int[]{2});
+    model.deleteEquipment(0);
+  }
+
+  /**
+   * Checks that the given model is in the state left by record()
+   * @param model the model to check
+   */
+  private void assertRecorded(IModel model) {
+    assertEquals("[JOHN DOE, JANE DOE]", model.getListOfNamesOfSamples().toString());
+    assertEquals("[HCV, HBV]", model.getListOfNamesOfTests().toString());
+    assertEquals("[INCUBATOR]", model.getListOfNamesOfEquipment().toString());
+    assertEquals("[HCV, HBV]", model.getTestsForSample("JANE DOE").toString());
+    assertEquals("[JANE DOE, JOHN DOE]", model.getSamplesForTest("HBV").toString());
+    assertEquals(1256, (int) model.findSampleById(1256).getSampleID());
+  }
+}
@@ -0,0 +1,164 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is a JUnit test for the memory-mapped LIMS model, checking that it
+ * behaves like the in-memory model and that its samples survive a restart
+ */
+public class MappedModelImplTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  Path archive;
+  MappedModelImpl Model1;
+
+  /**
+   * Opens a model over a fresh archive with three samples and two tests
+   * @throws IOException if the archive cannot be created
+   */
+  @Before
+  public void setUp() throws IOException {
+    archive = folder.getRoot().toPath().resolve("samples.archive");
+    Model1 = new MappedModelImpl(archive);
+    Model1.addSample(new SampleImpl("JANE DOE", 3456));
+    Model1.addSample(new SampleImpl("JOHN DOE", 1256));
+    Model1.addSample(new SampleImpl("JACK BLACK", 9212));
+    Model1.addTest(new LabTestImpl("HCV", 4));
+    Model1.addTest(new LabTestImpl("HBV", 5));
+  }
+
+  /**
+   * Closes the model
+   * @throws IOException if the archive cannot be closed
+   */
+  @After
+  public void tearDown() throws IOException {
+    Model1.close();
+  }
+
+  /**
+   * Tests finding, linking, sorting and deleting samples
+   */
+  @Test
+  public void testSamples() {
+    assertEquals("[JANE DOE, JOHN DOE, JACK BLACK]", Model1.getListOfSamples().toString());
+    assertEquals("JOHN DOE", Model1.findSampleById(1256).getSampleName());
+    assertNull(Model1.findSampleById(1));
+    assertEquals(Model1.getListOfSamples().get(1), Model1.findSampleById(1256));
+
+    Model1.assignTests(List.of("HCV", "HBV"), List.of("JANE DOE", "JACK BLACK"));
+    Model1.addTestToSample("JOHN DOE", "HBV");
+    assertEquals("[HCV, HBV]", Model1.getTestsForSample("JACK BLACK").toString());
+    assertEquals("[JANE DOE, JOHN DOE, JACK BLACK]", Model1.getSamplesForTest("HBV").toString());
+
+    Model1.sortSamplesByID();
+    assertEquals("[JOHN DOE, JANE DOE, JACK BLACK]", Model1.getListOfNamesOfSamples().toString());
+
+    Model1.deleteSample(1);
+    assertNull(Model1.findSampleById(3456));
+    assertEquals("[JOHN DOE, JACK BLACK]", Model1.getSamplesForTest("HBV").toString());
+    Model1.addSample(new SampleImpl("JANE DOE", 3456));
+    assertEquals("[JOHN DOE, JACK BLACK, JANE DOE]", Model1.getListOfSamples().toString());
+    assertEquals("[]", Model1.getTestsForSample("JANE DOE").toString());
+
+    try {
+      Model1.addSample(new SampleImpl("COPY", 1256));
+      fail("expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals(3, Model1.getListOfSamples().size());
+    }
+  }
+
+  /**
+   * Tests that the samples, their order and their IDs are restored when the archive is reopened
+   * @throws IOException if the archive cannot be reopened
+   */
+  @Test
+  public void testReopen() throws IOException {
+    Model1.sortSamplesByID();
+    Model1.deleteSamples(new int[]{2});
+    Model1.close();
+
+    Model1 = new MappedModelImpl(archive);
+    assertEquals("[JOHN DOE, JANE DOE]", Model1.getListOfNamesOfSamples().toString());
+    assertEquals("JANE DOE", Model1.findSampleById(3456).getSampleName());
+    assertNull(Model1.findSampleById(9212));
+  }
+
+  /**
+   * Tests that the tests, equipment and links are restored when the archive is reopened, and
+   * that the links of a deleted sample are not restored onto a sample that reuses its record
+   * @throws IOException if the archive cannot be reopened
+   */
+  @Test
+  public void testReopenKeepsLinks() throws IOException {
+    Model1.addEquipment(new EquipmentImpl("CENTRIFUGE", 2));
+    Model1.assignTests(List.of("HCV", "HBV"), List.of("JANE DOE", "JACK BLACK"));
+    Model1.findSampleById(3456).deleteTestFromSample(Model1.getListOfTests().get(0));
+    Model1.close();
+
+    Model1 = new MappedModelImpl(archive);
+    assertEquals("[HCV, HBV]", Model1.getListOfNamesOfTests().toString());
+    assertEquals("[CENTRIFUGE]", Model1.getListOfEquipment().toString());
+    assertEquals("[HBV]", Model1.getTestsForSample("JANE DOE").toString());
+    assertEquals("[HCV, HBV]", Model1.getTestsForSample("JACK BLACK").toString());
+    assertEquals("[JANE DOE, JACK BLACK]", Model1.getSamplesForTest("HBV").toString());
+
+    Model1.deleteSample(0);
+    Model1.addSample(new SampleImpl("JILL DOE", 4444));
+    Model1.force();
+    Model1.close();
+    Model1 = new MappedModelImpl(archive);
+    assertEquals("[JACK BLACK]", Model1.getSamplesForTest("HBV").toString());
+    assertEquals("[]", Model1.getTestsForSample("JILL DOE").toString());
+  }
+
+  /**
+   * Tests what a model opened after the process died, without closing the archive, restores:
+   * the samples and their links to tests saved by the last force, but not the tests and
+   * equipment changed since
+   * @throws IOException if the archive cannot be reopened
+   */
+  @Test
+  public void testReopenAfterCrash() throws IOException {
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      Model1.addTest(new LabTestImpl("T" + i, i));
+      names.add("T" + i);
+    }
+    Model1.addEquipment(new EquipmentImpl("CENTRIFUGE", 2));
+    Model1.assignTests(names, List.of("JANE DOE", "JOHN DOE"));
+    Model1.force();
+
+    Model1.addTestToSample("JACK BLACK", "T0");
+    Model1.addTestToSample("JACK BLACK", "HCV");
+    Model1.deleteSample(0);
+    Model1.addSample(new SampleImpl("JILL DOE", 4444));
+    Model1.addTest(new LabTestImpl("HAV", 3));
+    Model1.deleteEquipment(0);
+
+    MappedModelImpl crashed = Model1;
+    Model1 = new MappedModelImpl(archive);
+    try {
+      assertEquals("[JOHN DOE, JACK BLACK, JILL DOE]",
+          Model1.getListOfNamesOfSamples().toString());
+      assertEquals(302, Model1.getListOfTests().size());
+      assertEquals("[CENTRIFUGE]", Model1.getListOfEquipment().toString());
+      assertEquals(300, Model1.getTestsForSample("JOHN DOE").size());
+      assertEquals("[T0]", Model1.getTestsForSample("JACK BLACK").toString());
+      assertEquals("[]", Model1.getTestsForSample("JILL DOE").toString());
+      assertEquals("[JOHN DOE, JACK BLACK]", Model1.getSamplesForTest("T0").toString());
+    } finally {
+      crashed.close();
+    }
+  }
+}
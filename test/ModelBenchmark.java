@@ -0,0 +1,293 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * This is a benchmark of the hot paths of the IModel interface: filling the dashboard, looking
+ * up assignments, deleting with cascades, sorting and listing names. It runs against any IModel
+ * implementation at entity counts from 10^2 to 10^6, for example:
+ *
+ * <pre>
+ * java ModelBenchmark --models ModelImpl,Columnar --sizes 1000,1000000 --csv today.csv
+ * java ModelBenchmark --baseline release.csv
+ * </pre>
+ *
+ * A model is ModelImpl, Concurrent, Columnar or Mapped, or the name of any IModel class with a
+ * constructor taking no arguments. Each size fills a fresh model with that many samples and
+ * pieces of equipment, and a tenth as many tests, each sample assigned to three tests. Every
+ * round builds a new model, the first round of each size warms up and is not counted, and the
+ * best time per operation over the other rounds is reported in nanoseconds.
+ *
+ * With --csv the results are saved, and with --baseline they are compared with results saved
+ * before: an operation more than --tolerance (20% by default) slower than its baseline is
+ * reported as a regression, and the exit status is 1 if there is any.
+ */
+public class ModelBenchmark {
+  private static final int TESTS_PER_SAMPLE = 3;
+  private static final int LOOKUPS = 10000;
+  private static final int DELETES = 100;
+  private static final int NAME_LISTINGS = 5;
+
+  /**
+   * Runs the benchmark for each model and size given
+   * @param args the options described above
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    List<String> models = List.of("ModelImpl", "Concurrent", "Columnar", "Mapped");
+    int[] sizes = {100, 1000, 10000, 100000, 1000000};
+    int rounds = 5;
+    double tolerance = 0.2;
+    Path csv = null;
+    Path baseline = null;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--models" -> models = List.of(args[++i].split(","));
+        case "--sizes" -> sizes = parseSizes(args[++i]);
+        case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+        case "--tolerance" -> tolerance = Double.parseDouble(args[++i]);
+        case "--csv" -> csv = Paths.get(args[++i]);
+        case "--baseline" -> baseline = Paths.get(args[++i]);
+        default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+    Map<String, Double> previous = baseline == null ? Map.of() : read(baseline);
+
+    List<String> lines = new ArrayList<>();
+    lines.add("model,size,operation,ns_per_op");
+    int regressions = 0;
+    System.out.printf("%-12s %8s %-28s %14s %10s%n", "model", "size", "operation", "ns/op",
+        baseline == null ? "" : "vs base");
+    for (String model : models) {
+      for (int size : sizes) {
+        for (Map.Entry<String, Double> result : run(model, size, rounds).entrySet()) {
+          String key = model + "," + size + "," + result.getKey();
+          Double before = previous.get(key);
+          String comparison = "";
+          if (before != null) {
+            double ratio = result.getValue() / before;
+            comparison = String.format("%9.2fx", ratio);
+            if (ratio > 1 + tolerance) {
+              comparison += "  REGRESSION";
+              regressions++;
+            }
+          }
+          System.out.printf("%-12s %8d %-28s %14.1f %s%n", model, size, result.getKey(),
+              result.getValue(), comparison);
+          lines.add(key + "," + result.getValue());
+        }
+      }
+    }
+    if (csv != null) {
+      Files.write(csv, lines);
+    }
+    if (regressions > 0) {
+      System.out.println(regressions + " operations regressed");
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Runs every operation on fresh models of the given size and returns the best times
+   * @param model the name of the model to run
+   * @param size the number of samples and pieces of equipment
+   * @param rounds the number of rounds to count, after one warm-up round
+   * @return map from operation to its best time in nanoseconds per call, in running order
+   * @throws IOException if a model cannot be opened or closed
+   */
+  private static Map<String, Double> run(String model, int size, int rounds) throws IOException {
+    Map<String, Double> best = new LinkedHashMap<>();
+    for (int round = 0; round <= rounds; round++) {
+      Map<String, Double> times = new LinkedHashMap<>();
+      IModel instance = create(model);
+      try {
+        round(instance, size, times);
+      } finally {
+        instance.clearSamples();
+        instance.clearTests();
+        instance.clearEquipment();
+        if (instance instanceof Closeable closeable) {
+          closeable.close();
+        }
+      }
+      if (round > 0) {
+        times.forEach((operation, nanos) -> best.merge(operation, nanos, Math::min));
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Runs every operation once on an empty model, recording the time each took per call
+   * @param model the empty model
+   * @param size the number of samples and pieces of equipment
+   * @param times map to put the time per call of each operation in
+   */
+  private static void round(IModel model, int size, Map<String, Double> times) {
+    Random random = new Random(42);
+    int testCount = Math.max(10, size / 10);
+    String[] sampleNames = new String[size];
+    String[] testNames = new String[testCount];
+    int[] ids = new int[size];
+    for (int i = 0; i < size; i++) {
+      int j = random.nextInt(i + 1);
+      ids[i] = ids[j];
+      ids[j] = i;
+      sampleNames[i] = "PATIENT " + i;
+    }
+    for (int i = 0; i < testCount; i++) {
+      testNames[i] = "TEST " + i;
+    }
+    long sink = 0;
+
+    long start = System.nanoTime();
+    for (int i = 0; i < size; i++) {
+      model.addSample(new SampleImpl(sampleNames[i], ids[i]));
+    }
+    times.put("addSample", per(start, size));
+    for (int i = 0; i < testCount; i++) {
+      model.addTest(new LabTestImpl(testNames[i], random.nextInt(100) + 1));
+    }
+    for (int i = 0; i < size; i++) {
+      model.addEquipment(new EquipmentImpl("EQUIPMENT " + i, random.nextInt(3650)));
+    }
+
+    start = System.nanoTime();
+    for (int i = 0; i < size; i++) {
+      for (int t = 0; t < TESTS_PER_SAMPLE; t++) {
+        model.addTestToSample(sampleNames[i], testNames[random.nextInt(testCount)]);
+      }
+    }
+    times.put("addTestToSample", per(start, (long) size * TESTS_PER_SAMPLE));
+
+    start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++) {
+      sink += model.getTestsForSample(sampleNames[random.nextInt(size)]).size();
+    }
+    times.put("getTestsForSample", per(start, LOOKUPS));
+    start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++) {
+      sink += model.getSamplesForTest(testNames[random.nextInt(testCount)]).size();
+    }
+    times.put("getSamplesForTest", per(start, LOOKUPS));
+
+    start = System.nanoTime();
+    for (int i = 0; i < NAME_LISTINGS; i++) {
+      sink += model.getListOfNamesOfSamples().size();
+    }
+    times.put("getListOfNamesOfSamples", per(start, NAME_LISTINGS));
+    start = System.nanoTime();
+    for (int i = 0; i < NAME_LISTINGS; i++) {
+      sink += model.getListOfNamesOfTests().size();
+    }
+    times.put("getListOfNamesOfTests", per(start, NAME_LISTINGS));
+    start = System.nanoTime();
+    for (int i = 0; i < NAME_LISTINGS; i++) {
+      sink += model.getListOfNamesOfEquipment().size();
+    }
+    times.put("getListOfNamesOfEquipment", per(start, NAME_LISTINGS));
+
+    start = System.nanoTime();
+    model.sortSamplesByID();
+    times.put("sortSamplesByID", per(start, 1));
+    start = System.nanoTime();
+    model.sortEquipmentByServiceUrgency();
+    times.put("sortEquipmentByServiceUrgency", per(start, 1));
+    start = System.nanoTime();
+    model.sortTestsByPriority(TestPriority.DURATION);
+    times.put("sortTestsByPriority(DURATION)", per(start, 1));
+    start = System.nanoTime();
+    model.sortTestsByPriority(TestPriority.NUMBER_OF_SAMPLES);
+    times.put("sortTestsByPriority(SAMPLES)", per(start, 1));
+
+    int deletes = Math.min(DELETES, size / 2);
+    start = System.nanoTime();
+    for (int i = 0; i < deletes; i++) {
+      model.deleteSample(random.nextInt(model.getListOfSamples().size()));
+    }
+    times.put("deleteSample", per(start, deletes));
+    deletes = Math.min(DELETES, testCount / 2);
+    start = System.nanoTime();
+    for (int i = 0; i < deletes; i++) {
+      model.deleteTest(random.nextInt(model.getListOfTests().size()));
+    }
+    times.put("deleteTest", per(start, deletes));
+
+    Blackhole.consume(sink);
+  }
+
+  /**
+   * Returns an empty model of the given kind
+   * @param model ModelImpl, Concurrent, Columnar, Mapped or the name of an IModel class
+   * @return the empty model
+   * @throws IOException if the file of a mapped model cannot be created
+   */
+  private static IModel create(String model) throws IOException {
+    switch (model) {
+      case "ModelImpl":
+        return new ModelImpl();
+      case "Concurrent":
+        return new ConcurrentModelImpl();
+      case "Columnar":
+        return new ColumnarModelImpl();
+      case "Mapped":
+        Path file = Files.createTempFile("labflow-benchmark", ".samples");
+        Files.delete(file);
+        for (String suffix : new String[]{"", ".order", ".links", ".catalog"}) {
+          file.resolveSibling(file.getFileName() + suffix).toFile().deleteOnExit();
+        }
+        return new MappedModelImpl(file);
+      default:
+        try {
+          return (IModel) Class.forName(model).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+          throw new IllegalArgumentException("Not an IModel class: " + model, e);
+        }
+    }
+  }
+
+  /**
+   * Returns the time per call since the given start
+   * @param start the time the calls started, from System.nanoTime
+   * @param calls the number of calls made
+   * @return nanoseconds per call
+   */
+  private static double per(long start, long calls) {
+    return (double) (System.nanoTime() - start) / calls;
+  }
+
+  private static int[] parseSizes(String list) {
+    String[] parts = list.split(",");
+    int[] sizes = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      sizes[i] = Integer.parseInt(parts[i].trim());
+    }
+    return sizes;
+  }
+
+  /**
+   * Reads results saved with --csv
+   * @param file the file to read
+   * @return map from "model,size,operation" to nanoseconds per call
+   * @throws IOException if the file cannot be read
+   */
+  private static Map<String, Double> read(Path file) throws IOException {
+    Map<String, Double> results = new HashMap<>();
+    for (String line : Files.readAllLines(file)) {
+      int comma = line.lastIndexOf(',');
+      if (line.startsWith("model,") || comma < 0) {
+        continue;
+      }
+      results.put(line.substring(0, comma), Double.parseDouble(line.substring(comma + 1)));
+    }
+    return results;
+  }
+}
@@ -1,5 +1,10 @@
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -277,6 +282,24 @@ public class ModelImplTest {
     assertEquals(10, Model1.getEquipmentInfo("Incubator"));
   }
 
+  /**
+   * Tests whether the containsSample() and containsTest() methods work properly
+   */
+  @Test
+  public void testContains() {
+    Model1.addSample(sample1);
+    Model1.addTest(test1);
+    assertTrue(Model1.containsSample("Jane Doe"));
+    assertFalse(Model1.containsSample("John Doe"));
+    assertTrue(Model1.containsTest("HCV Test"));
+    assertFalse(Model1.containsTest("HBV Test"));
+
+    Model1.deleteSample(0);
+    Model1.deleteTest(0);
+    assertFalse(Model1.containsSample("Jane Doe"));
+    assertFalse(Model1.containsTest("HCV Test"));
+  }
+
   /**
    * Tests whether the getListOfNamesOfSamples() method works properly
    */
@@ -356,4 +379,411 @@ public class ModelImplTest {
     Model1.clearEquipment();
     assertEquals("[]", Model1.getListOfNamesOfEquipment().toString());
   }
+
+  /**
+   * Tests that deleting a sample or a test removes it from the lists of the
+   * samples/tests it was linked to
+   */
+  @Test
+  public void testDeleteCascades() {
+    Model1.addSample(sample1);
+    Model1.addSample(sample2);
+    Model1.addTest(test1);
+    Model1.addTest(test2);
+
+    // sample1 = Jane Doe, has HCV and HTLV
+    Model1.deleteSample(0);
+    assertEquals("[]", Model1.getSamplesForTest(test1.getTestName()).toString());
+    assertEquals("[John Doe]", Model1.getSamplesForTest(test2.getTestName()).toString());
+
+    // test2 = HTLV Test
+    Model1.deleteTest(1);
+    assertEquals("[]", Model1.getTestsForSample(sample2.getSampleName()).toString());
+    assertEquals("[]", Model1.getSamplesForTest(test2.getTestName()).toString());
+  }
+
+  /**
+   * Tests that lookups by name stay in sync with additions, deletions and clears
+   */
+  @Test
+  public void testLookupsByNameAfterChanges() {
+    Model1.addEquipment(equipment1);
+    Model1.addEquipment(equipment2);
+    Model1.deleteEquipment(1);
+    assertEquals(0, Model1.getEquipmentInfo("Incubator"));
+    assertEquals(20, Model1.getEquipmentInfo("Grifols Panther"));
+
+    Model1.addSample(sample3);
+    Model1.addTest(test3);
+    Model1.clearTests();
+    Model1.addTestToSample(sample3.getSampleName(), test3.getTestName());
+    assertEquals("[]", Model1.getTestsForSample(sample3.getSampleName()).toString());
+  }
+
+  /**
+   * Tests whether the findSampleById() method works properly
+   */
+  @Test
+  public void testFindSampleById() {
+    Model1.addSample(sample1);
+    Model1.addSample(sample2);
+    assertSame(sample2, Model1.findSampleById(1256));
+    assertNull(Model1.findSampleById(9212));
+
+    Model1.deleteSample(1);
+    assertNull(Model1.findSampleById(1256));
+    assertSame(sample1, Model1.findSampleById(3456));
+
+    Model1.clearSamples();
+    assertNull(Model1.findSampleById(3456));
+  }
+
+  /**
+   * Tests adding a sample whose ID is already in the dashboard. It is
+   * expected to throw an exception
+   */
+  @Test (expected = IllegalArgumentException.class)
+  public void testAddDuplicateSampleID() {
+    Model1.addSample(sample1);
+    Model1.addSample(new SampleImpl("Jane Roe", 3456));
+  }
+
+  /**
+   * Tests that both sides of a sample-test link are updated together, and that
+   * adding the same link twice has no effect
+   */
+  @Test
+  public void testLinksStayInSync() {
+    sample3.addTestToSample(test3);
+    test3.addSampleToTest(sample3);
+    assertEquals("[HBV Test]", sample3.getListOfTests().toString());
+    assertEquals("[Jack Black]", test3.getListOfSamples().toString());
+
+    test2.deleteSampleFromTest(sample1);
+    assertEquals("[HCV Test]", sample1.getListOfTests().toString());
+    assertEquals("[John Doe]", test2.getListOfSamples().toString());
+
+    sample1.getListOfTests().clear();
+    assertEquals("[]", test1.getListOfSamples().toString());
+  }
+
+  /**
+   * Tests that samples and tests linked before they are added take their links into the
+   * dashboard, that deleting them releases their links, and that items of two dashboards
+   * cannot be linked or shared
+   */
+  @Test
+  public void testLinksBelongToOneDashboard() {
+    Model1.addTest(test1);
+    Model1.addSample(sample2);
+    Model1.addSample(sample1);
+    assertSame(LinkStore.of(test1), LinkStore.of(sample1));
+    assertSame(LinkStore.of(test1), LinkStore.of(test2));
+    assertEquals("[HCV Test, HTLV Test]", sample1.getListOfTests().toString());
+    assertEquals("[Jane Doe, John Doe]", test2.getListOfSamples().toString());
+
+    Model1.deleteSample(1);
+    assertNull(LinkStore.of(sample1));
+    assertEquals(LinkStore.NO_HANDLE, sample1.getHandle());
+    assertEquals("[]", sample1.getListOfTests().toString());
+    assertEquals("[]", Model1.getSamplesForTest("HCV Test").toString());
+
+    IModel other = new ModelImpl();
+    other.addTest(test3);
+    try {
+      sample2.addTestToSample(test3);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid link: the sample and test are in different dashboards",
+          e.getMessage());
+    }
+    try {
+      other.addSample(sample2);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(0, other.getListOfSamples().size());
+    }
+  }
+
+  /**
+   * Tests that iterating over a list of linked names fails once the links change, except
+   * through the iterator itself
+   */
+  @Test
+  public void testLinkIteratorsFailFast() {
+    Iterator<String> tests = sample1.getListOfTests().iterator();
+    assertEquals("HCV Test", tests.next());
+    tests.remove();
+    assertEquals("HTLV Test", tests.next());
+    assertFalse(tests.hasNext());
+    assertEquals("[HTLV Test]", sample1.getListOfTests().toString());
+
+    Iterator<String> samples = test2.getListOfSamples().iterator();
+    assertEquals("Jane Doe", samples.next());
+    sample3.addTestToSample(test2);
+    try {
+      samples.next();
+      fail();
+    } catch (ConcurrentModificationException e) {
+      // the links changed under the iterator
+    }
+  }
+
+  /**
+   * Tests that the names of tests are encoded once each, and the names of samples and equipment
+   * not at all
+   */
+  @Test
+  public void testOnlyTestNamesEncoded() {
+    int size = NameDictionary.shared().size();
+    Sample sample = new SampleImpl("Unique Sample " + size, 1);
+    LabTest test = new LabTestImpl("HCV Test", 7);
+    sample.addTestToSample(test);
+    assertEquals(size, NameDictionary.shared().size());
+
+    new EquipmentImpl("Centrifuge " + size, 3);
+    assertEquals(size, NameDictionary.shared().size());
+    new LabTestImpl("Centrifuge " + size, 3);
+    new LabTestImpl("Centrifuge " + size, 4);
+    assertEquals(size + 1, NameDictionary.shared().size());
+    assertEquals("[Unique Sample " + size + "]", test.getListOfSamples().toString());
+    assertTrue(test.getListOfSamples().contains("Unique Sample " + size));
+  }
+
+  /**
+   * Tests that the lists of linked names find and remove names, including names
+   * that no sample or test has
+   */
+  @Test
+  public void testLinkListsByName() {
+    assertTrue(sample1.getListOfTests().contains("HTLV Test"));
+    assertEquals(1, sample1.getListOfTests().indexOf("HTLV Test"));
+    assertFalse(sample1.getListOfTests().contains("No Such Test"));
+    assertFalse(sample1.getListOfTests().contains(null));
+
+    assertTrue(sample1.getListOfTests().remove("HCV Test"));
+    assertFalse(sample1.getListOfTests().remove("HCV Test"));
+    assertEquals("[HTLV Test]", sample1.getListOfTests().toString());
+    assertEquals("[]", test1.getListOfSamples().toString());
+  }
+
+  /**
+   * Tests whether the deleteSamples(), deleteTests() and deleteEquipment() bulk
+   * methods work properly
+   */
+  @Test
+  public void testBulkDelete() {
+    Model1.addSample(sample1);
+    Model1.addSample(sample2);
+    Model1.addSample(sample3);
+    Model1.addTest(test1);
+    Model1.addTest(test2);
+    Model1.addTest(test3);
+    Model1.addEquipment(equipment1);
+    Model1.addEquipment(equipment2);
+
+    Model1.deleteSamples(new int[]{2, 0});
+    assertEquals("[John Doe]", Model1.getListOfNamesOfSamples().toString());
+    assertEquals("[John Doe]", Model1.getSamplesForTest(test2.getTestName()).toString());
+    assertNull(Model1.findSampleById(3456));
+
+    Model1.deleteTests(new int[]{1, 2});
+    assertEquals("[HCV Test]", Model1.getListOfNamesOfTests().toString());
+    assertEquals("[]", Model1.getTestsForSample(sample2.getSampleName()).toString());
+
+    Model1.deleteEquipment(new int[]{0});
+    assertEquals("[Incubator]", Model1.getListOfNamesOfEquipment().toString());
+  }
+
+  /**
+   * Tests whether the deleteSamplesById() method works properly, skipping unknown and
+   * repeated IDs
+   */
+  @Test
+  public void testDeleteSamplesById() {
+    Model1.addSample(sample1);
+    Model1.addSample(sample2);
+    Model1.addSample(sample3);
+    Model1.addTest(test2);
+
+    assertEquals(2, Model1.deleteSamplesById(new int[]{9212, 1111, 3456, 9212}));
+    assertEquals("[John Doe]", Model1.getListOfNamesOfSamples().toString());
+    assertEquals("[John Doe]", Model1.getSamplesForTest(test2.getTestName()).toString());
+    assertNull(Model1.findSampleById(3456));
+    assertEquals(0, Model1.deleteSamplesById(new int[]{3456}));
+  }
+
+  /**
+   * Tests bulk deleting with an index out of range. It is expected to throw
+   * an exception and delete nothing
+   */
+  @Test
+  public void testIllegalBulkDelete() {
+    Model1.addSample(sample1);
+    Model1.addSample(sample2);
+    try {
+      Model1.deleteSamples(new int[]{0, 2});
+      fail("expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals("[Jane Doe, John Doe]", Model1.getListOfNamesOfSamples().toString());
+    }
+  }
+
+  /**
+   * Tests whether the assignTests() method works properly
+   */
+  @Test
+  public void testAssignTests() {
+    Model1.addSample(sample1);
+    Model1.addSample(sample3);
+    Model1.addTest(test1);
+    Model1.addTest(test3);
+
+    // sample1 (Jane Doe) already has HCV Test; "Nobody" and "No Test" are not in the dashboard
+    List<String> tests = Arrays.asList("HCV Test", "HBV Test", "No Test");
+    List<String> samples = Arrays.asList("Jane Doe", "Jack Black", "Nobody");
+    assertEquals(3, Model1.assignTests(tests, samples));
+    assertEquals(0, Model1.assignTests(tests, samples));
+
+    assertEquals("[HCV Test, HTLV Test, HBV Test]",
+                  Model1.getTestsForSample(sample1.getSampleName()).toString());
+    assertEquals("[Jane Doe, Jack Black]",
+                  Model1.getSamplesForTest(test3.getTestName()).toString());
+  }
+
+  /**
+   * Tests that the ordered views follow additions and deletions without
+   * reordering the lists
+   */
+  @Test
+  public void testOrderedViews() {
+    Model1.addSample(sample1);
+    Model1.addSample(sample2);
+    Model1.addSample(sample3);
+    Model1.addTest(test1);
+    Model1.addTest(test2);
+    Model1.addTest(test3);
+    Model1.addEquipment(equipment1);
+    Model1.addEquipment(equipment2);
+
+    assertEquals("[John Doe, Jane Doe, Jack Black]",
+                  toList(Model1.getSamplesOrderedByID()).toString());
+    assertEquals("[Incubator, Grifols Panther]",
+                  toList(Model1.getEquipmentOrderedByServiceUrgency()).toString());
+    assertEquals("[HTLV Test, HCV Test, HBV Test]",
+                  toList(Model1.getTestsOrderedByPriority(TestPriority.DURATION)).toString());
+    assertEquals("[Jane Doe, John Doe, Jack Black]", Model1.getListOfNamesOfSamples().toString());
+
+    // HBV Test gains three samples, HTLV Test loses one
+    Model1.assignTests(List.of("HBV Test"), List.of("Jane Doe", "John Doe", "Jack Black"));
+    sample2.deleteTestFromSample(test2);
+    assertEquals("[HCV Test, HTLV Test, HBV Test]",
+        toList(Model1.getTestsOrderedByPriority(TestPriority.NUMBER_OF_SAMPLES)).toString());
+
+    Model1.deleteSample(1);
+    assertEquals("[Jane Doe, Jack Black]", toList(Model1.getSamplesOrderedByID()).toString());
+    assertFalse(Model1.getSamplesOrderedByID() instanceof SortedIndex);
+    assertFalse(Model1.getTestsOrderedByPriority(TestPriority.DURATION) instanceof SortedIndex);
+  }
+
+  /**
+   * Tests that sorting is stable over the current order of the list, as a sort of the list is,
+   * rather than following the order the items were added in
+   */
+  @Test
+  public void testSortsAreStable() {
+    ModelImpl model = new ModelImpl();
+    model.addTest(new LabTestImpl("T1", 5));
+    model.addTest(new LabTestImpl("T2", 1));
+    model.addTest(new LabTestImpl("T3", 5));
+    model.sortTestsByPriority(TestPriority.DURATION);
+    assertEquals("[T2, T1, T3]", model.getListOfNamesOfTests().toString());
+    model.sortTestsByPriority(TestPriority.NUMBER_OF_SAMPLES);
+    assertEquals("[T2, T1, T3]", model.getListOfNamesOfTests().toString());
+
+    model.addEquipment(new EquipmentImpl("E1", 9));
+    model.addEquipment(new EquipmentImpl("E2", 3));
+    model.addEquipment(new EquipmentImpl("E3", 9));
+    model.sortEquipmentByServiceUrgency();
+    model.deleteEquipment(0);
+    model.addEquipment(new EquipmentImpl("E4", 3));
+    model.sortEquipmentByServiceUrgency();
+    assertEquals("[E4, E1, E3]", model.getListOfNamesOfEquipment().toString());
+  }
+
+  /**
+   * Tests that the tests ordered by number of samples follow the links made and removed through
+   * the model and outside it
+   */
+  @Test
+  public void testTestsOrderedByNumberOfSamples() {
+    ModelImpl model = new ModelImpl();
+    model.addSample(new SampleImpl("A", 1));
+    model.addSample(new SampleImpl("B", 2));
+    model.addSample(new SampleImpl("C", 3));
+    LabTest first = new LabTestImpl("X", 1);
+    model.addTest(first);
+    model.addTest(new LabTestImpl("Y", 1));
+    model.addTest(new LabTestImpl("Z", 1));
+
+    model.assignTests(List.of("X"), List.of("A", "B", "C"));
+    model.addTestToSample("B", "Y");
+    assertEquals("[Z, Y, X]",
+        toList(model.getTestsOrderedByPriority(TestPriority.NUMBER_OF_SAMPLES)).toString());
+
+    model.deleteSamples(new int[]{0, 2});
+    model.assignTests(List.of("Z"), List.of("B"));
+    model.addTestToSample("B", "Z");
+    assertEquals("[X, Y, Z]",
+        toList(model.getTestsOrderedByPriority(TestPriority.NUMBER_OF_SAMPLES)).toString());
+
+    model.getListOfSamples().get(0).deleteTestFromSample(first);
+    model.deleteSample(0);
+    model.addSample(new SampleImpl("D", 4));
+    model.addTestToSample("D", "Y");
+    assertEquals("[X, Z, Y]",
+        toList(model.getTestsOrderedByPriority(TestPriority.NUMBER_OF_SAMPLES)).toString());
+    assertFalse(model.getTestsOrderedByPriority(TestPriority.NUMBER_OF_SAMPLES)
+        instanceof SortedIndex);
+  }
+
+  /**
+   * Copies the items of an ordered view into a list
+   * @param items the ordered view
+   * @return list of the items in the same order
+   */
+  private static <T> List<T> toList(Iterable<T> items) {
+    List<T> list = new ArrayList<>();
+    items.forEach(list::add);
+    return list;
+  }
+
+  /**
+   * Tests whether the mostUrgentEquipment() and equipmentDueWithin() methods
+   * work properly
+   */
+  @Test
+  public void testEquipmentUrgencyQueries() {
+    Model1.addEquipment(equipment1);
+    Model1.addEquipment(equipment2);
+    Model1.addEquipment(new EquipmentImpl("Freezer", -3));
+    Model1.addEquipment(new EquipmentImpl("Centrifuge", 10));
+
+    assertEquals("[Freezer, Incubator]", Model1.mostUrgentEquipment(2).toString());
+    assertEquals(4, Model1.mostUrgentEquipment(10).size());
+    assertEquals("[Incubator, Centrifuge]", Model1.equipmentDueWithin(0, 10).toString());
+    assertEquals("[]", Model1.equipmentDueWithin(11, 19).toString());
+
+    Model1.deleteEquipment(2);
+    assertEquals("[Incubator]", Model1.mostUrgentEquipment(1).toString());
+  }
+
+  /**
+   * Tests asking for an invalid range of days. It is expected to throw an
+   * exception
+   */
+  @Test (expected = IllegalArgumentException.class)
+  public void testIllegalEquipmentDueWithin() {
+    Model1.equipmentDueWithin(7, 0);
+  }
 }
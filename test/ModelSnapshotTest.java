@@ -0,0 +1,88 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is a JUnit test for the snapshots that save and load a whole dashboard
+ */
+public class ModelSnapshotTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Tests that loading a snapshot restores samples, tests, equipment, their
+   * order and the links between samples and tests
+   * @throws IOException if the snapshot cannot be written or read
+   */
+  @Test
+  public void testSnapshotRoundTrip() throws IOException {
+    IModel model = new ModelImpl();
+    model.addSample(new SampleImpl("JANE DOE", 3456));
+    model.addSample(new SampleImpl("JOHN DOE", 1256));
+    model.addSample(new SampleImpl("JACK BLACK", 9212));
+    model.addTest(new LabTestImpl("HCV", 4));
+    model.addTest(new LabTestImpl("HBV", 5));
+    model.addEquipment(new EquipmentImpl("CENTRIFUGE", 20));
+    model.addEquipment(new EquipmentImpl("INCUBATOR", 10));
+    model.assignTests(List.of("HCV", "HBV"), List.of("JANE DOE", "JACK BLACK"));
+    model.addTestToSample("JOHN DOE", "HBV");
+    model.sortSamplesByID();
+    model.deleteSamples(new int[]{2});
+    model.deleteEquipment(0);
+
+    IModel restored = saveAndLoad(model);
+    assertEquals("[JOHN DOE, JANE DOE]", restored.getListOfNamesOfSamples().toString());
+    assertEquals("[HCV, HBV]", restored.getListOfNamesOfTests().toString());
+    assertEquals("[INCUBATOR]", restored.getListOfNamesOfEquipment().toString());
+    assertEquals("[HCV, HBV]", restored.getTestsForSample("JANE DOE").toString());
+    assertEquals("[JANE DOE, JOHN DOE]", restored.getSamplesForTest("HBV").toString());
+    assertEquals(4, (int) restored.getListOfTests().get(0).getTestDuration());
+    assertEquals(10, (int) restored.getListOfEquipment().get(0).getServiceUrgency());
+  }
+
+  /**
+   * Tests that a dashboard with more samples than fit in one chunk is restored
+   * with every sample in its place and linked to its tests, across the chunks
+   * decoded in parallel
+   * @throws IOException if the snapshot cannot be written or read
+   */
+  @Test
+  public void testManyChunks() throws IOException {
+    IModel model = new ModelImpl();
+    new WorkloadGenerator(3, 150000, 40, 5).apply(model);
+    model.sortSamplesByID();
+    assertTrue(model.getListOfSamples().size() > 2 * 65536);
+
+    IModel restored = saveAndLoad(model);
+    assertEquals(model.getListOfNamesOfSamples(), restored.getListOfNamesOfSamples());
+    assertEquals(model.getListOfNamesOfTests(), restored.getListOfNamesOfTests());
+    List<Sample> samples = model.getListOfSamples();
+    List<Sample> restoredSamples = restored.getListOfSamples();
+    for (int i = 0; i < samples.size(); i += 997) {
+      assertEquals(samples.get(i).getSampleID(), restoredSamples.get(i).getSampleID());
+      assertEquals(samples.get(i).getListOfTests(), restoredSamples.get(i).getListOfTests());
+    }
+    for (String test : model.getListOfNamesOfTests()) {
+      assertEquals(model.getSamplesForTest(test), restored.getSamplesForTest(test));
+    }
+  }
+
+  /**
+   * Saves a model to a snapshot and loads it into an empty model
+   * @param model the model to save
+   * @return the model loaded from the snapshot
+   * @throws IOException if the snapshot cannot be written or read
+   */
+  private IModel saveAndLoad(IModel model) throws IOException {
+    Path snapshotFile = folder.getRoot().toPath().resolve("labflow.snapshot");
+    ModelSnapshot.save(model, snapshotFile);
+    IModel restored = new ModelImpl();
+    ModelSnapshot.load(snapshotFile, restored);
+    return restored;
+  }
+}
@@ -0,0 +1,187 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a JUnit test for reporting the changes made to a model
+ */
+public class ObservableModelTest {
+  ObservableModel model;
+  List<String> batches;
+
+  /**
+   * Instantiates an observable model over an empty model, recording each batch of changes
+   */
+  @Before
+  public void setUp() {
+    model = new ObservableModel(new ModelImpl());
+    batches = new ArrayList<>();
+    model.addModelListener(changes -> batches.add(changes.toString()));
+  }
+
+  /**
+   * Tests that each change outside a transaction is delivered on its own, and that changes in a
+   * transaction are delivered together, with runs of insertions merged
+   */
+  @Test
+  public void testInsertedAndTransactions() {
+    model.addSample(new SampleImpl("Jane Doe", 3456));
+    model.beginTransaction();
+    model.addSample(new SampleImpl("John Doe", 1256));
+    model.beginTransaction();
+    model.addSample(new SampleImpl("Jack Black", 9212));
+    model.endTransaction();
+    model.addTest(new LabTestImpl("HCV Test", 4));
+    model.addEquipment(new EquipmentImpl("Incubator", 10));
+    assertEquals(1, batches.size());
+    model.endTransaction();
+
+    assertEquals("[[INSERTED SAMPLE 0-0], "
+        + "[INSERTED SAMPLE 1-2, INSERTED TEST 0-0, INSERTED EQUIPMENT 0-0]]", batches.toString());
+    try {
+      model.endTransaction();
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("No transaction has begun", e.getMessage());
+    }
+  }
+
+  /**
+   * Tests that links are reported when added, and removed with the items they belong to
+   */
+  @Test
+  public void testLinks() {
+    model.addSample(new SampleImpl("Jane Doe", 3456));
+    model.addSample(new SampleImpl("John Doe", 1256));
+    model.addTest(new LabTestImpl("HCV Test", 4));
+    model.addTest(new LabTestImpl("HIV Test", 2));
+    batches.clear();
+
+    model.addTestToSample("Jane Doe", "HCV Test");
+    model.addTestToSample("Jane Doe", "HCV Test");
+    model.addTestToSample("Nobody", "HCV Test");
+    assertEquals(2, model.assignTests(List.of("HIV Test"), List.of("Jane Doe", "John Doe")));
+    assertEquals(0, model.assignTests(List.of("HIV Test"), List.of("Jane Doe")));
+    model.deleteTests(new int[]{0, 0});
+    model.deleteSample(0);
+
+    assertEquals("[[LINKED [Jane Doe] [HCV Test]], "
+        + "[LINKED [Jane Doe, John Doe] [HIV Test]], "
+        + "[UNLINKED [Jane Doe] [HCV Test], REMOVED TEST [0]], "
+        + "[UNLINKED [Jane Doe] [HIV Test], REMOVED SAMPLE [0]]]", batches.toString());
+    assertEquals(List.of("John Doe"), model.getListOfNamesOfSamples());
+  }
+
+  /**
+   * Tests that assigning tests that are partly linked already, to samples and tests of which
+   * some do not exist, reports exactly the pairs newly linked
+   */
+  @Test
+  public void testAssignPartialOverlap() {
+    model.addSample(new SampleImpl("S1", 1));
+    model.addSample(new SampleImpl("S2", 2));
+    model.addTest(new LabTestImpl("T1", 4));
+    model.addTest(new LabTestImpl("T2", 2));
+    model.addTestToSample("S1", "T1");
+    batches.clear();
+
+    assertEquals(3, model.assignTests(List.of("T1", "T2", "NOPE"), List.of("S1", "S2", "GHOST")));
+    assertEquals("[[LINKED [S1] [T2], LINKED [S2] [T1, T2]]]", batches.toString());
+  }
+
+  /**
+   * Tests that sorting items with the same name reports each item moving with itself
+   */
+  @Test
+  public void testMovedDuplicates() {
+    model.addSample(new SampleImpl("SAME", 5));
+    model.addSample(new SampleImpl("SAME", 3));
+    model.addEquipment(new EquipmentImpl("SAME", 20));
+    model.addEquipment(new EquipmentImpl("SAME", 10));
+    batches.clear();
+
+    model.sortSamplesByID();
+    model.sortEquipmentByServiceUrgency();
+    assertEquals("[[MOVED SAMPLE [1, 0]], [MOVED EQUIPMENT [1, 0]]]", batches.toString());
+  }
+
+  /**
+   * Tests that a sort that replaces items, instead of only moving them, fails with a clear
+   * exception rather than a NullPointerException
+   */
+  @Test
+  public void testMovedReplacedItems() {
+    model = new ObservableModel(new ModelImpl() {
+      @Override
+      public void sortEquipmentByServiceUrgency() {
+        Equipment first = getListOfEquipment().get(0);
+        deleteEquipment(0);
+        addEquipment(new EquipmentImpl(first.getEquipmentName(), first.getServiceUrgency()));
+      }
+    });
+    model.addModelListener(changes -> batches.add(changes.toString()));
+    model.addEquipment(new EquipmentImpl("Incubator", 10));
+    try {
+      model.sortEquipmentByServiceUrgency();
+      fail("expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("Sorted equipment list holds an item"));
+    }
+  }
+
+  /**
+   * Tests that sorting reports where each item came from, and that sorting a sorted list or
+   * failing to delete reports nothing
+   */
+  @Test
+  public void testMovedAndFailures() {
+    model.addSample(new SampleImpl("Jane Doe", 3456));
+    model.addSample(new SampleImpl("John Doe", 1256));
+    model.addSample(new SampleImpl("Jack Black", 9212));
+    model.addEquipment(new EquipmentImpl("Grifols Panther", 20));
+    model.addEquipment(new EquipmentImpl("Incubator", 10));
+    batches.clear();
+
+    model.sortSamplesByID();
+    model.sortSamplesByID();
+    model.sortEquipmentByServiceUrgency();
+    try {
+      model.deleteSamples(new int[]{1, 3});
+      fail();
+    } catch (IllegalArgumentException e) {
+      // nothing deleted
+    }
+    model.deleteEquipment(new int[]{1});
+
+    assertEquals("[[MOVED SAMPLE [1, 0, 2]], [MOVED EQUIPMENT [1, 0]], "
+        + "[REMOVED EQUIPMENT [1]]]", batches.toString());
+    model.clearSamples();
+    assertEquals("[REMOVED SAMPLE [0, 1, 2]]", batches.get(3));
+  }
+
+  /**
+   * Tests that a listener that is removed hears nothing more, and that the sizes kept for the
+   * indices of insertions follow deletions made while no one was listening
+   */
+  @Test
+  public void testRemoveListener() {
+    ModelListener listener = changes -> batches.add("second " + changes);
+    model.addModelListener(listener);
+    model.addTest(new LabTestImpl("HCV Test", 4));
+    model.removeModelListener(listener);
+    model.addTest(new LabTestImpl("HIV Test", 2));
+
+    ObservableModel quiet = new ObservableModel(new ModelImpl());
+    quiet.addTest(new LabTestImpl("HCV Test", 4));
+    quiet.addTest(new LabTestImpl("HIV Test", 2));
+    quiet.deleteTest(0);
+    quiet.addModelListener(changes -> batches.add("quiet " + changes));
+    quiet.addTest(new LabTestImpl("DCA", 1));
+
+    assertEquals("[[INSERTED TEST 0-0], second [INSERTED TEST 0-0], [INSERTED TEST 1-1], "
+        + "quiet [INSERTED TEST 1-1]]", batches.toString());
+  }
+}
@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is a benchmark timing how long the test-run scheduler takes to plan a dashboard, with
+ * list scheduling alone and with local search. Run it with the sample counts to try as
+ * arguments, for example: java SchedulerBenchmark 20000 100000
+ */
+public class SchedulerBenchmark {
+  private static final int TESTS = 120;
+  private static final int EQUIPMENT = 40;
+  private static final int THREADS = 4;
+  private static final int REPEATS = 5;
+
+  /**
+   * Runs the benchmark for each sample count given
+   * @param args the sample counts, 20000 if none are given
+   */
+  public static void main(String[] args) {
+    int[] counts = args.length == 0 ? new int[]{20000} : new int[args.length];
+    for (int i = 0; i < args.length; i++) {
+      counts[i] = Integer.parseInt(args[i]);
+    }
+
+    System.out.printf("%-10s %-8s %12s %10s%n", "samples", "threads", "makespan", "plan ms");
+    for (int count : counts) {
+      IModel model = new ModelImpl();
+      new WorkloadGenerator(5, count, TESTS, EQUIPMENT).apply(model);
+      Map<String, List<String>> capable = capable(model);
+      run(count, 0, model, capable);
+      run(count, THREADS, model, capable);
+    }
+  }
+
+  /**
+   * Lets each test run on three pieces of equipment spread over the dashboard
+   * @param model the dashboard
+   * @return map of names of equipment to the names of the tests each can run
+   */
+  private static Map<String, List<String>> capable(IModel model) {
+    Map<String, List<String>> capable = new HashMap<>();
+    List<String> equipment = model.getListOfNamesOfEquipment();
+    List<String> tests = model.getListOfNamesOfTests();
+    for (int t = 0; t < tests.size(); t++) {
+      for (int k = 0; k < 3; k++) {
+        capable.computeIfAbsent(equipment.get((t * 7 + k * 13) % equipment.size()),
+            e -> new ArrayList<>()).add(tests.get(t));
+      }
+    }
+    return capable;
+  }
+
+  /**
+   * Plans the dashboard several times after one warm-up run and reports the best time
+   * @param count the number of samples
+   * @param threads the number of search threads, 0 for list scheduling alone
+   * @param model the dashboard
+   * @param capable the tests each piece of equipment can run
+   */
+  private static void run(int count, int threads, IModel model,
+                          Map<String, List<String>> capable) {
+    try (TestScheduler scheduler = new TestScheduler(threads)) {
+      long makespan = scheduler.plan(model, capable).getMakespan();
+      long best = Long.MAX_VALUE;
+      for (int i = 0; i < REPEATS; i++) {
+        long start = System.nanoTime();
+        Blackhole.consume(scheduler.plan(model, capable).getMakespan());
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      System.out.printf("%-10d %-8d %12d %10.2f%n", count, threads, makespan, best / 1e6);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * This is a JUnit test for planning the runs of tests on equipment
+ */
+public class TestSchedulerTest {
+
+  /**
+   * Returns a dashboard of two pieces of equipment, a test of duration 3 assigned to two samples
+   * and a test of duration 2 assigned to three, on which list scheduling ends at 7 but the best
+   * plan ends at 6
+   * @return the dashboard
+   */
+  private IModel dashboard() {
+    IModel model = new ModelImpl();
+    model.addTest(new LabTestImpl("LONG", 3));
+    model.addTest(new LabTestImpl("SHORT", 2));
+    model.addTest(new LabTestImpl("RARE", 5));
+    model.addEquipment(new EquipmentImpl("FIRST", 10));
+    model.addEquipment(new EquipmentImpl("SECOND", 20));
+    for (int i = 1; i <= 3; i++) {
+      model.addSample(new SampleImpl("SAMPLE " + i, i));
+    }
+    model.assignTests(List.of("LONG"), List.of("SAMPLE 1", "SAMPLE 2"));
+    model.assignTests(List.of("SHORT", "RARE"), List.of("SAMPLE 1", "SAMPLE 2", "SAMPLE 3"));
+    return model;
+  }
+
+  /**
+   * Tests that list scheduling plans every sample-test once, longest test first, and leaves out
+   * tests no equipment can run
+   */
+  @Test
+  public void testListSchedule() {
+    Map<String, List<String>> tests = Map.of("FIRST", List.of("LONG", "SHORT"),
+        "SECOND", List.of("LONG", "SHORT", "NO SUCH TEST"));
+    try (TestScheduler scheduler = new TestScheduler(0)) {
+      TestScheduler.Schedule schedule = scheduler.plan(dashboard(), tests);
+
+      assertEquals(7, schedule.getMakespan());
+      assertEquals(List.of("RARE"), schedule.getUnscheduledTests());
+      assertEquals("[FIRST LONG 0+3 [SAMPLE 1], FIRST SHORT 3+4 [SAMPLE 1, SAMPLE 2]]",
+          schedule.getBatches("FIRST").toString());
+      assertEquals("[SECOND LONG 0+3 [SAMPLE 2], SECOND SHORT 3+2 [SAMPLE 3]]",
+          schedule.getBatches("SECOND").toString());
+    }
+  }
+
+  /**
+   * Tests that local search finds the best plan, on the same seed every time
+   */
+  @Test
+  public void testSearch() {
+    Map<String, List<String>> tests = Map.of("FIRST", List.of("LONG", "SHORT"),
+        "SECOND", List.of("LONG", "SHORT"));
+    try (TestScheduler scheduler = new TestScheduler(2)) {
+      scheduler.setRounds(0);
+      TestScheduler.Schedule schedule = scheduler.plan(dashboard(), tests);
+
+      assertEquals(6, schedule.getMakespan());
+      assertEquals("[FIRST SHORT 0+6 [SAMPLE 1, SAMPLE 2, SAMPLE 3], "
+          + "SECOND LONG 0+6 [SAMPLE 1, SAMPLE 2]]", schedule.getBatches().toString());
+    }
+  }
+
+  /**
+   * Tests that on a large dashboard every sample-test runs exactly once on equipment able to
+   * run it, no batches on a piece of equipment overlap, and the search never does worse than
+   * list scheduling
+   */
+  @Test
+  public void testLargeDashboard() {
+    IModel model = new ModelImpl();
+    new WorkloadGenerator(5, 20000, 120, 40).apply(model);
+    Map<String, List<String>> capable = new HashMap<>();
+    List<String> equipment = model.getListOfNamesOfEquipment();
+    List<String> tests = model.getListOfNamesOfTests();
+    for (int t = 0; t < tests.size(); t++) {
+      for (int k = 0; k < 3; k++) {
+        capable.computeIfAbsent(equipment.get((t * 7 + k * 13) % equipment.size()),
+            e -> new ArrayList<>()).add(tests.get(t));
+      }
+    }
+    long sampleTests = 0;
+    for (String test : tests) {
+      sampleTests += model.getSamplesForTest(test).size();
+    }
+
+    long listed;
+    try (TestScheduler scheduler = new TestScheduler(0)) {
+      listed = scheduler.plan(model, capable).getMakespan();
+    }
+    try (TestScheduler scheduler = new TestScheduler(4)) {
+      TestScheduler.Schedule schedule = scheduler.plan(model, capable);
+      assertTrue(schedule.getMakespan() <= listed);
+      assertEquals(schedule.getMakespan(), scheduler.plan(model, capable).getMakespan());
+
+      long planned = 0;
+      Map<String, Long> clock = new HashMap<>();
+      for (TestScheduler.Batch batch : schedule.getBatches()) {
+        assertTrue(capable.get(batch.getEquipment()).contains(batch.getTest()));
+        assertEquals(clock.getOrDefault(batch.getEquipment(), 0L).longValue(), batch.getStart());
+        assertTrue(batch.getStart() + batch.getDuration() <= schedule.getMakespan());
+        clock.put(batch.getEquipment(), batch.getStart() + batch.getDuration());
+        planned += batch.getSamples().size();
+      }
+      assertTrue(sampleTests > 50000);
+      assertEquals(sampleTests, planned);
+    }
+  }
+
+  /**
+   * Tests that equipment which is not in the dashboard and bad settings are rejected
+   */
+  @Test
+  public void testInvalid() {
+    try (TestScheduler scheduler = new TestScheduler(1)) {
+      scheduler.plan(dashboard(), Map.of("THIRD", List.of("LONG")));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("No equipment THIRD", e.getMessage());
+    }
+    try (TestScheduler scheduler = new TestScheduler(1)) {
+      scheduler.setRounds(-1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid number of rounds", e.getMessage());
+    }
+    try {
+      new TestScheduler(-1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid number of threads", e.getMessage());
+    }
+  }
+}
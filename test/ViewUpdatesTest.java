@@ -0,0 +1,91 @@
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.JPanel;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import org.junit.Test;
+
+/**
+ * This is a JUnit test for batching the updates of a view
+ */
+public class ViewUpdatesTest {
+
+  /**
+   * Tests that text set and added is put on the component in one go, only when flushed
+   * @throws Exception if the event dispatch thread fails
+   */
+  @Test
+  public void testTextSetOnce() throws Exception {
+    SwingUtilities.invokeAndWait(() -> {
+      AtomicInteger changes = new AtomicInteger();
+      JTextArea area = new JTextArea("OLD\n");
+      area.getDocument().addDocumentListener(new DocumentListener() {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+          changes.incrementAndGet();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+          changes.incrementAndGet();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+        }
+      });
+      ViewUpdates updates = new ViewUpdates();
+      updates.append(area, "A\n");
+      updates.append(area, "B\n");
+      assertTrue(updates.isPending());
+      assertEquals("OLD\n", area.getText());
+      updates.flush();
+      assertEquals("OLD\nA\nB\n", area.getText());
+      assertEquals(2, changes.get());   // one removal and one insertion
+
+      updates.append(area, "C\n");
+      updates.setText(area, null);
+      updates.append(area, "D\n");
+      updates.flush();
+      assertEquals("D\n", area.getText());
+      assertFalse(updates.isPending());
+    });
+  }
+
+  /**
+   * Tests that updates are applied at the next frame without being flushed, and that a
+   * component marked dirty many times is repainted once
+   * @throws Exception if the event dispatch thread fails
+   */
+  @Test
+  public void testFlushedAtNextFrame() throws Exception {
+    AtomicInteger repaints = new AtomicInteger();
+    JTextArea area = new JTextArea();
+    JPanel panel = new JPanel() {
+      @Override
+      public void repaint() {
+        repaints.incrementAndGet();
+      }
+    };
+    ViewUpdates updates = new ViewUpdates();
+    SwingUtilities.invokeAndWait(() -> {
+      repaints.set(0);
+      for (int i = 0; i < 1000; i++) {
+        updates.invalidate(panel);
+        updates.append(area, i + "\n");
+      }
+    });
+    long deadline = System.nanoTime() + 2_000_000_000L;
+    while (System.nanoTime() < deadline && area.getText().isEmpty()) {
+      Thread.sleep(5);
+    }
+    SwingUtilities.invokeAndWait(() -> {
+      assertFalse(updates.isPending());
+      assertTrue(area.getText().endsWith("999\n"));
+      assertEquals(1, repaints.get());
+    });
+  }
+}
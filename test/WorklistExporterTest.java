@@ -0,0 +1,97 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is a JUnit test for exporting worklists and the sample-test matrix
+ */
+public class WorklistExporterTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  IModel Model1;
+
+  /**
+   * Instantiates a model with three samples, three tests and some assignments
+   */
+  @Before
+  public void setUp() {
+    Model1 = new ModelImpl();
+    Model1.addSample(new SampleImpl("JANE DOE", 3456));
+    Model1.addSample(new SampleImpl("DOE, \"JOHN\"", 1256));
+    Model1.addSample(new SampleImpl("JACK BLACK", null));
+    Model1.addTest(new LabTestImpl("HCV", 4));
+    Model1.addTest(new LabTestImpl("HBV", 5));
+    Model1.addTest(new LabTestImpl("HIV", null));
+    Model1.assignTests(List.of("HCV", "HBV"), List.of("JANE DOE", "JACK BLACK"));
+    Model1.addTestToSample("DOE, \"JOHN\"", "HBV");
+  }
+
+  /**
+   * Tests exporting the worklists in both formats
+   * @throws IOException if a file cannot be written or read
+   */
+  @Test
+  public void testExportWorklist() throws IOException {
+    assertEquals(List.of(
+        "test,duration,sample,sample_id",
+        "HCV,4,JANE DOE,3456",
+        "HCV,4,JACK BLACK,",
+        "HBV,5,JANE DOE,3456",
+        "HBV,5,\"DOE, \"\"JOHN\"\"\",1256",
+        "HBV,5,JACK BLACK,"), export(true, ExportFormat.CSV));
+    assertEquals(List.of(
+        "{\"test\":\"HCV\",\"duration\":4,\"samples\":[{\"name\":\"JANE DOE\",\"id\":3456},"
+            + "{\"name\":\"JACK BLACK\",\"id\":null}]}",
+        "{\"test\":\"HBV\",\"duration\":5,\"samples\":[{\"name\":\"JANE DOE\",\"id\":3456},"
+            + "{\"name\":\"DOE, \\\"JOHN\\\"\",\"id\":1256},"
+            + "{\"name\":\"JACK BLACK\",\"id\":null}]}",
+        "{\"test\":\"HIV\",\"duration\":null,\"samples\":[]}"),
+        export(true, ExportFormat.JSON_LINES));
+  }
+
+  /**
+   * Tests exporting the matrix of tests of each sample in both formats
+   * @throws IOException if a file cannot be written or read
+   */
+  @Test
+  public void testExportMatrix() throws IOException {
+    assertEquals(List.of(
+        "sample,sample_id,HCV,HBV,HIV",
+        "JANE DOE,3456,1,1,0",
+        "\"DOE, \"\"JOHN\"\"\",1256,0,1,0",
+        "JACK BLACK,,1,1,0"), export(false, ExportFormat.CSV));
+    assertEquals(List.of(
+        "{\"sample\":\"JANE DOE\",\"id\":3456,\"tests\":[\"HCV\",\"HBV\"]}",
+        "{\"sample\":\"DOE, \\\"JOHN\\\"\",\"id\":1256,\"tests\":[\"HBV\"]}",
+        "{\"sample\":\"JACK BLACK\",\"id\":null,\"tests\":[\"HCV\",\"HBV\"]}"),
+        export(false, ExportFormat.JSON_LINES));
+  }
+
+  /**
+   * Exports the worklists or the matrix and reads the file back
+   * @param worklist true to export the worklists, false for the matrix
+   * @param format the format to export in
+   * @return the lines of the exported file
+   * @throws IOException if a file cannot be written or read
+   */
+  private List<String> export(boolean worklist, ExportFormat format) throws IOException {
+    Path out = folder.getRoot().toPath().resolve("export");
+    try (WorklistExporter exporter = new WorklistExporter(Model1, 2)) {
+      if (worklist) {
+        exporter.exportWorklist(out, format);
+      } else {
+        exporter.exportMatrix(out, format);
+      }
+    }
+    assertEquals(1, folder.getRoot().list().length);
+    return Files.readAllLines(out);
+  }
+}
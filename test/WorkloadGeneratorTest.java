@@ -0,0 +1,72 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is a JUnit test for the synthetic workload generator
+ */
+public class WorkloadGeneratorTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Tests that a workload depends only on its seed and settings
+   * @throws IOException if a file cannot be written or read
+   */
+  @Test
+  public void testDeterministic() throws IOException {
+    Path first = folder.newFile().toPath();
+    Path second = folder.newFile().toPath();
+    Path other = folder.newFile().toPath();
+    new WorkloadGenerator(7, 5000, 50, 20).write(first);
+    new WorkloadGenerator(7, 5000, 50, 20).write(second);
+    new WorkloadGenerator(8, 5000, 50, 20).write(other);
+
+    assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+    assertFalse(Files.readString(first).equals(Files.readString(other)));
+  }
+
+  /**
+   * Tests that applying a workload and replaying it from a file give the same dashboard, with
+   * the expected number of each entity
+   * @throws IOException if the file cannot be written or read
+   */
+  @Test
+  public void testApplyAndReplay() throws IOException {
+    WorkloadGenerator generator = new WorkloadGenerator(42, 25000, 120, 300);
+    IModel applied = new ModelImpl();
+    long records = generator.apply(applied);
+
+    Path file = folder.newFile("workload.csv").toPath();
+    assertEquals(records, generator.write(file));
+    IModel replayed = new ModelImpl();
+    try (BatchIngest ingest = new BatchIngest(replayed, 2,
+        new PrintStream(OutputStream.nullOutputStream()))) {
+      BatchIngest.Report report = ingest.ingest(file);
+      assertEquals(records, report.getApplied());
+      assertEquals(0, report.getRejected());
+    }
+
+    // two batches of 10000 and one of 5000, two percent of each deleted
+    assertEquals(24500, applied.getListOfSamples().size());
+    assertEquals(120, applied.getListOfTests().size());
+    assertEquals(300, applied.getListOfEquipment().size());
+    assertEquals(applied.getListOfNamesOfSamples(), replayed.getListOfNamesOfSamples());
+    assertEquals(applied.getListOfNamesOfEquipment(), replayed.getListOfNamesOfEquipment());
+    for (String test : applied.getListOfNamesOfTests()) {
+      assertEquals(applied.getSamplesForTest(test), replayed.getSamplesForTest(test));
+    }
+
+    // the most popular test is ordered far more often than the least
+    int first = applied.getSamplesForTest("CBC").size();
+    int last = applied.getSamplesForTest("ASSAY 100").size();
+    assertTrue(first > 10 * Math.max(1, last));
+  }
+}